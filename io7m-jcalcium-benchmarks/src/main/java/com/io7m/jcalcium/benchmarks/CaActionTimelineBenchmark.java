@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.evaluator.api.CaActionKeyframeCurrent;
+import com.io7m.jcalcium.evaluator.main.CaActionTimeline;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CaActionTimeline#keyframeCurrent(long, long, double)}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaActionTimelineBenchmark
+{
+  /**
+   * The number of frames between keyframes.
+   */
+
+  @Param({"1", "8", "32"})
+  public int keyframe_interval;
+
+  private CaActionTimeline timeline;
+  private long frame;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaActionTimelineBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    final IntAVLTreeSet keyframes = new IntAVLTreeSet();
+    for (int index = 0;
+         index <= CaBenchmarkSkeletons.FRAME_COUNT;
+         index += this.keyframe_interval) {
+      keyframes.add(index);
+    }
+
+    this.timeline =
+      new CaActionTimeline(keyframes, CaBenchmarkSkeletons.FRAME_COUNT);
+    this.frame = 0L;
+  }
+
+  /**
+   * Calculate the current keyframes for successive global frames.
+   *
+   * @return The current keyframes
+   */
+
+  @Benchmark
+  public CaActionKeyframeCurrent keyframeCurrent()
+  {
+    ++this.frame;
+    return this.timeline.keyframeCurrent(0L, this.frame, 1.0);
+  }
+}
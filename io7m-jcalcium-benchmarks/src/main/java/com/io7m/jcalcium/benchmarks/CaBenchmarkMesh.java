@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursor3Type;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSemantic;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorWritable3DType;
+import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.jtensors.VectorWritable4LType;
+import javaslang.Tuple;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+
+import java.util.Random;
+
+/**
+ * A deterministic, array-backed deformable mesh used as a benchmark input.
+ * Each vertex has a position and a normal, and is influenced by four joints.
+ */
+
+public final class CaBenchmarkMesh implements CaMeshDeformableCPUType
+{
+  private static final long SEED = 0x6d657368L;
+
+  private final int vertex_count;
+  private final long[] indices;
+  private final double[] weights;
+  private final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> sources;
+  private final SortedMap<String, CaMeshDeformableAttributeCursorType> targets;
+  private long version;
+
+  private CaBenchmarkMesh(
+    final int in_vertex_count,
+    final long[] in_indices,
+    final double[] in_weights,
+    final double[] in_positions,
+    final double[] in_normals)
+  {
+    this.vertex_count = in_vertex_count;
+    this.indices = NullCheck.notNull(in_indices, "Indices");
+    this.weights = NullCheck.notNull(in_weights, "Weights");
+
+    this.sources = TreeMap.ofEntries(
+      Tuple.of(
+        "POSITION",
+        new ArrayCursor(in_positions, CaMeshDeformableAttributeSemantic.POSITION)),
+      Tuple.of(
+        "NORMAL",
+        new ArrayCursor(in_normals, CaMeshDeformableAttributeSemantic.DIRECTION)));
+    this.targets = TreeMap.ofEntries(
+      Tuple.of(
+        "POSITION",
+        new ArrayCursor(new double[in_positions.length], CaMeshDeformableAttributeSemantic.POSITION)),
+      Tuple.of(
+        "NORMAL",
+        new ArrayCursor(new double[in_normals.length], CaMeshDeformableAttributeSemantic.DIRECTION)));
+    this.version = 0L;
+  }
+
+  /**
+   * Create a mesh. The same arguments always produce the same mesh.
+   *
+   * @param vertex_count The number of vertices
+   * @param joint_count  The number of joints in the skeleton that will deform
+   *                     the mesh
+   *
+   * @return A new mesh
+   */
+
+  public static CaBenchmarkMesh create(
+    final int vertex_count,
+    final int joint_count)
+  {
+    final Random random = new Random(SEED);
+    final long[] indices = new long[vertex_count * 4];
+    final double[] weights = new double[vertex_count * 4];
+    final double[] positions = new double[vertex_count * 3];
+    final double[] normals = new double[vertex_count * 3];
+
+    for (int vertex = 0; vertex < vertex_count; ++vertex) {
+      final int base4 = vertex * 4;
+      final int base3 = vertex * 3;
+
+      /*
+       * Neighbouring joints tend to influence the same vertices, so the four
+       * influences are taken from a contiguous run of joint IDs.
+       */
+
+      final int first = random.nextInt(joint_count);
+      double sum = 0.0;
+      for (int influence = 0; influence < 4; ++influence) {
+        indices[base4 + influence] = (long) ((first + influence) % joint_count);
+        weights[base4 + influence] = random.nextDouble() + 0.001;
+        sum += weights[base4 + influence];
+      }
+      for (int influence = 0; influence < 4; ++influence) {
+        weights[base4 + influence] /= sum;
+      }
+
+      positions[base3] = random.nextDouble() * 2.0 - 1.0;
+      positions[base3 + 1] = random.nextDouble() * 2.0;
+      positions[base3 + 2] = random.nextDouble() * 2.0 - 1.0;
+
+      final double nx = random.nextDouble() - 0.5;
+      final double ny = random.nextDouble() - 0.5;
+      final double nz = random.nextDouble() - 0.5;
+      final double length = Math.sqrt((nx * nx) + (ny * ny) + (nz * nz)) + 1.0e-9;
+      normals[base3] = nx / length;
+      normals[base3 + 1] = ny / length;
+      normals[base3 + 2] = nz / length;
+    }
+
+    return new CaBenchmarkMesh(
+      vertex_count, indices, weights, positions, normals);
+  }
+
+  @Override
+  public SortedMap<String, CaMeshDeformableAttributeCursorType> meshTargetCursors()
+  {
+    return this.targets;
+  }
+
+  @Override
+  public SortedMap<String, CaMeshDeformableAttributeCursorReadableType> meshSourceCursors()
+  {
+    return this.sources;
+  }
+
+  @Override
+  public long vertexCount()
+  {
+    return (long) this.vertex_count;
+  }
+
+  @Override
+  public void jointIndicesForVertex(
+    final long vertex,
+    final VectorWritable4LType out)
+  {
+    final int base = (int) vertex * 4;
+    out.set4L(
+      this.indices[base],
+      this.indices[base + 1],
+      this.indices[base + 2],
+      this.indices[base + 3]);
+  }
+
+  @Override
+  public void jointWeightsForVertex(
+    final long vertex,
+    final VectorWritable4DType out)
+  {
+    final int base = (int) vertex * 4;
+    out.set4D(
+      this.weights[base],
+      this.weights[base + 1],
+      this.weights[base + 2],
+      this.weights[base + 3]);
+  }
+
+  @Override
+  public long deformedPoseVersion()
+  {
+    return this.version;
+  }
+
+  @Override
+  public void setDeformedPoseVersion(
+    final long in_version)
+  {
+    this.version = in_version;
+  }
+
+  private static final class ArrayCursor implements
+    CaMeshDeformableAttributeCursor3Type
+  {
+    private final double[] values;
+    private final CaMeshDeformableAttributeSemantic semantic;
+    private long vertex;
+
+    ArrayCursor(
+      final double[] in_values,
+      final CaMeshDeformableAttributeSemantic in_semantic)
+    {
+      this.values = in_values;
+      this.semantic = in_semantic;
+    }
+
+    @Override
+    public long vertex()
+    {
+      return this.vertex;
+    }
+
+    @Override
+    public void setVertex(
+      final long in_vertex)
+    {
+      this.vertex = in_vertex;
+    }
+
+    @Override
+    public CaMeshDeformableAttributeSemantic semantic()
+    {
+      return this.semantic;
+    }
+
+    @Override
+    public void get3D(
+      final VectorWritable3DType out)
+    {
+      final int base = (int) this.vertex * 3;
+      out.set3D(
+        this.values[base],
+        this.values[base + 1],
+        this.values[base + 2]);
+    }
+
+    @Override
+    public void set3D(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final int base = (int) this.vertex * 3;
+      this.values[base] = x;
+      this.values[base + 1] = y;
+      this.values[base + 2] = z;
+    }
+  }
+}
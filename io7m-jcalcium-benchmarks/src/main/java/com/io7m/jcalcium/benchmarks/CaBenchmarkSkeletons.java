@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletonParameters;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletons;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+
+/**
+ * Deterministic skeletons used as benchmark inputs. The skeletons are
+ * produced by {@link CaSyntheticSkeletons} with a fixed seed.
+ */
+
+public final class CaBenchmarkSkeletons
+{
+  /**
+   * The name of the single action defined by each skeleton.
+   */
+
+  public static final CaActionName ACTION_NAME;
+
+  /**
+   * The length, in frames, of the single action defined by each skeleton.
+   */
+
+  public static final int FRAME_COUNT;
+
+  /**
+   * The frame rate of the single action defined by each skeleton.
+   */
+
+  public static final int FRAMES_PER_SECOND;
+
+  private static final long SEED;
+
+  static {
+    ACTION_NAME = CaSyntheticSkeletons.actionName(0);
+    FRAME_COUNT = 240;
+    FRAMES_PER_SECOND = 60;
+    SEED = 0x6a63616c6369756dL;
+  }
+
+  private CaBenchmarkSkeletons()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Construct a skeleton definition with {@code joint_count} joints and a
+   * single action of {@link #FRAME_COUNT} frames that animates every joint
+   * with a keyframe every {@code keyframe_interval} frames. The same
+   * arguments always produce the same definition.
+   *
+   * @param joint_count       The number of joints
+   * @param keyframe_interval The number of frames between keyframes
+   *
+   * @return A skeleton definition
+   */
+
+  public static CaDefinitionSkeleton definition(
+    final int joint_count,
+    final int keyframe_interval)
+  {
+    return definition(joint_count, 16, keyframe_interval);
+  }
+
+  /**
+   * Construct a skeleton definition as {@link #definition(int, int)}, with
+   * no joint deeper than {@code maximum_depth}.
+   *
+   * @param joint_count       The number of joints
+   * @param maximum_depth     The maximum depth of any joint
+   * @param keyframe_interval The number of frames between keyframes
+   *
+   * @return A skeleton definition
+   */
+
+  public static CaDefinitionSkeleton definition(
+    final int joint_count,
+    final int maximum_depth,
+    final int keyframe_interval)
+  {
+    return CaSyntheticSkeletons.generate(
+      CaSyntheticSkeletonParameters.builder()
+        .setSeed(SEED)
+        .setName(CaSkeletonName.of("benchmark"))
+        .setJointCount(joint_count)
+        .setMaximumDepth(maximum_depth)
+        .setActionCount(1)
+        .setFrameCount(FRAME_COUNT)
+        .setFramesPerSecond(FRAMES_PER_SECOND)
+        .setKeyframeInterval(keyframe_interval)
+        .build());
+  }
+
+  /**
+   * Construct a skeleton definition with {@code joint_count} joints, no
+   * joint deeper than {@code maximum_depth}, and no actions. The same
+   * arguments always produce the same definition.
+   *
+   * @param joint_count   The number of joints
+   * @param maximum_depth The maximum depth of any joint
+   *
+   * @return A skeleton definition
+   */
+
+  public static CaDefinitionSkeleton definitionJoints(
+    final int joint_count,
+    final int maximum_depth)
+  {
+    return CaSyntheticSkeletons.generate(
+      CaSyntheticSkeletonParameters.builder()
+        .setSeed(SEED)
+        .setName(CaSkeletonName.of("benchmark"))
+        .setJointCount(joint_count)
+        .setMaximumDepth(maximum_depth)
+        .setActionCount(0)
+        .build());
+  }
+
+  /**
+   * Construct and compile a skeleton.
+   *
+   * @param joint_count       The number of joints
+   * @param keyframe_interval The number of frames between keyframes
+   *
+   * @return A compiled skeleton
+   *
+   * @see #definition(int, int)
+   */
+
+  public static CaSkeleton skeleton(
+    final int joint_count,
+    final int keyframe_interval)
+  {
+    final Validation<List<CaCompileError>, CaSkeleton> result =
+      CaCompiler.create().compile(definition(joint_count, keyframe_interval));
+
+    if (result.isValid()) {
+      return result.get();
+    }
+
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Benchmark skeleton failed to compile.");
+    sb.append(System.lineSeparator());
+    for (final CaCompileError error : result.getError()) {
+      sb.append("  ");
+      sb.append(error.message());
+      sb.append(System.lineSeparator());
+    }
+    throw new IllegalStateException(sb.toString());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.api.CaCompilerType;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CaCompiler}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaCompilerBenchmark
+{
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"16", "64", "256", "16384"})
+  public int joint_count;
+
+  /**
+   * The maximum depth of any joint in the skeleton. A maximum depth equal
+   * to the largest joint count produces long chains of joints.
+   */
+
+  @Param({"16", "16384"})
+  public int maximum_depth;
+
+  /**
+   * The number of frames between keyframes.
+   */
+
+  @Param({"1", "8", "32"})
+  public int keyframe_interval;
+
+  private CaDefinitionSkeleton definition;
+  private CaCompilerType compiler_serial;
+  private CaCompilerType compiler_parallel;
+  private ExecutorService executor;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaCompilerBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.definition =
+      CaBenchmarkSkeletons.definition(
+        this.joint_count, this.maximum_depth, this.keyframe_interval);
+    this.executor =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    this.compiler_serial =
+      CaCompiler.create();
+    this.compiler_parallel =
+      CaCompiler.createWithExecutor(this.executor);
+  }
+
+  /**
+   * Shut down the benchmark.
+   */
+
+  @TearDown
+  public void tearDown()
+  {
+    this.executor.shutdown();
+  }
+
+  /**
+   * Compile a skeleton on the calling thread.
+   *
+   * @return The compilation result
+   */
+
+  @Benchmark
+  public Validation<List<CaCompileError>, CaSkeleton> compileSerial()
+  {
+    return this.compiler_serial.compile(this.definition);
+  }
+
+  /**
+   * Compile a skeleton, compiling actions in parallel.
+   *
+   * @return The compilation result
+   */
+
+  @Benchmark
+  public Validation<List<CaCompileError>, CaSkeleton> compileParallel()
+  {
+    return this.compiler_parallel.compile(this.definition);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.api.CaCompilerType;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the construction of joint trees by {@link CaCompiler}. The
+ * skeletons have no actions, so only the joint tree is compiled.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaCompilerJointsBenchmark
+{
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"10000", "100000"})
+  public int joint_count;
+
+  /**
+   * The maximum depth of any joint in the skeleton.
+   */
+
+  @Param({"16", "100000"})
+  public int maximum_depth;
+
+  private CaDefinitionSkeleton definition;
+  private CaCompilerType compiler;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaCompilerJointsBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.definition =
+      CaBenchmarkSkeletons.definitionJoints(
+        this.joint_count, this.maximum_depth);
+    this.compiler = CaCompiler.create();
+  }
+
+  /**
+   * Compile a skeleton.
+   *
+   * @return The compilation result
+   */
+
+  @Benchmark
+  public Validation<List<CaCompileError>, CaSkeleton> compile()
+  {
+    return this.compiler.compile(this.definition);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointMutableD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the transforms calculated by {@link CaEvaluatedJointMutableD}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaEvaluatedJointBenchmark
+{
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"16", "64", "256"})
+  public int joint_count;
+
+  private CaEvaluatedSkeletonMutableDType skeleton;
+  private PVectorI3D<CaSpaceJointType> translation_0;
+  private PVectorI3D<CaSpaceJointType> translation_1;
+  private boolean toggle;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaEvaluatedJointBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    final CaSkeleton compiled =
+      CaBenchmarkSkeletons.skeleton(this.joint_count, CaBenchmarkSkeletons.FRAME_COUNT);
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), compiled);
+
+    this.skeleton =
+      CaEvaluatedSkeletonD.create(CaEvaluationContext.create(), rest_pose);
+    this.translation_0 = new PVectorI3D<>(0.0, 0.0, 0.0);
+    this.translation_1 = new PVectorI3D<>(0.0, 0.1, 0.0);
+    this.toggle = false;
+  }
+
+  private void consumeAll(
+    final Blackhole hole)
+  {
+    final Int2ReferenceSortedMap<CaEvaluatedJointMutableDType> joints =
+      this.skeleton.jointsMutableByID();
+    for (int index = 0; index < this.joint_count; ++index) {
+      hole.consume(joints.get(index).transformDeform4x4D());
+    }
+  }
+
+  /**
+   * Move a joint, changing the pose version and therefore invalidating the
+   * cached transforms of every joint, and then recalculate the deformation
+   * matrix of every joint.
+   *
+   * @param hole A blackhole
+   */
+
+  @Benchmark
+  public void transformsAfterChange(
+    final Blackhole hole)
+  {
+    this.toggle = !this.toggle;
+    if (this.toggle) {
+      this.skeleton.jointsMutableByID().get(0).setTranslation3D(this.translation_1);
+    } else {
+      this.skeleton.jointsMutableByID().get(0).setTranslation3D(this.translation_0);
+    }
+    this.consumeAll(hole);
+  }
+
+  /**
+   * Retrieve the deformation matrix of every joint when no joint has changed.
+   *
+   * @param hole A blackhole
+   */
+
+  @Benchmark
+  public void transformsUnchanged(
+    final Blackhole hole)
+  {
+    this.consumeAll(hole);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.core.CaCurveEasing;
+import com.io7m.jcalcium.core.CaCurveInterpolation;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatorInterpolation;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.QuaternionM4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.VectorM3D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CaEvaluatorInterpolation}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaEvaluatorInterpolationBenchmark
+{
+  /**
+   * The interpolation used between values.
+   */
+
+  @Param({"CURVE_INTERPOLATION_CONSTANT", "CURVE_INTERPOLATION_LINEAR"})
+  public CaCurveInterpolation interpolation;
+
+  private VectorM3D.ContextVM3D context_v3;
+  private QuaternionM4D.ContextQM4D context_q4;
+  private VectorI3D v_lower;
+  private VectorI3D v_upper;
+  private VectorM3D v_out;
+  private QuaternionI4D q_lower;
+  private QuaternionI4D q_upper;
+  private QuaternionM4D q_out;
+  private double alpha;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaEvaluatorInterpolationBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.context_v3 = new VectorM3D.ContextVM3D();
+    this.context_q4 = new QuaternionM4D.ContextQM4D();
+    this.v_lower = new VectorI3D(0.0, 1.0, 2.0);
+    this.v_upper = new VectorI3D(3.0, 4.0, 5.0);
+    this.v_out = new VectorM3D();
+    this.q_lower = new QuaternionI4D(0.0, 0.0, 0.0, 1.0);
+    this.q_upper = new QuaternionI4D(0.0, 0.0, Math.sin(0.5), Math.cos(0.5));
+    this.q_out = new QuaternionM4D();
+    this.alpha = 0.0;
+  }
+
+  private double nextAlpha()
+  {
+    this.alpha += 0.001;
+    if (this.alpha > 1.0) {
+      this.alpha = 0.0;
+    }
+    return this.alpha;
+  }
+
+  /**
+   * Interpolate scalar values.
+   *
+   * @return The interpolated value
+   */
+
+  @Benchmark
+  public double interpolateScalarD()
+  {
+    return CaEvaluatorInterpolation.interpolateScalarD(
+      CaCurveEasing.CURVE_EASING_IN_OUT,
+      this.interpolation,
+      this.nextAlpha(),
+      1.0,
+      2.0);
+  }
+
+  /**
+   * Interpolate vector values.
+   *
+   * @return The interpolated value
+   */
+
+  @Benchmark
+  public VectorM3D interpolateVector3D()
+  {
+    CaEvaluatorInterpolation.interpolateVector3D(
+      this.context_v3,
+      CaCurveEasing.CURVE_EASING_IN_OUT,
+      this.interpolation,
+      this.nextAlpha(),
+      this.v_lower,
+      this.v_upper,
+      this.v_out);
+    return this.v_out;
+  }
+
+  /**
+   * Interpolate quaternion values.
+   *
+   * @return The interpolated value
+   */
+
+  @Benchmark
+  public QuaternionM4D interpolateQuaternion4D()
+  {
+    CaEvaluatorInterpolation.interpolateQuaternion4D(
+      this.context_q4,
+      CaCurveEasing.CURVE_EASING_IN_OUT,
+      this.interpolation,
+      this.nextAlpha(),
+      this.q_lower,
+      this.q_upper,
+      this.q_out);
+    return this.q_out;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointReadableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContextType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatorSingleType;
+import com.io7m.jcalcium.evaluator.main.CaEvaluatorSingleD;
+import com.io7m.jtensors.MatrixM4x4D;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CaEvaluatorSingleD#evaluateForGlobalFrame(long, long,
+ * double)}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaEvaluatorSingleDBenchmark
+{
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"16", "64", "256"})
+  public int joint_count;
+
+  /**
+   * The number of frames between keyframes.
+   */
+
+  @Param({"1", "8", "32"})
+  public int keyframe_interval;
+
+  private CaEvaluatedSkeletonMutableDType skeleton;
+  private CaEvaluatorSingleType evaluator;
+  private long frame;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaEvaluatorSingleDBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    final CaSkeleton compiled =
+      CaBenchmarkSkeletons.skeleton(this.joint_count, this.keyframe_interval);
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), compiled);
+    final CaActionType action =
+      compiled.actionsByName().get(CaBenchmarkSkeletons.ACTION_NAME).get();
+    final CaEvaluationContextType context =
+      CaEvaluationContext.create();
+
+    this.skeleton = CaEvaluatedSkeletonD.create(context, rest_pose);
+    this.evaluator = CaEvaluatorSingleD.create(
+      context, this.skeleton, action, CaBenchmarkSkeletons.FRAMES_PER_SECOND);
+    this.frame = 0L;
+  }
+
+  /**
+   * Evaluate the local transforms of all joints for successive global
+   * frames.
+   *
+   * @return The resulting pose version
+   */
+
+  @Benchmark
+  public long evaluateForGlobalFrame()
+  {
+    ++this.frame;
+    this.evaluator.evaluateForGlobalFrame(0L, this.frame, 1.0);
+    return this.skeleton.poseVersion();
+  }
+
+  /**
+   * Evaluate all joints for successive global frames, and then calculate the
+   * deformation matrix of every joint.
+   *
+   * @param hole A blackhole
+   */
+
+  @Benchmark
+  public void evaluateForGlobalFrameWithTransforms(
+    final Blackhole hole)
+  {
+    ++this.frame;
+    this.evaluator.evaluateForGlobalFrame(0L, this.frame, 1.0);
+
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints =
+      this.skeleton.jointsByID();
+    for (int index = 0; index < this.joint_count; ++index) {
+      hole.consume(joints.get(index).transformDeform4x4D());
+    }
+  }
+}
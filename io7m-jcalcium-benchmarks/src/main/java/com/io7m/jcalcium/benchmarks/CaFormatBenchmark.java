@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.format.json.jackson.CaJSONFormatProvider;
+import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.loader.api.CaLoaderType;
+import com.io7m.jcalcium.parser.api.CaDefinitionParserType;
+import com.io7m.jcalcium.parser.api.CaParseError;
+import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
+import com.io7m.jcalcium.serializer.api.CaDefinitionSerializerType;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading and serializing skeletons in the JSON definition
+ * format and the protobuf compiled format.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaFormatBenchmark
+{
+  private static final URI URI_BENCHMARK =
+    URI.create("urn:com.io7m.jcalcium.benchmarks");
+
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"16", "64", "256"})
+  public int joint_count;
+
+  /**
+   * The number of frames between keyframes.
+   */
+
+  @Param({"1", "8", "32"})
+  public int keyframe_interval;
+
+  private CaDefinitionSkeleton definition;
+  private CaSkeleton compiled;
+  private CaDefinitionParserType json_parser;
+  private CaDefinitionSerializerType json_serializer;
+  private CaLoaderType protobuf_loader;
+  private CaCompiledSerializerType protobuf_serializer;
+  private byte[] json_data;
+  private byte[] protobuf_data;
+  private ByteArrayOutputStream output;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaFormatBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup
+  public void setup()
+    throws IOException
+  {
+    this.definition =
+      CaBenchmarkSkeletons.definition(this.joint_count, this.keyframe_interval);
+    this.compiled =
+      CaBenchmarkSkeletons.skeleton(this.joint_count, this.keyframe_interval);
+
+    final CaJSONFormatProvider json = new CaJSONFormatProvider();
+    this.json_parser = json.parserCreate();
+    this.json_serializer =
+      json.serializerCreate(json.serializerSupportedVersions().last());
+
+    final CaProtobuf3FormatProvider protobuf = new CaProtobuf3FormatProvider();
+    this.protobuf_loader = protobuf.loaderCreate();
+    this.protobuf_serializer =
+      protobuf.serializerCreate(protobuf.serializerSupportedVersions().last());
+
+    this.output = new ByteArrayOutputStream(1 << 20);
+    this.json_serializer.serializeSkeletonToStream(this.definition, this.output);
+    this.json_data = this.output.toByteArray();
+    this.output.reset();
+    this.protobuf_serializer.serializeCompiledSkeletonToStream(this.compiled, this.output);
+    this.protobuf_data = this.output.toByteArray();
+    this.output.reset();
+  }
+
+  /**
+   * Parse a skeleton definition in the JSON format.
+   *
+   * @return The parse result
+   */
+
+  @Benchmark
+  public Validation<List<CaParseError>, CaDefinitionSkeleton> jsonParse()
+  {
+    return this.json_parser.parseSkeletonFromStream(
+      new ByteArrayInputStream(this.json_data), URI_BENCHMARK);
+  }
+
+  /**
+   * Serialize a skeleton definition in the JSON format.
+   *
+   * @return The number of octets written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public int jsonSerialize()
+    throws IOException
+  {
+    this.output.reset();
+    this.json_serializer.serializeSkeletonToStream(this.definition, this.output);
+    return this.output.size();
+  }
+
+  /**
+   * Load a compiled skeleton in the protobuf format.
+   *
+   * @return The skeleton
+   *
+   * @throws CaLoaderException On load errors
+   */
+
+  @Benchmark
+  public CaSkeleton protobufLoad()
+    throws CaLoaderException
+  {
+    return this.protobuf_loader.loadCompiledSkeletonFromStream(
+      new ByteArrayInputStream(this.protobuf_data), URI_BENCHMARK);
+  }
+
+  /**
+   * Serialize a compiled skeleton in the protobuf format.
+   *
+   * @return The number of octets written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public int protobufSerialize()
+    throws IOException
+  {
+    this.output.reset();
+    this.protobuf_serializer.serializeCompiledSkeletonToStream(this.compiled, this.output);
+    return this.output.size();
+  }
+}
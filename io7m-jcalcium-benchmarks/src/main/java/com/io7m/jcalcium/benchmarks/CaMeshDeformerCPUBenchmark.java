@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.benchmarks;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CaMeshDeformerCPU}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaMeshDeformerCPUBenchmark
+{
+  /**
+   * The number of joints in the skeleton.
+   */
+
+  @Param({"16", "64"})
+  public int joint_count;
+
+  /**
+   * The number of vertices in the mesh.
+   */
+
+  @Param({"1000", "10000", "100000"})
+  public int vertex_count;
+
+  private CaEvaluatedSkeletonMutableDType skeleton;
+  private CaBenchmarkMesh mesh;
+  private CaMeshDeformerCPUType deformer;
+  private PVectorI3D<CaSpaceJointType> translation_0;
+  private PVectorI3D<CaSpaceJointType> translation_1;
+  private boolean toggle;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public CaMeshDeformerCPUBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the benchmark.
+   */
+
+  @Setup
+  public void setup()
+  {
+    final CaSkeleton compiled =
+      CaBenchmarkSkeletons.skeleton(this.joint_count, CaBenchmarkSkeletons.FRAME_COUNT);
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), compiled);
+
+    this.skeleton =
+      CaEvaluatedSkeletonD.create(CaEvaluationContext.create(), rest_pose);
+    this.mesh =
+      CaBenchmarkMesh.create(this.vertex_count, this.joint_count);
+    this.deformer =
+      CaMeshDeformerCPU.create(CaMeshDeformationMatrices.create());
+    this.translation_0 = new PVectorI3D<>(0.0, 0.0, 0.0);
+    this.translation_1 = new PVectorI3D<>(0.0, 0.1, 0.0);
+    this.toggle = false;
+  }
+
+  /**
+   * Change the pose of the skeleton, and then deform every vertex of the
+   * mesh.
+   *
+   * @return The mesh
+   */
+
+  @Benchmark
+  public CaBenchmarkMesh deformD()
+  {
+    this.toggle = !this.toggle;
+    if (this.toggle) {
+      this.skeleton.jointsMutableByID().get(0).setTranslation3D(this.translation_1);
+    } else {
+      this.skeleton.jointsMutableByID().get(0).setTranslation3D(this.translation_0);
+    }
+
+    this.deformer.deformD(this.skeleton, this.mesh);
+    return this.mesh;
+  }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.cmdline;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.Tuple2;
+import javaslang.collection.List;
+import javaslang.collection.Seq;
+import javaslang.collection.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Functions to compile batches of files concurrently.
+ */
+
+public final class CaBatch
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaBatch.class);
+  }
+
+  private CaBatch()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Read a list of jobs from a manifest file. Each non-empty line of the
+   * manifest that does not begin with {@code #} must contain an input file
+   * and an output file separated by whitespace. Relative paths are resolved
+   * against the directory containing the manifest.
+   *
+   * @param manifest The manifest file
+   *
+   * @return A list of jobs
+   *
+   * @throws IOException On I/O errors or malformed manifests
+   */
+
+  public static List<Job> jobsFromManifest(
+    final Path manifest)
+    throws IOException
+  {
+    NullCheck.notNull(manifest, "Manifest");
+
+    final Path base = manifest.toAbsolutePath().getParent();
+    final java.util.List<String> lines = Files.readAllLines(manifest);
+    final java.util.List<Job> jobs = new ArrayList<>(lines.size());
+
+    for (int index = 0; index < lines.size(); ++index) {
+      final String line = lines.get(index).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      final String[] segments = line.split("\\s+");
+      if (segments.length != 2) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Malformed manifest line.");
+        sb.append(System.lineSeparator());
+        sb.append("  File:     ");
+        sb.append(manifest);
+        sb.append(System.lineSeparator());
+        sb.append("  Line:     ");
+        sb.append(index + 1);
+        sb.append(System.lineSeparator());
+        sb.append("  Expected: <input-file> <output-file>");
+        sb.append(System.lineSeparator());
+        sb.append("  Received: ");
+        sb.append(line);
+        sb.append(System.lineSeparator());
+        throw new IOException(sb.toString());
+      }
+
+      jobs.add(new Job(base.resolve(segments[0]), base.resolve(segments[1])));
+    }
+
+    return List.ofAll(jobs);
+  }
+
+  /**
+   * Produce a list of jobs for every regular file in {@code directory_in} that
+   * has one of the given suffixes. Each output file is placed in
+   * {@code directory_out} and has the same name as its input file with the
+   * suffix replaced by {@code suffix_out}. The output directory is created if
+   * it does not already exist.
+   *
+   * @param directory_in  The input directory
+   * @param suffixes_in   The accepted input suffixes
+   * @param directory_out The output directory
+   * @param suffix_out    The output suffix
+   *
+   * @return A list of jobs, sorted by input file name
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static List<Job> jobsFromDirectory(
+    final Path directory_in,
+    final Set<String> suffixes_in,
+    final Path directory_out,
+    final String suffix_out)
+    throws IOException
+  {
+    NullCheck.notNull(directory_in, "Input directory");
+    NullCheck.notNull(suffixes_in, "Input suffixes");
+    NullCheck.notNull(directory_out, "Output directory");
+    NullCheck.notNull(suffix_out, "Output suffix");
+
+    Files.createDirectories(directory_out);
+
+    try (final Stream<Path> stream = Files.list(directory_in)) {
+      final java.util.List<Path> files =
+        stream.filter(Files::isRegularFile)
+          .filter(path -> suffixes_in.contains(suffix(path)))
+          .sorted()
+          .collect(Collectors.toList());
+
+      return List.ofAll(files).map(path -> {
+        final String name = path.getFileName().toString();
+        final String base = name.substring(0, name.lastIndexOf('.'));
+        return new Job(path, directory_out.resolve(base + "." + suffix_out));
+      });
+    }
+  }
+
+  private static String suffix(
+    final Path path)
+  {
+    final String name = path.getFileName().toString();
+    final int index = name.lastIndexOf('.');
+    if (index == -1) {
+      return "";
+    }
+    return name.substring(index + 1);
+  }
+
+  /**
+   * Determine whether the output of the given job is up-to-date. The output
+   * is up-to-date if it exists and is no older than the job's input and all of
+   * the given additional dependencies.
+   *
+   * @param job          The job
+   * @param dependencies Any additional files upon which the output depends
+   *
+   * @return {@code true} iff the output is up-to-date
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static boolean isUpToDate(
+    final Job job,
+    final Seq<Path> dependencies)
+    throws IOException
+  {
+    NullCheck.notNull(job, "Job");
+    NullCheck.notNull(dependencies, "Dependencies");
+
+    if (!Files.isRegularFile(job.output())) {
+      return false;
+    }
+
+    final FileTime time_out = Files.getLastModifiedTime(job.output());
+    for (final Path input : dependencies.prepend(job.input())) {
+      if (Files.getLastModifiedTime(input).compareTo(time_out) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Execute all of the given jobs on the given executor, skipping any jobs
+   * whose outputs are up-to-date unless {@code force} is {@code true}. A
+   * summary of the time taken for each job is logged when all jobs have
+   * completed. A job that raises an exception is counted as failed. If a job
+   * raises an {@link Error}, the remaining jobs are cancelled and the error
+   * is rethrown.
+   *
+   * @param executor     The executor
+   * @param jobs         The jobs
+   * @param dependencies Any additional files upon which all outputs depend
+   * @param force        {@code true} iff up-to-date outputs should be rebuilt
+   * @param compiler     The function used to execute a single job
+   *
+   * @return {@code true} iff all jobs succeeded
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public static boolean run(
+    final ExecutorService executor,
+    final List<Job> jobs,
+    final Seq<Path> dependencies,
+    final boolean force,
+    final JobCompilerType compiler)
+    throws InterruptedException
+  {
+    NullCheck.notNull(executor, "Executor");
+    NullCheck.notNull(jobs, "Jobs");
+    NullCheck.notNull(dependencies, "Dependencies");
+    NullCheck.notNull(compiler, "Compiler");
+
+    LOG.debug("executing {} jobs", Integer.valueOf(jobs.size()));
+
+    final long time_start = System.nanoTime();
+    final List<Future<Result>> futures = jobs.map(
+      job -> executor.submit(() -> execute(job, dependencies, force, compiler)));
+
+    final java.util.List<Result> results = new ArrayList<>(jobs.size());
+    for (final Tuple2<Job, Future<Result>> pair : jobs.zip(futures)) {
+      final Job job = pair._1;
+      try {
+        results.add(pair._2.get());
+      } catch (final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          futures.forEach(f -> f.cancel(true));
+          throw (Error) cause;
+        }
+        LOG.error("{}: {}", job.input(), cause.getMessage());
+        LOG.debug("exception: ", cause);
+        results.add(new Result(job, Status.FAILED, 0L));
+      }
+    }
+
+    final long time_total = System.nanoTime() - time_start;
+    return summarize(List.ofAll(results), time_total);
+  }
+
+  private static Result execute(
+    final Job job,
+    final Seq<Path> dependencies,
+    final boolean force,
+    final JobCompilerType compiler)
+  {
+    final long time_start = System.nanoTime();
+    try {
+      if (!force && isUpToDate(job, dependencies)) {
+        LOG.debug("{} is up-to-date", job.output());
+        return new Result(job, Status.UP_TO_DATE, System.nanoTime() - time_start);
+      }
+
+      LOG.debug("compiling {} -> {}", job.input(), job.output());
+      if (compiler.compile(job)) {
+        return new Result(job, Status.COMPILED, System.nanoTime() - time_start);
+      }
+    } catch (final Exception e) {
+      LOG.error("{}: {}", job.input(), e.getMessage());
+      LOG.debug("exception: ", e);
+    }
+    return new Result(job, Status.FAILED, System.nanoTime() - time_start);
+  }
+
+  private static boolean summarize(
+    final List<Result> results,
+    final long time_total)
+  {
+    int compiled = 0;
+    int up_to_date = 0;
+    int failed = 0;
+    long time_sum = 0L;
+
+    for (final Result result : results) {
+      switch (result.status()) {
+        case COMPILED:
+          ++compiled;
+          break;
+        case UP_TO_DATE:
+          ++up_to_date;
+          break;
+        case FAILED:
+          ++failed;
+          break;
+        default:
+          throw new UnreachableCodeException();
+      }
+
+      time_sum += result.time();
+      LOG.info(
+        "{} {} ms {}",
+        result.status().label(),
+        Double.valueOf(milliseconds(result.time())),
+        result.job().input());
+    }
+
+    LOG.info(
+      "compiled {}, up-to-date {}, failed {}, elapsed {} ms ({} ms total per-file)",
+      Integer.valueOf(compiled),
+      Integer.valueOf(up_to_date),
+      Integer.valueOf(failed),
+      Double.valueOf(milliseconds(time_total)),
+      Double.valueOf(milliseconds(time_sum)));
+
+    return failed == 0;
+  }
+
+  private static double milliseconds(
+    final long nanoseconds)
+  {
+    return (double) (nanoseconds / 1_000L) / 1_000.0;
+  }
+
+  private enum Status
+  {
+    COMPILED("compiled"),
+    UP_TO_DATE("up-to-date"),
+    FAILED("failed");
+
+    private final String label;
+
+    Status(final String in_label)
+    {
+      this.label = NullCheck.notNull(in_label, "Label");
+    }
+
+    String label()
+    {
+      return this.label;
+    }
+  }
+
+  /**
+   * A function that executes a single job.
+   */
+
+  public interface JobCompilerType
+  {
+    /**
+     * Execute the given job.
+     *
+     * @param job The job
+     *
+     * @return {@code true} iff the job succeeded
+     *
+     * @throws Exception On errors
+     */
+
+    boolean compile(Job job)
+      throws Exception;
+  }
+
+  /**
+   * A single input/output pair.
+   */
+
+  public static final class Job
+  {
+    private final Path input;
+    private final Path output;
+
+    /**
+     * Construct a job.
+     *
+     * @param in_input  The input file
+     * @param in_output The output file
+     */
+
+    public Job(
+      final Path in_input,
+      final Path in_output)
+    {
+      this.input = NullCheck.notNull(in_input, "Input");
+      this.output = NullCheck.notNull(in_output, "Output");
+    }
+
+    /**
+     * @return The input file
+     */
+
+    public Path input()
+    {
+      return this.input;
+    }
+
+    /**
+     * @return The output file
+     */
+
+    public Path output()
+    {
+      return this.output;
+    }
+  }
+
+  private static final class Result
+  {
+    private final Job job;
+    private final Status status;
+    private final long time;
+
+    Result(
+      final Job in_job,
+      final Status in_status,
+      final long in_time)
+    {
+      this.job = NullCheck.notNull(in_job, "Job");
+      this.status = NullCheck.notNull(in_status, "Status");
+      this.time = in_time;
+    }
+
+    Job job()
+    {
+      return this.job;
+    }
+
+    Status status()
+    {
+      return this.status;
+    }
+
+    long time()
+    {
+      return this.time;
+    }
+  }
+}
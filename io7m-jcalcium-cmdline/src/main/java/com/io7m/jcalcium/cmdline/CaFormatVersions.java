@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.cmdline;
+
+import com.beust.jcommander.ParameterException;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.SortedSet;
+
+/**
+ * <p>Functions to select the version of an output format.</p>
+ *
+ * <p>If no version is requested, the oldest supported version is selected,
+ * so that adding a new version of a format to a provider does not change
+ * the files that the command-line tools write by default.</p>
+ */
+
+final class CaFormatVersions
+{
+  private CaFormatVersions()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Select an output format version.
+   *
+   * @param option    The name of the option used to request the version
+   * @param supported The versions supported by the format provider
+   * @param requested The requested version, in the form {@code major.minor},
+   *                  if any
+   *
+   * @return The selected version
+   *
+   * @throws ParameterException If the requested version is malformed or is
+   *                            not supported
+   */
+
+  static CaFormatVersion select(
+    final String option,
+    final SortedSet<CaFormatVersion> supported,
+    final @Nullable String requested)
+    throws ParameterException
+  {
+    NullCheck.notNull(option, "Option");
+    NullCheck.notNull(supported, "Supported");
+
+    if (requested == null) {
+      return supported.head();
+    }
+
+    final CaFormatVersion version = parse(option, requested);
+    if (!supported.contains(version)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Unsupported format version.");
+      sb.append(System.lineSeparator());
+      sb.append("  Option:    ");
+      sb.append(option);
+      sb.append(System.lineSeparator());
+      sb.append("  Requested: ");
+      sb.append(requested);
+      sb.append(System.lineSeparator());
+      sb.append("  Supported: ");
+      sb.append(supported.map(CaFormatVersions::show).mkString(" "));
+      sb.append(System.lineSeparator());
+      throw new ParameterException(sb.toString());
+    }
+    return version;
+  }
+
+  private static CaFormatVersion parse(
+    final String option,
+    final String requested)
+  {
+    final String[] parts = requested.split("\\.");
+    if (parts.length == 2) {
+      try {
+        return CaFormatVersion.of(
+          Integer.parseUnsignedInt(parts[0]),
+          Integer.parseUnsignedInt(parts[1]));
+      } catch (final NumberFormatException e) {
+        throw new ParameterException(
+          option + ": Malformed format version '" + requested + "'", e);
+      }
+    }
+    throw new ParameterException(
+      option + ": Malformed format version '" + requested + "'");
+  }
+
+  private static String show(
+    final CaFormatVersion version)
+  {
+    return version.major() + "." + version.minor();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.cmdline;
+
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import com.io7m.smfj.processing.api.SMFFilterCommandContext;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import com.io7m.smfj.processing.api.SMFMemoryMeshFilterType;
+import com.io7m.smfj.processing.api.SMFMemoryMeshProducer;
+import com.io7m.smfj.processing.api.SMFMemoryMeshProducerType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * <p>Functions to load meshes prior to filtering.</p>
+ *
+ * <p>If the first filter in a list of filters is a weight compilation
+ * filter, the filter is applied while the mesh is parsed. This avoids the
+ * unboxed copies of the {@code GROUP:*} attributes that the in-memory filter
+ * makes, but the loaded mesh still contains the {@code GROUP:*} attributes,
+ * so peak memory use remains proportional to the size of those
+ * attributes.</p>
+ */
+
+final class CaMeshLoading
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaMeshLoading.class);
+  }
+
+  private CaMeshLoading()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static boolean isStreamed(
+    final List<SMFMemoryMeshFilterType> filters)
+  {
+    return !filters.isEmpty()
+      && filters.head() instanceof CaFilterCommandCompileMeshWeights;
+  }
+
+  /**
+   * @param filters The list of filters
+   *
+   * @return The filters that were not applied by {@link #load}
+   */
+
+  static List<SMFMemoryMeshFilterType> remainingFilters(
+    final List<SMFMemoryMeshFilterType> filters)
+  {
+    NullCheck.notNull(filters, "Filters");
+    if (isStreamed(filters)) {
+      return filters.tail();
+    }
+    return filters;
+  }
+
+  /**
+   * Load a mesh, applying the first of the given filters during parsing if
+   * the filter supports streaming. Errors are logged.
+   *
+   * @param provider_parser The parser provider
+   * @param path_in         The mesh file
+   * @param context         The filter command context
+   * @param filters         The list of filters
+   *
+   * @return The loaded mesh, or nothing on errors
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static Optional<SMFMemoryMesh> load(
+    final SMFParserProviderType provider_parser,
+    final Path path_in,
+    final SMFFilterCommandContext context,
+    final List<SMFMemoryMeshFilterType> filters)
+    throws IOException
+  {
+    NullCheck.notNull(provider_parser, "Provider");
+    NullCheck.notNull(path_in, "Path");
+    NullCheck.notNull(context, "Context");
+    NullCheck.notNull(filters, "Filters");
+
+    final SMFMemoryMeshProducerType loader =
+      SMFMemoryMeshProducer.create();
+
+    SMFParserEventsType events = loader;
+    if (isStreamed(filters)) {
+      final CaFilterCommandCompileMeshWeights filter =
+        (CaFilterCommandCompileMeshWeights) filters.head();
+      LOG.debug("evaluating filter during parsing: {}", filter.name());
+      try {
+        events = filter.streaming(context, loader);
+      } catch (final CaLoaderException e) {
+        LOG.error("filter: {}: {}", filter.name(), e.getMessage());
+        return Optional.empty();
+      }
+    }
+
+    try (final InputStream is = Files.newInputStream(path_in)) {
+      try (final SMFParserSequentialType parser =
+             provider_parser.parserCreateSequential(events, path_in, is)) {
+        parser.parseHeader();
+        if (!parser.parserHasFailed()) {
+          parser.parseData();
+        }
+      }
+      if (!loader.errors().isEmpty()) {
+        loader.errors().forEach(e -> LOG.error(e.fullMessage()));
+        return Optional.empty();
+      }
+    }
+    return Optional.of(loader.mesh());
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.cmdline;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * <p>Functions to write output files.</p>
+ *
+ * <p>Output is written to a temporary file in the same directory as the
+ * target file and then moved into place, so that a failed or interrupted
+ * write never leaves a truncated file at the target path. A truncated file
+ * would otherwise be newer than its inputs and would be considered
+ * up-to-date by batch mode.</p>
+ */
+
+final class CaOutputFiles
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaOutputFiles.class);
+  }
+
+  private CaOutputFiles()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Write the file {@code target} using the given writer.
+   *
+   * @param target The target file
+   * @param writer A function that writes to the given stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void write(
+    final Path target,
+    final WriterType writer)
+    throws IOException
+  {
+    NullCheck.notNull(target, "Target");
+    NullCheck.notNull(writer, "Writer");
+
+    final Path absolute = target.toAbsolutePath();
+    final Path temp = Files.createTempFile(
+      absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+    try {
+      try (final OutputStream os = Files.newOutputStream(temp)) {
+        writer.write(os);
+      }
+      move(temp, absolute);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void move(
+    final Path source,
+    final Path target)
+    throws IOException
+  {
+    try {
+      Files.move(
+        source,
+        target,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      LOG.trace("atomic move not supported: ", e);
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * A function that writes to a stream.
+   */
+
+  @FunctionalInterface
+  interface WriterType
+  {
+    /**
+     * Write to the given stream.
+     *
+     * @param stream The output stream
+     *
+     * @throws IOException On I/O errors
+     */
+
+    void write(OutputStream stream)
+      throws IOException;
+  }
+}
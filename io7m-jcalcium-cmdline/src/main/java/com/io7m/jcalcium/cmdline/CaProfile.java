@@ -0,0 +1,508 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.cmdline;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.core.metrics.CaMetricsCounters;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointReadableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContextType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatorSingleType;
+import com.io7m.jcalcium.evaluator.main.CaEvaluatorSingleD;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.loader.api.CaLoaderFormatProviderType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMF;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFConfiguration;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFEventsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFJointWeightsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFPackedAttributeSet;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFProvider;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTargetRing;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTemplate;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetAuxiliaryType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetJointType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetSourceType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jpra.runtime.java.JPRACursor1DType;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
+import com.io7m.smfj.bytebuffer.SMFByteBufferPackedTriangles;
+import com.io7m.smfj.core.SMFErrorType;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParserEventsMeta;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.validation.main.SMFSchemaValidator;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
+import javaslang.collection.List;
+import javaslang.collection.SortedMap;
+import javaslang.control.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Functions to profile the evaluation of skeletons and the deformation of
+ * meshes.
+ */
+
+final class CaProfile
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaProfile.class);
+  }
+
+  private CaProfile()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Find a loader provider for the given format, or for the suffix of the
+   * given file if no format is specified.
+   *
+   * @param format The format name, if any
+   * @param file   The file name
+   *
+   * @return A provider, if one exists
+   */
+
+  static Optional<CaLoaderFormatProviderType> findLoaderProvider(
+    final Optional<String> format,
+    final String file)
+  {
+    final ServiceLoader<CaLoaderFormatProviderType> loader =
+      ServiceLoader.load(CaLoaderFormatProviderType.class);
+
+    if (format.isPresent()) {
+      LOG.debug("attempting to find provider for {}", format.get());
+      final Iterator<CaLoaderFormatProviderType> providers = loader.iterator();
+      while (providers.hasNext()) {
+        final CaLoaderFormatProviderType current_provider = providers.next();
+        if (Objects.equals(current_provider.loaderFormat().name(), format.get())) {
+          LOG.debug("using provider: {}", current_provider);
+          return Optional.of(current_provider);
+        }
+      }
+
+      LOG.error("Could not find a provider for the format '{}'", format.get());
+      return Optional.empty();
+    }
+
+    LOG.debug("attempting to infer format from file suffix");
+    final int index = file.lastIndexOf('.');
+    if (index != -1) {
+      final String suffix = file.substring(index + 1);
+      final Iterator<CaLoaderFormatProviderType> providers = loader.iterator();
+      while (providers.hasNext()) {
+        final CaLoaderFormatProviderType current_provider = providers.next();
+        if (Objects.equals(current_provider.loaderFormat().suffix(), suffix)) {
+          LOG.debug("using provider: {}", current_provider);
+          return Optional.of(current_provider);
+        }
+      }
+    }
+
+    LOG.error("File {} does not have a recognized suffix", file);
+    return Optional.empty();
+  }
+
+  /**
+   * Load a compiled skeleton.
+   *
+   * @param provider The loader provider
+   * @param path     The file
+   *
+   * @return A compiled skeleton
+   *
+   * @throws IOException       On I/O errors
+   * @throws CaLoaderException On malformed skeletons
+   */
+
+  static CaSkeleton loadSkeleton(
+    final CaLoaderFormatProviderType provider,
+    final Path path)
+    throws IOException, CaLoaderException
+  {
+    LOG.info("loading skeleton {}", path);
+    try (final InputStream stream = Files.newInputStream(path)) {
+      return provider.loaderCreate()
+        .loadCompiledSkeletonFromStream(stream, path.toUri());
+    }
+  }
+
+  /**
+   * Load a mesh template. The mesh must have been compiled with joint
+   * weights; every profiled instance shares the template.
+   *
+   * @param provider The parser provider
+   * @param path     The file
+   *
+   * @return A mesh template, or a list of reasons why the mesh could not be
+   * loaded
+   */
+
+  static Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate> loadMesh(
+    final SMFParserProviderType provider,
+    final Path path)
+  {
+    LOG.info("loading mesh {}", path);
+    return CaMeshDeformableCPUSMFProvider.createTemplateFromFile(
+      provider,
+      new SMFSchemaValidator(),
+      SMFParserEventsMeta.ignore(),
+      CaMeshDeformableCPUSMFConfiguration.builder().build(),
+      MeshEvents.INSTANCE,
+      path);
+  }
+
+  /**
+   * Profile the given action.
+   *
+   * @param skeleton  The skeleton
+   * @param action    The action
+   * @param mesh      The mesh template, if any
+   * @param instances The number of skeleton (and mesh) instances
+   * @param warmup    The number of unmeasured frames evaluated first
+   * @param frames    The number of measured frames
+   * @param fps       The global frame rate
+   *
+   * @return The measurements
+   */
+
+  static Result profile(
+    final CaSkeleton skeleton,
+    final CaActionName action,
+    final Optional<CaMeshDeformableCPUSMFTemplate> mesh,
+    final int instances,
+    final int warmup,
+    final int frames,
+    final int fps)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(action, "Action");
+    NullCheck.notNull(mesh, "Mesh");
+
+    final CaActionType act = skeleton.actionsByName().get(action).get();
+    final CaMetricsCounters metrics = CaMetricsCounters.create();
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), skeleton);
+    final CaEvaluationContextType context =
+      CaEvaluationContext.createWithMetrics(metrics);
+    final CaMeshDeformerCPUType deformer =
+      CaMeshDeformerCPU.createWithMetrics(
+        CaMeshDeformationMatrices.create(), metrics);
+
+    final CaEvaluatedSkeletonMutableDType[] skeletons =
+      new CaEvaluatedSkeletonMutableDType[instances];
+    final CaEvaluatorSingleType[] evaluators =
+      new CaEvaluatorSingleType[instances];
+    final CaMeshDeformableCPUType[] meshes =
+      new CaMeshDeformableCPUType[instances];
+
+    for (int index = 0; index < instances; ++index) {
+      skeletons[index] = CaEvaluatedSkeletonD.create(context, rest_pose);
+      evaluators[index] =
+        CaEvaluatorSingleD.create(context, skeletons[index], act, fps);
+      if (mesh.isPresent()) {
+        meshes[index] = instantiate(mesh.get());
+      }
+    }
+
+    LOG.debug("{}: warming up for {} frames", action.value(), Integer.valueOf(warmup));
+    for (int frame = 0; frame < warmup; ++frame) {
+      step(skeletons, evaluators, meshes, deformer, (long) frame);
+    }
+
+    metrics.reset();
+
+    LOG.debug("{}: measuring {} frames", action.value(), Integer.valueOf(frames));
+    final long allocated_then = threadAllocatedOctets();
+    final long time_then = System.nanoTime();
+    for (int frame = 0; frame < frames; ++frame) {
+      step(skeletons, evaluators, meshes, deformer, (long) (warmup + frame));
+    }
+    final long time_now = System.nanoTime();
+    final long allocated_now = threadAllocatedOctets();
+
+    long allocated = -1L;
+    if (allocated_then >= 0L && allocated_now >= 0L) {
+      allocated = allocated_now - allocated_then;
+    }
+
+    return new Result(
+      action,
+      instances,
+      frames,
+      skeletons[0].jointsByID().size(),
+      time_now - time_then,
+      allocated,
+      metrics);
+  }
+
+  private static CaMeshDeformableCPUType instantiate(
+    final CaMeshDeformableCPUSMFTemplate template)
+  {
+    final Validation<List<SMFErrorType>, CaMeshDeformableCPUType> result =
+      CaMeshDeformableCPUSMFProvider.createFromTemplate(
+        template, MeshEvents.INSTANCE);
+
+    if (result.isInvalid()) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Could not instantiate mesh.");
+      sb.append(System.lineSeparator());
+      result.getError().forEach(error -> {
+        sb.append("  ");
+        sb.append(error.message());
+        sb.append(System.lineSeparator());
+      });
+      throw new IllegalStateException(sb.toString());
+    }
+    return result.get();
+  }
+
+  private static void step(
+    final CaEvaluatedSkeletonMutableDType[] skeletons,
+    final CaEvaluatorSingleType[] evaluators,
+    final CaMeshDeformableCPUType[] meshes,
+    final CaMeshDeformerCPUType deformer,
+    final long frame)
+  {
+    for (int index = 0; index < evaluators.length; ++index) {
+      evaluators[index].evaluateForGlobalFrame(0L, frame, 1.0);
+
+      /*
+       * Deforming a mesh builds the deformation matrices of every joint.
+       * Without a mesh, build them explicitly in the same manner as a
+       * renderer would in order to upload a matrix palette.
+       */
+
+      final CaMeshDeformableCPUType mesh = meshes[index];
+      if (mesh != null) {
+        deformer.deformD(skeletons[index], mesh);
+      } else {
+        buildMatrices(skeletons[index].jointsByID());
+      }
+    }
+  }
+
+  private static void buildMatrices(
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints)
+  {
+    final int count = joints.size();
+    for (int id = 0; id < count; ++id) {
+      joints.get(id).transformDeform4x4D();
+    }
+  }
+
+  /*
+   * The number of octets allocated by the current thread, or -1 if the
+   * virtual machine cannot report it.
+   */
+
+  private static long threadAllocatedOctets()
+  {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean ext =
+        (com.sun.management.ThreadMXBean) bean;
+      if (ext.isThreadAllocatedMemorySupported()
+        && ext.isThreadAllocatedMemoryEnabled()) {
+        return ext.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1L;
+  }
+
+  private static double perSecond(
+    final double count,
+    final long nanoseconds)
+  {
+    if (nanoseconds <= 0L) {
+      return 0.0;
+    }
+    return count / ((double) nanoseconds / 1_000_000_000.0);
+  }
+
+  private static double ratio(
+    final double x,
+    final double y)
+  {
+    if (y <= 0.0) {
+      return 0.0;
+    }
+    return x / y;
+  }
+
+  /**
+   * Write a report for the given measurements.
+   *
+   * @param out    The output stream
+   * @param result The measurements
+   */
+
+  static void report(
+    final PrintStream out,
+    final Result result)
+  {
+    final CaMetricsCounters m = result.metrics;
+    final String fmt_s = "%-24s : %s\n";
+    final String fmt_d = "%-24s : %.2f\n";
+    final String fmt_i = "%-24s : %d\n";
+
+    out.printf(fmt_s, "action", result.action.value());
+    out.printf(fmt_i, "instances", Integer.valueOf(result.instances));
+    out.printf(fmt_i, "frames", Integer.valueOf(result.frames));
+    out.printf(fmt_i, "joints", Integer.valueOf(result.joints));
+    out.printf(fmt_i, "evaluations", Long.valueOf(m.evaluations()));
+    out.printf(
+      fmt_d,
+      "evaluations/s",
+      Double.valueOf(perSecond((double) m.evaluations(), result.elapsed)));
+    out.printf(
+      fmt_d,
+      "ns/joint",
+      Double.valueOf(ratio(
+        (double) m.evaluationNanoseconds(),
+        (double) m.evaluationJoints())));
+    out.printf(fmt_i, "matrices", Long.valueOf(m.matricesBuilt()));
+
+    if (m.deformations() > 0L) {
+      out.printf(fmt_i, "vertices", Long.valueOf(m.verticesDeformed()));
+      out.printf(
+        fmt_d,
+        "vertices/s",
+        Double.valueOf(perSecond(
+          (double) m.verticesDeformed(), m.deformationNanoseconds())));
+    }
+
+    if (result.allocated >= 0L) {
+      out.printf(
+        fmt_d,
+        "allocation MiB/s",
+        Double.valueOf(perSecond(
+          (double) result.allocated / (1024.0 * 1024.0), result.elapsed)));
+      out.printf(
+        fmt_d,
+        "allocation octets/eval",
+        Double.valueOf(ratio(
+          (double) result.allocated, (double) m.evaluations())));
+    } else {
+      out.printf(fmt_s, "allocation MiB/s", "unavailable");
+    }
+
+    out.printf(
+      fmt_d,
+      "context pool hit %",
+      Double.valueOf(100.0 * ratio(
+        (double) m.contextPoolHits(),
+        (double) (m.contextPoolHits() + m.contextPoolMisses()))));
+    out.printf(
+      fmt_d,
+      "elapsed ms",
+      Double.valueOf((double) result.elapsed / 1_000_000.0));
+    out.println();
+  }
+
+  /**
+   * The measurements taken for a single action.
+   */
+
+  static final class Result
+  {
+    private final CaActionName action;
+    private final int instances;
+    private final int frames;
+    private final int joints;
+    private final long elapsed;
+    private final long allocated;
+    private final CaMetricsCounters metrics;
+
+    Result(
+      final CaActionName in_action,
+      final int in_instances,
+      final int in_frames,
+      final int in_joints,
+      final long in_elapsed,
+      final long in_allocated,
+      final CaMetricsCounters in_metrics)
+    {
+      this.action = NullCheck.notNull(in_action, "Action");
+      this.instances = in_instances;
+      this.frames = in_frames;
+      this.joints = in_joints;
+      this.elapsed = in_elapsed;
+      this.allocated = in_allocated;
+      this.metrics = NullCheck.notNull(in_metrics, "Metrics");
+    }
+  }
+
+  private static final class MeshEvents
+    implements CaMeshDeformableCPUSMFEventsType<CaMeshDeformableCPUType>
+  {
+    private static final MeshEvents INSTANCE = new MeshEvents();
+
+    MeshEvents()
+    {
+
+    }
+
+    @Override
+    public CaMeshDeformableCPUType onCreated(
+      final SMFHeader header,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data,
+      final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index,
+      final CaMeshDeformableCPUSMFJointWeightsType joint_weights,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data,
+      final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
+      final CaMeshDeformableCPUSMFTargetRing targets,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data,
+      final SMFByteBufferPackedTriangles triangle_data)
+    {
+      return CaMeshDeformableCPUSMF.create(
+        targets,
+        source_cursors,
+        cursor_joint_index,
+        joint_weights,
+        header.vertexCount());
+    }
+  }
+}
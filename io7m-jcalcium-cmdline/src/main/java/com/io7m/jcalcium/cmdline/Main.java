@@ -23,12 +23,20 @@ import com.beust.jcommander.Parameters;
 import com.io7m.jcalcium.compiler.api.CaCompileError;
 import com.io7m.jcalcium.compiler.api.CaCompilerType;
 import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaActionName;
 import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
 import com.io7m.jcalcium.core.definitions.CaFormatDescriptionType;
 import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.format.protobuf3.v1.CaV1Protobuf3ActionCache;
+import com.io7m.jcalcium.generators.CaSyntheticMeshParameters;
+import com.io7m.jcalcium.generators.CaSyntheticMeshes;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletonParameters;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletons;
+import com.io7m.jcalcium.generators.CaSyntheticWeightDistribution;
 import com.io7m.jcalcium.loader.api.CaLoaderFormatProviderType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTemplate;
 import com.io7m.jcalcium.parser.api.CaDefinitionParserFormatProviderType;
 import com.io7m.jcalcium.parser.api.CaDefinitionParserType;
 import com.io7m.jcalcium.parser.api.CaParseError;
@@ -38,26 +46,27 @@ import com.io7m.jfunctional.Unit;
 import com.io7m.jlexing.core.LexicalPosition;
 import com.io7m.jnull.NullCheck;
 import com.io7m.jorchard.core.JOTreeNodeReadableType;
+import com.io7m.smfj.core.SMFErrorType;
+import com.io7m.smfj.core.SMFFormatDescription;
 import com.io7m.smfj.frontend.SMFFilterCommandFile;
 import com.io7m.smfj.frontend.SMFParserProviders;
 import com.io7m.smfj.frontend.SMFSerializerProviders;
 import com.io7m.smfj.parser.api.SMFParseError;
 import com.io7m.smfj.parser.api.SMFParserProviderType;
-import com.io7m.smfj.parser.api.SMFParserSequentialType;
 import com.io7m.smfj.processing.api.SMFFilterCommandContext;
 import com.io7m.smfj.processing.api.SMFFilterCommandModuleResolver;
 import com.io7m.smfj.processing.api.SMFFilterCommandModuleResolverType;
 import com.io7m.smfj.processing.api.SMFFilterCommandModuleType;
 import com.io7m.smfj.processing.api.SMFMemoryMesh;
 import com.io7m.smfj.processing.api.SMFMemoryMeshFilterType;
-import com.io7m.smfj.processing.api.SMFMemoryMeshProducer;
-import com.io7m.smfj.processing.api.SMFMemoryMeshProducerType;
 import com.io7m.smfj.processing.api.SMFMemoryMeshSerializer;
 import com.io7m.smfj.processing.api.SMFProcessingError;
 import com.io7m.smfj.serializer.api.SMFSerializerProviderType;
 import com.io7m.smfj.serializer.api.SMFSerializerType;
+import javaslang.collection.HashSet;
 import javaslang.collection.List;
 import javaslang.collection.Seq;
+import javaslang.collection.Set;
 import javaslang.collection.SortedSet;
 import javaslang.control.Validation;
 import org.slf4j.Logger;
@@ -65,8 +74,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -77,6 +84,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.io7m.jfunctional.Unit.unit;
 
@@ -110,12 +119,18 @@ public final class Main implements Runnable
       new CommandFormats();
     final CommandListFilters list_filters =
       new CommandListFilters();
+    final CommandGenerate generate =
+      new CommandGenerate();
+    final CommandProfile profile =
+      new CommandProfile();
 
     this.commands = new HashMap<>(8);
     this.commands.put("compile-skeleton", compile_skeleton);
     this.commands.put("compile-mesh", compile_mesh);
     this.commands.put("formats", formats);
     this.commands.put("list-filters", list_filters);
+    this.commands.put("generate", generate);
+    this.commands.put("profile", profile);
 
     this.commander = new JCommander(r);
     this.commander.setProgramName("calcium");
@@ -123,6 +138,8 @@ public final class Main implements Runnable
     this.commander.addCommand("compile-mesh", compile_mesh);
     this.commander.addCommand("formats", formats);
     this.commander.addCommand("list-filters", list_filters);
+    this.commander.addCommand("generate", generate);
+    this.commander.addCommand("profile", profile);
   }
 
   /**
@@ -274,6 +291,70 @@ public final class Main implements Runnable
     return null;
   }
 
+  private static boolean isBatch(
+    final String manifest,
+    final String directory_in)
+  {
+    if (manifest != null && directory_in != null) {
+      throw new ParameterException(
+        "-batch-manifest and -batch-directory-in are mutually exclusive");
+    }
+    return manifest != null || directory_in != null;
+  }
+
+  private static boolean runBatch(
+    final int threads,
+    final List<CaBatch.Job> jobs,
+    final Seq<Path> dependencies,
+    final boolean force,
+    final CaBatch.JobCompilerType compiler)
+    throws InterruptedException
+  {
+    if (threads < 1) {
+      throw new ParameterException("-threads must be at least 1");
+    }
+
+    LOG.debug("compiling with {} threads", Integer.valueOf(threads));
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      return CaBatch.run(executor, jobs, dependencies, force, compiler);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static Set<String> skeletonParserSuffixes(
+    final String format)
+  {
+    final ServiceLoader<CaDefinitionParserFormatProviderType> loader =
+      ServiceLoader.load(CaDefinitionParserFormatProviderType.class);
+
+    Set<String> suffixes = HashSet.empty();
+    for (final CaDefinitionParserFormatProviderType provider : loader) {
+      final CaFormatDescriptionType description = provider.parserFormat();
+      if (format == null || Objects.equals(description.name(), format)) {
+        suffixes = suffixes.add(description.suffix());
+      }
+    }
+    return suffixes;
+  }
+
+  private static Set<String> meshParserSuffixes(
+    final String format)
+  {
+    final ServiceLoader<SMFParserProviderType> loader =
+      ServiceLoader.load(SMFParserProviderType.class);
+
+    Set<String> suffixes = HashSet.empty();
+    for (final SMFParserProviderType provider : loader) {
+      final SMFFormatDescription description = provider.parserFormat();
+      if (format == null || Objects.equals(description.name(), format)) {
+        suffixes = suffixes.add(description.suffix());
+      }
+    }
+    return suffixes;
+  }
+
   /**
    * @return The program exit code
    */
@@ -526,7 +607,6 @@ public final class Main implements Runnable
   {
     @Parameter(
       names = "-file-in",
-      required = true,
       description = "The input file")
     private String file_in;
 
@@ -556,6 +636,31 @@ public final class Main implements Runnable
       description = "The source directory")
     private String source_directory = System.getProperty("user.dir");
 
+    @Parameter(
+      names = "-batch-manifest",
+      description = "A manifest of input and output files to compile")
+    private String batch_manifest;
+
+    @Parameter(
+      names = "-batch-directory-in",
+      description = "A directory of input files to compile")
+    private String batch_directory_in;
+
+    @Parameter(
+      names = "-batch-directory-out",
+      description = "The output directory for -batch-directory-in")
+    private String batch_directory_out;
+
+    @Parameter(
+      names = "-threads",
+      description = "The number of threads used for batch compilation")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+      names = "-force",
+      description = "Recompile batch outputs even if they are up-to-date")
+    private boolean force;
+
     CommandCompileMesh()
     {
 
@@ -567,12 +672,71 @@ public final class Main implements Runnable
     {
       super.call();
 
+      if (isBatch(this.batch_manifest, this.batch_directory_in)) {
+        final List<CaBatch.Job> jobs = this.batchJobs();
+        final boolean ok = runBatch(
+          this.threads,
+          jobs,
+          List.of(Paths.get(this.file_commands)),
+          this.force,
+          job -> this.compile(job.input(), Optional.of(job.output())));
+        if (!ok) {
+          Main.this.exit_code = 1;
+        }
+        return unit();
+      }
+
+      if (this.file_in == null) {
+        throw new ParameterException(
+          "One of -file-in, -batch-manifest, or -batch-directory-in is required");
+      }
+
+      final Optional<Path> path_out =
+        Optional.ofNullable(this.file_out).map(Paths::get);
+      if (!this.compile(Paths.get(this.file_in), path_out)) {
+        Main.this.exit_code = 1;
+      }
+      return unit();
+    }
+
+    private List<CaBatch.Job> batchJobs()
+      throws IOException
+    {
+      if (this.batch_manifest != null) {
+        return CaBatch.jobsFromManifest(Paths.get(this.batch_manifest));
+      }
+
+      if (this.batch_directory_out == null || this.format_out == null) {
+        throw new ParameterException(
+          "-batch-directory-in requires -batch-directory-out and -format-out");
+      }
+
+      final Optional<SMFSerializerProviderType> provider_serializer_opt =
+        SMFSerializerProviders.findSerializerProvider(
+          Optional.of(this.format_out), this.format_out);
+
+      if (!provider_serializer_opt.isPresent()) {
+        throw new ParameterException(
+          "Could not find a provider for the format '" + this.format_out + "'");
+      }
+
+      return CaBatch.jobsFromDirectory(
+        Paths.get(this.batch_directory_in),
+        meshParserSuffixes(this.format_in),
+        Paths.get(this.batch_directory_out),
+        provider_serializer_opt.get().serializerFormat().suffix());
+    }
+
+    private boolean compile(
+      final Path path_in,
+      final Optional<Path> path_out_opt)
+      throws IOException
+    {
       final Optional<List<SMFMemoryMeshFilterType>> filters_opt =
         this.parseFilterCommands();
 
       if (!filters_opt.isPresent()) {
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
       final List<SMFMemoryMeshFilterType> filters = filters_opt.get();
@@ -580,70 +744,67 @@ public final class Main implements Runnable
       final Optional<SMFParserProviderType> provider_parser_opt =
         SMFParserProviders.findParserProvider(
           Optional.ofNullable(this.format_in),
-          this.file_in);
+          path_in.toString());
 
       if (!provider_parser_opt.isPresent()) {
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
       final SMFParserProviderType provider_parser = provider_parser_opt.get();
-      final Path path_in = Paths.get(this.file_in);
+      final SMFFilterCommandContext context =
+        SMFFilterCommandContext.of(
+          Paths.get(this.source_directory).toAbsolutePath(),
+          Paths.get(this.file_commands).toAbsolutePath());
 
       final Optional<SMFMemoryMesh> mesh_opt =
-        this.loadMemoryMesh(provider_parser, path_in);
+        CaMeshLoading.load(provider_parser, path_in, context, filters);
 
       if (!mesh_opt.isPresent()) {
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
-      final SMFFilterCommandContext context =
-        SMFFilterCommandContext.of(
-          Paths.get(this.source_directory).toAbsolutePath(),
-          Paths.get(this.file_commands).toAbsolutePath());
-
       final Optional<SMFMemoryMesh> filtered_opt =
-        this.runFilters(context, filters, mesh_opt.get());
+        this.runFilters(
+          context, CaMeshLoading.remainingFilters(filters), mesh_opt.get());
 
       if (!filtered_opt.isPresent()) {
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
       final SMFMemoryMesh filtered = filtered_opt.get();
 
-      if (this.file_out != null) {
+      if (path_out_opt.isPresent()) {
+        final Path path_out = path_out_opt.get();
         final Optional<SMFSerializerProviderType> provider_serializer_opt =
           SMFSerializerProviders.findSerializerProvider(
-            Optional.ofNullable(this.format_out), this.file_out);
+            Optional.ofNullable(this.format_out), path_out.toString());
 
         if (!provider_serializer_opt.isPresent()) {
-          Main.this.exit_code = 1;
-          return unit();
+          return false;
         }
 
         final SMFSerializerProviderType provider_serializer =
           provider_serializer_opt.get();
-        final Path path_out = Paths.get(this.file_out);
 
         LOG.debug("writing mesh to {}", path_out);
-        try (final OutputStream os = Files.newOutputStream(path_out)) {
-          try (final SMFSerializerType serializer =
-                 provider_serializer.serializerCreate(
-                   provider_serializer.serializerSupportedVersions().last(),
-                   path_out,
-                   os)) {
-            SMFMemoryMeshSerializer.serialize(filtered, serializer);
-          }
+        try {
+          CaOutputFiles.write(path_out, os -> {
+            try (final SMFSerializerType serializer =
+                   provider_serializer.serializerCreate(
+                     provider_serializer.serializerSupportedVersions().last(),
+                     path_out,
+                     os)) {
+              SMFMemoryMeshSerializer.serialize(filtered, serializer);
+            }
+          });
         } catch (final IOException e) {
-          Main.this.exit_code = 1;
           LOG.error("could not serialize mesh: {}", e.getMessage());
           LOG.debug("i/o error: ", e);
+          return false;
         }
       }
 
-      return unit();
+      return true;
     }
 
     private Optional<SMFMemoryMesh> runFilters(
@@ -672,31 +833,6 @@ public final class Main implements Runnable
       return Optional.of(mesh_current);
     }
 
-    private Optional<SMFMemoryMesh> loadMemoryMesh(
-      final SMFParserProviderType provider_parser,
-      final Path path_in)
-      throws IOException
-    {
-      final SMFMemoryMeshProducerType loader =
-        SMFMemoryMeshProducer.create();
-
-      try (final InputStream is = Files.newInputStream(path_in)) {
-        try (final SMFParserSequentialType parser =
-               provider_parser.parserCreateSequential(loader, path_in, is)) {
-          parser.parseHeader();
-          if (!parser.parserHasFailed()) {
-            parser.parseData();
-          }
-        }
-        if (!loader.errors().isEmpty()) {
-          loader.errors().forEach(e -> LOG.error(e.fullMessage()));
-          Main.this.exit_code = 1;
-          return Optional.empty();
-        }
-      }
-      return Optional.of(loader.mesh());
-    }
-
     private Optional<List<SMFMemoryMeshFilterType>> parseFilterCommands()
       throws IOException
     {
@@ -725,7 +861,6 @@ public final class Main implements Runnable
   {
     @Parameter(
       names = "-file-in",
-      required = true,
       description = "The input file")
     private String file_in;
 
@@ -736,7 +871,6 @@ public final class Main implements Runnable
 
     @Parameter(
       names = "-file-out",
-      required = true,
       description = "The output file")
     private String file_out;
 
@@ -745,6 +879,41 @@ public final class Main implements Runnable
       description = "The output file format")
     private String format_out;
 
+    @Parameter(
+      names = "-format-version",
+      description = "The output file format version (defaults to the oldest supported version)")
+    private String format_version;
+
+    @Parameter(
+      names = "-batch-manifest",
+      description = "A manifest of input and output files to compile")
+    private String batch_manifest;
+
+    @Parameter(
+      names = "-batch-directory-in",
+      description = "A directory of input files to compile")
+    private String batch_directory_in;
+
+    @Parameter(
+      names = "-batch-directory-out",
+      description = "The output directory for -batch-directory-in")
+    private String batch_directory_out;
+
+    @Parameter(
+      names = "-threads",
+      description = "The number of threads used for batch compilation")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+      names = "-force",
+      description = "Recompile batch outputs even if they are up-to-date")
+    private boolean force;
+
+    @Parameter(
+      names = "-cache-directory",
+      description = "A directory used to cache compiled actions")
+    private String cache_directory;
+
     CommandCompileSkeleton()
     {
 
@@ -756,35 +925,107 @@ public final class Main implements Runnable
     {
       super.call();
 
-      final CaCompilerType compiler = CaCompiler.create();
+      final CaCompilerType compiler = this.compiler();
+      if (isBatch(this.batch_manifest, this.batch_directory_in)) {
+        final List<CaBatch.Job> jobs = this.batchJobs();
+        final boolean ok = runBatch(
+          this.threads,
+          jobs,
+          List.empty(),
+          this.force,
+          job -> this.compile(compiler, job.input(), job.output()));
+        if (!ok) {
+          Main.this.exit_code = 1;
+        }
+        return unit();
+      }
+
+      if (this.file_in == null || this.file_out == null) {
+        throw new ParameterException(
+          "Either -file-in and -file-out, -batch-manifest, or -batch-directory-in are required");
+      }
+
+      if (!this.compile(
+        compiler, Paths.get(this.file_in), Paths.get(this.file_out))) {
+        Main.this.exit_code = 1;
+      }
+      return unit();
+    }
+
+    private List<CaBatch.Job> batchJobs()
+      throws IOException
+    {
+      if (this.batch_manifest != null) {
+        return CaBatch.jobsFromManifest(Paths.get(this.batch_manifest));
+      }
+
+      if (this.batch_directory_out == null || this.format_out == null) {
+        throw new ParameterException(
+          "-batch-directory-in requires -batch-directory-out and -format-out");
+      }
+
+      final CaCompiledSerializerFormatProviderType serial_provider =
+        findCompiledSerializerProvider(this.format_out, this.format_out);
+
+      if (serial_provider == null) {
+        throw new ParameterException(
+          "Could not find a provider for the format '" + this.format_out + "'");
+      }
+
+      return CaBatch.jobsFromDirectory(
+        Paths.get(this.batch_directory_in),
+        skeletonParserSuffixes(this.format_in),
+        Paths.get(this.batch_directory_out),
+        serial_provider.serializerFormat().suffix());
+    }
+
+    private CaCompilerType compiler()
+      throws IOException
+    {
+      if (this.cache_directory == null) {
+        return CaCompiler.create();
+      }
+
+      final Path directory = Paths.get(this.cache_directory);
+      LOG.debug("caching compiled actions in {}", directory);
+      return CaCompiler.createWithExecutorAndCache(
+        Runnable::run, CaV1Protobuf3ActionCache.create(directory));
+    }
+
+    private boolean compile(
+      final CaCompilerType compiler,
+      final Path path_in,
+      final Path path_out)
+      throws IOException
+    {
       final CaDefinitionParserFormatProviderType parser_provider =
-        findParserProvider(this.format_in, this.file_in);
+        findParserProvider(this.format_in, path_in.toString());
       final CaCompiledSerializerFormatProviderType serial_provider =
-        findCompiledSerializerProvider(this.format_out, this.file_out);
+        findCompiledSerializerProvider(this.format_out, path_out.toString());
 
       if (parser_provider == null) {
         LOG.error("Could not find a suitable format provider");
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
       if (serial_provider == null) {
         LOG.error("Could not find a suitable format provider");
-        Main.this.exit_code = 1;
-        return unit();
+        return false;
       }
 
-      final CaDefinitionParserType parser = parser_provider.parserCreate();
+      final CaFormatVersion version = CaFormatVersions.select(
+        "-format-version",
+        serial_provider.serializerSupportedVersions(),
+        this.format_version);
 
-      final Path path_in = Paths.get(this.file_in);
-      final Path path_out = Paths.get(this.file_out);
+      final CaDefinitionParserType parser = parser_provider.parserCreate();
 
       try (final InputStream is = Files.newInputStream(path_in)) {
         final Validation<List<CaParseError>, CaDefinitionSkeleton> parse_result =
-          parser.parseSkeletonFromStream(is, URI.create(this.file_in));
+          parser.parseSkeletonFromStream(is, path_in.toUri());
 
         if (!parse_result.isValid()) {
-          LOG.error("parsing failed");
+          LOG.error("{}: parsing failed", path_in);
           parse_result.getError().forEach(error -> {
             final LexicalPosition<Path> lexical = error.lexical();
             LOG.error(
@@ -793,7 +1034,7 @@ public final class Main implements Runnable
               Integer.valueOf(lexical.column()),
               error.message());
           });
-          return unit();
+          return false;
         }
 
         LOG.debug("compiling");
@@ -801,10 +1042,10 @@ public final class Main implements Runnable
           compiler.compile(parse_result.get());
 
         if (!compile_result.isValid()) {
-          LOG.error("compilation failed");
+          LOG.error("{}: compilation failed", path_in);
           compile_result.getError().forEach(
             error -> LOG.error("{}: {}", error.code(), error.message()));
-          return unit();
+          return false;
         }
 
         final CaSkeleton compiled = compile_result.get();
@@ -831,15 +1072,429 @@ public final class Main implements Runnable
           }
         });
 
-        try (final OutputStream out = Files.newOutputStream(path_out)) {
-          final CaFormatVersion version =
-            serial_provider.serializerSupportedVersions().last();
-          serial_provider.serializerCreate(version)
-            .serializeCompiledSkeletonToStream(compiled, out);
+        CaOutputFiles.write(
+          path_out,
+          out -> serial_provider.serializerCreate(version)
+            .serializeCompiledSkeletonToStream(compiled, out));
+      }
+
+      return true;
+    }
+  }
+
+  @Parameters(commandDescription = "Generate synthetic skeletons and meshes")
+  private final class CommandGenerate extends CommandRoot
+  {
+    @Parameter(
+      names = "-seed",
+      description = "The seed for the random number generator")
+    private long seed;
+
+    @Parameter(
+      names = "-joints",
+      required = true,
+      description = "The number of joints in the skeleton")
+    private int joints;
+
+    @Parameter(
+      names = "-maximum-depth",
+      description = "The maximum depth of joints in the skeleton")
+    private int maximum_depth = 16;
+
+    @Parameter(
+      names = "-actions",
+      description = "The number of actions in the skeleton")
+    private int actions = 1;
+
+    @Parameter(
+      names = "-fps",
+      description = "The frames per second of each action")
+    private int fps = 60;
+
+    @Parameter(
+      names = "-frames",
+      description = "The number of frames in each action")
+    private int frames = 240;
+
+    @Parameter(
+      names = "-keyframe-interval",
+      description = "The number of frames between keyframes")
+    private int keyframe_interval = 1;
+
+    @Parameter(
+      names = "-vertices",
+      description = "The number of vertices in the mesh")
+    private int vertices = 10000;
+
+    @Parameter(
+      names = "-mesh-joints",
+      description = "The number of joints to which the mesh is bound (default: all)")
+    private Integer mesh_joints;
+
+    @Parameter(
+      names = "-influences-minimum",
+      description = "The minimum number of joints that influence each vertex")
+    private int influences_minimum = 1;
+
+    @Parameter(
+      names = "-influences-maximum",
+      description = "The maximum number of joints that influence each vertex")
+    private int influences_maximum = 4;
+
+    @Parameter(
+      names = "-weight-distribution",
+      description = "The distribution of vertex weights ('equal' | 'falloff' | 'random')")
+    private String weight_distribution =
+      CaSyntheticWeightDistribution.WEIGHT_DISTRIBUTION_FALLOFF.getName();
+
+    @Parameter(
+      names = "-skeleton-file-out",
+      description = "The output file for the skeleton definition")
+    private String skeleton_file_out;
+
+    @Parameter(
+      names = "-skeleton-format-out",
+      description = "The output file format for the skeleton definition")
+    private String skeleton_format_out;
+
+    @Parameter(
+      names = "-compiled-file-out",
+      description = "The output file for the compiled skeleton")
+    private String compiled_file_out;
+
+    @Parameter(
+      names = "-compiled-format-out",
+      description = "The output file format for the compiled skeleton")
+    private String compiled_format_out;
+
+    @Parameter(
+      names = "-compiled-format-version",
+      description = "The output file format version for the compiled skeleton (defaults to the oldest supported version)")
+    private String compiled_format_version;
+
+    @Parameter(
+      names = "-mesh-file-out",
+      description = "The output file for the mesh")
+    private String mesh_file_out;
+
+    @Parameter(
+      names = "-mesh-format-out",
+      description = "The output file format for the mesh")
+    private String mesh_format_out;
+
+    CommandGenerate()
+    {
+
+    }
+
+    @Override
+    public Unit call()
+      throws Exception
+    {
+      super.call();
+
+      if (this.skeleton_file_out == null
+        && this.compiled_file_out == null
+        && this.mesh_file_out == null) {
+        throw new ParameterException(
+          "At least one of -skeleton-file-out, -compiled-file-out, or -mesh-file-out is required");
+      }
+
+      /*
+       * Every argument is validated, and every output format resolved,
+       * before anything is written, so that a bad argument cannot leave
+       * partial output behind.
+       */
+
+      final CaSyntheticSkeletonParameters skeleton_parameters =
+        CaSyntheticSkeletonParameters.builder()
+          .setSeed(this.seed)
+          .setJointCount(this.joints)
+          .setMaximumDepth(this.maximum_depth)
+          .setActionCount(this.actions)
+          .setFramesPerSecond(this.fps)
+          .setFrameCount(this.frames)
+          .setKeyframeInterval(this.keyframe_interval)
+          .build();
+      final CaSyntheticMeshParameters mesh_parameters = this.meshParameters();
+
+      boolean formats_ok = true;
+      CaDefinitionSerializerFormatProviderType definition_provider = null;
+      if (this.skeleton_file_out != null) {
+        definition_provider = findSerializerProvider(
+          this.skeleton_format_out, this.skeleton_file_out);
+        formats_ok = definition_provider != null;
+      }
+
+      CaCompiledSerializerFormatProviderType compiled_provider = null;
+      if (this.compiled_file_out != null) {
+        compiled_provider = findCompiledSerializerProvider(
+          this.compiled_format_out, this.compiled_file_out);
+        formats_ok = formats_ok && compiled_provider != null;
+      }
+
+      Optional<SMFSerializerProviderType> mesh_provider = Optional.empty();
+      if (this.mesh_file_out != null) {
+        mesh_provider = SMFSerializerProviders.findSerializerProvider(
+          Optional.ofNullable(this.mesh_format_out), this.mesh_file_out);
+        if (!mesh_provider.isPresent()) {
+          LOG.error("Could not find a suitable SMF format provider");
+          formats_ok = false;
+        }
+      }
+
+      if (!formats_ok) {
+        Main.this.exit_code = 1;
+        return unit();
+      }
+
+      CaFormatVersion compiled_version = null;
+      if (compiled_provider != null) {
+        compiled_version = CaFormatVersions.select(
+          "-compiled-format-version",
+          compiled_provider.serializerSupportedVersions(),
+          this.compiled_format_version);
+      }
+
+      final CaDefinitionSkeleton definition =
+        CaSyntheticSkeletons.generate(skeleton_parameters);
+
+      CaSkeleton compiled = null;
+      if (compiled_provider != null) {
+        final Validation<List<CaCompileError>, CaSkeleton> compile_result =
+          CaCompiler.create().compile(definition);
+        if (!compile_result.isValid()) {
+          LOG.error("compilation failed");
+          compile_result.getError().forEach(
+            error -> LOG.error("{}: {}", error.code(), error.message()));
+          Main.this.exit_code = 1;
+          return unit();
         }
+        compiled = compile_result.get();
+      }
+
+      if (definition_provider != null) {
+        this.writeDefinition(
+          definition_provider, definition, Paths.get(this.skeleton_file_out));
+      }
+
+      if (compiled_provider != null) {
+        this.writeCompiled(
+          compiled_provider,
+          compiled_version,
+          compiled,
+          Paths.get(this.compiled_file_out));
       }
 
+      if (mesh_provider.isPresent()) {
+        this.writeMesh(
+          mesh_provider.get(), mesh_parameters, Paths.get(this.mesh_file_out));
+      }
       return unit();
     }
+
+    private CaSyntheticMeshParameters meshParameters()
+    {
+      int joint_count = this.joints;
+      if (this.mesh_joints != null) {
+        joint_count = this.mesh_joints.intValue();
+      }
+
+      if (joint_count > this.joints) {
+        throw new ParameterException(
+          "-mesh-joints must not be greater than -joints");
+      }
+
+      return CaSyntheticMeshParameters.builder()
+        .setSeed(this.seed)
+        .setVertexCount(this.vertices)
+        .setJointCount(joint_count)
+        .setInfluencesMinimum(this.influences_minimum)
+        .setInfluencesMaximum(this.influences_maximum)
+        .setWeightDistribution(
+          CaSyntheticWeightDistribution.of(this.weight_distribution))
+        .build();
+    }
+
+    private void writeDefinition(
+      final CaDefinitionSerializerFormatProviderType provider,
+      final CaDefinitionSkeleton definition,
+      final Path path_out)
+      throws IOException
+    {
+      LOG.info("writing skeleton definition to {}", path_out);
+      CaOutputFiles.write(
+        path_out,
+        out -> provider.serializerCreate(
+          provider.serializerSupportedVersions().last())
+          .serializeSkeletonToStream(definition, out));
+    }
+
+    private void writeCompiled(
+      final CaCompiledSerializerFormatProviderType provider,
+      final CaFormatVersion version,
+      final CaSkeleton compiled,
+      final Path path_out)
+      throws IOException
+    {
+      LOG.info("writing compiled skeleton to {}", path_out);
+      CaOutputFiles.write(
+        path_out,
+        out -> provider.serializerCreate(version)
+          .serializeCompiledSkeletonToStream(compiled, out));
+    }
+
+    private void writeMesh(
+      final SMFSerializerProviderType provider,
+      final CaSyntheticMeshParameters parameters,
+      final Path path_out)
+      throws IOException
+    {
+      final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(parameters);
+      LOG.info("writing mesh to {}", path_out);
+      CaOutputFiles.write(path_out, os -> {
+        try (final SMFSerializerType serializer =
+               provider.serializerCreate(
+                 provider.serializerSupportedVersions().last(),
+                 path_out,
+                 os)) {
+          SMFMemoryMeshSerializer.serialize(mesh, serializer);
+        }
+      });
+    }
+  }
+
+  @Parameters(commandDescription = "Profile skeleton evaluation and mesh deformation")
+  private final class CommandProfile extends CommandRoot
+  {
+    @Parameter(
+      names = "-file",
+      required = true,
+      description = "The compiled skeleton file")
+    private String file;
+
+    @Parameter(
+      names = "-format",
+      description = "The compiled skeleton file format")
+    private String format;
+
+    @Parameter(
+      names = "-mesh-file",
+      description = "A compiled mesh file to deform")
+    private String mesh_file;
+
+    @Parameter(
+      names = "-mesh-format",
+      description = "The compiled mesh file format")
+    private String mesh_format;
+
+    @Parameter(
+      names = "-action",
+      description = "The action to evaluate (default: all)")
+    private String action;
+
+    @Parameter(
+      names = "-fps",
+      description = "The global frames per second")
+    private int fps = 60;
+
+    @Parameter(
+      names = "-frames",
+      description = "The number of frames measured for each action")
+    private int frames = 600;
+
+    @Parameter(
+      names = "-warmup-frames",
+      description = "The number of unmeasured frames evaluated before each action is measured")
+    private int warmup_frames = 600;
+
+    @Parameter(
+      names = "-instances",
+      description = "The number of independently evaluated skeleton instances")
+    private int instances = 1;
+
+    CommandProfile()
+    {
+
+    }
+
+    @Override
+    public Unit call()
+      throws Exception
+    {
+      super.call();
+
+      if (this.fps < 1 || this.frames < 1 || this.instances < 1) {
+        throw new ParameterException(
+          "-fps, -frames, and -instances must be at least 1");
+      }
+      if (this.warmup_frames < 0) {
+        throw new ParameterException("-warmup-frames must not be negative");
+      }
+
+      final Optional<CaLoaderFormatProviderType> provider_opt =
+        CaProfile.findLoaderProvider(Optional.ofNullable(this.format), this.file);
+      if (!provider_opt.isPresent()) {
+        Main.this.exit_code = 1;
+        return unit();
+      }
+
+      final CaSkeleton skeleton =
+        CaProfile.loadSkeleton(provider_opt.get(), Paths.get(this.file));
+
+      Seq<CaActionName> actions = skeleton.actionsByName().keySet().toList();
+      if (this.action != null) {
+        final CaActionName name = CaActionName.of(this.action);
+        if (!skeleton.actionsByName().containsKey(name)) {
+          LOG.error("The skeleton has no action named '{}'", this.action);
+          Main.this.exit_code = 1;
+          return unit();
+        }
+        actions = List.of(name);
+      }
+
+      Optional<CaMeshDeformableCPUSMFTemplate> mesh = Optional.empty();
+      if (this.mesh_file != null) {
+        mesh = this.loadMesh(Paths.get(this.mesh_file));
+        if (!mesh.isPresent()) {
+          Main.this.exit_code = 1;
+          return unit();
+        }
+      }
+
+      for (final CaActionName name : actions) {
+        CaProfile.report(
+          System.out,
+          CaProfile.profile(
+            skeleton,
+            name,
+            mesh,
+            this.instances,
+            this.warmup_frames,
+            this.frames,
+            this.fps));
+      }
+      return unit();
+    }
+
+    private Optional<CaMeshDeformableCPUSMFTemplate> loadMesh(
+      final Path path)
+    {
+      final Optional<SMFParserProviderType> provider_opt =
+        SMFParserProviders.findParserProvider(
+          Optional.ofNullable(this.mesh_format), path.toString());
+      if (!provider_opt.isPresent()) {
+        return Optional.empty();
+      }
+
+      final Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate> result =
+        CaProfile.loadMesh(provider_opt.get(), path);
+      if (result.isInvalid()) {
+        result.getError().forEach(
+          error -> LOG.error("{}: {}", path, error.message()));
+        return Optional.empty();
+      }
+      return Optional.of(result.get());
+    }
   }
 }
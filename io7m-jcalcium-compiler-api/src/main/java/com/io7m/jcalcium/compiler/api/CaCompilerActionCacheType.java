@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.compiler.api;
+
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+
+import java.util.Optional;
+
+/**
+ * A cache of compiled actions, keyed by action hash.
+ *
+ * <p>Implementations must be safe to use from multiple threads, as
+ * compilers may compile actions in parallel. A failure to read from or write
+ * to a cache must not cause compilation to fail: Implementations should
+ * treat unreadable entries as absent and ignore failed writes.</p>
+ *
+ * @see CaCompilerActionHashing
+ */
+
+public interface CaCompilerActionCacheType
+{
+  /**
+   * Find a previously compiled action.
+   *
+   * @param hash The action hash
+   *
+   * @return The compiled action, if one exists in the cache
+   */
+
+  Optional<CaActionType> cachedAction(
+    CaCompilerActionHash hash);
+
+  /**
+   * Store a compiled action.
+   *
+   * @param hash   The action hash
+   * @param action The compiled action
+   */
+
+  void cacheAction(
+    CaCompilerActionHash hash,
+    CaActionType action);
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.compiler.api;
+
+import com.io7m.jcalcium.core.CaCurveEasing;
+import com.io7m.jcalcium.core.CaCurveInterpolation;
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionCurvesType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeOrientationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeScaleType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveOrientationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveScaleType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
+import com.io7m.jfunctional.Unit;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.List;
+import javaslang.collection.TreeSet;
+import org.apache.commons.codec.binary.Hex;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The hash function for action definitions.
+ */
+
+public final class CaCompilerActionHashing
+{
+  /**
+   * A string included in every hash. This must be changed whenever the
+   * compiler changes the way in which it compiles actions, so that actions
+   * compiled by older compilers are not retrieved from caches.
+   */
+
+  private static final String VERSION = "calcium action 1";
+
+  private CaCompilerActionHashing()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a hash of the given action definition, compiled against a
+   * skeleton with the given hash.
+   *
+   * @param skeleton The hash of the compiled joints of the skeleton
+   * @param action   The action definition
+   *
+   * @return A hash of the action
+   */
+
+  public static CaCompilerActionHash create(
+    final CaSkeletonHash skeleton,
+    final CaDefinitionActionType action)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(action, "Action");
+
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.reset();
+
+      final Hasher hasher = new Hasher(digest);
+      hasher.string(VERSION);
+      hasher.string(skeleton.algorithm());
+      hasher.string(skeleton.value());
+      action.matchAction(hasher, Hasher::actionCurves);
+
+      return CaCompilerActionHash.of(
+        "SHA2-256", Hex.encodeHexString(digest.digest()));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new UnsupportedOperationException(e);
+    }
+  }
+
+  private static final class Hasher
+  {
+    private final MessageDigest digest;
+    private final byte[] byte4;
+    private final byte[] byte8;
+    private final ByteBuffer buffer4;
+    private final ByteBuffer buffer8;
+
+    Hasher(
+      final MessageDigest in_digest)
+    {
+      this.digest = NullCheck.notNull(in_digest, "Digest");
+      this.byte4 = new byte[4];
+      this.byte8 = new byte[8];
+      this.buffer4 = ByteBuffer.wrap(this.byte4).order(ByteOrder.BIG_ENDIAN);
+      this.buffer8 = ByteBuffer.wrap(this.byte8).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /*
+     * Strings are prefixed with their length so that adjacent strings
+     * cannot be confused with one another.
+     */
+
+    void string(
+      final String s)
+    {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      this.integer(bytes.length);
+      this.digest.update(bytes);
+    }
+
+    void integer(
+      final int x)
+    {
+      this.buffer4.putInt(0, x);
+      this.digest.update(this.byte4);
+    }
+
+    void real(
+      final double x)
+    {
+      this.buffer8.putDouble(0, x);
+      this.digest.update(this.byte8);
+    }
+
+    void keyframe(
+      final int index,
+      final CaCurveInterpolation interpolation,
+      final CaCurveEasing easing)
+    {
+      this.integer(index);
+      this.string(interpolation.name());
+      this.string(easing.name());
+    }
+
+    Unit actionCurves(
+      final CaDefinitionActionCurvesType action)
+    {
+      this.string("curves");
+      this.string(action.name().value());
+      this.integer(action.framesPerSecond());
+
+      final TreeSet<CaJointName> joints =
+        TreeSet.ofAll(action.curves().keySet());
+      this.integer(joints.size());
+
+      for (final CaJointName joint : joints) {
+        final List<CaDefinitionCurveType> curves =
+          action.curves().get(joint).get();
+        this.string(joint.value());
+        this.integer(curves.size());
+
+        for (final CaDefinitionCurveType curve : curves) {
+          curve.matchCurve(
+            this,
+            Hasher::curveTranslation,
+            Hasher::curveOrientation,
+            Hasher::curveScale);
+        }
+      }
+      return Unit.unit();
+    }
+
+    Unit curveTranslation(
+      final CaDefinitionCurveTranslationType curve)
+    {
+      this.string("translation");
+      this.string(curve.joint().value());
+      this.integer(curve.keyframes().size());
+      for (final CaDefinitionCurveKeyframeTranslationType k : curve.keyframes()) {
+        this.keyframe(k.index(), k.interpolation(), k.easing());
+        this.real(k.translation().getXD());
+        this.real(k.translation().getYD());
+        this.real(k.translation().getZD());
+      }
+      return Unit.unit();
+    }
+
+    Unit curveOrientation(
+      final CaDefinitionCurveOrientationType curve)
+    {
+      this.string("orientation");
+      this.string(curve.joint().value());
+      this.integer(curve.keyframes().size());
+      for (final CaDefinitionCurveKeyframeOrientationType k : curve.keyframes()) {
+        this.keyframe(k.index(), k.interpolation(), k.easing());
+        this.real(k.orientation().getXD());
+        this.real(k.orientation().getYD());
+        this.real(k.orientation().getZD());
+        this.real(k.orientation().getWD());
+      }
+      return Unit.unit();
+    }
+
+    Unit curveScale(
+      final CaDefinitionCurveScaleType curve)
+    {
+      this.string("scale");
+      this.string(curve.joint().value());
+      this.integer(curve.keyframes().size());
+      for (final CaDefinitionCurveKeyframeScaleType k : curve.keyframes()) {
+        this.keyframe(k.index(), k.interpolation(), k.easing());
+        this.real(k.scale().getXD());
+        this.real(k.scale().getYD());
+        this.real(k.scale().getZD());
+      }
+      return Unit.unit();
+    }
+  }
+}
@@ -20,13 +20,18 @@ import com.io7m.jaffirm.core.Invariants;
 import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.jcalcium.compiler.api.CaCompileError;
 import com.io7m.jcalcium.compiler.api.CaCompileErrorCode;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionCacheType;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionHash;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionHashing;
 import com.io7m.jcalcium.compiler.api.CaCompilerSkeletonHashing;
 import com.io7m.jcalcium.core.CaActionName;
 import com.io7m.jcalcium.core.CaJointName;
 import com.io7m.jcalcium.core.CaSkeletonName;
 import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
 import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
 import com.io7m.jcalcium.core.compiled.actions.CaActionCurves;
 import com.io7m.jcalcium.core.compiled.actions.CaActionType;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveKeyframeOrientation;
@@ -47,14 +52,17 @@ import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveOrientationTy
 import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveScaleType;
 import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslationType;
 import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 import com.io7m.jorchard.core.JOTreeExceptionCycle;
 import com.io7m.jorchard.core.JOTreeNode;
 import com.io7m.jorchard.core.JOTreeNodeReadableType;
 import com.io7m.jorchard.core.JOTreeNodeType;
+import com.io7m.jtensors.MatrixM4x4D;
 import com.io7m.jtensors.QuaternionI4D;
 import com.io7m.jtensors.VectorI3D;
+import com.io7m.junreachable.UnreachableCodeException;
 import javaslang.collection.Array;
 import javaslang.collection.IndexedSeq;
 import javaslang.collection.List;
@@ -64,12 +72,15 @@ import javaslang.collection.SortedMap;
 import javaslang.collection.TreeMap;
 import javaslang.control.Validation;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.io7m.jcalcium.compiler.api.CaCompileErrorCode.ERROR_ACTION_DUPLICATE_KEYFRAME;
 import static com.io7m.jcalcium.compiler.api.CaCompileErrorCode.ERROR_ACTION_INVALID_BONE;
@@ -90,10 +101,20 @@ import static javaslang.control.Validation.valid;
 final class CaCompileTask
 {
   private final CaDefinitionSkeleton input;
-
-  CaCompileTask(final CaDefinitionSkeleton in_definition)
+  private final Executor executor;
+  private final Optional<CaCompilerActionCacheType> cache;
+  private final CaMetricsType metrics;
+
+  CaCompileTask(
+    final CaDefinitionSkeleton in_definition,
+    final Executor in_executor,
+    final Optional<CaCompilerActionCacheType> in_cache,
+    final CaMetricsType in_metrics)
   {
     this.input = NullCheck.notNull(in_definition, "Definition");
+    this.executor = NullCheck.notNull(in_executor, "Executor");
+    this.cache = NullCheck.notNull(in_cache, "Cache");
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
   }
 
   private static List<CaCompileError> errorsFor(
@@ -103,21 +124,90 @@ final class CaCompileTask
     return List.of(CaCompileError.of(code, message));
   }
 
-  private static Validation<List<CaCompileError>, JOTreeNodeType<CaDefinitionJoint>>
-  buildDefinitionTreeAddNode(
-    final Map<CaJointName, CaDefinitionJoint> joints,
-    final HashMap<CaJointName, JOTreeNodeType<CaDefinitionJoint>> nodes,
-    final CaDefinitionJoint joint)
+  /**
+   * Attempt to construct a tree from the given set of joint definitions.
+   *
+   * <p>The tree is constructed iteratively, in time linear in the number of
+   * joints. The joints are first checked for nonexistent parents and then
+   * ordered breadth-first from the root. Every joint other than the root has
+   * exactly one existing parent, so any joint that cannot be reached from
+   * the root must be part of, or descend from, a cycle. The tree nodes are
+   * then linked in reverse breadth-first order, so that each node is
+   * attached to its parent before that parent has itself been attached to
+   * anything.</p>
+   *
+   * @param joint_defs The joint definitions
+   * @param root       The root joint
+   *
+   * @return A tree, or a list of reasons why the joints do not form a tree
+   */
+
+  private static Validation<
+    List<CaCompileError>, JOTreeNodeType<CaDefinitionJoint>>
+  compileBuildDefinitionTree(
+    final Map<CaJointName, CaDefinitionJoint> joint_defs,
+    final CaDefinitionJoint root)
   {
-    if (nodes.containsKey(joint.name())) {
-      return valid(nodes.get(joint.name()));
+    final int count = joint_defs.size();
+    final java.util.Map<CaJointName, CaDefinitionJoint> joints =
+      new HashMap<>(count);
+    joint_defs.forEach(p -> joints.put(p._1, p._2));
+
+    final Validation<List<CaCompileError>, java.util.Map<CaJointName, java.util.List<CaDefinitionJoint>>> v_children =
+      compileBuildDefinitionTreeChildren(joint_defs, joints);
+    if (v_children.isInvalid()) {
+      return invalid(v_children.getError());
+    }
+
+    final java.util.List<CaDefinitionJoint> order =
+      compileBuildDefinitionTreeOrder(root, v_children.get(), count);
+    if (order.size() != count) {
+      return invalid(
+        compileBuildDefinitionTreeCycles(joint_defs, joints, order));
+    }
+
+    final java.util.Map<CaJointName, JOTreeNodeType<CaDefinitionJoint>> nodes =
+      new HashMap<>(count);
+    for (final CaDefinitionJoint joint : order) {
+      nodes.put(joint.name(), JOTreeNode.create(joint));
     }
 
-    final JOTreeNodeType<CaDefinitionJoint> node = JOTreeNode.create(joint);
-    nodes.put(joint.name(), node);
+    for (int index = order.size() - 1; index > 0; --index) {
+      final CaDefinitionJoint joint = order.get(index);
+      final CaJointName parent_name = joint.parent().get();
+      try {
+        nodes.get(parent_name).childAdd(nodes.get(joint.name()));
+      } catch (final JOTreeExceptionCycle e) {
+        throw new UnreachableCodeException(e);
+      }
+    }
+
+    Invariants.checkInvariant(
+      nodes.size() == count,
+      "Compiled skeleton joint count must match");
+    return valid(nodes.get(root.name()));
+  }
+
+  /*
+   * Check that all parents exist, and build a table of the children of
+   * each joint.
+   */
+
+  private static Validation<List<CaCompileError>, java.util.Map<CaJointName, java.util.List<CaDefinitionJoint>>>
+  compileBuildDefinitionTreeChildren(
+    final Map<CaJointName, CaDefinitionJoint> joint_defs,
+    final java.util.Map<CaJointName, CaDefinitionJoint> joints)
+  {
+    final java.util.List<CaCompileError> errors = new ArrayList<>(8);
+    final java.util.Map<CaJointName, java.util.List<CaDefinitionJoint>> children =
+      new HashMap<>(joints.size());
+
+    for (final CaDefinitionJoint joint : joint_defs.values()) {
+      final Optional<CaJointName> parent_opt = joint.parent();
+      if (!parent_opt.isPresent()) {
+        continue;
+      }
 
-    final Optional<CaJointName> parent_opt = joint.parent();
-    if (parent_opt.isPresent()) {
       final CaJointName parent_name = parent_opt.get();
       if (!joints.containsKey(parent_name)) {
         final StringBuilder sb = new StringBuilder(128);
@@ -129,73 +219,97 @@ final class CaCompileTask
         sb.append("  Nonexistent parent: ");
         sb.append(parent_name.value());
         sb.append(System.lineSeparator());
-        return invalid(errorsFor(
-          ERROR_JOINT_NONEXISTENT_PARENT,
-          sb.toString()));
+        errors.add(CaCompileError.of(
+          ERROR_JOINT_NONEXISTENT_PARENT, sb.toString()));
+        continue;
       }
 
-      try {
-        if (nodes.containsKey(parent_name)) {
-          final JOTreeNodeType<CaDefinitionJoint> parent_node = nodes.get(
-            parent_name);
-          parent_node.childAdd(node);
-        } else {
-          return buildDefinitionTreeAddNode(
-            joints,
-            nodes,
-            joints.get(parent_name).get()).flatMap(parent -> {
-            parent.childAdd(node);
-            return valid(node);
-          });
-        }
-      } catch (final JOTreeExceptionCycle e) {
+      children.computeIfAbsent(parent_name, k -> new ArrayList<>(4))
+        .add(joint);
+    }
+
+    if (errors.isEmpty()) {
+      return valid(children);
+    }
+    return invalid(List.ofAll(errors));
+  }
+
+  /*
+   * List all joints reachable from the root, in breadth-first order.
+   */
+
+  private static java.util.List<CaDefinitionJoint> compileBuildDefinitionTreeOrder(
+    final CaDefinitionJoint root,
+    final java.util.Map<CaJointName, java.util.List<CaDefinitionJoint>> children,
+    final int count)
+  {
+    final java.util.List<CaDefinitionJoint> order = new ArrayList<>(count);
+    order.add(root);
+
+    for (int index = 0; index < order.size(); ++index) {
+      final java.util.List<CaDefinitionJoint> joint_children =
+        children.get(order.get(index).name());
+      if (joint_children != null) {
+        order.addAll(joint_children);
+      }
+    }
+    return order;
+  }
+
+  /*
+   * Find the cycles among the joints that cannot be reached from the root.
+   * Starting from each joint in turn, the chain of parents is followed and
+   * each joint on the chain is labelled with the chain number. The walk
+   * stops at the first joint that already has a label: If that label is the
+   * current chain number, the chain has closed on itself and a new cycle
+   * has been found. Otherwise, the chain has run into the root's tree or
+   * into a chain that was walked earlier. Each joint is labelled at most
+   * once, so the search is linear in the number of joints.
+   */
+
+  private static List<CaCompileError> compileBuildDefinitionTreeCycles(
+    final Map<CaJointName, CaDefinitionJoint> joint_defs,
+    final java.util.Map<CaJointName, CaDefinitionJoint> joints,
+    final java.util.List<CaDefinitionJoint> reachable)
+  {
+    final Integer reachable_chain = Integer.valueOf(-1);
+    final java.util.Map<CaJointName, Integer> chain_of =
+      new HashMap<>(joints.size());
+    for (final CaDefinitionJoint joint : reachable) {
+      chain_of.put(joint.name(), reachable_chain);
+    }
+
+    final java.util.List<CaCompileError> errors = new ArrayList<>(8);
+    int chain = 0;
+    for (final CaDefinitionJoint start : joint_defs.values()) {
+      final Integer chain_id = Integer.valueOf(chain);
+      CaDefinitionJoint previous = start;
+      CaDefinitionJoint current = start;
+      while (!chain_of.containsKey(current.name())) {
+        chain_of.put(current.name(), chain_id);
+        previous = current;
+        current = joints.get(current.parent().get());
+      }
+
+      if (Objects.equals(chain_of.get(current.name()), chain_id)) {
         final StringBuilder sb = new StringBuilder(128);
         sb.append("Graph cycle detected in skeleton input.");
         sb.append(System.lineSeparator());
         sb.append("  Joint:   ");
-        sb.append(joint.name().value());
+        sb.append(previous.name().value());
         sb.append(System.lineSeparator());
         sb.append("  Parent: ");
-        sb.append(parent_name.value());
+        sb.append(current.name().value());
         sb.append(System.lineSeparator());
-        return invalid(
-          errorsFor(ERROR_JOINT_CYCLE, sb.toString()));
+        errors.add(CaCompileError.of(ERROR_JOINT_CYCLE, sb.toString()));
       }
+      ++chain;
     }
 
-    return valid(node);
-  }
-
-  /**
-   * Attempt to construct a tree from the given set of joint definitions.
-   *
-   * @param joint_defs The joint definitions
-   * @param root       The root joint
-   *
-   * @return A tree, or a list of reasons why the joints do not form a tree
-   */
-
-  private static Validation<
-    List<CaCompileError>, JOTreeNodeType<CaDefinitionJoint>>
-  compileBuildDefinitionTree(
-    final Map<CaJointName, CaDefinitionJoint> joint_defs,
-    final CaDefinitionJoint root)
-  {
-    final JOTreeNodeType<CaDefinitionJoint> tree_root =
-      JOTreeNode.create(root);
-    final HashMap<CaJointName, JOTreeNodeType<CaDefinitionJoint>> nodes =
-      new HashMap<>(joint_defs.size());
-    nodes.put(root.name(), tree_root);
-
-    return Validation.sequence(
-      joint_defs.values().map(
-        joint -> buildDefinitionTreeAddNode(joint_defs, nodes, joint)))
-      .flatMap(joints -> {
-        Invariants.checkInvariant(
-          joints.size() == joint_defs.size(),
-          "Compiled skeleton joint count must match");
-        return valid(tree_root);
-      });
+    Invariants.checkInvariant(
+      !errors.isEmpty(),
+      "Unreachable joints imply at least one cycle");
+    return List.ofAll(errors);
   }
 
   /**
@@ -328,12 +442,12 @@ final class CaCompileTask
     final JOTreeNodeReadableType<CaDefinitionJoint> root)
   {
     /*
-     * First, insert all nodes into a linked list, ordered first by depth
-     * and then by name. The aim is to receive all nodes of a given depth
-     * in the lexicographical order of their names.
+     * First, insert all nodes into a list, ordered first by depth and then
+     * by name. The aim is to receive all nodes of a given depth in the
+     * lexicographical order of their names.
      */
 
-    final LinkedList<NodeByDepth> nodes = new LinkedList<>();
+    final java.util.List<NodeByDepth> nodes = new ArrayList<>(16);
     root.forEachBreadthFirst(
       Unit.unit(),
       (ignored, depth, node) -> nodes.add(new NodeByDepth(node, depth)));
@@ -347,54 +461,75 @@ final class CaCompileTask
     });
 
     /*
-     * Now, compile each joint and build a new joint tree.
+     * Now, compile each joint and assign identifiers in the sorted order.
      */
 
+    final int count = nodes.size();
     final java.util.Map<CaJointName, JOTreeNodeType<CaJoint>> processed =
-      new HashMap<>(nodes.size());
-    final AtomicInteger id_pool = new AtomicInteger(0);
-    JOTreeNodeType<CaJoint> compiled_root = null;
+      new HashMap<>(count);
+    final java.util.List<JOTreeNodeType<CaJoint>> compiled_nodes =
+      new ArrayList<>(count);
 
-    for (final NodeByDepth node : nodes) {
-      final CaDefinitionJoint joint = node.node.value();
+    for (int index = 0; index < count; ++index) {
+      final CaDefinitionJoint joint = nodes.get(index).node.value();
       final CaJoint compiled = CaJoint.of(
         joint.name(),
-        id_pool.getAndIncrement(),
+        index,
         joint.translation(),
         joint.orientation(),
         joint.scale());
 
       final JOTreeNodeType<CaJoint> compiled_node =
         JOTreeNode.create(compiled);
+      compiled_nodes.add(compiled_node);
+      processed.put(joint.name(), compiled_node);
+    }
 
-      final Optional<CaJointName> parent_opt = joint.parent();
-      if (parent_opt.isPresent()) {
-        final CaJointName parent_name = parent_opt.get();
+    Invariants.checkInvariant(
+      nodes.get(0).depth == 0,
+      "Node without parent must be at depth 0");
+    Invariants.checkInvariant(
+      count == 1 || nodes.get(1).depth > 0,
+      "Only one compiled_root can exist");
+
+    /*
+     * Link the compiled nodes into a tree. As in compileBuildDefinitionTree,
+     * the deepest nodes are linked first so that the cycle check performed
+     * when a child is added never has to walk a long chain of ancestors.
+     * Within each depth, the nodes are linked in name order so that the
+     * children of each joint remain ordered by name.
+     */
+
+    int level_end = count;
+    while (level_end > 1) {
+      final int level_depth = nodes.get(level_end - 1).depth;
+      int level_start = level_end - 1;
+      while (nodes.get(level_start - 1).depth == level_depth) {
+        --level_start;
+      }
+
+      for (int index = level_start; index < level_end; ++index) {
+        final CaDefinitionJoint joint = nodes.get(index).node.value();
+        final CaJointName parent_name = joint.parent().get();
 
         Invariants.checkInvariant(
           processed.containsKey(parent_name),
           "Parent node must have been processed");
 
-        final JOTreeNodeType<CaJoint> parent =
-          processed.get(parent_name);
-        compiled_node.setParent(parent);
-      } else {
-        Invariants.checkInvariant(
-          node.depth == 0,
-          "Node without parent must be at depth 0");
-        Invariants.checkInvariant(
-          compiled_root == null,
-          "Only one compiled_root can exist");
-        compiled_root = compiled_node;
+        try {
+          processed.get(parent_name).childAdd(compiled_nodes.get(index));
+        } catch (final JOTreeExceptionCycle e) {
+          throw new UnreachableCodeException(e);
+        }
       }
-
-      processed.put(joint.name(), compiled_node);
+      level_end = level_start;
     }
 
+    final JOTreeNodeType<CaJoint> compiled_root = compiled_nodes.get(0);
     Invariants.checkInvariant(
       processed.size() == nodes.size(),
       "Processed all nodes");
-    return valid(NullCheck.notNull(compiled_root, "Root"));
+    return valid(compiled_root);
   }
 
   private static Validation<List<CaCompileError>, JointIndex>
@@ -406,7 +541,17 @@ final class CaCompileTask
     final java.util.Map<Integer, JOTreeNodeType<CaJoint>> by_id =
       new HashMap<>(16);
 
-    root.forEachDepthFirst(Unit.unit(), (ignored, depth, node) -> {
+    /*
+     * The tree is walked with an explicit stack rather than with the
+     * recursive depth-first traversal, so that very deep joint chains
+     * cannot overflow the call stack.
+     */
+
+    final ArrayDeque<JOTreeNodeType<CaJoint>> stack = new ArrayDeque<>(16);
+    stack.push(root);
+
+    while (!stack.isEmpty()) {
+      final JOTreeNodeType<CaJoint> node = stack.pop();
       final CaJoint joint = node.value();
       final Integer joint_id = Integer.valueOf(joint.id());
       final CaJointName joint_name = joint.name();
@@ -418,28 +563,68 @@ final class CaCompileTask
         !by_id.containsKey(joint_id),
         "ID must not be duplicated");
 
-      by_name.put(joint_name, (JOTreeNodeType<CaJoint>) node);
-      by_id.put(joint_id, (JOTreeNodeType<CaJoint>) node);
-    });
+      by_name.put(joint_name, node);
+      by_id.put(joint_id, node);
+
+      for (final JOTreeNodeReadableType<CaJoint> child :
+        node.childrenReadable()) {
+        stack.push((JOTreeNodeType<CaJoint>) child);
+      }
+    }
 
     return valid(new JointIndex(
       root, TreeMap.ofAll(by_name), TreeMap.ofAll(by_id)));
   }
 
   /*
-   * Make a table of all of the nodes by ID, and another by name.
+   * Compile all actions. Actions are independent of each other once the
+   * joint index exists, so each action is compiled as a separate task on
+   * the given executor. The joint index is not modified by action
+   * compilation and can therefore be shared between tasks.
+   *
+   * The results are collected in action name order, so the compiled
+   * skeleton and the order of any reported errors do not depend on the
+   * order in which the tasks happen to complete.
    */
 
   private static Validation<List<CaCompileError>, SortedMap<CaActionName, CaActionType>>
   compileActions(
+    final Executor executor,
+    final Optional<CaCompilerActionCacheType> cache,
+    final CaMetricsType metrics,
     final JointIndex joint_index,
+    final CaSkeletonHash skeleton_hash,
     final Map<CaActionName, CaDefinitionActionType> in_actions)
   {
-    return Validation.sequence(
-      in_actions.values().map(action -> compileAction(joint_index, action)))
+    final List<CompletableFuture<Validation<List<CaCompileError>, CaActionType>>> tasks =
+      List.ofAll(in_actions.values())
+        .sortBy(CaDefinitionActionType::name)
+        .map(action -> CompletableFuture.supplyAsync(
+          () -> compileActionCached(
+            cache, metrics, joint_index, skeleton_hash, action),
+          executor));
+
+    return Validation.sequence(tasks.map(CaCompileTask::await))
       .flatMap(actions -> valid(sortedMapOf(actions)));
   }
 
+  private static <T> T await(
+    final CompletableFuture<T> future)
+  {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
   private static SortedMap<CaActionName, CaActionType> sortedMapOf(
     final Iterable<CaActionType> actions)
   {
@@ -449,6 +634,65 @@ final class CaCompileTask
     return TreeMap.ofAll(jm);
   }
 
+  /*
+   * Compile an action, consulting the cache first if one is present. Only
+   * successfully compiled actions are cached: An action that fails to
+   * compile is recompiled each time so that its errors are reported.
+   */
+
+  private static Validation<List<CaCompileError>, CaActionType>
+  compileActionCached(
+    final Optional<CaCompilerActionCacheType> cache_opt,
+    final CaMetricsType metrics,
+    final JointIndex joint_index,
+    final CaSkeletonHash skeleton_hash,
+    final CaDefinitionActionType action)
+  {
+    if (!cache_opt.isPresent()) {
+      return compileActionMeasured(metrics, joint_index, action);
+    }
+
+    final CaCompilerActionCacheType cache = cache_opt.get();
+    final CaCompilerActionHash hash =
+      CaCompilerActionHashing.create(skeleton_hash, action);
+
+    final Optional<CaActionType> cached = cache.cachedAction(hash);
+    if (cached.isPresent()) {
+      return valid(cached.get());
+    }
+
+    final Validation<List<CaCompileError>, CaActionType> result =
+      compileActionMeasured(metrics, joint_index, action);
+    if (result.isValid()) {
+      cache.cacheAction(hash, result.get());
+    }
+    return result;
+  }
+
+  /*
+   * Compile an action, publishing the time taken to the metrics receiver.
+   * Actions satisfied from the cache are not compiled and are therefore
+   * not reported.
+   */
+
+  private static Validation<List<CaCompileError>, CaActionType>
+  compileActionMeasured(
+    final CaMetricsType metrics,
+    final JointIndex joint_index,
+    final CaDefinitionActionType action)
+  {
+    if (!metrics.isEnabled()) {
+      return compileAction(joint_index, action);
+    }
+
+    final long time_then = System.nanoTime();
+    final Validation<List<CaCompileError>, CaActionType> result =
+      compileAction(joint_index, action);
+    final long time_now = System.nanoTime();
+    metrics.onActionCompiled(action.name(), time_now - time_then);
+    return result;
+  }
+
   private static Validation<List<CaCompileError>, CaActionType>
   compileAction(
     final JointIndex joint_index,
@@ -465,23 +709,31 @@ final class CaCompileTask
     final Map<CaJointName, List<CaDefinitionCurveType>> curves =
       action.curves();
 
-    List<CaCompileError> errors = List.empty();
-    SortedMap<CaJointName, IndexedSeq<CaCurveType>> results =
-      TreeMap.empty();
+    /*
+     * Errors and results are accumulated in mutable collections local to
+     * this action and are converted to persistent collections once at the
+     * end, rather than being appended to persistent collections one at a
+     * time.
+     */
+
+    final java.util.List<CaCompileError> errors = new ArrayList<>(8);
+    final java.util.Map<CaJointName, IndexedSeq<CaCurveType>> results =
+      new java.util.TreeMap<>();
 
     for (final CaJointName joint : curves.keySet()) {
       final Validation<List<CaCompileError>, CaJoint> v_joint =
         compileActionJointName(joint_index, action.name(), joint);
 
       if (v_joint.isInvalid()) {
-        errors = errors.appendAll(v_joint.getError());
+        v_joint.getError().forEach(errors::add);
         continue;
       }
 
       final List<CaDefinitionCurveType> curves_for_joint =
         curves.get(joint).get();
 
-      IndexedSeq<CaCurveType> curves_ok = Array.empty();
+      final java.util.List<CaCurveType> curves_ok =
+        new ArrayList<>(curves_for_joint.size());
 
       final CurveTypeCounter counter = new CurveTypeCounter(
         joint,
@@ -499,20 +751,21 @@ final class CaCompileTask
             curve));
 
         if (r.isValid()) {
-          curves_ok = curves_ok.append(r.get());
+          curves_ok.add(r.get());
         } else {
-          errors = errors.appendAll(r.getError());
+          r.getError().forEach(errors::add);
         }
       }
 
-      results = results.put(joint, curves_ok);
+      results.put(joint, Array.ofAll(curves_ok));
     }
 
     final Validation<List<CaCompileError>, Integer> v_fps =
       compileActionFPS(action.name(), action.framesPerSecond());
 
     if (errors.isEmpty()) {
-      final SortedMap<CaJointName, IndexedSeq<CaCurveType>> r_results = results;
+      final SortedMap<CaJointName, IndexedSeq<CaCurveType>> r_results =
+        TreeMap.ofAll(results);
       return v_fps.flatMap(fps -> {
         final CaActionCurves.Builder b = CaActionCurves.builder();
         b.setName(action.name());
@@ -523,9 +776,9 @@ final class CaCompileTask
     }
 
     if (v_fps.isInvalid()) {
-      return invalid(errors.appendAll(v_fps.getError()));
+      return invalid(List.ofAll(errors).appendAll(v_fps.getError()));
     }
-    return invalid(errors);
+    return invalid(List.ofAll(errors));
   }
 
   private static Validation<List<CaCompileError>, CaCurveType>
@@ -837,15 +1090,23 @@ final class CaCompileTask
   private static CaSkeleton make(
     final CaSkeletonName name,
     final JointIndex index,
+    final CaSkeletonHash hash,
     final SortedMap<CaActionName, CaActionType> actions)
   {
     final CaSkeleton.Builder b = CaSkeleton.builder();
     b.setActionsByName(actions);
     b.setJoints(index.joints);
-    b.setMeta(CaSkeletonMetadata.of(
-      name,
-      CaCompilerSkeletonHashing.create(index.joints_by_id)));
-    return b.build();
+    b.setMeta(CaSkeletonMetadata.of(name, hash));
+
+    /*
+     * Calculate the inverse rest pose matrices once here so that loaders
+     * can use the stored matrices instead of recalculating them.
+     */
+
+    final CaSkeleton skeleton = b.build();
+    return skeleton.withRestPoseInverses(
+      CaSkeletonRestPose.computeInverses(
+        new MatrixM4x4D.ContextMM4D(), skeleton));
   }
 
   Validation<List<CaCompileError>, CaSkeleton> run()
@@ -857,8 +1118,14 @@ final class CaCompileTask
       .flatMap(root -> compileBuildDefinitionTree(in_joints, root))
       .flatMap(CaCompileTask::compileJointsAssignIdentifiers)
       .flatMap(CaCompileTask::compileJointsCreateIndex)
-      .flatMap(index -> compileActions(index, in_actions).flatMap(
-        actions -> valid(make(this.input.name(), index, actions))));
+      .flatMap(index -> {
+        final CaSkeletonHash hash =
+          CaCompilerSkeletonHashing.create(index.joints_by_id);
+        return compileActions(
+          this.executor, this.cache, this.metrics, index, hash, in_actions)
+          .flatMap(
+          actions -> valid(make(this.input.name(), index, hash, actions)));
+      });
   }
 
   private static final class CurveTypeCounter
@@ -17,39 +17,137 @@
 package com.io7m.jcalcium.compiler.main;
 
 import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionCacheType;
 import com.io7m.jcalcium.compiler.api.CaCompilerType;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
+import com.io7m.jnull.NullCheck;
 import javaslang.collection.List;
 import javaslang.control.Validation;
 
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
 /**
  * Main implementation of the {@link CaCompilerType} interface.
  */
 
 public final class CaCompiler implements CaCompilerType
 {
-  private CaCompiler()
-  {
+  private final Executor executor;
+  private final Optional<CaCompilerActionCacheType> cache;
+  private final CaMetricsType metrics;
 
+  private CaCompiler(
+    final Executor in_executor,
+    final Optional<CaCompilerActionCacheType> in_cache,
+    final CaMetricsType in_metrics)
+  {
+    this.executor = NullCheck.notNull(in_executor, "Executor");
+    this.cache = NullCheck.notNull(in_cache, "Cache");
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
   }
 
   /**
-   * Create a new compiler.
+   * Create a new compiler. Actions are compiled serially on the calling
+   * thread.
    *
    * @return A compiler
    */
 
   public static CaCompilerType create()
   {
-    return new CaCompiler();
+    return new CaCompiler(
+      Runnable::run, Optional.empty(), CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new compiler that compiles the actions of each skeleton in
+   * parallel on the given executor. The compiled skeletons, and the order
+   * of any reported errors, are identical to those produced by a compiler
+   * returned by {@link #create()}.
+   *
+   * @param executor The executor used to compile actions
+   *
+   * @return A compiler
+   */
+
+  public static CaCompilerType createWithExecutor(
+    final Executor executor)
+  {
+    return new CaCompiler(
+      executor, Optional.empty(), CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new compiler that compiles the actions of each skeleton in
+   * parallel on the given executor, reusing previously compiled actions
+   * from the given cache. Only actions whose definitions (or whose
+   * skeleton joints) have changed since they were cached are recompiled.
+   *
+   * @param executor The executor used to compile actions
+   * @param cache    The action cache
+   *
+   * @return A compiler
+   *
+   * @see com.io7m.jcalcium.compiler.api.CaCompilerActionHashing
+   */
+
+  public static CaCompilerType createWithExecutorAndCache(
+    final Executor executor,
+    final CaCompilerActionCacheType cache)
+  {
+    return new CaCompiler(
+      executor, Optional.of(cache), CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new compiler as {@link #createWithExecutor(Executor)} that
+   * additionally publishes the time taken to compile each action to the
+   * given metrics receiver.
+   *
+   * @param executor The executor used to compile actions
+   * @param metrics  A metrics receiver
+   *
+   * @return A compiler
+   */
+
+  public static CaCompilerType createWithExecutorAndMetrics(
+    final Executor executor,
+    final CaMetricsType metrics)
+  {
+    return new CaCompiler(executor, Optional.empty(), metrics);
+  }
+
+  /**
+   * Create a new compiler as {@link #createWithExecutorAndCache(Executor,
+   * CaCompilerActionCacheType)} that additionally publishes the time taken to
+   * compile each action to the given metrics receiver. Actions reused from
+   * the cache are not reported.
+   *
+   * @param executor The executor used to compile actions
+   * @param cache    The action cache
+   * @param metrics  A metrics receiver
+   *
+   * @return A compiler
+   */
+
+  public static CaCompilerType createWithExecutorCacheAndMetrics(
+    final Executor executor,
+    final CaCompilerActionCacheType cache,
+    final CaMetricsType metrics)
+  {
+    return new CaCompiler(executor, Optional.of(cache), metrics);
   }
 
   @Override
   public Validation<List<CaCompileError>, CaSkeleton> compile(
     final CaDefinitionSkeleton skeleton)
   {
-    return new CaCompileTask(skeleton).run();
+    return new CaCompileTask(
+      skeleton, this.executor, this.cache, this.metrics).run();
   }
 
 }
@@ -37,11 +37,15 @@ import com.io7m.jtensors.parameterized.PMatrix4x4DType;
 import com.io7m.jtensors.parameterized.PMatrix4x4FType;
 import com.io7m.jtensors.parameterized.PMatrixHeapArrayM4x4D;
 import com.io7m.jtensors.parameterized.PMatrixHeapArrayM4x4F;
+import com.io7m.jtensors.parameterized.PMatrixI4x4D;
+import com.io7m.jtensors.parameterized.PMatrixI4x4F;
 import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
 import com.io7m.jtensors.parameterized.PMatrixReadable4x4FType;
 import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.junreachable.UnreachableCodeException;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
 
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -58,13 +62,17 @@ public final class CaSkeletonRestPose
   }
 
   /**
-   * Calculate a set of rest pose transforms for the given skeleton.
+   * Calculate a set of rest pose transforms for the given skeleton. If the
+   * skeleton has precomputed inverse rest pose matrices, those are used
+   * directly and no calculation takes place.
    *
    * @param c        Preallocated storage for processing matrices without extra
    *                 allocations
    * @param skeleton The skeleton
    *
    * @return A set of rest pose transforms
+   *
+   * @see CaSkeleton#restPoseInverses()
    */
 
   public static CaSkeletonRestPoseDType createD(
@@ -72,17 +80,32 @@ public final class CaSkeletonRestPose
     final CaSkeleton skeleton)
   {
     NullCheck.notNull(skeleton, "Skeleton");
-    return new BuildD(skeleton).build(c);
+
+    final Optional<CaSkeletonRestPoseInverses> inverses_opt =
+      skeleton.restPoseInverses();
+    if (inverses_opt.isPresent()) {
+      final Int2ReferenceOpenHashMap<PMatrixI4x4D<CaSpaceObjectType, CaSpaceJointType>> transforms =
+        new Int2ReferenceOpenHashMap<>(skeleton.jointsByID().size());
+      inverses_opt.get().transformsD().forEach(
+        p -> transforms.put(p._1.intValue(), p._2));
+      return new BuiltD(skeleton, transforms);
+    }
+
+    return new BuiltD(skeleton, new BuildD(skeleton).build(c));
   }
 
   /**
-   * Calculate a set of rest pose transforms for the given skeleton.
+   * Calculate a set of rest pose transforms for the given skeleton. If the
+   * skeleton has precomputed inverse rest pose matrices, those are used
+   * directly and no calculation takes place.
    *
    * @param c        Preallocated storage for processing matrices without extra
    *                 allocations
    * @param skeleton The skeleton
    *
    * @return A set of rest pose transforms
+   *
+   * @see CaSkeleton#restPoseInverses()
    */
 
   public static CaSkeletonRestPoseFType createF(
@@ -90,7 +113,72 @@ public final class CaSkeletonRestPose
     final CaSkeleton skeleton)
   {
     NullCheck.notNull(skeleton, "Skeleton");
-    return new BuildF(skeleton).build(c);
+
+    final Optional<CaSkeletonRestPoseInverses> inverses_opt =
+      skeleton.restPoseInverses();
+    if (inverses_opt.isPresent()) {
+      final Int2ReferenceOpenHashMap<PMatrixI4x4F<CaSpaceObjectType, CaSpaceJointType>> transforms =
+        new Int2ReferenceOpenHashMap<>(skeleton.jointsByID().size());
+      inverses_opt.get().transformsF().forEach(
+        p -> transforms.put(p._1.intValue(), p._2));
+      return new BuiltF(skeleton, transforms);
+    }
+
+    return new BuiltF(skeleton, new BuildF(skeleton).build(c));
+  }
+
+  /**
+   * Calculate the inverse rest pose matrices for the given skeleton. The
+   * matrices are calculated in double precision, and the single precision
+   * matrices are narrowed from the double precision results. This is
+   * intended to be called once, by the compiler, so that the results can be
+   * stored alongside the compiled skeleton.
+   *
+   * @param c        Preallocated storage for processing matrices without extra
+   *                 allocations
+   * @param skeleton The skeleton
+   *
+   * @return A set of inverse rest pose matrices
+   */
+
+  public static CaSkeletonRestPoseInverses computeInverses(
+    final MatrixM4x4D.ContextMM4D c,
+    final CaSkeleton skeleton)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+
+    final Int2ReferenceOpenHashMap<PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType>> transforms =
+      new BuildD(skeleton).build(c);
+    final PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType> narrowed =
+      PMatrixHeapArrayM4x4F.newMatrix();
+
+    SortedMap<Integer, PMatrixI4x4D<CaSpaceObjectType, CaSpaceJointType>> transforms_d =
+      TreeMap.empty();
+    SortedMap<Integer, PMatrixI4x4F<CaSpaceObjectType, CaSpaceJointType>> transforms_f =
+      TreeMap.empty();
+
+    for (final int joint_id : transforms.keySet()) {
+      final PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType> m =
+        transforms.get(joint_id);
+      narrow(m, narrowed);
+
+      final Integer key = Integer.valueOf(joint_id);
+      transforms_d = transforms_d.put(key, PMatrixI4x4D.newFromReadable(m));
+      transforms_f = transforms_f.put(key, PMatrixI4x4F.newFromReadable(narrowed));
+    }
+
+    return CaSkeletonRestPoseInverses.of(transforms_d, transforms_f);
+  }
+
+  private static void narrow(
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m,
+    final PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType> out)
+  {
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        out.setRowColumnF(row, column, (float) m.getRowColumnD(row, column));
+      }
+    }
   }
 
   private static final class BuildD
@@ -145,7 +233,7 @@ public final class CaSkeletonRestPose
       this.transforms.put(joint.id(), transform);
     }
 
-    CaSkeletonRestPoseDType build(
+    Int2ReferenceOpenHashMap<PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType>> build(
       final MatrixM4x4D.ContextMM4D c)
     {
       this.skeleton.joints().forEachBreadthFirst(this, (t, depth, node) -> {
@@ -172,18 +260,18 @@ public final class CaSkeletonRestPose
         MatrixM4x4D.invertInPlace(c, v);
       }
 
-      return new BuiltD(this.skeleton, this.transforms);
+      return this.transforms;
     }
   }
 
   private static final class BuiltD implements CaSkeletonRestPoseDType
   {
-    private final Int2ReferenceOpenHashMap<PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType>> transforms;
+    private final Int2ReferenceOpenHashMap<? extends PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType>> transforms;
     private final CaSkeleton skeleton;
 
     private BuiltD(
       final CaSkeleton in_skeleton,
-      final Int2ReferenceOpenHashMap<PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType>> in_transforms)
+      final Int2ReferenceOpenHashMap<? extends PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType>> in_transforms)
     {
       this.skeleton = NullCheck.notNull(in_skeleton, "Skeleton");
       this.transforms = NullCheck.notNull(in_transforms, "transforms");
@@ -279,7 +367,7 @@ public final class CaSkeletonRestPose
       this.transforms.put(joint.id(), transform);
     }
 
-    CaSkeletonRestPoseFType build(
+    Int2ReferenceOpenHashMap<PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType>> build(
       final MatrixM4x4F.ContextMM4F c)
     {
       this.skeleton.joints().forEachBreadthFirst(this, (t, depth, node) -> {
@@ -306,18 +394,18 @@ public final class CaSkeletonRestPose
         MatrixM4x4F.invertInPlace(c, v);
       }
 
-      return new BuiltF(this.skeleton, this.transforms);
+      return this.transforms;
     }
   }
 
   private static final class BuiltF implements CaSkeletonRestPoseFType
   {
-    private final Int2ReferenceOpenHashMap<PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType>> transforms;
+    private final Int2ReferenceOpenHashMap<? extends PMatrixReadable4x4FType<CaSpaceObjectType, CaSpaceJointType>> transforms;
     private final CaSkeleton skeleton;
 
     private BuiltF(
       final CaSkeleton in_skeleton,
-      final Int2ReferenceOpenHashMap<PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType>> in_transforms)
+      final Int2ReferenceOpenHashMap<? extends PMatrixReadable4x4FType<CaSpaceObjectType, CaSpaceJointType>> in_transforms)
     {
       this.skeleton = NullCheck.notNull(in_skeleton, "Skeleton");
       this.transforms = NullCheck.notNull(in_transforms, "transforms");
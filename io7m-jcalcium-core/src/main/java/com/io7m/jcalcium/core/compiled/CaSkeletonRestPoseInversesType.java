@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.core.compiled;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
+import com.io7m.jtensors.parameterized.PMatrixI4x4D;
+import com.io7m.jtensors.parameterized.PMatrixI4x4F;
+import javaslang.collection.SortedMap;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+/**
+ * <p>The precomputed inverse rest pose matrices for a skeleton, in both single
+ * and double precision.</p>
+ *
+ * <p>The single precision matrices are expected to be narrowed from the
+ * double precision matrices, rather than calculated independently.</p>
+ *
+ * @see CaSkeletonRestPose#computeInverses(com.io7m.jtensors.MatrixM4x4D.ContextMM4D,
+ * CaSkeleton)
+ */
+
+@CaImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface CaSkeletonRestPoseInversesType
+{
+  /**
+   * @return The double precision inverse rest pose matrices by joint ID
+   */
+
+  @Value.Parameter
+  SortedMap<Integer, PMatrixI4x4D<CaSpaceObjectType, CaSpaceJointType>> transformsD();
+
+  /**
+   * @return The single precision inverse rest pose matrices by joint ID
+   */
+
+  @Value.Parameter
+  SortedMap<Integer, PMatrixI4x4F<CaSpaceObjectType, CaSpaceJointType>> transformsF();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    Preconditions.checkPrecondition(
+      this.transformsD().keySet().equals(this.transformsF().keySet()),
+      "Matrix maps must have the same keys");
+  }
+}
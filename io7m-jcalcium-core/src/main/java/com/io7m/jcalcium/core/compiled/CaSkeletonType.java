@@ -30,6 +30,7 @@ import org.immutables.value.Value;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.io7m.jfunctional.Unit.unit;
 
@@ -63,6 +64,18 @@ public interface CaSkeletonType
   @Value.Parameter
   SortedMap<CaActionName, CaActionType> actionsByName();
 
+  /**
+   * The precomputed inverse rest pose matrices for the skeleton. These are
+   * typically produced by the compiler and stored in the compiled format so
+   * that loaders do not need to recalculate them.
+   *
+   * @return The precomputed inverse rest pose matrices, if any
+   *
+   * @see CaSkeletonRestPose
+   */
+
+  Optional<CaSkeletonRestPoseInverses> restPoseInverses();
+
   /**
    * @return A map of joint nodes by name
    */
@@ -114,6 +127,11 @@ public interface CaSkeletonType
       this.jointsByID().size() == this.jointsByName().size(),
       "Joint maps must be the same size");
 
+    this.restPoseInverses().ifPresent(
+      inverses -> Preconditions.checkPrecondition(
+        inverses.transformsD().keySet().equals(this.jointsByID().keySet()),
+        "Rest pose inverses must exist for exactly the joints of the skeleton"));
+
     this.joints().forEachBreadthFirst(this, (t, depth, node) -> {
       final CaJoint joint = node.value();
       final Integer joint_id = Integer.valueOf(joint.id());
@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.core.metrics;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.definitions.CaFormatDescriptionType;
+import com.io7m.jnull.NullCheck;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A thread-safe metrics receiver that accumulates totals. Totals can be
+ * read at any time, and can be fed into external monitoring systems by
+ * polling.</p>
+ *
+ * <p>Recording a value on the evaluation and deformation paths does not
+ * allocate. Recording a load or a compilation may allocate the first time a
+ * given format or action is seen.</p>
+ */
+
+public final class CaMetricsCounters implements CaMetricsType
+{
+  private final LongAdder evaluations;
+  private final LongAdder evaluation_joints;
+  private final LongAdder evaluation_time;
+  private final LongAdder matrices;
+  private final LongAdder deformations;
+  private final LongAdder deformation_vertices;
+  private final LongAdder deformation_time;
+  private final LongAdder pool_hits;
+  private final LongAdder pool_misses;
+  private final ConcurrentHashMap<String, LongAdder> loads;
+  private final ConcurrentHashMap<String, LongAdder> load_octets;
+  private final ConcurrentHashMap<String, LongAdder> load_time;
+  private final ConcurrentHashMap<CaActionName, LongAdder> compile_time;
+
+  private CaMetricsCounters()
+  {
+    this.evaluations = new LongAdder();
+    this.evaluation_joints = new LongAdder();
+    this.evaluation_time = new LongAdder();
+    this.matrices = new LongAdder();
+    this.deformations = new LongAdder();
+    this.deformation_vertices = new LongAdder();
+    this.deformation_time = new LongAdder();
+    this.pool_hits = new LongAdder();
+    this.pool_misses = new LongAdder();
+    this.loads = new ConcurrentHashMap<>(4);
+    this.load_octets = new ConcurrentHashMap<>(4);
+    this.load_time = new ConcurrentHashMap<>(4);
+    this.compile_time = new ConcurrentHashMap<>(16);
+  }
+
+  /**
+   * @return A new set of counters, with all totals initially zero
+   */
+
+  public static CaMetricsCounters create()
+  {
+    return new CaMetricsCounters();
+  }
+
+  private static <K extends Comparable<? super K>> SortedMap<K, Long> snapshot(
+    final Map<K, LongAdder> m)
+  {
+    SortedMap<K, Long> result = TreeMap.empty();
+    for (final Map.Entry<K, LongAdder> e : m.entrySet()) {
+      result = result.put(e.getKey(), Long.valueOf(e.getValue().sum()));
+    }
+    return result;
+  }
+
+  private static <K> void add(
+    final ConcurrentHashMap<K, LongAdder> m,
+    final K key,
+    final long value)
+  {
+    m.computeIfAbsent(key, k -> new LongAdder()).add(value);
+  }
+
+  @Override
+  public boolean isEnabled()
+  {
+    return true;
+  }
+
+  @Override
+  public void onEvaluation(
+    final int joints,
+    final long nanoseconds)
+  {
+    this.evaluations.increment();
+    this.evaluation_joints.add((long) joints);
+    this.evaluation_time.add(nanoseconds);
+  }
+
+  @Override
+  public void onMatricesBuilt(
+    final int count)
+  {
+    this.matrices.add((long) count);
+  }
+
+  @Override
+  public void onDeformation(
+    final long vertices,
+    final long nanoseconds)
+  {
+    this.deformations.increment();
+    this.deformation_vertices.add(vertices);
+    this.deformation_time.add(nanoseconds);
+  }
+
+  @Override
+  public void onContextPoolHit()
+  {
+    this.pool_hits.increment();
+  }
+
+  @Override
+  public void onContextPoolMiss()
+  {
+    this.pool_misses.increment();
+  }
+
+  @Override
+  public void onLoad(
+    final CaFormatDescriptionType format,
+    final long octets,
+    final long nanoseconds)
+  {
+    NullCheck.notNull(format, "Format");
+    final String name = format.name();
+    add(this.loads, name, 1L);
+    add(this.load_octets, name, octets);
+    add(this.load_time, name, nanoseconds);
+  }
+
+  @Override
+  public void onActionCompiled(
+    final CaActionName action,
+    final long nanoseconds)
+  {
+    NullCheck.notNull(action, "Action");
+    add(this.compile_time, action, nanoseconds);
+  }
+
+  /**
+   * @return The number of skeleton evaluations
+   */
+
+  public long evaluations()
+  {
+    return this.evaluations.sum();
+  }
+
+  /**
+   * @return The total number of joints evaluated
+   */
+
+  public long evaluationJoints()
+  {
+    return this.evaluation_joints.sum();
+  }
+
+  /**
+   * @return The total time spent evaluating skeletons in nanoseconds
+   */
+
+  public long evaluationNanoseconds()
+  {
+    return this.evaluation_time.sum();
+  }
+
+  /**
+   * @return The total number of joint transform matrices built
+   */
+
+  public long matricesBuilt()
+  {
+    return this.matrices.sum();
+  }
+
+  /**
+   * @return The number of mesh deformations
+   */
+
+  public long deformations()
+  {
+    return this.deformations.sum();
+  }
+
+  /**
+   * @return The total number of vertices deformed
+   */
+
+  public long verticesDeformed()
+  {
+    return this.deformation_vertices.sum();
+  }
+
+  /**
+   * @return The total time spent deforming meshes in nanoseconds
+   */
+
+  public long deformationNanoseconds()
+  {
+    return this.deformation_time.sum();
+  }
+
+  /**
+   * @return The number of evaluation context requests satisfied by reuse
+   */
+
+  public long contextPoolHits()
+  {
+    return this.pool_hits.sum();
+  }
+
+  /**
+   * @return The number of evaluation context requests that required allocation
+   */
+
+  public long contextPoolMisses()
+  {
+    return this.pool_misses.sum();
+  }
+
+  /**
+   * @return The number of skeletons loaded, by format name
+   */
+
+  public SortedMap<String, Long> loadsByFormat()
+  {
+    return snapshot(this.loads);
+  }
+
+  /**
+   * @return The total number of octets loaded, by format name
+   */
+
+  public SortedMap<String, Long> loadOctetsByFormat()
+  {
+    return snapshot(this.load_octets);
+  }
+
+  /**
+   * @return The total time spent loading in nanoseconds, by format name
+   */
+
+  public SortedMap<String, Long> loadNanosecondsByFormat()
+  {
+    return snapshot(this.load_time);
+  }
+
+  /**
+   * @return The total time spent compiling in nanoseconds, by action
+   */
+
+  public SortedMap<CaActionName, Long> compileNanosecondsByAction()
+  {
+    return snapshot(this.compile_time);
+  }
+
+  /**
+   * Reset all totals to zero.
+   */
+
+  public void reset()
+  {
+    this.evaluations.reset();
+    this.evaluation_joints.reset();
+    this.evaluation_time.reset();
+    this.matrices.reset();
+    this.deformations.reset();
+    this.deformation_vertices.reset();
+    this.deformation_time.reset();
+    this.pool_hits.reset();
+    this.pool_misses.reset();
+    this.loads.clear();
+    this.load_octets.clear();
+    this.load_time.clear();
+    this.compile_time.clear();
+  }
+}
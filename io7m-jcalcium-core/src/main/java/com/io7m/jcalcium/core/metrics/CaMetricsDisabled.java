@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.core.metrics;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.definitions.CaFormatDescriptionType;
+
+/**
+ * A metrics receiver that ignores everything. This is the receiver used by
+ * all components unless another receiver is explicitly provided.
+ */
+
+public final class CaMetricsDisabled implements CaMetricsType
+{
+  private static final CaMetricsDisabled INSTANCE = new CaMetricsDisabled();
+
+  private CaMetricsDisabled()
+  {
+
+  }
+
+  /**
+   * @return The disabled metrics receiver
+   */
+
+  public static CaMetricsType get()
+  {
+    return INSTANCE;
+  }
+
+  @Override
+  public boolean isEnabled()
+  {
+    return false;
+  }
+
+  @Override
+  public void onEvaluation(
+    final int joints,
+    final long nanoseconds)
+  {
+
+  }
+
+  @Override
+  public void onMatricesBuilt(
+    final int count)
+  {
+
+  }
+
+  @Override
+  public void onDeformation(
+    final long vertices,
+    final long nanoseconds)
+  {
+
+  }
+
+  @Override
+  public void onContextPoolHit()
+  {
+
+  }
+
+  @Override
+  public void onContextPoolMiss()
+  {
+
+  }
+
+  @Override
+  public void onLoad(
+    final CaFormatDescriptionType format,
+    final long octets,
+    final long nanoseconds)
+  {
+
+  }
+
+  @Override
+  public void onActionCompiled(
+    final CaActionName action,
+    final long nanoseconds)
+  {
+
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.core.metrics;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.definitions.CaFormatDescriptionType;
+
+/**
+ * <p>A receiver of runtime metrics.</p>
+ *
+ * <p>Implementations are called on the evaluation and deformation hot paths,
+ * potentially from multiple threads, and must therefore be thread-safe and
+ * cheap. None of the methods take arguments that require allocation on the
+ * part of the caller. Callers are expected to skip any measurement (such as
+ * reading the system timer) entirely if {@link #isEnabled()} returns {@code
+ * false}, so a disabled receiver costs nothing beyond a virtual call.</p>
+ *
+ * @see CaMetricsDisabled
+ * @see CaMetricsCounters
+ */
+
+public interface CaMetricsType
+{
+  /**
+   * @return {@code true} iff the receiver records anything
+   */
+
+  boolean isEnabled();
+
+  /**
+   * A skeleton was evaluated.
+   *
+   * @param joints      The number of joints evaluated
+   * @param nanoseconds The time taken in nanoseconds
+   */
+
+  void onEvaluation(
+    int joints,
+    long nanoseconds);
+
+  /**
+   * Transform matrices were built for an evaluated joint.
+   *
+   * @param count The number of matrices built
+   */
+
+  void onMatricesBuilt(
+    int count);
+
+  /**
+   * Vertices of a mesh were deformed.
+   *
+   * @param vertices    The number of vertices deformed
+   * @param nanoseconds The time taken in nanoseconds
+   */
+
+  void onDeformation(
+    long vertices,
+    long nanoseconds);
+
+  /**
+   * A request for temporary storage from an evaluation context was satisfied
+   * by reusing previously allocated storage.
+   */
+
+  void onContextPoolHit();
+
+  /**
+   * A request for temporary storage from an evaluation context required new
+   * storage to be allocated.
+   */
+
+  void onContextPoolMiss();
+
+  /**
+   * A compiled skeleton was loaded.
+   *
+   * @param format      The format of the loaded data
+   * @param octets      The size of the loaded data in octets
+   * @param nanoseconds The time taken to decode the data in nanoseconds
+   */
+
+  void onLoad(
+    CaFormatDescriptionType format,
+    long octets,
+    long nanoseconds);
+
+  /**
+   * An action was compiled.
+   *
+   * @param action      The name of the action
+   * @param nanoseconds The time taken in nanoseconds
+   */
+
+  void onActionCompiled(
+    CaActionName action,
+    long nanoseconds);
+}
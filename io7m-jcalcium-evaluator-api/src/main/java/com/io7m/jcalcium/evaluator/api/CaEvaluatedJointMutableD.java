@@ -60,8 +60,9 @@ public final class CaEvaluatedJointMutableD implements
   private final Optional<CaEvaluatedJointMutableDType> joint_parent;
   private final CaSkeletonRestPoseDType rest_pose;
   private final CaEvaluationContextType context;
+  private final CaEvaluatedPoseVersion version;
   private final int joint_id;
-  private boolean transform_current;
+  private long transform_changes;
 
   private CaEvaluatedJointMutableD(
     final CaJointName in_joint_name,
@@ -73,6 +74,7 @@ public final class CaEvaluatedJointMutableD implements
     final Optional<CaEvaluatedJointMutableDType> in_joint_parent,
     final CaSkeletonRestPoseDType in_rest_pose,
     final CaEvaluationContextType in_context,
+    final CaEvaluatedPoseVersion in_version,
     final int in_joint_id)
   {
     this.joint_name =
@@ -93,11 +95,17 @@ public final class CaEvaluatedJointMutableD implements
       NullCheck.notNull(in_rest_pose, "Rest pose");
     this.context =
       NullCheck.notNull(in_context, "Context");
+    this.version =
+      NullCheck.notNull(in_version, "Version");
     this.joint_id = in_joint_id;
+    this.transform_changes = -1L;
   }
 
   /**
-   * Create a new joint.
+   * Create a new joint. The joint records changes to its transform in a pose
+   * version of its own, so changes made via the joint are not reflected in
+   * the {@link CaEvaluatedSkeletonReadableDType#poseVersion()} of {@code
+   * in_skeleton}.
    *
    * @param in_context  An evaluation context
    * @param in_skeleton The owning skeleton
@@ -110,6 +118,27 @@ public final class CaEvaluatedJointMutableD implements
     final CaEvaluationContextType in_context,
     final CaEvaluatedSkeletonMutableDType in_skeleton,
     final int in_joint_id)
+  {
+    return create(
+      in_context, in_skeleton, new CaEvaluatedPoseVersion(), in_joint_id);
+  }
+
+  /**
+   * Create a new joint.
+   *
+   * @param in_context  An evaluation context
+   * @param in_skeleton The owning skeleton
+   * @param in_version  The pose version of the owning skeleton
+   * @param in_joint_id The joint ID
+   *
+   * @return A new joint
+   */
+
+  static CaEvaluatedJointMutableDType create(
+    final CaEvaluationContextType in_context,
+    final CaEvaluatedSkeletonMutableDType in_skeleton,
+    final CaEvaluatedPoseVersion in_version,
+    final int in_joint_id)
   {
     final CaSkeletonRestPoseDType rest_pose =
       in_skeleton.restPose();
@@ -145,9 +174,17 @@ public final class CaEvaluatedJointMutableD implements
       in_joint_parent,
       rest_pose,
       in_context,
+      in_version,
       in_joint_id);
   }
 
+  private static boolean differs(
+    final double x,
+    final double y)
+  {
+    return Double.doubleToLongBits(x) != Double.doubleToLongBits(y);
+  }
+
   @Override
   public CaJointName name()
   {
@@ -164,7 +201,7 @@ public final class CaEvaluatedJointMutableD implements
   public PMatrixReadable4x4DType<CaSpaceJointType, CaSpaceObjectType>
   transformJointObject4x4D()
   {
-    if (!this.transform_current) {
+    if (this.transform_changes != this.version.changes()) {
       this.makeTransform();
     }
 
@@ -207,15 +244,17 @@ public final class CaEvaluatedJointMutableD implements
         this.rest_pose.transformInverseRest4x4D(this.joint_id),
         this.transform_deform);
 
-      this.transform_current = true;
+      this.transform_changes = this.version.changes();
     }
+
+    this.context.metrics().onMatricesBuilt(2);
   }
 
   @Override
   public PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType>
   transformDeform4x4D()
   {
-    if (!this.transform_current) {
+    if (this.transform_changes != this.version.changes()) {
       this.makeTransform();
     }
 
@@ -250,23 +289,36 @@ public final class CaEvaluatedJointMutableD implements
   public void setTranslation3D(
     final PVectorI3D<CaSpaceJointType> p)
   {
-    this.translation.set3D(p.getXD(), p.getYD(), p.getZD());
-    this.transform_current = false;
+    if (differs(this.translation.getXD(), p.getXD())
+      || differs(this.translation.getYD(), p.getYD())
+      || differs(this.translation.getZD(), p.getZD())) {
+      this.translation.set3D(p.getXD(), p.getYD(), p.getZD());
+      this.version.changed();
+    }
   }
 
   @Override
   public void setOrientation(
     final QuaternionI4D q)
   {
-    this.orientation.set4D(q.getXD(), q.getYD(), q.getZD(), q.getWD());
-    this.transform_current = false;
+    if (differs(this.orientation.getXD(), q.getXD())
+      || differs(this.orientation.getYD(), q.getYD())
+      || differs(this.orientation.getZD(), q.getZD())
+      || differs(this.orientation.getWD(), q.getWD())) {
+      this.orientation.set4D(q.getXD(), q.getYD(), q.getZD(), q.getWD());
+      this.version.changed();
+    }
   }
 
   @Override
   public void setScale(
     final VectorI3D s)
   {
-    this.scale.set3D(s.getXD(), s.getYD(), s.getZD());
-    this.transform_current = false;
+    if (differs(this.scale.getXD(), s.getXD())
+      || differs(this.scale.getYD(), s.getYD())
+      || differs(this.scale.getZD(), s.getZD())) {
+      this.scale.set3D(s.getXD(), s.getYD(), s.getZD());
+      this.version.changed();
+    }
   }
 }
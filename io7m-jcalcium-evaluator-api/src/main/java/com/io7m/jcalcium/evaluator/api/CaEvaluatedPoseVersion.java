@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.evaluator.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The pose version of an evaluated skeleton.</p>
+ *
+ * <p>Joints record each actual change to their transforms here. The change
+ * count is local to the skeleton and is used by joints to determine if their
+ * cached matrices are current. The version stamp is drawn from a global
+ * sequence on the first request after a change, so stamps are never reused
+ * across skeletons and are never {@code 0}.</p>
+ */
+
+final class CaEvaluatedPoseVersion
+{
+  private static final AtomicLong STAMPS = new AtomicLong(0L);
+
+  private long changes;
+  private long stamp;
+  private boolean stamp_current;
+
+  CaEvaluatedPoseVersion()
+  {
+    this.changes = 0L;
+    this.stamp = 0L;
+    this.stamp_current = false;
+  }
+
+  /**
+   * Record a change to the transform of at least one joint.
+   */
+
+  void changed()
+  {
+    ++this.changes;
+    this.stamp_current = false;
+  }
+
+  /**
+   * @return The number of changes recorded so far
+   */
+
+  long changes()
+  {
+    return this.changes;
+  }
+
+  /**
+   * @return The version stamp of the current pose
+   */
+
+  long stamp()
+  {
+    if (!this.stamp_current) {
+      this.stamp = STAMPS.incrementAndGet();
+      this.stamp_current = true;
+    }
+    return this.stamp;
+  }
+}
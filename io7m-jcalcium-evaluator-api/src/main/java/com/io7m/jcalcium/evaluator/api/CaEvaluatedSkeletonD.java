@@ -40,6 +40,7 @@ public final class CaEvaluatedSkeletonD implements
   private final Int2ReferenceSortedMap<CaEvaluatedJointMutableDType> joints_by_id;
   private final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints_by_id_view;
   private final CaEvaluationContextType context;
+  private final CaEvaluatedPoseVersion version;
 
   private CaEvaluatedSkeletonD(
     final CaEvaluationContextType in_context,
@@ -49,6 +50,8 @@ public final class CaEvaluatedSkeletonD implements
       NullCheck.notNull(in_context, "Context");
     this.rest_pose =
       NullCheck.notNull(in_rest_pose, "Rest pose");
+    this.version =
+      new CaEvaluatedPoseVersion();
 
     this.joints_by_id =
       new Int2ReferenceRBTreeMap<>();
@@ -61,7 +64,8 @@ public final class CaEvaluatedSkeletonD implements
         final CaJoint c_joint = node.value();
 
         final CaEvaluatedJointMutableDType c_state =
-          CaEvaluatedJointMutableD.create(t.context, t, c_joint.id());
+          CaEvaluatedJointMutableD.create(
+            t.context, t, t.version, c_joint.id());
 
         this.joints_by_id.put(c_joint.id(), c_state);
         return c_state;
@@ -114,6 +118,12 @@ public final class CaEvaluatedSkeletonD implements
     return this.rest_pose;
   }
 
+  @Override
+  public long poseVersion()
+  {
+    return this.version.stamp();
+  }
+
   @Override
   public JOTreeNodeReadableType<CaEvaluatedJointMutableDType> jointsMutable()
   {
@@ -46,4 +46,19 @@ public interface CaEvaluatedSkeletonReadableDType extends
    */
 
   CaSkeletonRestPoseDType restPose();
+
+  /**
+   * <p>The version of the current pose of the skeleton.</p>
+   *
+   * <p>The version changes if and only if the transform of at least one joint
+   * has actually changed since the version was last observed. Setting a joint
+   * to the value it already has does not change the version. Versions are
+   * never reused, even across different skeletons, and are never {@code 0}.
+   * Consumers may therefore cache the results of computations performed with
+   * a given pose and reuse them for as long as the version is unchanged.</p>
+   *
+   * @return The version of the current pose
+   */
+
+  long poseVersion();
 }
@@ -16,14 +16,15 @@
 
 package com.io7m.jcalcium.evaluator.api;
 
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
+import com.io7m.jnull.NullCheck;
 import com.io7m.jtensors.Matrix4x4DType;
 import com.io7m.jtensors.MatrixHeapArrayM4x4D;
 import com.io7m.jtensors.QuaternionM4D;
 import com.io7m.jtensors.VectorM3D;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.function.Function;
 
@@ -33,14 +34,9 @@ import java.util.function.Function;
 
 public final class CaEvaluationContext implements CaEvaluationContextType
 {
-  private static final Logger LOG;
-
-  static {
-    LOG = LoggerFactory.getLogger(CaEvaluationContext.class);
-  }
-
   private final ReferencePool<Matrices> matrices;
   private final ReferencePool<Vectors> vectors;
+  private final CaMetricsType metrics;
 
   private interface PooledType
   {
@@ -53,12 +49,15 @@ public final class CaEvaluationContext implements CaEvaluationContextType
     private final ReferenceOpenHashSet<T> used;
     private final int free_max;
     private final Function<ReferencePool<T>, T> supplier;
+    private final CaMetricsType metrics;
 
     ReferencePool(
       final Function<ReferencePool<T>, T> in_supplier,
-      final int in_free_max)
+      final int in_free_max,
+      final CaMetricsType in_metrics)
     {
       this.supplier = in_supplier;
+      this.metrics = in_metrics;
       this.free = new ReferenceOpenHashSet<>();
       this.used = new ReferenceOpenHashSet<>();
       this.free_max = in_free_max;
@@ -66,7 +65,6 @@ public final class CaEvaluationContext implements CaEvaluationContextType
 
     private void untake(final T v)
     {
-      LOG.trace("return {}", v);
       this.used.remove(v);
       if (this.free.size() < this.free_max) {
         this.free.add(v);
@@ -78,12 +76,12 @@ public final class CaEvaluationContext implements CaEvaluationContextType
       final T m;
       if (this.free.isEmpty()) {
         m = this.supplier.apply(this);
-        LOG.trace("new {}", m);
+        this.metrics.onContextPoolMiss();
       } else {
         final ObjectIterator<T> i = this.free.iterator();
         m = i.next();
         i.remove();
-        LOG.trace("reuse {}", m);
+        this.metrics.onContextPoolHit();
       }
 
       m.open();
@@ -94,10 +92,14 @@ public final class CaEvaluationContext implements CaEvaluationContextType
 
   private CaEvaluationContext(
     final int in_matrices_free_max,
-    final int in_vectors_free_max)
+    final int in_vectors_free_max,
+    final CaMetricsType in_metrics)
   {
-    this.matrices = new ReferencePool<>(Matrices::new, in_matrices_free_max);
-    this.vectors = new ReferencePool<>(Vectors::new, in_vectors_free_max);
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
+    this.matrices = new ReferencePool<>(
+      Matrices::new, in_matrices_free_max, in_metrics);
+    this.vectors = new ReferencePool<>(
+      Vectors::new, in_vectors_free_max, in_metrics);
   }
 
   /**
@@ -108,7 +110,29 @@ public final class CaEvaluationContext implements CaEvaluationContextType
 
   public static CaEvaluationContextType create()
   {
-    return new CaEvaluationContext(8, 8);
+    return createWithMetrics(CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new evaluation context that publishes metrics to the given
+   * receiver. The receiver is also made available to evaluators using the
+   * context via {@link CaEvaluationContextType#metrics()}.
+   *
+   * @param in_metrics A metrics receiver
+   *
+   * @return A new evaluation context
+   */
+
+  public static CaEvaluationContextType createWithMetrics(
+    final CaMetricsType in_metrics)
+  {
+    return new CaEvaluationContext(8, 8, in_metrics);
+  }
+
+  @Override
+  public CaMetricsType metrics()
+  {
+    return this.metrics;
   }
 
   @Override
@@ -16,6 +16,9 @@
 
 package com.io7m.jcalcium.evaluator.api;
 
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
+
 /**
  * <p>The type of evaluation contexts.</p>
  *
@@ -33,6 +36,16 @@ package com.io7m.jcalcium.evaluator.api;
 
 public interface CaEvaluationContextType
 {
+  /**
+   * @return The metrics receiver to which evaluators using this context should
+   * publish metrics
+   */
+
+  default CaMetricsType metrics()
+  {
+    return CaMetricsDisabled.get();
+  }
+
   /**
    * Create a new set of matrices. The method is allowed to return the same
    * instance as has been returned previously if and only if the {@link
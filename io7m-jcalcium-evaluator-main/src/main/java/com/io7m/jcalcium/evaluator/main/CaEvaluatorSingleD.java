@@ -17,6 +17,7 @@
 package com.io7m.jcalcium.evaluator.main;
 
 import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
 import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
 import com.io7m.jcalcium.evaluator.api.CaActionEvaluatorCurvesDType;
 import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointMutableDType;
@@ -105,6 +106,24 @@ public final class CaEvaluatorSingleD implements CaEvaluatorSingleType
     final long in_frame_start,
     final long in_frame_current,
     final double in_time_scale)
+  {
+    final CaMetricsType metrics = this.context.metrics();
+    if (metrics.isEnabled()) {
+      final long time_then = System.nanoTime();
+      this.evaluate(in_frame_start, in_frame_current, in_time_scale);
+      final long time_now = System.nanoTime();
+      metrics.onEvaluation(
+        this.skeleton.jointsMutableByID().size(), time_now - time_then);
+      return;
+    }
+
+    this.evaluate(in_frame_start, in_frame_current, in_time_scale);
+  }
+
+  private void evaluate(
+    final long in_frame_start,
+    final long in_frame_current,
+    final double in_time_scale)
   {
     switch (this.kind) {
       case ACTION_CURVES: {
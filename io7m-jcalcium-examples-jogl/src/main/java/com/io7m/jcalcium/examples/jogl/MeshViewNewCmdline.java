@@ -38,7 +38,6 @@ import com.io7m.jcalcium.loader.api.CaLoaderFormatProviderType;
 import com.io7m.jcalcium.loader.api.CaLoaderType;
 import com.io7m.jcalcium.loader.api.CaLoaders;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
-import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributes;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatricesType;
@@ -47,12 +46,13 @@ import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFAbstract;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFConfiguration;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFEventsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFJointWeightsType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFPackedAttributeSet;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFProvider;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTargetRing;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetAuxiliaryType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetJointType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetSourceType;
-import com.io7m.jcalcium.mesh.deformation.smf.CaSetTargetType;
 import com.io7m.jcalcium.mesh.processing.smf.CaMeshMetadataChecker;
 import com.io7m.jcamera.JCameraContext;
 import com.io7m.jcamera.JCameraSpherical;
@@ -161,7 +161,6 @@ import com.io7m.r2.main.R2MainType;
 import com.io7m.r2.meshes.defaults.R2UnitSphere;
 import com.io7m.r2.spaces.R2SpaceEyeType;
 import com.io7m.r2.spaces.R2SpaceWorldType;
-import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferPackedAttribute;
 import com.io7m.smfj.bytebuffer.SMFByteBufferPackedTriangles;
@@ -1215,10 +1214,10 @@ public final class MeshViewNewCmdline implements Runnable, KeyListener
     private final JCGLBufferUpdateType<JCGLArrayBufferType> mesh_target_buffer_update;
 
     private CPUMesh(
-      final SortedMap<String, CaMeshDeformableAttributeCursorType> in_target_cursors,
+      final CaMeshDeformableCPUSMFTargetRing in_targets,
       final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_source_cursors,
       final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_joint_indices_cursor,
-      final JPRACursor1DType<SMFByteBufferFloat4Type> in_joint_weights_cursor,
+      final CaMeshDeformableCPUSMFJointWeightsType in_joint_weights,
       final long in_vertex_count,
       final JCGLArrayObjectType in_mesh_array,
       final JCGLArrayBufferType in_mesh_aux_buffer,
@@ -1227,10 +1226,10 @@ public final class MeshViewNewCmdline implements Runnable, KeyListener
       final JCGLBufferUpdateType<JCGLArrayBufferType> in_mesh_target_buffer_update)
     {
       super(
-        in_target_cursors,
+        in_targets,
         in_source_cursors,
         in_joint_indices_cursor,
-        in_joint_weights_cursor,
+        in_joint_weights,
         in_vertex_count);
       this.mesh_array = in_mesh_array;
       this.mesh_aux_buffer = in_mesh_aux_buffer;
@@ -1344,11 +1343,10 @@ public final class MeshViewNewCmdline implements Runnable, KeyListener
       final SMFHeader header,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data,
       final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index,
-      final JPRACursor1DType<SMFByteBufferFloat4Type> cursor_joint_weight,
+      final CaMeshDeformableCPUSMFJointWeightsType joint_weights,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data,
       final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
-      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> target_data,
-      final SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors,
+      final CaMeshDeformableCPUSMFTargetRing targets,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data,
       final SMFByteBufferPackedTriangles triangle_data)
     {
@@ -1397,10 +1395,10 @@ public final class MeshViewNewCmdline implements Runnable, KeyListener
       g_ao.arrayObjectUnbind();
 
       return new CPUMesh(
-        target_cursors,
+        targets,
         source_cursors,
         cursor_joint_index,
-        cursor_joint_weight,
+        joint_weights,
         header.vertexCount(),
         mesh_array,
         this.mesh_aux_buffer,
@@ -16,16 +16,14 @@
 
 package com.io7m.jcalcium.format.json.jackson;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
@@ -33,6 +31,7 @@ import com.io7m.jcalcium.core.definitions.CaFormatDescription;
 import com.io7m.jcalcium.core.definitions.CaFormatVersion;
 import com.io7m.jcalcium.core.definitions.CaFormatVersionType;
 import com.io7m.jcalcium.format.json.jackson.v1.CaV1JSONFormat;
+import com.io7m.jcalcium.format.json.jackson.v1.CaV1JSONStreamingParser;
 import com.io7m.jcalcium.parser.api.CaDefinitionParserFormatProviderType;
 import com.io7m.jcalcium.parser.api.CaDefinitionParserType;
 import com.io7m.jcalcium.parser.api.CaParseError;
@@ -126,56 +125,12 @@ public final class CaJSONFormatProvider implements
     return new Serializer(v);
   }
 
-  private static final class SkeletonDeserializer
-    extends StdDeserializer<CaDefinitionSkeleton>
-  {
-    private static final Logger LOG;
-
-    static {
-      LOG = LoggerFactory.getLogger(SkeletonDeserializer.class);
-    }
-
-    SkeletonDeserializer()
-    {
-      super(CaDefinitionSkeleton.class);
-    }
-
-    @Override
-    public CaDefinitionSkeleton deserialize(
-      final JsonParser p,
-      final DeserializationContext ctxt)
-      throws IOException, JsonProcessingException
-    {
-      LOG.debug("deserializing");
-
-      final String fv = p.nextFieldName();
-      if (Objects.equals("version", fv)) {
-        final String v = p.nextTextValue();
-        if (v.startsWith("calcium skeleton 1.")) {
-          LOG.debug("instantiating parser for version {} file", v);
-          final String sn = p.nextFieldName();
-          if (Objects.equals("skeleton", sn)) {
-            p.nextToken();
-            final CaV1JSONFormat.CaV1Skeleton sk =
-              p.readValueAs(CaV1JSONFormat.CaV1Skeleton.class);
-            return sk.toSkeleton();
-          }
-          throw ctxt.mappingException(
-            String.format("Expected a skeleton field (received %s)", sn));
-        }
-        throw ctxt.mappingException("Unsupported version: " + v);
-      }
-      throw ctxt.mappingException(
-        String.format("Expected a version field (received %s)", fv));
-    }
-  }
-
   private static final class SkeletonSerializer extends StdSerializer<CaDefinitionSkeleton>
   {
     private static final Logger LOG;
 
     static {
-      LOG = LoggerFactory.getLogger(SkeletonDeserializer.class);
+      LOG = LoggerFactory.getLogger(SkeletonSerializer.class);
     }
 
     private final CaFormatVersionType version;
@@ -209,18 +164,46 @@ public final class CaJSONFormatProvider implements
 
   private static final class DetectingParser implements CaDefinitionParserType
   {
-    private final ObjectMapper mapper;
-    private final CaV1JSONFormat v1;
+    private static final Logger LOG;
+
+    static {
+      LOG = LoggerFactory.getLogger(DetectingParser.class);
+    }
+
+    private final JsonFactory factory;
 
     DetectingParser()
     {
-      final SimpleModule m = new SimpleModule();
-      m.addDeserializer(
-        CaDefinitionSkeleton.class, new SkeletonDeserializer());
+      this.factory = new JsonFactory();
+    }
 
-      this.mapper = CaJSON.createMapper();
-      this.mapper.registerModule(m);
-      this.v1 = new CaV1JSONFormat(this.mapper);
+    private static CaDefinitionSkeleton parseVersioned(
+      final JsonParser p)
+      throws IOException
+    {
+      LOG.debug("deserializing");
+
+      if (p.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(p, "Expected a JSON object");
+      }
+
+      final String fv = p.nextFieldName();
+      if (Objects.equals("version", fv)) {
+        final String v = p.nextTextValue();
+        if (v != null && v.startsWith("calcium skeleton 1.")) {
+          LOG.debug("instantiating parser for version {} file", v);
+          final String sn = p.nextFieldName();
+          if (Objects.equals("skeleton", sn)) {
+            p.nextToken();
+            return CaV1JSONStreamingParser.parseSkeleton(p);
+          }
+          throw new JsonParseException(
+            p, String.format("Expected a skeleton field (received %s)", sn));
+        }
+        throw new JsonParseException(p, "Unsupported version: " + v);
+      }
+      throw new JsonParseException(
+        p, String.format("Expected a version field (received %s)", fv));
     }
 
     @Override
@@ -231,21 +214,8 @@ public final class CaJSONFormatProvider implements
       NullCheck.notNull(is, "Input stream");
       NullCheck.notNull(uri, "URI");
 
-      try {
-        return Validation.valid(
-          this.mapper.readValue(is, CaDefinitionSkeleton.class));
-      } catch (final JsonMappingException e) {
-        final JsonLocation loc = e.getLocation();
-        final List<CaParseError> xs =
-          List.of(
-            CaParseError.of(
-              LexicalPosition.of(
-                loc.getLineNr(),
-                loc.getColumnNr(),
-                Optional.empty()),
-              e.getMessage()
-            ));
-        return Validation.invalid(xs);
+      try (final JsonParser p = this.factory.createParser(is)) {
+        return Validation.valid(parseVersioned(p));
       } catch (final JsonParseException e) {
         final JsonLocation loc = e.getLocation();
         final List<CaParseError> xs =
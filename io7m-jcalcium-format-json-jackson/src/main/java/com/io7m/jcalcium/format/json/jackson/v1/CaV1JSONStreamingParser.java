@@ -0,0 +1,761 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.format.json.jackson.v1;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.CaCurveEasing;
+import com.io7m.jcalcium.core.CaCurveInterpolation;
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.definitions.CaDefinitionJoint;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionCurves;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeOrientation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeOrientationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeScale;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeScaleType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveOrientation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveScale;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.parser.api.CaDefinitionParserType;
+import com.io7m.jcalcium.parser.api.CaParseError;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A token-streaming parser for the 1.* JSON format.
+ *
+ * <p>The parser consumes the token stream produced by a {@link JsonParser}
+ * and constructs definitions directly, without first building the
+ * intermediate object graph used by {@link CaV1JSONFormat}. The two parsers
+ * accept the same documents and produce equal definitions.</p>
+ */
+
+public final class CaV1JSONStreamingParser implements CaDefinitionParserType
+{
+  private static final String FIELD_QUATERNION = "quaternion-xyzw";
+  private static final String FIELD_TRANSLATION = "translation";
+  private static final String FIELD_SCALE = "scale";
+
+  private final JsonFactory factory;
+
+  /**
+   * Construct a new parser.
+   *
+   * @param in_factory A JSON factory used to create token parsers
+   */
+
+  public CaV1JSONStreamingParser(
+    final JsonFactory in_factory)
+  {
+    this.factory = NullCheck.notNull(in_factory, "Factory");
+  }
+
+  /**
+   * Parse a 1.* skeleton from the given token parser. The parser must be
+   * positioned on the {@code START_OBJECT} token that begins the skeleton,
+   * and is left positioned on the corresponding {@code END_OBJECT} token.
+   *
+   * @param p A token parser
+   *
+   * @return A parsed skeleton
+   *
+   * @throws IOException On I/O errors or malformed input
+   */
+
+  public static CaDefinitionSkeleton parseSkeleton(
+    final JsonParser p)
+    throws IOException
+  {
+    NullCheck.notNull(p, "Parser");
+    expectCurrent(p, JsonToken.START_OBJECT);
+
+    CaSkeletonName name = null;
+    javaslang.collection.Map<CaJointName, CaDefinitionJoint> joints = null;
+    javaslang.collection.Map<CaActionName, CaDefinitionActionType> actions = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "name": {
+          name = name(p, CaSkeletonName::of);
+          break;
+        }
+        case "joints": {
+          joints = joints(p);
+          break;
+        }
+        case "actions": {
+          actions = actions(p);
+          break;
+        }
+        default: {
+          throw unknownField(p, field);
+        }
+      }
+    }
+
+    final CaDefinitionSkeleton.Builder sk_b = CaDefinitionSkeleton.builder();
+    sk_b.setName(required(p, name, "name"));
+    sk_b.setJoints(required(p, joints, "joints"));
+    sk_b.setActions(required(p, actions, "actions"));
+    return sk_b.build();
+  }
+
+  private static javaslang.collection.Map<CaJointName, CaDefinitionJoint> joints(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_ARRAY);
+
+    final Map<CaJointName, CaDefinitionJoint> joints = new LinkedHashMap<>(16);
+    final SortedSet<String> duplicates = new TreeSet<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      final CaDefinitionJoint joint = joint(p);
+      if (joints.containsKey(joint.name())) {
+        duplicates.add(joint.name().value());
+      }
+      joints.put(joint.name(), joint);
+    }
+
+    if (!duplicates.isEmpty()) {
+      throw duplicates(p, "Duplicate joints: ", duplicates);
+    }
+    return javaslang.collection.HashMap.ofAll(joints);
+  }
+
+  private static CaDefinitionJoint joint(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_OBJECT);
+
+    CaJointName name = null;
+    Optional<CaJointName> parent = Optional.empty();
+    PVectorI3D<CaSpaceJointType> translation = null;
+    QuaternionI4D orientation = null;
+    VectorI3D scale = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "name": {
+          name = name(p, CaJointName::of);
+          break;
+        }
+        case "parent": {
+          parent = parent(p);
+          break;
+        }
+        case "translation": {
+          translation = translation(reals(p, 3));
+          break;
+        }
+        case "orientation-xyzw": {
+          orientation = quaternion(reals(p, 4));
+          break;
+        }
+        case "scale": {
+          scale = scale(reals(p, 3));
+          break;
+        }
+        default: {
+          throw unknownField(p, field);
+        }
+      }
+    }
+
+    final CaDefinitionJoint.Builder bb = CaDefinitionJoint.builder();
+    bb.setName(required(p, name, "name"));
+    bb.setParent(parent);
+    bb.setTranslation(required(p, translation, "translation"));
+    bb.setOrientation(required(p, orientation, "orientation-xyzw"));
+    bb.setScale(required(p, scale, "scale"));
+    return bb.build();
+  }
+
+  private static Optional<CaJointName> parent(
+    final JsonParser p)
+    throws IOException
+  {
+    if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return Optional.empty();
+    }
+    return Optional.of(name(p, CaJointName::of));
+  }
+
+  private static javaslang.collection.Map<CaActionName, CaDefinitionActionType> actions(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_ARRAY);
+
+    final Map<CaActionName, CaDefinitionActionType> actions =
+      new LinkedHashMap<>(16);
+    final SortedSet<String> duplicates = new TreeSet<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      final CaDefinitionActionType action = action(p);
+      if (actions.containsKey(action.name())) {
+        duplicates.add(action.name().value());
+      }
+      actions.put(action.name(), action);
+    }
+
+    if (!duplicates.isEmpty()) {
+      throw duplicates(p, "Duplicate actions: ", duplicates);
+    }
+    return javaslang.collection.HashMap.ofAll(actions);
+  }
+
+  private static CaDefinitionActionType action(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_OBJECT);
+
+    String type = null;
+    CaActionName name = null;
+    Integer fps = null;
+    List<CaDefinitionCurveType> curves = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "type": {
+          type = text(p);
+          break;
+        }
+        case "name": {
+          name = name(p, CaActionName::of);
+          break;
+        }
+        case "frames-per-second": {
+          fps = Integer.valueOf(integer(p));
+          break;
+        }
+        case "curves": {
+          curves = curves(p);
+          break;
+        }
+        default: {
+          throw unknownField(p, field);
+        }
+      }
+    }
+
+    if (!"curves".equals(required(p, type, "type"))) {
+      throw new JsonParseException(
+        p, String.format("Unrecognized action type: %s", type));
+    }
+
+    final CaDefinitionActionCurves.Builder act_b =
+      CaDefinitionActionCurves.builder();
+    act_b.setName(required(p, name, "name"));
+    act_b.setFramesPerSecond(required(p, fps, "frames-per-second").intValue());
+    act_b.setCurves(
+      required(p, curves, "curves").groupBy(CaDefinitionCurveType::joint));
+    return act_b.build();
+  }
+
+  private static List<CaDefinitionCurveType> curves(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_ARRAY);
+
+    final java.util.List<CaDefinitionCurveType> curves = new ArrayList<>(8);
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      curves.add(curve(p));
+    }
+    return List.ofAll(curves);
+  }
+
+  private static CaDefinitionCurveType curve(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_OBJECT);
+
+    /*
+     * The "type" field of a curve may appear after the keyframes, so the
+     * keyframes are held in a type-agnostic form until the end of the curve
+     * object has been reached.
+     */
+
+    String type = null;
+    CaJointName joint = null;
+    java.util.List<Keyframe> keyframes = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "type": {
+          type = text(p);
+          break;
+        }
+        case "joint": {
+          joint = name(p, CaJointName::of);
+          break;
+        }
+        case "keyframes": {
+          keyframes = keyframes(p);
+          break;
+        }
+        default: {
+          throw unknownField(p, field);
+        }
+      }
+    }
+
+    required(p, type, "type");
+    required(p, joint, "joint");
+    required(p, keyframes, "keyframes");
+
+    switch (type) {
+      case "orientation":
+        return curveOrientation(p, joint, keyframes);
+      case "translation":
+        return curveTranslation(p, joint, keyframes);
+      case "scale":
+        return curveScale(p, joint, keyframes);
+      default: {
+        throw new JsonParseException(
+          p, String.format("Unrecognized curve type: %s", type));
+      }
+    }
+  }
+
+  private static CaDefinitionCurveType curveOrientation(
+    final JsonParser p,
+    final CaJointName joint,
+    final java.util.List<Keyframe> keyframes)
+    throws JsonParseException
+  {
+    final java.util.List<CaDefinitionCurveKeyframeOrientationType> ks =
+      new ArrayList<>(keyframes.size());
+    for (final Keyframe k : keyframes) {
+      final CaDefinitionCurveKeyframeOrientation.Builder kb =
+        CaDefinitionCurveKeyframeOrientation.builder();
+      kb.setIndex(k.index);
+      kb.setInterpolation(k.interpolation);
+      kb.setEasing(k.easing);
+      kb.setOrientation(quaternion(k.valueFor(p, FIELD_QUATERNION)));
+      ks.add(kb.build());
+    }
+
+    final CaDefinitionCurveOrientation.Builder cb =
+      CaDefinitionCurveOrientation.builder();
+    cb.setJoint(joint);
+    cb.setKeyframes(List.ofAll(ks));
+    return cb.build();
+  }
+
+  private static CaDefinitionCurveType curveTranslation(
+    final JsonParser p,
+    final CaJointName joint,
+    final java.util.List<Keyframe> keyframes)
+    throws JsonParseException
+  {
+    final java.util.List<CaDefinitionCurveKeyframeTranslationType> ks =
+      new ArrayList<>(keyframes.size());
+    for (final Keyframe k : keyframes) {
+      final CaDefinitionCurveKeyframeTranslation.Builder kb =
+        CaDefinitionCurveKeyframeTranslation.builder();
+      kb.setIndex(k.index);
+      kb.setInterpolation(k.interpolation);
+      kb.setEasing(k.easing);
+      kb.setTranslation(translation(k.valueFor(p, FIELD_TRANSLATION)));
+      ks.add(kb.build());
+    }
+
+    final CaDefinitionCurveTranslation.Builder cb =
+      CaDefinitionCurveTranslation.builder();
+    cb.setJoint(joint);
+    cb.setKeyframes(List.ofAll(ks));
+    return cb.build();
+  }
+
+  private static CaDefinitionCurveType curveScale(
+    final JsonParser p,
+    final CaJointName joint,
+    final java.util.List<Keyframe> keyframes)
+    throws JsonParseException
+  {
+    final java.util.List<CaDefinitionCurveKeyframeScaleType> ks =
+      new ArrayList<>(keyframes.size());
+    for (final Keyframe k : keyframes) {
+      final CaDefinitionCurveKeyframeScale.Builder kb =
+        CaDefinitionCurveKeyframeScale.builder();
+      kb.setIndex(k.index);
+      kb.setInterpolation(k.interpolation);
+      kb.setEasing(k.easing);
+      kb.setScale(scale(k.valueFor(p, FIELD_SCALE)));
+      ks.add(kb.build());
+    }
+
+    final CaDefinitionCurveScale.Builder cb = CaDefinitionCurveScale.builder();
+    cb.setJoint(joint);
+    cb.setKeyframes(List.ofAll(ks));
+    return cb.build();
+  }
+
+  private static java.util.List<Keyframe> keyframes(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_ARRAY);
+
+    final java.util.List<Keyframe> keyframes = new ArrayList<>(16);
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      keyframes.add(keyframe(p));
+    }
+    return keyframes;
+  }
+
+  private static Keyframe keyframe(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_OBJECT);
+
+    Integer index = null;
+    CaCurveInterpolation interpolation = null;
+    CaCurveEasing easing = null;
+    String value_field = null;
+    double[] value = null;
+
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = p.getCurrentName();
+      p.nextToken();
+      switch (field) {
+        case "index": {
+          index = Integer.valueOf(integer(p));
+          break;
+        }
+        case "interpolation": {
+          interpolation = interpolation(p);
+          break;
+        }
+        case "easing": {
+          easing = easing(p);
+          break;
+        }
+        case FIELD_QUATERNION: {
+          value_field = field;
+          value = reals(p, 4);
+          break;
+        }
+        case FIELD_TRANSLATION:
+        case FIELD_SCALE: {
+          value_field = field;
+          value = reals(p, 3);
+          break;
+        }
+        default: {
+          throw unknownField(p, field);
+        }
+      }
+    }
+
+    return new Keyframe(
+      required(p, index, "index").intValue(),
+      required(p, interpolation, "interpolation"),
+      required(p, easing, "easing"),
+      required(p, value_field, "value"),
+      value);
+  }
+
+  private static CaCurveInterpolation interpolation(
+    final JsonParser p)
+    throws IOException
+  {
+    final String text = text(p);
+    try {
+      return CaCurveInterpolation.of(text);
+    } catch (final IllegalArgumentException e) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Received: ");
+      sb.append(text);
+      sb.append(System.lineSeparator());
+      sb.append("Expected: ");
+      sb.append(
+        List.of(CaCurveInterpolation.values())
+          .toJavaStream()
+          .map(CaCurveInterpolation::getName)
+          .collect(Collectors.joining("|")));
+      sb.append(System.lineSeparator());
+      throw new JsonParseException(p, sb.toString());
+    }
+  }
+
+  private static CaCurveEasing easing(
+    final JsonParser p)
+    throws IOException
+  {
+    switch (text(p)) {
+      case "in":
+        return CaCurveEasing.CURVE_EASING_IN;
+      case "out":
+        return CaCurveEasing.CURVE_EASING_OUT;
+      case "in-out":
+        return CaCurveEasing.CURVE_EASING_IN_OUT;
+      default: {
+        throw new JsonParseException(p, "Expected: in | out | in-out");
+      }
+    }
+  }
+
+  private static <T> T name(
+    final JsonParser p,
+    final Function<String, T> constructor)
+    throws IOException
+  {
+    final String text = text(p);
+    try {
+      return constructor.apply(text);
+    } catch (final IllegalArgumentException e) {
+      throw new JsonParseException(p, e.getMessage());
+    }
+  }
+
+  private static String text(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.VALUE_STRING);
+    return p.getText();
+  }
+
+  private static int integer(
+    final JsonParser p)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.VALUE_NUMBER_INT);
+    return p.getIntValue();
+  }
+
+  private static double[] reals(
+    final JsonParser p,
+    final int count)
+    throws IOException
+  {
+    expectCurrent(p, JsonToken.START_ARRAY);
+
+    final double[] values = new double[count];
+    int index = 0;
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (index >= count || p.getCurrentToken() != JsonToken.VALUE_NUMBER_FLOAT) {
+        throw realsError(p, count);
+      }
+      values[index] = p.getDoubleValue();
+      ++index;
+    }
+
+    if (index != count) {
+      throw realsError(p, count);
+    }
+    return values;
+  }
+
+  private static JsonParseException realsError(
+    final JsonParser p,
+    final int count)
+  {
+    return new JsonParseException(
+      p,
+      String.format(
+        "Expected an array of %d real values", Integer.valueOf(count)));
+  }
+
+  private static PVectorI3D<CaSpaceJointType> translation(
+    final double[] v)
+  {
+    return new PVectorI3D<>(v[0], v[1], v[2]);
+  }
+
+  private static VectorI3D scale(
+    final double[] v)
+  {
+    return new VectorI3D(v[0], v[1], v[2]);
+  }
+
+  private static QuaternionI4D quaternion(
+    final double[] v)
+  {
+    return new QuaternionI4D(v[0], v[1], v[2], v[3]);
+  }
+
+  private static void expectCurrent(
+    final JsonParser p,
+    final JsonToken expected)
+    throws JsonParseException
+  {
+    final JsonToken received = p.getCurrentToken();
+    if (received != expected) {
+      throw new JsonParseException(
+        p,
+        String.format("Expected %s (received %s)", expected, received));
+    }
+  }
+
+  private static <T> T required(
+    final JsonParser p,
+    final T value,
+    final String field)
+    throws JsonParseException
+  {
+    if (value == null) {
+      throw new JsonParseException(
+        p, String.format("Missing required field: %s", field));
+    }
+    return value;
+  }
+
+  private static JsonParseException unknownField(
+    final JsonParser p,
+    final String field)
+  {
+    return new JsonParseException(
+      p, String.format("Unrecognized field: %s", field));
+  }
+
+  private static JsonParseException duplicates(
+    final JsonParser p,
+    final String message,
+    final SortedSet<String> names)
+  {
+    final StringBuilder b = new StringBuilder(128);
+    b.append(message);
+    b.append(names.stream().collect(Collectors.joining(" ")));
+    b.append(System.lineSeparator());
+    return new JsonParseException(p, b.toString());
+  }
+
+  @Override
+  public Validation<List<CaParseError>, CaDefinitionSkeleton>
+  parseSkeletonFromStream(
+    final InputStream is,
+    final URI uri)
+  {
+    NullCheck.notNull(is, "Input stream");
+    NullCheck.notNull(uri, "URI");
+
+    try (final JsonParser p = this.factory.createParser(is)) {
+      p.nextToken();
+      return Validation.valid(parseSkeleton(p));
+    } catch (final JsonParseException e) {
+      final Path path = Paths.get(uri.getPath());
+      final JsonLocation loc = e.getLocation();
+      final List<CaParseError> xs =
+        List.of(
+          CaParseError.of(
+            LexicalPosition.of(
+              loc.getLineNr(),
+              loc.getColumnNr(),
+              Optional.of(path)),
+            e.getMessage()
+          ));
+      return Validation.invalid(xs);
+    } catch (final IOException e) {
+      final Path path = Paths.get(uri.getPath());
+      final List<CaParseError> xs =
+        List.of(
+          CaParseError.of(
+            LexicalPosition.of(
+              -1,
+              -1,
+              Optional.of(path)),
+            e.getMessage()
+          ));
+      return Validation.invalid(xs);
+    }
+  }
+
+  /**
+   * A keyframe for which the curve type is not yet known.
+   */
+
+  private static final class Keyframe
+  {
+    private final int index;
+    private final CaCurveInterpolation interpolation;
+    private final CaCurveEasing easing;
+    private final String value_field;
+    private final double[] value;
+
+    Keyframe(
+      final int in_index,
+      final CaCurveInterpolation in_interpolation,
+      final CaCurveEasing in_easing,
+      final String in_value_field,
+      final double[] in_value)
+    {
+      this.index = in_index;
+      this.interpolation = in_interpolation;
+      this.easing = in_easing;
+      this.value_field = in_value_field;
+      this.value = in_value;
+    }
+
+    double[] valueFor(
+      final JsonParser p,
+      final String field)
+      throws JsonParseException
+    {
+      if (!field.equals(this.value_field)) {
+        throw new JsonParseException(
+          p,
+          String.format(
+            "Expected a %s field (received %s)", field, this.value_field));
+      }
+      return this.value;
+    }
+  }
+}
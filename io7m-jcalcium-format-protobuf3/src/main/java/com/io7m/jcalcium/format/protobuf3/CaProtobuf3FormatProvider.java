@@ -170,7 +170,7 @@ public final class CaProtobuf3FormatProvider implements
       wrapper.putInt(0, this.version.minor());
       out.write(buffer);
 
-      new CaV1Protobuf3Format().serializeCompiledSkeletonToStream(
+      new CaV1Protobuf3Format(this.version).serializeCompiledSkeletonToStream(
         skeleton, out);
     }
   }
@@ -290,7 +290,7 @@ public final class CaProtobuf3FormatProvider implements
     {
       for (final CaFormatVersion supported : CaV1Protobuf3Format.supported()) {
         if (Objects.equals(supported, version)) {
-          return new CaV1Protobuf3Format();
+          return new CaV1Protobuf3Format(version);
         }
       }
 
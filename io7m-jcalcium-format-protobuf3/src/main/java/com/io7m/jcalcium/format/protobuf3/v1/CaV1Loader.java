@@ -25,6 +25,7 @@ import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
 import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseInverses;
 import com.io7m.jcalcium.core.compiled.actions.CaActionCurves;
 import com.io7m.jcalcium.core.compiled.actions.CaActionType;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveKeyframeOrientation;
@@ -35,6 +36,7 @@ import com.io7m.jcalcium.core.compiled.actions.CaCurveScale;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveTranslation;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveType;
 import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
 import com.io7m.jcalcium.format.protobuf3.CaLoaderCorruptedData;
 import com.io7m.jcalcium.format.protobuf3.CaLoaderIOException;
 import com.io7m.jcalcium.loader.api.CaLoaderException;
@@ -43,6 +45,12 @@ import com.io7m.jorchard.core.JOTreeNode;
 import com.io7m.jorchard.core.JOTreeNodeType;
 import com.io7m.jtensors.QuaternionI4D;
 import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PMatrix4x4DType;
+import com.io7m.jtensors.parameterized.PMatrix4x4FType;
+import com.io7m.jtensors.parameterized.PMatrixHeapArrayM4x4D;
+import com.io7m.jtensors.parameterized.PMatrixHeapArrayM4x4F;
+import com.io7m.jtensors.parameterized.PMatrixI4x4D;
+import com.io7m.jtensors.parameterized.PMatrixI4x4F;
 import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.junreachable.UnreachableCodeException;
 import javaslang.collection.Array;
@@ -57,8 +65,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 final class CaV1Loader
@@ -247,7 +257,7 @@ final class CaV1Loader
     throw new UnreachableCodeException();
   }
 
-  private static CaJoint bone(
+  static CaJoint bone(
     final Skeleton.V1JointOrBuilder v_bone)
   {
     final CaJoint.Builder bb = CaJoint.builder();
@@ -270,7 +280,7 @@ final class CaV1Loader
     return results;
   }
 
-  private static CaActionType action(
+  static CaActionType action(
     final String name,
     final Skeleton.V1Action act)
   {
@@ -334,6 +344,7 @@ final class CaV1Loader
 
       cb.setMeta(CaSkeletonMetadata.of(name, hash));
       cb.setActionsByName(actions(sk.getActionsMap()));
+      cb.setRestPoseInverses(restPoseInverses(sk.getJointsMap().values()));
 
       return cb.build();
     } catch (final IOException e) {
@@ -343,7 +354,82 @@ final class CaV1Loader
     }
   }
 
-  private static CaSkeletonHash hash(
+  static Optional<CaSkeletonRestPoseInverses> restPoseInverses(
+    final Collection<Skeleton.V1Joint> joints)
+  {
+    int count = 0;
+    for (final Skeleton.V1Joint joint : joints) {
+      if (joint.hasRestInverseD() && joint.hasRestInverseF()) {
+        ++count;
+      }
+    }
+
+    /*
+     * Files produced before the inverse rest pose matrices were stored do
+     * not contain them at all; the matrices are then calculated on demand.
+     */
+
+    if (count == 0) {
+      return Optional.empty();
+    }
+
+    if (count != joints.size()) {
+      throw new IllegalArgumentException(
+        "Inverse rest pose matrices must be present for all joints or none");
+    }
+
+    SortedMap<Integer, PMatrixI4x4D<CaSpaceObjectType, CaSpaceJointType>> transforms_d =
+      TreeMap.empty();
+    SortedMap<Integer, PMatrixI4x4F<CaSpaceObjectType, CaSpaceJointType>> transforms_f =
+      TreeMap.empty();
+
+    for (final Skeleton.V1Joint joint : joints) {
+      final Integer key = Integer.valueOf(joint.getId());
+      transforms_d = transforms_d.put(key, matrixD(joint.getRestInverseD()));
+      transforms_f = transforms_f.put(key, matrixF(joint.getRestInverseF()));
+    }
+
+    return Optional.of(
+      CaSkeletonRestPoseInverses.of(transforms_d, transforms_f));
+  }
+
+  private static PMatrixI4x4D<CaSpaceObjectType, CaSpaceJointType> matrixD(
+    final Skeleton.V1Matrix4x4D m)
+  {
+    if (m.getElementsCount() != 16) {
+      throw new IllegalArgumentException(
+        "Matrix must have 16 elements (received " + m.getElementsCount() + ")");
+    }
+
+    final PMatrix4x4DType<CaSpaceObjectType, CaSpaceJointType> r =
+      PMatrixHeapArrayM4x4D.newMatrix();
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        r.setRowColumnD(row, column, m.getElements((row * 4) + column));
+      }
+    }
+    return PMatrixI4x4D.newFromReadable(r);
+  }
+
+  private static PMatrixI4x4F<CaSpaceObjectType, CaSpaceJointType> matrixF(
+    final Skeleton.V1Matrix4x4F m)
+  {
+    if (m.getElementsCount() != 16) {
+      throw new IllegalArgumentException(
+        "Matrix must have 16 elements (received " + m.getElementsCount() + ")");
+    }
+
+    final PMatrix4x4FType<CaSpaceObjectType, CaSpaceJointType> r =
+      PMatrixHeapArrayM4x4F.newMatrix();
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        r.setRowColumnF(row, column, m.getElements((row * 4) + column));
+      }
+    }
+    return PMatrixI4x4F.newFromReadable(r);
+  }
+
+  static CaSkeletonHash hash(
     final Skeleton.V1Hash hash)
   {
     return CaSkeletonHash.of(
@@ -355,23 +441,30 @@ final class CaV1Loader
     final Map<Integer, Skeleton.V1Joint> bones)
     throws CaLoaderCorruptedData
   {
-    /*
-     * The compiler will sequentially number bones in topological order. This
-     * means that to quickly reconstruct the original hierarchy, the bones
-     * must be sorted by ID and then added to a tree sequentially.
-     */
-
     final List<Skeleton.V1Joint> bones_ordered =
       new ArrayList<>(bones.size());
     for (final Integer bone_id : bones.keySet()) {
       bones_ordered.add(bones.get(bone_id));
     }
+    return jointTree(this.uri, bones_ordered);
+  }
+
+  static JOTreeNodeType<CaJoint> jointTree(
+    final URI uri,
+    final List<Skeleton.V1Joint> bones_ordered)
+    throws CaLoaderCorruptedData
+  {
+    /*
+     * The compiler will sequentially number bones in topological order. This
+     * means that to quickly reconstruct the original hierarchy, the bones
+     * must be sorted by ID and then added to a tree sequentially.
+     */
 
     bones_ordered.sort(
       (o1, o2) -> Integer.compareUnsigned(o1.getId(), o2.getId()));
 
     if (bones_ordered.isEmpty()) {
-      throw new CaLoaderCorruptedData(this.uri, "No parseable bones");
+      throw new CaLoaderCorruptedData(uri, "No parseable bones");
     }
 
     final Skeleton.V1Joint root_current =
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.format.protobuf3.v1;
+
+import com.io7m.jcalcium.compiler.api.CaCompilerActionCacheType;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionHash;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jnull.NullCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A persistent cache of compiled actions, stored as individual 1.*
+ * protobuf action messages in a directory.
+ *
+ * <p>Entries are written to temporary files and atomically renamed into
+ * place, so concurrent compilers sharing a directory never observe partially
+ * written entries. Unreadable entries are treated as absent.</p>
+ */
+
+public final class CaV1Protobuf3ActionCache implements CaCompilerActionCacheType
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaV1Protobuf3ActionCache.class);
+  }
+
+  private final Path directory;
+
+  private CaV1Protobuf3ActionCache(
+    final Path in_directory)
+  {
+    this.directory = NullCheck.notNull(in_directory, "Directory");
+  }
+
+  /**
+   * Create a cache in the given directory. The directory is created if it
+   * does not already exist.
+   *
+   * @param directory The cache directory
+   *
+   * @return A new cache
+   *
+   * @throws IOException If the directory cannot be created
+   */
+
+  public static CaCompilerActionCacheType create(
+    final Path directory)
+    throws IOException
+  {
+    NullCheck.notNull(directory, "Directory");
+    Files.createDirectories(directory);
+    return new CaV1Protobuf3ActionCache(directory);
+  }
+
+  private Path file(
+    final CaCompilerActionHash hash)
+  {
+    return this.directory.resolve(
+      hash.value().toLowerCase(Locale.ROOT) + ".ccpa");
+  }
+
+  private static void move(
+    final Path source,
+    final Path target)
+    throws IOException
+  {
+    try {
+      Files.move(
+        source,
+        target,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      LOG.trace("atomic move not supported: ", e);
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  @Override
+  public Optional<CaActionType> cachedAction(
+    final CaCompilerActionHash hash)
+  {
+    NullCheck.notNull(hash, "Hash");
+
+    final Path file = this.file(hash);
+    try (final InputStream is = Files.newInputStream(file)) {
+      final Skeleton.V1Action act = Skeleton.V1Action.parseFrom(is);
+      LOG.trace("hit {}", file);
+      return Optional.of(CaV1Loader.action(hash.value(), act));
+    } catch (final NoSuchFileException e) {
+      LOG.trace("miss {}", file);
+      return Optional.empty();
+    } catch (final IOException | IllegalArgumentException e) {
+      LOG.warn("ignoring unreadable cache entry {}: ", file, e);
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void cacheAction(
+    final CaCompilerActionHash hash,
+    final CaActionType action)
+  {
+    NullCheck.notNull(hash, "Hash");
+    NullCheck.notNull(action, "Action");
+
+    final Path file = this.file(hash);
+    final Skeleton.V1Action message = CaV1Serializer.fromAction(action);
+
+    try {
+      final Path temp =
+        Files.createTempFile(this.directory, file.getFileName().toString(), ".tmp");
+      try {
+        try (final OutputStream os = Files.newOutputStream(temp)) {
+          message.writeTo(os);
+        }
+        move(temp, file);
+        LOG.trace("stored {}", file);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (final IOException e) {
+      LOG.warn("could not write cache entry {}: ", file, e);
+    }
+  }
+}
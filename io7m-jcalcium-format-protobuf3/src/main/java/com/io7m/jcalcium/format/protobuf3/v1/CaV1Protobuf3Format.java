@@ -21,6 +21,7 @@ import com.io7m.jcalcium.core.definitions.CaFormatVersion;
 import com.io7m.jcalcium.loader.api.CaLoaderException;
 import com.io7m.jcalcium.loader.api.CaLoaderType;
 import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
+import com.io7m.jnull.NullCheck;
 import javaslang.collection.SortedSet;
 import javaslang.collection.TreeSet;
 
@@ -31,18 +32,52 @@ import java.net.URI;
 
 /**
  * An implementation of a protobuf3 parser for version 1 types.
+ *
+ * Version 1.0 encodes the entire skeleton as a single message. Version 1.1
+ * encodes the skeleton as a sequence of independently delimited records
+ * (a header, each joint, and then each action) and can therefore be written
+ * and read without holding the entire encoded skeleton in memory.
  */
 
 public final class CaV1Protobuf3Format
   implements CaLoaderType, CaCompiledSerializerType
 {
+  private static final CaFormatVersion VERSION_1_0;
+  private static final CaFormatVersion VERSION_1_1;
+
+  static {
+    VERSION_1_0 = CaFormatVersion.of(1, 0);
+    VERSION_1_1 = CaFormatVersion.of(1, 1);
+  }
+
+  private final CaFormatVersion version;
+
   /**
-   * Construct a parser
+   * Construct a parser for version 1.0.
    */
 
   public CaV1Protobuf3Format()
   {
+    this(VERSION_1_0);
+  }
 
+  /**
+   * Construct a parser for the given version.
+   *
+   * @param in_version The format version
+   *
+   * @throws UnsupportedOperationException If the version is not supported
+   */
+
+  public CaV1Protobuf3Format(
+    final CaFormatVersion in_version)
+    throws UnsupportedOperationException
+  {
+    this.version = NullCheck.notNull(in_version, "Version");
+    if (!supported().contains(this.version)) {
+      throw new UnsupportedOperationException(
+        "The given version is not supported");
+    }
   }
 
   /**
@@ -51,7 +86,7 @@ public final class CaV1Protobuf3Format
 
   public static SortedSet<CaFormatVersion> supported()
   {
-    return TreeSet.of(CaFormatVersion.of(1, 0));
+    return TreeSet.of(VERSION_1_0, VERSION_1_1);
   }
 
   @Override
@@ -60,7 +95,12 @@ public final class CaV1Protobuf3Format
     final OutputStream out)
     throws IOException
   {
-    new CaV1Serializer().serializeCompiledSkeletonToStream(skeleton, out);
+    if (this.isStreaming()) {
+      new CaV1StreamingSerializer().serializeCompiledSkeletonToStream(
+        skeleton, out);
+    } else {
+      new CaV1Serializer().serializeCompiledSkeletonToStream(skeleton, out);
+    }
   }
 
   @Override
@@ -69,6 +109,14 @@ public final class CaV1Protobuf3Format
     final URI uri)
     throws CaLoaderException
   {
+    if (this.isStreaming()) {
+      return new CaV1StreamingLoader(uri, is).run();
+    }
     return new CaV1Loader(uri, is).run();
   }
+
+  private boolean isStreaming()
+  {
+    return this.version.compareTo(VERSION_1_1) >= 0;
+  }
 }
@@ -23,6 +23,7 @@ import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
 import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseInverses;
 import com.io7m.jcalcium.core.compiled.actions.CaActionCurvesType;
 import com.io7m.jcalcium.core.compiled.actions.CaActionType;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveKeyframeOrientation;
@@ -33,10 +34,13 @@ import com.io7m.jcalcium.core.compiled.actions.CaCurveScaleType;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveTranslationType;
 import com.io7m.jcalcium.core.compiled.actions.CaCurveType;
 import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
 import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
 import com.io7m.jorchard.core.JOTreeNodeReadableType;
 import com.io7m.jtensors.QuaternionI4D;
 import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4FType;
 import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.junreachable.UnreachableCodeException;
 import javaslang.collection.IndexedSeq;
@@ -66,11 +70,13 @@ final class CaV1Serializer implements CaCompiledSerializerType
     skeleton.actionsByName().forEach(
       p -> b.putActions(p._1.value(), fromAction(p._2)));
     skeleton.jointsByID().forEach(
-      p -> b.putJoints(p._1.intValue(), fromJoint(p._2)));
+      p -> b.putJoints(
+        p._1.intValue(),
+        fromJoint(skeleton.restPoseInverses(), p._2)));
     return b.build();
   }
 
-  private static Skeleton.V1Hash fromHash(
+  static Skeleton.V1Hash fromHash(
     final CaSkeletonHash hash)
   {
     try {
@@ -83,7 +89,8 @@ final class CaV1Serializer implements CaCompiledSerializerType
     }
   }
 
-  private static Skeleton.V1Joint fromJoint(
+  static Skeleton.V1Joint fromJoint(
+    final Optional<CaSkeletonRestPoseInverses> inverses,
     final JOTreeNodeReadableType<CaJoint> bone_node)
   {
     final CaJoint bone = bone_node.value();
@@ -101,10 +108,41 @@ final class CaV1Serializer implements CaCompiledSerializerType
     b.setOrientation(fromQuaternion(bone.orientation()));
     b.setScale(fromScale(bone.scale()));
     b.setTranslation(fromTranslation(bone.translation()));
+
+    if (inverses.isPresent()) {
+      final Integer id = Integer.valueOf(bone.id());
+      final CaSkeletonRestPoseInverses inv = inverses.get();
+      b.setRestInverseD(fromMatrixD(inv.transformsD().get(id).get()));
+      b.setRestInverseF(fromMatrixF(inv.transformsF().get(id).get()));
+    }
+    return b.build();
+  }
+
+  private static Skeleton.V1Matrix4x4D fromMatrixD(
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m)
+  {
+    final Skeleton.V1Matrix4x4D.Builder b = Skeleton.V1Matrix4x4D.newBuilder();
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        b.addElements(m.getRowColumnD(row, column));
+      }
+    }
+    return b.build();
+  }
+
+  private static Skeleton.V1Matrix4x4F fromMatrixF(
+    final PMatrixReadable4x4FType<CaSpaceObjectType, CaSpaceJointType> m)
+  {
+    final Skeleton.V1Matrix4x4F.Builder b = Skeleton.V1Matrix4x4F.newBuilder();
+    for (int row = 0; row < 4; ++row) {
+      for (int column = 0; column < 4; ++column) {
+        b.addElements(m.getRowColumnF(row, column));
+      }
+    }
     return b.build();
   }
 
-  private static Skeleton.V1Action fromAction(
+  static Skeleton.V1Action fromAction(
     final CaActionType action)
   {
     return action.matchAction(unit(), (bone_name, curve) -> {
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.format.protobuf3.v1;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.format.protobuf3.CaLoaderCorruptedData;
+import com.io7m.jcalcium.format.protobuf3.CaLoaderIOException;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jorchard.core.JOTreeNodeType;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A loader for the streaming encoding produced by
+ * {@link CaV1StreamingSerializer}. Actions are decoded one record at a time
+ * and converted immediately, so the full encoded skeleton is never held in
+ * memory.
+ */
+
+final class CaV1StreamingLoader
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaV1StreamingLoader.class);
+  }
+
+  private final URI uri;
+  private final InputStream stream;
+
+  CaV1StreamingLoader(
+    final URI in_uri,
+    final InputStream in_stream)
+  {
+    this.uri = NullCheck.notNull(in_uri, "URI");
+    this.stream = NullCheck.notNull(in_stream, "Stream");
+  }
+
+  private CaLoaderCorruptedData unexpectedEOF(
+    final String what)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Unexpected end of stream.");
+    sb.append(System.lineSeparator());
+    sb.append("  Expected: ");
+    sb.append(what);
+    sb.append(System.lineSeparator());
+    return new CaLoaderCorruptedData(this.uri, sb.toString());
+  }
+
+  private Skeleton.V1StreamHeader header()
+    throws IOException, CaLoaderCorruptedData
+  {
+    final Skeleton.V1StreamHeader header =
+      Skeleton.V1StreamHeader.parseDelimitedFrom(this.stream);
+    if (header == null) {
+      throw this.unexpectedEOF("A skeleton header");
+    }
+    return header;
+  }
+
+  private Skeleton.V1Joint joint()
+    throws IOException, CaLoaderCorruptedData
+  {
+    final Skeleton.V1Joint joint =
+      Skeleton.V1Joint.parseDelimitedFrom(this.stream);
+    if (joint == null) {
+      throw this.unexpectedEOF("A joint");
+    }
+    return joint;
+  }
+
+  private CaActionType action()
+    throws IOException, CaLoaderCorruptedData
+  {
+    final Skeleton.V1Action action =
+      Skeleton.V1Action.parseDelimitedFrom(this.stream);
+    if (action == null) {
+      throw this.unexpectedEOF("An action");
+    }
+    return CaV1Loader.action(action.getCurves().getName(), action);
+  }
+
+  CaSkeleton run()
+    throws CaLoaderException
+  {
+    try {
+      final Skeleton.V1StreamHeader header = this.header();
+      final CaSkeletonHash hash = CaV1Loader.hash(header.getHash());
+      final CaSkeletonName name = CaSkeletonName.of(header.getName());
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("skeleton name: {}", name.value());
+        LOG.debug("skeleton hash: {} {}", hash.algorithm(), hash.value());
+        LOG.debug(
+          "skeleton joints: {}, actions: {}",
+          Integer.toUnsignedString(header.getJointCount()),
+          Integer.toUnsignedString(header.getActionCount()));
+      }
+
+      final List<Skeleton.V1Joint> joints = new ArrayList<>(16);
+      for (int index = 0;
+           Integer.compareUnsigned(index, header.getJointCount()) < 0;
+           ++index) {
+        joints.add(this.joint());
+      }
+
+      final JOTreeNodeType<CaJoint> node =
+        CaV1Loader.jointTree(this.uri, joints);
+
+      SortedMap<CaActionName, CaActionType> actions = TreeMap.empty();
+      for (int index = 0;
+           Integer.compareUnsigned(index, header.getActionCount()) < 0;
+           ++index) {
+        final CaActionType action = this.action();
+        actions = actions.put(action.name(), action);
+      }
+
+      final CaSkeleton.Builder cb = CaSkeleton.builder();
+      cb.setJoints(node);
+      cb.setMeta(CaSkeletonMetadata.of(name, hash));
+      cb.setActionsByName(actions);
+      cb.setRestPoseInverses(CaV1Loader.restPoseInverses(joints));
+      return cb.build();
+    } catch (final CaLoaderException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new CaLoaderIOException(this.uri, e);
+    } catch (final Exception e) {
+      throw new CaLoaderCorruptedData(this.uri, e, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.format.protobuf3.v1;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
+import com.io7m.jorchard.core.JOTreeNodeReadableType;
+import javaslang.Tuple2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A serializer that writes a header, each joint, and each action as
+ * separate length-delimited records directly to the output stream. Only a
+ * single encoded action is held in memory at any given time.
+ */
+
+final class CaV1StreamingSerializer implements CaCompiledSerializerType
+{
+  CaV1StreamingSerializer()
+  {
+
+  }
+
+  private static Skeleton.V1StreamHeader fromHeader(
+    final CaSkeleton skeleton)
+  {
+    final CaSkeletonMetadata meta = skeleton.meta();
+    final Skeleton.V1StreamHeader.Builder b =
+      Skeleton.V1StreamHeader.newBuilder();
+    b.setName(meta.name().value());
+    b.setHash(CaV1Serializer.fromHash(meta.hash()));
+    b.setJointCount(skeleton.jointsByID().size());
+    b.setActionCount(skeleton.actionsByName().size());
+    return b.build();
+  }
+
+  @Override
+  public void serializeCompiledSkeletonToStream(
+    final CaSkeleton skeleton,
+    final OutputStream out)
+    throws IOException
+  {
+    fromHeader(skeleton).writeDelimitedTo(out);
+
+    for (final Tuple2<Integer, JOTreeNodeReadableType<CaJoint>> p :
+      skeleton.jointsByID()) {
+      CaV1Serializer.fromJoint(skeleton.restPoseInverses(), p._2)
+        .writeDelimitedTo(out);
+    }
+
+    for (final Tuple2<CaActionName, CaActionType> p :
+      skeleton.actionsByName()) {
+      CaV1Serializer.fromAction(p._2).writeDelimitedTo(out);
+    }
+
+    out.flush();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.generators;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Parameters for synthetic meshes.
+ *
+ * @see CaSyntheticMeshes
+ */
+
+@Value.Immutable
+@CaImmutableStyleType
+public interface CaSyntheticMeshParametersType
+{
+  /**
+   * <p>The seed for the random number generator. Meshes generated with equal
+   * parameters are identical.</p>
+   *
+   * <p>By default, the seed is {@code 0}.</p>
+   *
+   * @return The random seed
+   */
+
+  @Value.Default
+  default long seed()
+  {
+    return 0L;
+  }
+
+  /**
+   * @return The number of vertices in the mesh
+   */
+
+  @Value.Parameter
+  int vertexCount();
+
+  /**
+   * The number of joints to which the mesh is bound. The mesh is bound to
+   * joints {@code [0, jointCount)} of a skeleton produced by {@link
+   * CaSyntheticSkeletons}, and so the value must not be greater than the
+   * joint count of that skeleton.
+   *
+   * @return The number of joints to which the mesh is bound
+   */
+
+  @Value.Parameter
+  int jointCount();
+
+  /**
+   * <p>The minimum number of joints that influence each vertex.</p>
+   *
+   * <p>By default, the minimum is {@code 1}.</p>
+   *
+   * @return The minimum number of influences per vertex
+   */
+
+  @Value.Default
+  default int influencesMinimum()
+  {
+    return 1;
+  }
+
+  /**
+   * <p>The maximum number of joints that influence each vertex.</p>
+   *
+   * <p>By default, the maximum is {@code 4}.</p>
+   *
+   * @return The maximum number of influences per vertex
+   */
+
+  @Value.Default
+  default int influencesMaximum()
+  {
+    return 4;
+  }
+
+  /**
+   * <p>The distribution of weights among the joints that influence each
+   * vertex.</p>
+   *
+   * <p>By default, weights fall off.</p>
+   *
+   * @return The weight distribution
+   */
+
+  @Value.Default
+  default CaSyntheticWeightDistribution weightDistribution()
+  {
+    return CaSyntheticWeightDistribution.WEIGHT_DISTRIBUTION_FALLOFF;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.vertexCount() < 0) {
+      throw new IllegalArgumentException(
+        "Vertex count must be nonnegative");
+    }
+    if (this.jointCount() < 1) {
+      throw new IllegalArgumentException("Joint count must be at least 1");
+    }
+    if (this.influencesMinimum() < 1) {
+      throw new IllegalArgumentException(
+        "Minimum influence count must be at least 1");
+    }
+    if (this.influencesMaximum() > 4) {
+      throw new IllegalArgumentException(
+        "Maximum influence count must not exceed 4");
+    }
+    if (this.influencesMaximum() < this.influencesMinimum()) {
+      throw new IllegalArgumentException(
+        "Maximum influence count must not be less than the minimum");
+    }
+  }
+}
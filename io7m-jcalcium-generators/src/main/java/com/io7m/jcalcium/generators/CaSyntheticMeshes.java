@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.generators;
+
+import com.io7m.jcoords.core.conversion.CAxis;
+import com.io7m.jcoords.core.conversion.CAxisSystem;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.VectorI3L;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFCoordinateSystem;
+import com.io7m.smfj.core.SMFFaceWindingOrder;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.core.SMFSchemaIdentifier;
+import com.io7m.smfj.core.SMFTriangles;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating1;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating3;
+import com.io7m.smfj.processing.api.SMFAttributeArrayType;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+import javaslang.collection.Vector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_FLOATING;
+
+/**
+ * <p>Deterministic generation of large synthetic meshes for load and stress
+ * testing.</p>
+ *
+ * <p>Meshes are regular grids of triangles, with a position and normal for
+ * each vertex. Each vertex is influenced by a run of consecutive joints
+ * chosen according to the height of the vertex in the grid, so that nearby
+ * vertices share joints as they would in a real mesh. Weights are stored as
+ * one {@code GROUP:<joint>} attribute per joint, in the same form as meshes
+ * exported from modelling tools, and so generated meshes are suitable as
+ * inputs to the {@code compile-mesh-weights} filter. Joints that influence
+ * no vertex have no attribute. Equal parameters always produce equal
+ * meshes.</p>
+ */
+
+public final class CaSyntheticMeshes
+{
+  /**
+   * The name of the position attribute.
+   */
+
+  public static final SMFAttributeName ATTRIBUTE_POSITION;
+
+  /**
+   * The name of the normal attribute.
+   */
+
+  public static final SMFAttributeName ATTRIBUTE_NORMAL;
+
+  /**
+   * The prefix of the per-joint weight attributes.
+   */
+
+  public static final String GROUP_ATTRIBUTE_PREFIX = "GROUP:";
+
+  private static final Logger LOG;
+  private static final double SPACING = 0.1;
+  private static final Double ZERO = Double.valueOf(0.0);
+
+  static {
+    LOG = LoggerFactory.getLogger(CaSyntheticMeshes.class);
+    ATTRIBUTE_POSITION = SMFAttributeName.of("POSITION");
+    ATTRIBUTE_NORMAL = SMFAttributeName.of("NORMAL");
+  }
+
+  private CaSyntheticMeshes()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param joint The joint index
+   *
+   * @return The name of the weight attribute for the given joint
+   */
+
+  public static SMFAttributeName groupAttributeName(
+    final int joint)
+  {
+    return SMFAttributeName.of(
+      GROUP_ATTRIBUTE_PREFIX + CaSyntheticSkeletons.jointName(joint).value());
+  }
+
+  /**
+   * Generate a mesh.
+   *
+   * @param parameters The mesh parameters
+   *
+   * @return A mesh
+   */
+
+  public static SMFMemoryMesh generate(
+    final CaSyntheticMeshParameters parameters)
+  {
+    NullCheck.notNull(parameters, "Parameters");
+
+    final Random random = new Random(parameters.seed());
+    final int vertex_count = parameters.vertexCount();
+    final int joint_count = parameters.jointCount();
+    final int width =
+      Math.max(1, (int) Math.ceil(Math.sqrt((double) vertex_count)));
+    final int rows = Math.max(1, (vertex_count + width - 1) / width);
+
+    final ArrayList<VectorI3D> positions = new ArrayList<>(vertex_count);
+    final ArrayList<VectorI3D> normals = new ArrayList<>(vertex_count);
+
+    /*
+     * Each vertex is influenced by a run of consecutive joints starting at
+     * its home joint, so only the home joint, the length of the run, and
+     * the weights of the run are recorded per vertex.
+     */
+
+    final int[] vertex_homes = new int[vertex_count];
+    final int[] vertex_influences = new int[vertex_count];
+    final double[] vertex_weights = new double[vertex_count * 4];
+    final boolean[] joint_used = new boolean[joint_count];
+    final double[] generated = new double[4];
+
+    for (int vertex = 0; vertex < vertex_count; ++vertex) {
+      final int column = vertex % width;
+      final int row = vertex / width;
+
+      positions.add(new VectorI3D(
+        (double) (column - (width / 2)) * SPACING,
+        (double) row * SPACING,
+        random.nextDouble() * SPACING * 0.1));
+      normals.add(new VectorI3D(0.0, 0.0, 1.0));
+
+      final int home = (int) (((long) row * (long) joint_count) / (long) rows);
+      final int influences = Math.min(
+        joint_count,
+        parameters.influencesMinimum() + random.nextInt(
+          parameters.influencesMaximum() - parameters.influencesMinimum() + 1));
+
+      generateWeights(
+        random, parameters.weightDistribution(), influences, generated);
+      vertex_homes[vertex] = home;
+      vertex_influences[vertex] = influences;
+      for (int index = 0; index < influences; ++index) {
+        vertex_weights[(vertex * 4) + index] = generated[index];
+        joint_used[(home + index) % joint_count] = true;
+      }
+    }
+
+    final Vector<VectorI3L> triangles = generateTriangles(vertex_count, width);
+
+    List<SMFAttribute> attributes = List.of(
+      SMFAttribute.of(ATTRIBUTE_POSITION, ELEMENT_TYPE_FLOATING, 3, 32),
+      SMFAttribute.of(ATTRIBUTE_NORMAL, ELEMENT_TYPE_FLOATING, 3, 32));
+    Map<SMFAttributeName, SMFAttributeArrayType> arrays = HashMap.of(
+      ATTRIBUTE_POSITION,
+      SMFAttributeArrayFloating3.of(Vector.ofAll(positions)),
+      ATTRIBUTE_NORMAL,
+      SMFAttributeArrayFloating3.of(Vector.ofAll(normals)));
+
+    for (int joint = 0; joint < joint_count; ++joint) {
+      if (joint_used[joint]) {
+        final SMFAttributeName name = groupAttributeName(joint);
+        attributes = attributes.append(
+          SMFAttribute.of(name, ELEMENT_TYPE_FLOATING, 1, 32));
+        arrays = arrays.put(
+          name,
+          SMFAttributeArrayFloating1.of(jointWeights(
+            joint, joint_count, vertex_homes, vertex_influences, vertex_weights)));
+      }
+    }
+
+    final SMFCoordinateSystem coords =
+      SMFCoordinateSystem.of(
+        CAxisSystem.of(
+          CAxis.AXIS_POSITIVE_X,
+          CAxis.AXIS_POSITIVE_Y,
+          CAxis.AXIS_NEGATIVE_Z),
+        SMFFaceWindingOrder.FACE_WINDING_ORDER_COUNTER_CLOCKWISE);
+
+    final int triangle_bits;
+    if (vertex_count <= 65536) {
+      triangle_bits = 16;
+    } else {
+      triangle_bits = 32;
+    }
+
+    final SMFHeader header =
+      SMFHeader.of(
+        SMFTriangles.of((long) triangles.size(), triangle_bits),
+        (long) vertex_count,
+        SMFSchemaIdentifier.builder().build(),
+        coords,
+        attributes,
+        0L);
+
+    LOG.debug(
+      "generated mesh: {} vertices, {} triangles, {} joints",
+      Integer.valueOf(vertex_count),
+      Integer.valueOf(triangles.size()),
+      Integer.valueOf(joint_count));
+
+    return SMFMemoryMesh.builder()
+      .setHeader(header)
+      .setArrays(arrays)
+      .setTriangles(triangles)
+      .setMetadata(Vector.empty())
+      .build();
+  }
+
+  /**
+   * Produce the weights of the given joint for every vertex. Vertices that
+   * the joint does not influence share a single zero value.
+   */
+
+  private static Vector<Double> jointWeights(
+    final int joint,
+    final int joint_count,
+    final int[] vertex_homes,
+    final int[] vertex_influences,
+    final double[] vertex_weights)
+  {
+    final Double[] values = new Double[vertex_homes.length];
+    for (int vertex = 0; vertex < vertex_homes.length; ++vertex) {
+      final int offset =
+        ((joint - vertex_homes[vertex]) + joint_count) % joint_count;
+      if (offset < vertex_influences[vertex]) {
+        values[vertex] = Double.valueOf(vertex_weights[(vertex * 4) + offset]);
+      } else {
+        values[vertex] = ZERO;
+      }
+    }
+    return Vector.of(values);
+  }
+
+  private static void generateWeights(
+    final Random random,
+    final CaSyntheticWeightDistribution distribution,
+    final int influences,
+    final double[] output)
+  {
+    double total = 0.0;
+    for (int index = 0; index < influences; ++index) {
+      switch (distribution) {
+        case WEIGHT_DISTRIBUTION_EQUAL:
+          output[index] = 1.0;
+          break;
+        case WEIGHT_DISTRIBUTION_FALLOFF:
+          output[index] = Math.pow(0.5, (double) index);
+          break;
+        case WEIGHT_DISTRIBUTION_RANDOM:
+          output[index] = 0.05 + random.nextDouble();
+          break;
+        default:
+          throw new UnreachableCodeException();
+      }
+      total += output[index];
+    }
+
+    for (int index = 0; index < influences; ++index) {
+      output[index] = output[index] / total;
+    }
+  }
+
+  /**
+   * Triangulate a grid of vertices {@code width} vertices wide, skipping any
+   * cells in an incomplete final row.
+   */
+
+  private static Vector<VectorI3L> generateTriangles(
+    final int vertex_count,
+    final int width)
+  {
+    final ArrayList<VectorI3L> triangles = new ArrayList<>(vertex_count * 2);
+    for (int v0 = 0; v0 + width + 1 < vertex_count; ++v0) {
+      if ((v0 % width) != width - 1) {
+        final long v1 = (long) (v0 + 1);
+        final long v2 = (long) (v0 + width);
+        final long v3 = (long) (v0 + width + 1);
+        triangles.add(new VectorI3L((long) v0, v1, v3));
+        triangles.add(new VectorI3L((long) v0, v3, v2));
+      }
+    }
+    return Vector.ofAll(triangles);
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.generators;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import org.immutables.value.Value;
+
+/**
+ * Parameters for synthetic skeletons.
+ *
+ * @see CaSyntheticSkeletons
+ */
+
+@Value.Immutable
+@CaImmutableStyleType
+public interface CaSyntheticSkeletonParametersType
+{
+  /**
+   * <p>The seed for the random number generator. Skeletons generated with
+   * equal parameters are identical.</p>
+   *
+   * <p>By default, the seed is {@code 0}.</p>
+   *
+   * @return The random seed
+   */
+
+  @Value.Default
+  default long seed()
+  {
+    return 0L;
+  }
+
+  /**
+   * <p>The name of the skeleton.</p>
+   *
+   * <p>By default, the name is {@code synthetic}.</p>
+   *
+   * @return The skeleton name
+   */
+
+  @Value.Default
+  default CaSkeletonName name()
+  {
+    return CaSkeletonName.of("synthetic");
+  }
+
+  /**
+   * @return The number of joints in the skeleton
+   */
+
+  @Value.Parameter
+  int jointCount();
+
+  /**
+   * <p>The maximum depth of any joint in the skeleton, where the root joint
+   * is at depth {@code 0}.</p>
+   *
+   * <p>By default, the maximum depth is {@code 16}.</p>
+   *
+   * @return The maximum joint depth
+   */
+
+  @Value.Default
+  default int maximumDepth()
+  {
+    return 16;
+  }
+
+  /**
+   * <p>The number of actions in the skeleton. Each action animates every
+   * joint in the skeleton.</p>
+   *
+   * <p>By default, the skeleton has a single action.</p>
+   *
+   * @return The number of actions
+   */
+
+  @Value.Default
+  default int actionCount()
+  {
+    return 1;
+  }
+
+  /**
+   * <p>The frame rate of each action.</p>
+   *
+   * <p>By default, the frame rate is {@code 60}.</p>
+   *
+   * @return The frames per second of each action
+   */
+
+  @Value.Default
+  default int framesPerSecond()
+  {
+    return 60;
+  }
+
+  /**
+   * <p>The duration of each action in frames.</p>
+   *
+   * <p>By default, the duration is {@code 240}.</p>
+   *
+   * @return The number of frames in each action
+   */
+
+  @Value.Default
+  default int frameCount()
+  {
+    return 240;
+  }
+
+  /**
+   * <p>The number of frames between keyframes on each curve. Smaller values
+   * produce denser curves. The last frame of each action always has a
+   * keyframe.</p>
+   *
+   * <p>By default, every frame has a keyframe.</p>
+   *
+   * @return The number of frames between keyframes
+   */
+
+  @Value.Default
+  default int keyframeInterval()
+  {
+    return 1;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.jointCount() < 1) {
+      throw new IllegalArgumentException("Joint count must be at least 1");
+    }
+    if (this.maximumDepth() < 0) {
+      throw new IllegalArgumentException(
+        "Maximum depth must be nonnegative");
+    }
+    if (this.jointCount() > 1 && this.maximumDepth() < 1) {
+      throw new IllegalArgumentException(
+        "Maximum depth must be at least 1 for skeletons with more than one joint");
+    }
+    if (this.actionCount() < 0) {
+      throw new IllegalArgumentException(
+        "Action count must be nonnegative");
+    }
+    if (this.framesPerSecond() < 1) {
+      throw new IllegalArgumentException(
+        "Frames per second must be at least 1");
+    }
+    if (this.frameCount() < 1) {
+      throw new IllegalArgumentException("Frame count must be at least 1");
+    }
+    if (this.keyframeInterval() < 1) {
+      throw new IllegalArgumentException(
+        "Keyframe interval must be at least 1");
+    }
+  }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.generators;
+
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.CaCurveEasing;
+import com.io7m.jcalcium.core.CaCurveInterpolation;
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.definitions.CaDefinitionJoint;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionCurves;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeOrientation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeOrientationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeScale;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeScaleType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveOrientation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveScale;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * <p>Deterministic generation of large synthetic skeletons for load and
+ * stress testing.</p>
+ *
+ * <p>Unlike {@link CaDefinitionSkeletonGenerator}, which produces small
+ * random skeletons for property tests, the skeletons produced here are
+ * shaped like production rigs: long chains of joints with occasional
+ * branches, and actions that animate the translation, orientation, and
+ * scale of every joint. Equal parameters always produce equal
+ * skeletons.</p>
+ */
+
+public final class CaSyntheticSkeletons
+{
+  private static final Logger LOG;
+
+  /**
+   * The number of most recently created joints that are considered as
+   * parents for each new joint.
+   */
+
+  private static final int PARENT_WINDOW = 4;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaSyntheticSkeletons.class);
+  }
+
+  private CaSyntheticSkeletons()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param index The joint index
+   *
+   * @return The name of the joint with the given index in synthetic skeletons
+   */
+
+  public static CaJointName jointName(
+    final int index)
+  {
+    return CaJointName.of(String.format("joint.%05d", Integer.valueOf(index)));
+  }
+
+  /**
+   * @param index The action index
+   *
+   * @return The name of the action with the given index in synthetic skeletons
+   */
+
+  public static CaActionName actionName(
+    final int index)
+  {
+    return CaActionName.of(String.format("action.%03d", Integer.valueOf(index)));
+  }
+
+  /**
+   * Generate a skeleton.
+   *
+   * @param parameters The skeleton parameters
+   *
+   * @return A skeleton definition
+   */
+
+  public static CaDefinitionSkeleton generate(
+    final CaSyntheticSkeletonParameters parameters)
+  {
+    NullCheck.notNull(parameters, "Parameters");
+
+    final Random random = new Random(parameters.seed());
+    final Map<CaJointName, CaDefinitionJoint> joints =
+      generateJoints(random, parameters);
+
+    Map<CaActionName, CaDefinitionActionType> actions = HashMap.empty();
+    for (int index = 0; index < parameters.actionCount(); ++index) {
+      final CaDefinitionActionType action =
+        generateAction(random, parameters, actionName(index));
+      actions = actions.put(action.name(), action);
+    }
+
+    LOG.debug(
+      "generated skeleton {}: {} joints, {} actions",
+      parameters.name().value(),
+      Integer.valueOf(joints.size()),
+      Integer.valueOf(actions.size()));
+
+    final CaDefinitionSkeleton.Builder sb = CaDefinitionSkeleton.builder();
+    sb.setName(parameters.name());
+    sb.setJoints(joints);
+    sb.setActions(actions);
+    return sb.build();
+  }
+
+  private static Map<CaJointName, CaDefinitionJoint> generateJoints(
+    final Random random,
+    final CaSyntheticSkeletonParameters parameters)
+  {
+    final int joint_count = parameters.jointCount();
+    final int maximum_depth = parameters.maximumDepth();
+    final int[] depths = new int[joint_count];
+
+    /*
+     * The root joint must have an identity transform.
+     */
+
+    Map<CaJointName, CaDefinitionJoint> joints = HashMap.of(
+      jointName(0),
+      CaDefinitionJoint.of(
+        jointName(0),
+        Optional.empty(),
+        new PVectorI3D<>(0.0, 0.0, 0.0),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0)));
+
+    /*
+     * Each joint is attached to one of the few most recently created joints
+     * that can still accept children without exceeding the maximum depth.
+     * This produces long chains with occasional branches in the manner of a
+     * typical character rig.
+     */
+
+    final ArrayList<Integer> parents = new ArrayList<>(joint_count);
+    if (maximum_depth > 0) {
+      parents.add(Integer.valueOf(0));
+    }
+
+    for (int index = 1; index < joint_count; ++index) {
+      final int window = Math.min(parents.size(), PARENT_WINDOW);
+      final int parent =
+        parents.get(parents.size() - 1 - random.nextInt(window)).intValue();
+
+      depths[index] = depths[parent] + 1;
+      if (depths[index] < maximum_depth) {
+        parents.add(Integer.valueOf(index));
+      }
+
+      joints = joints.put(
+        jointName(index),
+        CaDefinitionJoint.of(
+          jointName(index),
+          Optional.of(jointName(parent)),
+          new PVectorI3D<>(0.0, 0.5 + random.nextDouble(), 0.0),
+          randomOrientation(random),
+          new VectorI3D(1.0, 1.0, 1.0)));
+    }
+
+    return joints;
+  }
+
+  private static CaDefinitionActionType generateAction(
+    final Random random,
+    final CaSyntheticSkeletonParameters parameters,
+    final CaActionName name)
+  {
+    Map<CaJointName, List<CaDefinitionCurveType>> curves = HashMap.empty();
+    for (int index = 0; index < parameters.jointCount(); ++index) {
+      final CaJointName joint = jointName(index);
+      curves = curves.put(joint, List.of(
+        translationCurve(random, parameters, joint),
+        orientationCurve(random, parameters, joint),
+        scaleCurve(random, parameters, joint)));
+    }
+
+    final CaDefinitionActionCurves.Builder b =
+      CaDefinitionActionCurves.builder();
+    b.setName(name);
+    b.setFramesPerSecond(parameters.framesPerSecond());
+    b.setCurves(curves);
+    return b.build();
+  }
+
+  /**
+   * @return The frames at which keyframes appear on each curve
+   */
+
+  private static int[] keyframeIndices(
+    final CaSyntheticSkeletonParameters parameters)
+  {
+    final int frame_count = parameters.frameCount();
+    final int interval = parameters.keyframeInterval();
+    final int intervals = (frame_count + interval - 1) / interval;
+
+    final int[] indices = new int[intervals + 1];
+    for (int index = 0; index < intervals; ++index) {
+      indices[index] = index * interval;
+    }
+    indices[intervals] = frame_count;
+    return indices;
+  }
+
+  private static CaCurveInterpolation randomInterpolation(
+    final Random random)
+  {
+    final CaCurveInterpolation[] values = CaCurveInterpolation.values();
+    return values[random.nextInt(values.length)];
+  }
+
+  private static CaCurveEasing randomEasing(
+    final Random random)
+  {
+    final CaCurveEasing[] values = CaCurveEasing.values();
+    return values[random.nextInt(values.length)];
+  }
+
+  private static QuaternionI4D randomOrientation(
+    final Random random)
+  {
+    final double angle = (random.nextDouble() - 0.5) * Math.PI;
+    final VectorI3D axis = VectorI3D.normalize(new VectorI3D(
+      random.nextDouble() - 0.5,
+      random.nextDouble() - 0.5,
+      0.5 + random.nextDouble()));
+    return QuaternionI4D.makeFromAxisAngle(axis, angle);
+  }
+
+  private static CaDefinitionCurveType translationCurve(
+    final Random random,
+    final CaSyntheticSkeletonParameters parameters,
+    final CaJointName joint)
+  {
+    final int[] indices = keyframeIndices(parameters);
+    final ArrayList<CaDefinitionCurveKeyframeTranslationType> keyframes =
+      new ArrayList<>(indices.length);
+
+    for (int index = 0; index < indices.length; ++index) {
+      final CaDefinitionCurveKeyframeTranslation.Builder kb =
+        CaDefinitionCurveKeyframeTranslation.builder();
+      kb.setIndex(indices[index]);
+      kb.setInterpolation(randomInterpolation(random));
+      kb.setEasing(randomEasing(random));
+      kb.setTranslation(new PVectorI3D<CaSpaceJointType>(
+        random.nextDouble() - 0.5,
+        0.5 + random.nextDouble(),
+        random.nextDouble() - 0.5));
+      keyframes.add(kb.build());
+    }
+
+    final CaDefinitionCurveTranslation.Builder b =
+      CaDefinitionCurveTranslation.builder();
+    b.setJoint(joint);
+    b.setKeyframes(List.ofAll(keyframes));
+    return b.build();
+  }
+
+  private static CaDefinitionCurveType orientationCurve(
+    final Random random,
+    final CaSyntheticSkeletonParameters parameters,
+    final CaJointName joint)
+  {
+    final int[] indices = keyframeIndices(parameters);
+    final ArrayList<CaDefinitionCurveKeyframeOrientationType> keyframes =
+      new ArrayList<>(indices.length);
+
+    for (int index = 0; index < indices.length; ++index) {
+      final CaDefinitionCurveKeyframeOrientation.Builder kb =
+        CaDefinitionCurveKeyframeOrientation.builder();
+      kb.setIndex(indices[index]);
+      kb.setInterpolation(randomInterpolation(random));
+      kb.setEasing(randomEasing(random));
+      kb.setOrientation(randomOrientation(random));
+      keyframes.add(kb.build());
+    }
+
+    final CaDefinitionCurveOrientation.Builder b =
+      CaDefinitionCurveOrientation.builder();
+    b.setJoint(joint);
+    b.setKeyframes(List.ofAll(keyframes));
+    return b.build();
+  }
+
+  private static CaDefinitionCurveType scaleCurve(
+    final Random random,
+    final CaSyntheticSkeletonParameters parameters,
+    final CaJointName joint)
+  {
+    final int[] indices = keyframeIndices(parameters);
+    final ArrayList<CaDefinitionCurveKeyframeScaleType> keyframes =
+      new ArrayList<>(indices.length);
+
+    for (int index = 0; index < indices.length; ++index) {
+      final double scale = 0.75 + (random.nextDouble() * 0.5);
+      final CaDefinitionCurveKeyframeScale.Builder kb =
+        CaDefinitionCurveKeyframeScale.builder();
+      kb.setIndex(indices[index]);
+      kb.setInterpolation(randomInterpolation(random));
+      kb.setEasing(randomEasing(random));
+      kb.setScale(new VectorI3D(scale, scale, scale));
+      keyframes.add(kb.build());
+    }
+
+    final CaDefinitionCurveScale.Builder b =
+      CaDefinitionCurveScale.builder();
+    b.setJoint(joint);
+    b.setKeyframes(List.ofAll(keyframes));
+    return b.build();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.generators;
+
+import com.io7m.jnull.NullCheck;
+
+/**
+ * The distribution of weights among the joints that influence each vertex
+ * of a synthetic mesh.
+ */
+
+public enum CaSyntheticWeightDistribution
+{
+  /**
+   * Every influencing joint has the same weight.
+   */
+
+  WEIGHT_DISTRIBUTION_EQUAL("equal"),
+
+  /**
+   * Each influencing joint has half the weight of the previous joint, so
+   * that one joint dominates in the manner of a typical hand-painted rig.
+   */
+
+  WEIGHT_DISTRIBUTION_FALLOFF("falloff"),
+
+  /**
+   * Each influencing joint has a random weight.
+   */
+
+  WEIGHT_DISTRIBUTION_RANDOM("random");
+
+  private final String name;
+
+  CaSyntheticWeightDistribution(
+    final String in_name)
+  {
+    this.name = NullCheck.notNull(in_name, "Name");
+  }
+
+  /**
+   * @param name The name of a distribution
+   *
+   * @return The distribution with the given name
+   */
+
+  public static CaSyntheticWeightDistribution of(
+    final String name)
+  {
+    switch (NullCheck.notNull(name, "Name")) {
+      case "equal":
+        return WEIGHT_DISTRIBUTION_EQUAL;
+      case "falloff":
+        return WEIGHT_DISTRIBUTION_FALLOFF;
+      case "random":
+        return WEIGHT_DISTRIBUTION_RANDOM;
+      default: {
+        throw new IllegalArgumentException(
+          "Unrecognized weight distribution: " + name);
+      }
+    }
+  }
+
+  /**
+   * @return The name of the distribution
+   */
+
+  public String getName()
+  {
+    return this.name;
+  }
+}
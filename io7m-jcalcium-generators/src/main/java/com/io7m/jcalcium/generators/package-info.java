@@ -15,7 +15,7 @@
  */
 
 /**
- * Quickcheck generators.
+ * Quickcheck generators and deterministic synthetic asset generators.
  */
 
 @com.io7m.jnull.NonNullByDefault
@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
+import com.io7m.jnull.NullCheck;
+import javaslang.collection.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>The default implementation of the {@link CaLoaderAsynchronousType}
+ * interface.</p>
+ *
+ * <p>Loading is split into two stages: Files are read in their entirety
+ * using file channels on an I/O executor, and are then decoded on a separate
+ * decoding executor. This allows the decoding of one file to overlap with
+ * the reading of the next. Both executors are supplied by the caller and
+ * should typically be bounded thread pools.</p>
+ */
+
+public final class CaLoaderAsynchronous implements CaLoaderAsynchronousType
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaLoaderAsynchronous.class);
+  }
+
+  private final Executor exec_io;
+  private final Executor exec_decode;
+  private final CaLoaderProviderCache providers;
+  private final CaMetricsType metrics;
+
+  private CaLoaderAsynchronous(
+    final Executor in_exec_io,
+    final Executor in_exec_decode,
+    final CaMetricsType in_metrics)
+  {
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
+    this.exec_io = NullCheck.notNull(in_exec_io, "I/O executor");
+    this.exec_decode = NullCheck.notNull(in_exec_decode, "Decode executor");
+    this.providers = new CaLoaderProviderCache();
+  }
+
+  /**
+   * Create a new asynchronous loader.
+   *
+   * @param exec_io     The executor used to read files
+   * @param exec_decode The executor used to decode skeletons
+   *
+   * @return A new loader
+   */
+
+  public static CaLoaderAsynchronousType create(
+    final Executor exec_io,
+    final Executor exec_decode)
+  {
+    return new CaLoaderAsynchronous(
+      exec_io, exec_decode, CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new asynchronous loader that publishes the size of each
+   * successfully decoded file, and the time taken to decode it, to the given
+   * metrics receiver.
+   *
+   * @param exec_io     The executor used to read files
+   * @param exec_decode The executor used to decode skeletons
+   * @param metrics     A metrics receiver
+   *
+   * @return A new loader
+   */
+
+  public static CaLoaderAsynchronousType createWithMetrics(
+    final Executor exec_io,
+    final Executor exec_decode,
+    final CaMetricsType metrics)
+  {
+    return new CaLoaderAsynchronous(exec_io, exec_decode, metrics);
+  }
+
+  private static ByteBuffer read(
+    final Path path)
+  {
+    LOG.debug("reading {}", path);
+
+    try (final FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > (long) Integer.MAX_VALUE) {
+        throw new IOException("File is too large: " + size + " octets");
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer;
+    } catch (final IOException e) {
+      throw new CompletionException(
+        new CaLoaderFileException(path.toUri(), e));
+    }
+  }
+
+  private CaSkeleton decode(
+    final Path path,
+    final ByteBuffer data)
+  {
+    LOG.debug("decoding {}", path);
+
+    final boolean measure = this.metrics.isEnabled();
+    long time_then = 0L;
+    if (measure) {
+      time_then = System.nanoTime();
+    }
+
+    try {
+      final CaLoaderFormatProviderType provider =
+        this.providers.provider(path);
+      final CaLoaderType loader = provider.loaderCreate();
+      final CaSkeleton skeleton = loader.loadCompiledSkeletonFromStream(
+        new ByteArrayInputStream(data.array(), 0, data.limit()),
+        path.toUri());
+
+      if (measure) {
+        this.metrics.onLoad(
+          provider.loaderFormat(),
+          Integer.toUnsignedLong(data.limit()),
+          System.nanoTime() - time_then);
+      }
+      return skeleton;
+    } catch (final CaLoaderException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  @Override
+  public CompletableFuture<CaSkeleton> loadCompiledSkeletonFromFile(
+    final Path file)
+  {
+    NullCheck.notNull(file, "File");
+
+    return CompletableFuture
+      .supplyAsync(() -> read(file), this.exec_io)
+      .thenApplyAsync(data -> this.decode(file, data), this.exec_decode);
+  }
+
+  @Override
+  public CompletableFuture<Seq<CaSkeleton>> loadCompiledSkeletonsFromFiles(
+    final Seq<Path> files)
+  {
+    NullCheck.notNull(files, "Files");
+
+    final Seq<CompletableFuture<CaSkeleton>> futures =
+      files.map(this::loadCompiledSkeletonFromFile);
+
+    final CompletableFuture<Seq<CaSkeleton>> result =
+      new CompletableFuture<>();
+
+    /*
+     * Fail fast: The first failure completes the result, rather than waiting
+     * for all of the other files to be loaded.
+     */
+
+    futures.forEach(f -> f.whenComplete((ignored, error) -> {
+      if (error != null) {
+        result.completeExceptionally(error);
+      }
+    }));
+
+    CompletableFuture.allOf(futures.toJavaArray(CompletableFuture.class))
+      .thenRun(() -> result.complete(futures.map(CompletableFuture::join)));
+
+    return result;
+  }
+}
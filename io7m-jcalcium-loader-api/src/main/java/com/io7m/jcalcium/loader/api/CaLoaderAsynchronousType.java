@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import javaslang.collection.Seq;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>The type of asynchronous loaders.</p>
+ *
+ * <p>An asynchronous loader reads and decodes compiled skeletons from files
+ * without blocking the calling thread. Failed loads complete the returned
+ * futures exceptionally with a {@link CaLoaderException}.</p>
+ */
+
+public interface CaLoaderAsynchronousType
+{
+  /**
+   * Load a skeleton from the given file.
+   *
+   * @param file The file
+   *
+   * @return A future representing the load in progress
+   */
+
+  CompletableFuture<CaSkeleton> loadCompiledSkeletonFromFile(
+    Path file);
+
+  /**
+   * Load skeletons from all of the given files concurrently. The returned
+   * future completes when all files have been loaded, or completes
+   * exceptionally as soon as any one of the files fails to load.
+   *
+   * @param files The files
+   *
+   * @return A future yielding the skeletons in the order of {@code files}
+   */
+
+  CompletableFuture<Seq<CaSkeleton>> loadCompiledSkeletonsFromFiles(
+    Seq<Path> files);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jnull.NullCheck;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe cache of loader providers by file suffix, used to avoid
+ * repeated service loader scans.
+ */
+
+final class CaLoaderProviderCache
+{
+  private final ConcurrentHashMap<String, CaLoaderFormatProviderType> providers;
+
+  CaLoaderProviderCache()
+  {
+    this.providers = new ConcurrentHashMap<>(8);
+  }
+
+  private static String suffixOf(
+    final Path path)
+  {
+    final String text = path.toString();
+    final int index = text.lastIndexOf('.');
+    if (index != -1) {
+      return text.substring(index + 1);
+    }
+    return "";
+  }
+
+  CaLoaderFormatProviderType provider(
+    final Path path)
+    throws CaLoaderNoSuchProviderException
+  {
+    NullCheck.notNull(path, "Path");
+
+    final String suffix = suffixOf(path);
+    final CaLoaderFormatProviderType existing = this.providers.get(suffix);
+    if (existing != null) {
+      return existing;
+    }
+
+    final CaLoaderFormatProviderType provider =
+      CaLoaders.findProvider(path, Optional.empty());
+    this.providers.put(suffix, provider);
+    return provider;
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.junreachable.UnreachableCodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default implementation of the {@link CaSkeletonRegistryType}
+ * interface.
+ */
+
+public final class CaSkeletonRegistry implements CaSkeletonRegistryType
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaSkeletonRegistry.class);
+  }
+
+  private final CaSkeletonRegistryConfiguration config;
+  private final ConcurrentHashMap<Path, Slot> slots;
+  private final CaLoaderProviderCache providers;
+  private final AtomicLong clock;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong failures;
+  private final AtomicLong evictions;
+  private final AtomicLong load_time;
+  private final CaMetricsType metrics;
+
+  private CaSkeletonRegistry(
+    final CaSkeletonRegistryConfiguration in_config,
+    final CaMetricsType in_metrics)
+  {
+    this.config = NullCheck.notNull(in_config, "Config");
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
+    this.slots = new ConcurrentHashMap<>(this.config.maximumEntries());
+    this.providers = new CaLoaderProviderCache();
+    this.clock = new AtomicLong();
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+    this.failures = new AtomicLong();
+    this.evictions = new AtomicLong();
+    this.load_time = new AtomicLong();
+  }
+
+  /**
+   * Create a new registry.
+   *
+   * @param config The registry configuration
+   *
+   * @return A new registry
+   */
+
+  public static CaSkeletonRegistryType create(
+    final CaSkeletonRegistryConfiguration config)
+  {
+    return new CaSkeletonRegistry(config, CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a new registry that publishes the size of each successfully
+   * loaded file, and the time taken to load it, to the given metrics
+   * receiver.
+   *
+   * @param config  The registry configuration
+   * @param metrics A metrics receiver
+   *
+   * @return A new registry
+   */
+
+  public static CaSkeletonRegistryType createWithMetrics(
+    final CaSkeletonRegistryConfiguration config,
+    final CaMetricsType metrics)
+  {
+    return new CaSkeletonRegistry(config, metrics);
+  }
+
+  private static Slot slotFor(
+    final @Nullable Slot current,
+    final FileTime time)
+  {
+    if (current != null && Objects.equals(current.time, time)) {
+      return current;
+    }
+    return new Slot(time);
+  }
+
+  private static CaSkeletonRegistryEntry await(
+    final Slot slot)
+    throws CaLoaderException
+  {
+    try {
+      return slot.future.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof CaLoaderException) {
+        throw (CaLoaderException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new UnreachableCodeException(cause);
+    }
+  }
+
+  @Override
+  public CaSkeletonRegistryEntry get(
+    final Path file)
+    throws CaLoaderException
+  {
+    NullCheck.notNull(file, "File");
+
+    final Path path = file.toAbsolutePath().normalize();
+    final FileTime time;
+    try {
+      time = Files.getLastModifiedTime(path);
+    } catch (final IOException e) {
+      throw new CaLoaderFileException(path.toUri(), e);
+    }
+
+    final Slot slot =
+      this.slots.compute(path, (p, current) -> slotFor(current, time));
+    slot.used = this.clock.incrementAndGet();
+
+    if (slot.claimed.compareAndSet(false, true)) {
+      this.misses.incrementAndGet();
+      this.load(path, slot);
+      this.evictExcess();
+    } else {
+      this.hits.incrementAndGet();
+    }
+
+    return await(slot);
+  }
+
+  private void load(
+    final Path path,
+    final Slot slot)
+    throws CaLoaderException
+  {
+    LOG.debug("loading {}", path);
+
+    final long time_then = System.nanoTime();
+    try {
+      final CaLoaderFormatProviderType provider = this.providers.provider(path);
+      final CaLoaderType loader = provider.loaderCreate();
+      final CaSkeleton skeleton;
+      try (final InputStream is = Files.newInputStream(path)) {
+        skeleton = loader.loadCompiledSkeletonFromStream(is, path.toUri());
+      }
+
+      final CaSkeletonRestPoseDType rest_pose =
+        CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), skeleton);
+
+      if (this.metrics.isEnabled()) {
+        this.metrics.onLoad(
+          provider.loaderFormat(),
+          Files.size(path),
+          System.nanoTime() - time_then);
+      }
+
+      slot.future.complete(
+        CaSkeletonRegistryEntry.of(path, slot.time, skeleton, rest_pose));
+    } catch (final IOException e) {
+      final CaLoaderFileException ex =
+        new CaLoaderFileException(path.toUri(), e);
+      this.fail(path, slot, ex);
+      throw ex;
+    } catch (final Throwable e) {
+
+      /*
+       * Other threads may be waiting on the slot, so the slot must be
+       * completed whatever is raised, including errors.
+       */
+
+      this.fail(path, slot, e);
+      throw e;
+    } finally {
+      this.load_time.addAndGet(System.nanoTime() - time_then);
+    }
+  }
+
+  private void fail(
+    final Path path,
+    final Slot slot,
+    final Throwable e)
+  {
+    this.failures.incrementAndGet();
+    this.slots.remove(path, slot);
+    slot.future.completeExceptionally(e);
+  }
+
+  private void evictExcess()
+  {
+    final int maximum = this.config.maximumEntries();
+    while (this.slots.size() > maximum) {
+      Map.Entry<Path, Slot> oldest = null;
+      for (final Map.Entry<Path, Slot> entry : this.slots.entrySet()) {
+        if (oldest == null || entry.getValue().used < oldest.getValue().used) {
+          oldest = entry;
+        }
+      }
+
+      if (oldest == null) {
+        return;
+      }
+
+      if (this.slots.remove(oldest.getKey(), oldest.getValue())) {
+        LOG.debug("evicted {}", oldest.getKey());
+        this.evictions.incrementAndGet();
+      }
+    }
+  }
+
+  @Override
+  public void evict(
+    final Path file)
+  {
+    NullCheck.notNull(file, "File");
+    if (this.slots.remove(file.toAbsolutePath().normalize()) != null) {
+      this.evictions.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    this.evictions.addAndGet((long) this.slots.size());
+    this.slots.clear();
+  }
+
+  @Override
+  public CaSkeletonRegistryStatistics statistics()
+  {
+    return CaSkeletonRegistryStatistics.of(
+      this.hits.get(),
+      this.misses.get(),
+      this.failures.get(),
+      this.evictions.get(),
+      this.load_time.get(),
+      this.slots.size());
+  }
+
+  private static final class Slot
+  {
+    private final FileTime time;
+    private final CompletableFuture<CaSkeletonRegistryEntry> future;
+    private final AtomicBoolean claimed;
+    private volatile long used;
+
+    Slot(
+      final FileTime in_time)
+    {
+      this.time = NullCheck.notNull(in_time, "Time");
+      this.future = new CompletableFuture<>();
+      this.claimed = new AtomicBoolean(false);
+    }
+  }
+}
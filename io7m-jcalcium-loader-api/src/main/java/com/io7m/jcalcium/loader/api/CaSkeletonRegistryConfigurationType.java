@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Configuration values for skeleton registries.
+ */
+
+@CaImmutableStyleType
+@Value.Immutable
+public interface CaSkeletonRegistryConfigurationType
+{
+  /**
+   * The maximum number of entries that will be held by the registry. When
+   * the limit is exceeded, the least recently requested entry is evicted.
+   *
+   * @return The maximum number of entries
+   */
+
+  @Value.Parameter
+  @Value.Default
+  default int maximumEntries()
+  {
+    return 64;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    Preconditions.checkPreconditionI(
+      this.maximumEntries(),
+      this.maximumEntries() > 0,
+      x -> "Maximum entries must be positive");
+  }
+}
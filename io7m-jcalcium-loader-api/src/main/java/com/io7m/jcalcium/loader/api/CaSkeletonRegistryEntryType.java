@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import org.immutables.value.Value;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A loaded skeleton held by a registry. Entries are shared between all
+ * consumers of a registry and must be treated as read-only.
+ */
+
+@CaImmutableStyleType
+@Value.Immutable
+public interface CaSkeletonRegistryEntryType
+{
+  /**
+   * @return The absolute path of the file from which the skeleton was loaded
+   */
+
+  @Value.Parameter
+  Path path();
+
+  /**
+   * @return The modification time of the file at the time it was loaded
+   */
+
+  @Value.Parameter
+  FileTime modificationTime();
+
+  /**
+   * @return The loaded skeleton
+   */
+
+  @Value.Parameter
+  CaSkeleton skeleton();
+
+  /**
+   * @return The rest pose of the loaded skeleton
+   */
+
+  @Value.Parameter
+  CaSkeletonRestPoseDType restPoseD();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A snapshot of the statistics of a skeleton registry.
+ */
+
+@CaImmutableStyleType
+@Value.Immutable
+public interface CaSkeletonRegistryStatisticsType
+{
+  /**
+   * @return The number of requests satisfied by an existing or in-progress
+   * load
+   */
+
+  @Value.Parameter
+  long hits();
+
+  /**
+   * @return The number of requests that required a skeleton to be loaded
+   */
+
+  @Value.Parameter
+  long misses();
+
+  /**
+   * @return The number of loads that failed
+   */
+
+  @Value.Parameter
+  long failures();
+
+  /**
+   * @return The number of entries evicted from the registry
+   */
+
+  @Value.Parameter
+  long evictions();
+
+  /**
+   * @return The total time spent loading skeletons, in nanoseconds
+   */
+
+  @Value.Parameter
+  long loadTimeNanoseconds();
+
+  /**
+   * @return The number of entries currently held by the registry
+   */
+
+  @Value.Parameter
+  int size();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.loader.api;
+
+import java.nio.file.Path;
+
+/**
+ * <p>The type of skeleton registries.</p>
+ *
+ * <p>A registry loads compiled skeletons from files and shares the results
+ * between all callers. Entries are keyed by the absolute path and the
+ * modification time of the file, so a file that is modified after being
+ * loaded will be loaded again on the next request. Concurrent requests for
+ * the same file result in exactly one load.</p>
+ *
+ * <p>Implementations are required to be safe to use from multiple
+ * threads.</p>
+ */
+
+public interface CaSkeletonRegistryType
+{
+  /**
+   * Retrieve the skeleton in the given file, loading it if it is not already
+   * present in the registry.
+   *
+   * @param file The file
+   *
+   * @return A shared registry entry
+   *
+   * @throws CaLoaderException On errors
+   */
+
+  CaSkeletonRegistryEntry get(
+    Path file)
+    throws CaLoaderException;
+
+  /**
+   * Remove the entry for the given file, if one exists.
+   *
+   * @param file The file
+   */
+
+  void evict(
+    Path file);
+
+  /**
+   * Remove all entries.
+   */
+
+  void clear();
+
+  /**
+   * @return A snapshot of the registry statistics
+   */
+
+  CaSkeletonRegistryStatistics statistics();
+}
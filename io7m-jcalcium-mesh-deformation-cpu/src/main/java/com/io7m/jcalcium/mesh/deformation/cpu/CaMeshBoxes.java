@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jtensors.MatrixReadable4x4DType;
+import com.io7m.jtensors.VectorM3D;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Functions over axis-aligned bounding boxes.
+ */
+
+final class CaMeshBoxes
+{
+  private CaMeshBoxes()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Transform the box with the given center and half-extents by the affine
+   * matrix {@code m}, and extend the box {@code [minimum, maximum]} to
+   * include the axis-aligned bounds of the result.
+   */
+
+  static void transformUnionD(
+    final MatrixReadable4x4DType m,
+    final double cx,
+    final double cy,
+    final double cz,
+    final double ex,
+    final double ey,
+    final double ez,
+    final VectorM3D minimum,
+    final VectorM3D maximum)
+  {
+    final double x_center = rowCenter(m, 0, cx, cy, cz);
+    final double y_center = rowCenter(m, 1, cx, cy, cz);
+    final double z_center = rowCenter(m, 2, cx, cy, cz);
+    final double x_extent = rowExtent(m, 0, ex, ey, ez);
+    final double y_extent = rowExtent(m, 1, ex, ey, ez);
+    final double z_extent = rowExtent(m, 2, ex, ey, ez);
+
+    minimum.set3D(
+      Math.min(minimum.getXD(), x_center - x_extent),
+      Math.min(minimum.getYD(), y_center - y_extent),
+      Math.min(minimum.getZD(), z_center - z_extent));
+    maximum.set3D(
+      Math.max(maximum.getXD(), x_center + x_extent),
+      Math.max(maximum.getYD(), y_center + y_extent),
+      Math.max(maximum.getZD(), z_center + z_extent));
+  }
+
+  private static double rowCenter(
+    final MatrixReadable4x4DType m,
+    final int row,
+    final double x,
+    final double y,
+    final double z)
+  {
+    return (m.getRowColumnD(row, 0) * x)
+      + (m.getRowColumnD(row, 1) * y)
+      + (m.getRowColumnD(row, 2) * z)
+      + m.getRowColumnD(row, 3);
+  }
+
+  private static double rowExtent(
+    final MatrixReadable4x4DType m,
+    final int row,
+    final double x,
+    final double y,
+    final double z)
+  {
+    return (Math.abs(m.getRowColumnD(row, 0)) * x)
+      + (Math.abs(m.getRowColumnD(row, 1)) * y)
+      + (Math.abs(m.getRowColumnD(row, 2)) * z);
+  }
+
+  /**
+   * Set {@code [minimum, maximum]} to the empty box.
+   */
+
+  static void empty(
+    final VectorM3D minimum,
+    final VectorM3D maximum)
+  {
+    minimum.set3D(
+      Double.POSITIVE_INFINITY,
+      Double.POSITIVE_INFINITY,
+      Double.POSITIVE_INFINITY);
+    maximum.set3D(
+      Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY);
+  }
+}
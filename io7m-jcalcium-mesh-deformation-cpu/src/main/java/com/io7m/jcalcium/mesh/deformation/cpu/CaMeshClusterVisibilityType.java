@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+/**
+ * A predicate that determines whether a mesh cluster is visible, given its
+ * bounds in the current pose.
+ *
+ * @see CaMeshClusters
+ */
+
+public interface CaMeshClusterVisibilityType
+{
+  /**
+   * Determine whether the given cluster is visible. The bounds are expressed
+   * in the deformed object space of the mesh.
+   *
+   * @param cluster The cluster index
+   * @param min_x   The minimum x coordinate of the cluster bounds
+   * @param min_y   The minimum y coordinate of the cluster bounds
+   * @param min_z   The minimum z coordinate of the cluster bounds
+   * @param max_x   The maximum x coordinate of the cluster bounds
+   * @param max_y   The maximum y coordinate of the cluster bounds
+   * @param max_z   The maximum z coordinate of the cluster bounds
+   *
+   * @return {@code true} iff the cluster should be deformed
+   */
+
+  boolean isClusterVisible(
+    int cluster,
+    double min_x,
+    double min_y,
+    double min_z,
+    double max_x,
+    double max_y,
+    double max_z);
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectDeformedType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonReadableDType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorM3D;
+import com.io7m.jtensors.VectorM4D;
+import com.io7m.jtensors.VectorM4L;
+import com.io7m.jtensors.VectorWritable3DType;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import javaslang.Tuple2;
+
+import java.util.Arrays;
+
+/**
+ * <p>A partition of the vertices of a mesh into <i>clusters</i>.</p>
+ *
+ * <p>Each cluster is a contiguous range of vertices. For each cluster, the set
+ * of joints that influence the vertices of the cluster with nonzero weight is
+ * stored, along with the axis-aligned bounding box of the vertex positions of
+ * the cluster in the rest pose.</p>
+ *
+ * <p>Because a deformed vertex is a weighted combination of the vertex
+ * transformed by each of its joints, a conservative bound for a cluster in
+ * any pose can be computed from the rest bound and the current transforms of
+ * the joints of the cluster, without deforming any vertices. This allows
+ * deformers to skip clusters that are known not to be visible.</p>
+ *
+ * <p>The bounds assume that joint weights are nonnegative and sum to at most
+ * {@code 1.0}. Vertices whose weights sum to less than {@code 1.0} are drawn
+ * toward the origin, so the origin is included in the posed bounds of any
+ * cluster containing such vertices.</p>
+ *
+ * @see CaMeshDeformerCPUDType#deformClustersD(CaEvaluatedSkeletonReadableDType,
+ * CaMeshDeformableCPUType, CaMeshClusterVisibilityType)
+ */
+
+public final class CaMeshClusters
+{
+  private static final double WEIGHT_SUM_TOLERANCE = 1.0e-3;
+
+  private final int vertex_count;
+  private final int cluster_vertex_count;
+  private final int cluster_count;
+  private final int[] joint_offsets;
+  private final int[] joints;
+  private final double[] rest_bounds;
+  private final boolean[] includes_origin;
+
+  private CaMeshClusters(
+    final int in_vertex_count,
+    final int in_cluster_vertex_count,
+    final int in_cluster_count,
+    final int[] in_joint_offsets,
+    final int[] in_joints,
+    final double[] in_rest_bounds,
+    final boolean[] in_includes_origin)
+  {
+    this.vertex_count = in_vertex_count;
+    this.cluster_vertex_count = in_cluster_vertex_count;
+    this.cluster_count = in_cluster_count;
+    this.joint_offsets = in_joint_offsets;
+    this.joints = in_joints;
+    this.rest_bounds = in_rest_bounds;
+    this.includes_origin = in_includes_origin;
+  }
+
+  /**
+   * Partition the given mesh into clusters of at most
+   * {@code cluster_vertex_count} vertices. The rest bounds are computed from
+   * the first source attribute (in name order) that has {@link
+   * CaMeshDeformableAttributeSemantic#POSITION} semantics.
+   *
+   * @param mesh                 The mesh
+   * @param cluster_vertex_count The maximum number of vertices per cluster
+   *
+   * @return The clusters of the mesh
+   */
+
+  public static CaMeshClusters partition(
+    final CaMeshDeformableCPUReadableType mesh,
+    final int cluster_vertex_count)
+  {
+    NullCheck.notNull(mesh, "Mesh");
+    Preconditions.checkPreconditionI(
+      cluster_vertex_count,
+      cluster_vertex_count > 0,
+      x -> "Cluster vertex count must be positive");
+
+    final long mesh_vertex_count = mesh.vertexCount();
+    Preconditions.checkPreconditionL(
+      mesh_vertex_count,
+      Long.compareUnsigned(mesh_vertex_count, (long) Integer.MAX_VALUE) <= 0,
+      x -> "Vertex count must be representable as an integer");
+
+    final CaMeshDeformableAttributeCursorReadableType position =
+      findPosition(mesh);
+
+    final int count = (int) mesh_vertex_count;
+    final int clusters =
+      (int) ((mesh_vertex_count + (long) cluster_vertex_count - 1L)
+        / (long) cluster_vertex_count);
+
+    final int[] joint_offsets = new int[clusters + 1];
+    final double[] rest_bounds = new double[clusters * 6];
+    final boolean[] includes_origin = new boolean[clusters];
+    int[] joints = new int[clusters * 4];
+
+    final VectorM4L indices = new VectorM4L();
+    final VectorM4D weights = new VectorM4D();
+    final VectorM4D vertex_position = new VectorM4D();
+    final IntSortedSet cluster_joints = new IntAVLTreeSet();
+
+    for (int cluster = 0; cluster < clusters; ++cluster) {
+      final int start = cluster * cluster_vertex_count;
+      final int end = Math.min(count, start + cluster_vertex_count);
+      final int bounds = cluster * 6;
+
+      Arrays.fill(rest_bounds, bounds, bounds + 3, Double.POSITIVE_INFINITY);
+      Arrays.fill(rest_bounds, bounds + 3, bounds + 6, Double.NEGATIVE_INFINITY);
+      cluster_joints.clear();
+
+      for (int vertex = start; vertex < end; ++vertex) {
+        mesh.jointIndicesForVertex((long) vertex, indices);
+        mesh.jointWeightsForVertex((long) vertex, weights);
+        addJoint(cluster_joints, indices.getXL(), weights.getXD());
+        addJoint(cluster_joints, indices.getYL(), weights.getYD());
+        addJoint(cluster_joints, indices.getZL(), weights.getZD());
+        addJoint(cluster_joints, indices.getWL(), weights.getWD());
+
+        final double sum =
+          weights.getXD() + weights.getYD() + weights.getZD() + weights.getWD();
+        if (sum < 1.0 - WEIGHT_SUM_TOLERANCE) {
+          includes_origin[cluster] = true;
+        }
+
+        readPosition(position, (long) vertex, vertex_position);
+        include(rest_bounds, bounds, vertex_position);
+      }
+
+      final int joint_start = joint_offsets[cluster];
+      final int joint_end = joint_start + cluster_joints.size();
+      if (joint_end > joints.length) {
+        joints = Arrays.copyOf(joints, Math.max(joint_end, joints.length * 2));
+      }
+
+      int joint_index = joint_start;
+      final IntIterator iter = cluster_joints.iterator();
+      while (iter.hasNext()) {
+        joints[joint_index] = iter.nextInt();
+        ++joint_index;
+      }
+      joint_offsets[cluster + 1] = joint_end;
+    }
+
+    return new CaMeshClusters(
+      count,
+      cluster_vertex_count,
+      clusters,
+      joint_offsets,
+      Arrays.copyOf(joints, joint_offsets[clusters]),
+      rest_bounds,
+      includes_origin);
+  }
+
+  private static CaMeshDeformableAttributeCursorReadableType findPosition(
+    final CaMeshDeformableCPUReadableType mesh)
+  {
+    for (final Tuple2<String, CaMeshDeformableAttributeCursorReadableType> p
+      : mesh.meshSourceCursors()) {
+      if (p._2.semantic() == CaMeshDeformableAttributeSemantic.POSITION) {
+        return p._2;
+      }
+    }
+    throw new IllegalArgumentException(
+      "Mesh must have a source attribute with position semantics");
+  }
+
+  private static void addJoint(
+    final IntSortedSet cluster_joints,
+    final long joint,
+    final double weight)
+  {
+    if (weight != 0.0) {
+      cluster_joints.add(Math.toIntExact(joint));
+    }
+  }
+
+  private static void readPosition(
+    final CaMeshDeformableAttributeCursorReadableType position,
+    final long vertex,
+    final VectorM4D out)
+  {
+    position.setVertex(vertex);
+    switch (position.kind()) {
+      case CURSOR_FLOAT_3: {
+        ((CaMeshDeformableAttributeCursorReadable3Type) position).get3D(out);
+        break;
+      }
+      case CURSOR_FLOAT_4: {
+        ((CaMeshDeformableAttributeCursorReadable4Type) position).get4D(out);
+        break;
+      }
+    }
+  }
+
+  private static void include(
+    final double[] bounds,
+    final int base,
+    final VectorM4D p)
+  {
+    bounds[base] = Math.min(bounds[base], p.getXD());
+    bounds[base + 1] = Math.min(bounds[base + 1], p.getYD());
+    bounds[base + 2] = Math.min(bounds[base + 2], p.getZD());
+    bounds[base + 3] = Math.max(bounds[base + 3], p.getXD());
+    bounds[base + 4] = Math.max(bounds[base + 4], p.getYD());
+    bounds[base + 5] = Math.max(bounds[base + 5], p.getZD());
+  }
+
+  /**
+   * @return The number of vertices in the partitioned mesh
+   */
+
+  public int vertexCount()
+  {
+    return this.vertex_count;
+  }
+
+  /**
+   * @return The maximum number of vertices in each cluster
+   */
+
+  public int clusterVertexCount()
+  {
+    return this.cluster_vertex_count;
+  }
+
+  /**
+   * @return The number of clusters
+   */
+
+  public int clusterCount()
+  {
+    return this.cluster_count;
+  }
+
+  /**
+   * @param cluster The cluster index
+   *
+   * @return The first vertex of the cluster
+   */
+
+  public int clusterVerticesStart(
+    final int cluster)
+  {
+    return cluster * this.cluster_vertex_count;
+  }
+
+  /**
+   * @param cluster The cluster index
+   *
+   * @return The vertex after the last vertex of the cluster
+   */
+
+  public int clusterVerticesEnd(
+    final int cluster)
+  {
+    return Math.min(
+      this.vertex_count, (cluster + 1) * this.cluster_vertex_count);
+  }
+
+  /**
+   * @param cluster The cluster index
+   *
+   * @return The number of joints that influence the cluster
+   */
+
+  public int clusterJointCount(
+    final int cluster)
+  {
+    return this.joint_offsets[cluster + 1] - this.joint_offsets[cluster];
+  }
+
+  /**
+   * @param cluster The cluster index
+   * @param index   The joint index in the range {@code [0,
+   *                clusterJointCount(cluster))}
+   *
+   * @return The ID of the given joint of the cluster, in ascending order
+   */
+
+  public int clusterJoint(
+    final int cluster,
+    final int index)
+  {
+    return this.joints[this.joint_offsets[cluster] + index];
+  }
+
+  /**
+   * Retrieve the bounding box of the cluster in the rest pose.
+   *
+   * @param cluster The cluster index
+   * @param minimum The minimum corner of the box
+   * @param maximum The maximum corner of the box
+   */
+
+  public void clusterRestBounds(
+    final int cluster,
+    final VectorWritable3DType minimum,
+    final VectorWritable3DType maximum)
+  {
+    final int base = cluster * 6;
+    minimum.set3D(
+      this.rest_bounds[base],
+      this.rest_bounds[base + 1],
+      this.rest_bounds[base + 2]);
+    maximum.set3D(
+      this.rest_bounds[base + 3],
+      this.rest_bounds[base + 4],
+      this.rest_bounds[base + 5]);
+  }
+
+  /**
+   * Calculate a conservative bounding box for the cluster in the current
+   * pose of the given skeleton. The box is the union of the rest bounds
+   * transformed by the deformation matrix of each joint of the cluster.
+   *
+   * @param skeleton The evaluated skeleton
+   * @param cluster  The cluster index
+   * @param minimum  The minimum corner of the box
+   * @param maximum  The maximum corner of the box
+   */
+
+  public void clusterPosedBoundsD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final int cluster,
+    final VectorM3D minimum,
+    final VectorM3D maximum)
+  {
+    final int base = cluster * 6;
+    final double cx = (this.rest_bounds[base] + this.rest_bounds[base + 3]) * 0.5;
+    final double cy = (this.rest_bounds[base + 1] + this.rest_bounds[base + 4]) * 0.5;
+    final double cz = (this.rest_bounds[base + 2] + this.rest_bounds[base + 5]) * 0.5;
+    final double ex = (this.rest_bounds[base + 3] - this.rest_bounds[base]) * 0.5;
+    final double ey = (this.rest_bounds[base + 4] - this.rest_bounds[base + 1]) * 0.5;
+    final double ez = (this.rest_bounds[base + 5] - this.rest_bounds[base + 2]) * 0.5;
+
+    CaMeshBoxes.empty(minimum, maximum);
+
+    if (this.includes_origin[cluster] || this.clusterJointCount(cluster) == 0) {
+      minimum.set3D(0.0, 0.0, 0.0);
+      maximum.set3D(0.0, 0.0, 0.0);
+    }
+
+    final int end = this.joint_offsets[cluster + 1];
+    for (int index = this.joint_offsets[cluster]; index < end; ++index) {
+      final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> m =
+        skeleton.jointsByID().get(this.joints[index]).transformDeform4x4D();
+
+      CaMeshBoxes.transformUnionD(m, cx, cy, cz, ex, ey, ez, minimum, maximum);
+    }
+  }
+}
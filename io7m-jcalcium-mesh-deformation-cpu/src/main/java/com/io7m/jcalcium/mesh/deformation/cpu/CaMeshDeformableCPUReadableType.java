@@ -20,6 +20,8 @@ import com.io7m.jtensors.VectorWritable4DType;
 import com.io7m.jtensors.VectorWritable4LType;
 import javaslang.collection.SortedMap;
 
+import java.util.Optional;
+
 /**
  * <p>The type of readable meshes that can be deformed by the CPU.</p>
  *
@@ -71,4 +73,36 @@ public interface CaMeshDeformableCPUReadableType
   void jointWeightsForVertex(
     long vertex,
     VectorWritable4DType out);
+
+  /**
+   * <p>The influence sets of the mesh, if the mesh has been analyzed.</p>
+   *
+   * <p>Deformers may use the influence sets to avoid recomputing blended
+   * deformation matrices for vertices that share joints and weights.</p>
+   *
+   * @return The influence sets of the mesh, if any
+   *
+   * @see CaMeshInfluenceSets
+   */
+
+  default Optional<CaMeshInfluenceSets> influenceSets()
+  {
+    return Optional.empty();
+  }
+
+  /**
+   * <p>The clusters of the mesh, if the mesh has been partitioned.</p>
+   *
+   * <p>Deformers may use the clusters to deform only the visible parts of
+   * the mesh.</p>
+   *
+   * @return The clusters of the mesh, if any
+   *
+   * @see CaMeshClusters
+   */
+
+  default Optional<CaMeshClusters> clusters()
+  {
+    return Optional.empty();
+  }
 }
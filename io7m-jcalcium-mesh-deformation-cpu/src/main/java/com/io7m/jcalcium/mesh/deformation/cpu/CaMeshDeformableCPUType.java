@@ -42,4 +42,89 @@ public interface CaMeshDeformableCPUType extends CaMeshDeformableCPUReadableType
    */
 
   SortedMap<String, CaMeshDeformableAttributeCursorType> meshTargetCursors();
+
+  /**
+   * <p>Analyze the influence sets of the mesh so that they are available from
+   * {@link #influenceSets()} for subsequent deformations. The joint indices
+   * and weights of the mesh are read-only, so the analysis need only be
+   * performed once.</p>
+   *
+   * <p>Implementations that do not support influence sets may ignore this
+   * method.</p>
+   */
+
+  default void analyzeInfluenceSets()
+  {
+    // Influence sets not supported by default
+  }
+
+  /**
+   * <p>Use the given, previously computed influence sets for subsequent
+   * deformations. This allows meshes that share joint data, such as meshes
+   * instantiated from the same template, to share a single analysis.</p>
+   *
+   * <p>Implementations that do not support influence sets may ignore this
+   * method.</p>
+   *
+   * @param sets The influence sets, which must have been computed from joint
+   *             data identical to that of this mesh
+   */
+
+  default void setInfluenceSets(
+    final CaMeshInfluenceSets sets)
+  {
+    // Influence sets not supported by default
+  }
+
+  /**
+   * <p>Use the given, previously computed clusters for subsequent
+   * deformations.</p>
+   *
+   * <p>Implementations that do not support clusters may ignore this
+   * method.</p>
+   *
+   * @param clusters The clusters, which must have been computed from data
+   *                 identical to that of this mesh
+   */
+
+  default void setClusters(
+    final CaMeshClusters clusters)
+  {
+    // Clusters not supported by default
+  }
+
+  /**
+   * <p>The pose version with which the target buffer of the mesh was most
+   * recently deformed, or {@code 0} if the contents of the target buffer do
+   * not correspond to any pose.</p>
+   *
+   * <p>Deformers compare this value against {@link
+   * com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonReadableDType#poseVersion()}
+   * and skip deformation entirely if the two are equal.</p>
+   *
+   * @return The pose version of the contents of the target buffer
+   */
+
+  default long deformedPoseVersion()
+  {
+    return 0L;
+  }
+
+  /**
+   * <p>Record the pose version with which the target buffer of the mesh was
+   * deformed. Code that writes to the target buffer by any other means (such
+   * as via {@link #meshTargetCursors()}) must reset the version to
+   * {@code 0}.</p>
+   *
+   * <p>Implementations that do not support pose versions may ignore this
+   * method, in which case every deformation will be performed in full.</p>
+   *
+   * @param version The pose version
+   */
+
+  default void setDeformedPoseVersion(
+    final long version)
+  {
+    // Pose versions not supported by default
+  }
 }
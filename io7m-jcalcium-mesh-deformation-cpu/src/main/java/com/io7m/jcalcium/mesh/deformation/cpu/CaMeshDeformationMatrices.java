@@ -95,6 +95,28 @@ public final class CaMeshDeformationMatrices implements
     MatrixM4x4D.add(this.m4d_x, this.m4d_3, output);
   }
 
+  @Override
+  public void weightedDeformationMatrixExplicit1D(
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_0,
+    final double joint_weight_0,
+    final PMatrixWritable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> output)
+  {
+    MatrixM4x4D.scale(deform_joint_0, joint_weight_0, output);
+  }
+
+  @Override
+  public void weightedDeformationMatrixExplicit2D(
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_0,
+    final double joint_weight_0,
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_1,
+    final double joint_weight_1,
+    final PMatrixWritable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> output)
+  {
+    MatrixM4x4D.scale(deform_joint_0, joint_weight_0, this.m4d_0);
+    MatrixM4x4D.scale(deform_joint_1, joint_weight_1, this.m4d_1);
+    MatrixM4x4D.add(this.m4d_0, this.m4d_1, output);
+  }
+
   @Override
   public void weightedDeformationMatrixExplicitF(
     final PMatrixReadable4x4FType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_0,
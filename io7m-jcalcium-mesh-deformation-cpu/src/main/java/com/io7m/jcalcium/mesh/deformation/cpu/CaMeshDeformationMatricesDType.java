@@ -131,4 +131,38 @@ public interface CaMeshDeformationMatricesDType
     PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_3,
     double joint_weight_3,
     PMatrixWritable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> output);
+
+  /**
+   * Construct a weighted deformation matrix for a single joint. The result is
+   * equivalent to {@link #weightedDeformationMatrixExplicitD} with all other
+   * weights set to zero.
+   *
+   * @param deform_joint_0 The joint deformation matrix
+   * @param joint_weight_0 The weight for {@code deform_joint_0}
+   * @param output         The output matrix
+   */
+
+  void weightedDeformationMatrixExplicit1D(
+    PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_0,
+    double joint_weight_0,
+    PMatrixWritable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> output);
+
+  /**
+   * Construct a weighted deformation matrix for two joints. The result is
+   * equivalent to {@link #weightedDeformationMatrixExplicitD} with all other
+   * weights set to zero.
+   *
+   * @param deform_joint_0 The first joint deformation matrix
+   * @param joint_weight_0 The weight for {@code deform_joint_0}
+   * @param deform_joint_1 The second joint deformation matrix
+   * @param joint_weight_1 The weight for {@code deform_joint_1}
+   * @param output         The output matrix
+   */
+
+  void weightedDeformationMatrixExplicit2D(
+    PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_0,
+    double joint_weight_0,
+    PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> deform_joint_1,
+    double joint_weight_1,
+    PMatrixWritable4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> output);
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * An attribute within a caller-supplied deformation output buffer.
+ */
+
+@Value.Immutable
+@CaImmutableStyleType
+public interface CaMeshDeformationOutputAttributeType
+{
+  /**
+   * @return The name of the source attribute that will be deformed
+   */
+
+  @Value.Parameter
+  String name();
+
+  /**
+   * @return The offset in octets of the attribute from the start of each
+   * vertex
+   */
+
+  @Value.Parameter
+  int offsetOctets();
+
+  /**
+   * @return The encoding of the deformed data
+   */
+
+  @Value.Parameter
+  CaMeshDeformationOutputEncoding encoding();
+}
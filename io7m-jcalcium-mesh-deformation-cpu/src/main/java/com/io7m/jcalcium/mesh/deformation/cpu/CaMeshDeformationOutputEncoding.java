@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+/**
+ * The encodings available for deformed data written to caller-supplied
+ * output buffers.
+ *
+ * @see CaMeshDeformationOutputType
+ */
+
+public enum CaMeshDeformationOutputEncoding
+{
+  /**
+   * Three 32-bit floating point components. The fourth component of a
+   * four-component source attribute is discarded.
+   */
+
+  OUTPUT_FLOAT32_3(12),
+
+  /**
+   * Four 32-bit floating point components. For three-component source
+   * attributes, the fourth component is {@code 1.0} for positions and
+   * {@code 0.0} for directions. For four-component source attributes, the
+   * fourth component is copied unchanged from the source.
+   */
+
+  OUTPUT_FLOAT32_4(16),
+
+  /**
+   * Four 16-bit floating point components, with the fourth component chosen
+   * as for {@link #OUTPUT_FLOAT32_4}. Typically used for positions.
+   *
+   * @see CaMeshDeformationPacking#packFloat16(double)
+   */
+
+  OUTPUT_FLOAT16_4(8),
+
+  /**
+   * A direction vector encoded using an octahedral mapping as two 16-bit
+   * signed normalized integers. The fourth component of a four-component
+   * source attribute is discarded. Typically used for normal vectors.
+   *
+   * @see CaMeshDeformationPacking#packOctahedral16(double, double, double)
+   */
+
+  OUTPUT_OCTAHEDRAL_SNORM16_2(4),
+
+  /**
+   * A normalized direction vector encoded as three 10-bit signed normalized
+   * integers, followed by the sign of the fourth component as a 2-bit signed
+   * integer, all packed into a single 32-bit integer. Typically used for
+   * tangent vectors, where the fourth component specifies the handedness of
+   * the tangent space.
+   *
+   * @see CaMeshDeformationPacking#packSNorm1010102(double, double, double, double)
+   */
+
+  OUTPUT_SNORM_10_10_10_2(4);
+
+  private final int size;
+
+  CaMeshDeformationOutputEncoding(
+    final int in_size)
+  {
+    this.size = in_size;
+  }
+
+  /**
+   * @return The size in octets of a single encoded value
+   */
+
+  public int sizeOctets()
+  {
+    return this.size;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import javaslang.collection.Seq;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A description of a caller-supplied output buffer for deformation.</p>
+ *
+ * <p>Deformed data for vertex {@code v} and attribute {@code a} is written
+ * to the buffer at octet offset {@code v * strideOctets() + a.offsetOctets()}
+ * in the byte order of the buffer. The buffer is written using absolute
+ * operations; its position, limit and mark are not modified.</p>
+ *
+ * @see CaMeshDeformerCPUDType#deformIntoD
+ */
+
+@Value.Immutable
+@JavaslangEncodingEnabled
+@CaImmutableStyleType
+public interface CaMeshDeformationOutputType
+{
+  /**
+   * @return The output buffer
+   */
+
+  @Value.Parameter
+  ByteBuffer buffer();
+
+  /**
+   * @return The distance in octets between the starts of consecutive vertices
+   */
+
+  @Value.Parameter
+  int strideOctets();
+
+  /**
+   * @return The attributes that will be written for each vertex
+   */
+
+  @Value.Parameter
+  Seq<CaMeshDeformationOutputAttribute> attributes();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.strideOctets() <= 0) {
+      throw new IllegalArgumentException("Stride must be positive");
+    }
+
+    final Seq<CaMeshDeformationOutputAttribute> attrs = this.attributes();
+    for (int index = 0; index < attrs.size(); ++index) {
+      final CaMeshDeformationOutputAttribute attr = attrs.get(index);
+      final int end = attr.offsetOctets() + attr.encoding().sizeOctets();
+      if (attr.offsetOctets() < 0 || end > this.strideOctets()) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Attribute does not fit within the vertex stride.");
+        sb.append(System.lineSeparator());
+        sb.append("  Attribute: ");
+        sb.append(attr.name());
+        sb.append(System.lineSeparator());
+        sb.append("  Offset: ");
+        sb.append(attr.offsetOctets());
+        sb.append(System.lineSeparator());
+        sb.append("  Size: ");
+        sb.append(attr.encoding().sizeOctets());
+        sb.append(System.lineSeparator());
+        sb.append("  Stride: ");
+        sb.append(this.strideOctets());
+        sb.append(System.lineSeparator());
+        throw new IllegalArgumentException(sb.toString());
+      }
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Functions to pack deformed values into the compact encodings described by
+ * {@link CaMeshDeformationOutputEncoding}.
+ */
+
+public final class CaMeshDeformationPacking
+{
+  private CaMeshDeformationPacking()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Convert the given value to an IEEE 754 binary16 value, rounding to the
+   * nearest representable value (ties to even). Values that are too large to
+   * be represented are converted to infinity.
+   *
+   * @param x The value
+   *
+   * @return The bits of a 16-bit floating point value
+   */
+
+  public static short packFloat16(
+    final double x)
+  {
+    final int bits = Float.floatToRawIntBits((float) x);
+    final int sign = (bits >>> 16) & 0x8000;
+    final int exponent = (bits >>> 23) & 0xff;
+    final int mantissa = bits & 0x7fffff;
+
+    if (exponent == 0xff) {
+      if (mantissa != 0) {
+        return (short) (sign | 0x7e00);
+      }
+      return (short) (sign | 0x7c00);
+    }
+
+    final int exponent_half = exponent - 127 + 15;
+    if (exponent_half >= 0x1f) {
+      return (short) (sign | 0x7c00);
+    }
+
+    if (exponent_half <= 0) {
+      if (exponent_half < -10) {
+        return (short) sign;
+      }
+      final int shift = 14 - exponent_half;
+      final int full = mantissa | 0x800000;
+      return (short) (sign | roundShift(full, shift));
+    }
+
+    return (short) (sign | roundShift((exponent_half << 23) | mantissa, 13));
+  }
+
+  /**
+   * Shift {@code x} right by {@code shift} bits, rounding to nearest with
+   * ties to even. A carry out of the mantissa correctly increments the
+   * exponent when the exponent has already been placed above it.
+   */
+
+  private static int roundShift(
+    final int x,
+    final int shift)
+  {
+    final int result = x >>> shift;
+    final int remainder = x & ((1 << shift) - 1);
+    final int halfway = 1 << (shift - 1);
+    if (remainder > halfway || (remainder == halfway && (result & 1) != 0)) {
+      return result + 1;
+    }
+    return result;
+  }
+
+  /**
+   * Convert the given value in the range {@code [-1, 1]} to a signed
+   * normalized integer with the given number of bits. Values outside of the
+   * range are clamped.
+   *
+   * @param x    The value
+   * @param bits The number of bits in the result, including the sign bit
+   *
+   * @return A signed normalized integer
+   */
+
+  public static int packSNorm(
+    final double x,
+    final int bits)
+  {
+    final double clamped = Math.max(-1.0, Math.min(1.0, x));
+    final double scale = (double) ((1 << (bits - 1)) - 1);
+    return (int) Math.round(clamped * scale);
+  }
+
+  /**
+   * Encode the given direction vector using an octahedral mapping, and
+   * pack the two resulting components as 16-bit signed normalized integers.
+   * The vector does not need to be normalized. The zero vector is encoded as
+   * {@code (0, 0)}. The {@code x} component is returned in the low 16 bits of
+   * the result, and the {@code y} component in the high 16 bits.
+   *
+   * @param x The x component of the direction
+   * @param y The y component of the direction
+   * @param z The z component of the direction
+   *
+   * @return Two packed 16-bit signed normalized integers
+   */
+
+  public static int packOctahedral16(
+    final double x,
+    final double y,
+    final double z)
+  {
+    final double sum = Math.abs(x) + Math.abs(y) + Math.abs(z);
+    if (sum == 0.0) {
+      return 0;
+    }
+
+    double ox = x / sum;
+    double oy = y / sum;
+    if (z < 0.0) {
+      final double fx = (1.0 - Math.abs(oy)) * signNotZero(ox);
+      final double fy = (1.0 - Math.abs(ox)) * signNotZero(oy);
+      ox = fx;
+      oy = fy;
+    }
+
+    final int px = packSNorm(ox, 16) & 0xffff;
+    final int py = packSNorm(oy, 16) & 0xffff;
+    return px | (py << 16);
+  }
+
+  private static double signNotZero(
+    final double x)
+  {
+    if (x >= 0.0) {
+      return 1.0;
+    }
+    return -1.0;
+  }
+
+  /**
+   * Pack the given direction vector and sign into a single 32-bit integer,
+   * with the normalized {@code x}, {@code y}, and {@code z} components as
+   * 10-bit signed normalized integers in bits {@code [0, 10)},
+   * {@code [10, 20)}, and {@code [20, 30)}, and the sign of {@code w} as a
+   * 2-bit signed integer ({@code 1} or {@code -1}) in bits {@code [30, 32)}.
+   * This is the layout of the OpenGL {@code GL_INT_2_10_10_10_REV} type. The
+   * zero vector is encoded as {@code (0, 0, 0)}.
+   *
+   * @param x The x component of the direction
+   * @param y The y component of the direction
+   * @param z The z component of the direction
+   * @param w The sign (typically the handedness of a tangent vector)
+   *
+   * @return A packed integer
+   */
+
+  public static int packSNorm1010102(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    final double length = Math.sqrt((x * x) + (y * y) + (z * z));
+    int packed = 0;
+    if (length != 0.0) {
+      packed |= packSNorm(x / length, 10) & 0x3ff;
+      packed |= (packSNorm(y / length, 10) & 0x3ff) << 10;
+      packed |= (packSNorm(z / length, 10) & 0x3ff) << 20;
+    }
+
+    if (w < 0.0) {
+      packed |= 0b11 << 30;
+    } else {
+      packed |= 0b01 << 30;
+    }
+    return packed;
+  }
+}
@@ -16,19 +16,29 @@
 
 package com.io7m.jcalcium.mesh.deformation.cpu;
 
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.core.metrics.CaMetricsType;
 import com.io7m.jcalcium.core.spaces.CaSpaceObjectDeformedType;
 import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
 import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointReadableDType;
 import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonReadableDType;
 import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
 import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.VectorM3D;
 import com.io7m.jtensors.VectorM4D;
 import com.io7m.jtensors.VectorM4L;
 import com.io7m.jtensors.parameterized.PMatrix4x4DType;
 import com.io7m.jtensors.parameterized.PMatrixHeapArrayM4x4D;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
 import javaslang.collection.Map;
+import javaslang.collection.Seq;
 import javaslang.collection.SortedMap;
+import javaslang.control.Option;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
 
 /**
  * Functions for deforming meshes on the CPU.
@@ -40,14 +50,42 @@ public final class CaMeshDeformerCPU implements CaMeshDeformerCPUType
   private final PMatrix4x4DType<CaSpaceObjectType, CaSpaceObjectDeformedType> matrix_deform_d;
   private final MatrixM4x4D.ContextMM4D matrix_context_4x4d;
   private final VectorM4D temporary_4d;
+  private final VectorM4L vertex_indices;
+  private final VectorM4D vertex_weights;
+  private final VectorM3D cluster_minimum;
+  private final VectorM3D cluster_maximum;
+  private final CaMetricsType metrics;
+  private final VertexWriterType writer_deformed;
+  private final VertexWriterType writer_output;
+  private @Nullable SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors;
+  private @Nullable SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors;
+  private @Nullable ByteBuffer output_buffer;
+  private @Nullable CaMeshDeformableAttributeCursorReadableType[] output_sources;
+  private @Nullable CaMeshDeformationOutputAttribute[] output_attributes;
+  private long output_stride;
 
   private CaMeshDeformerCPU(
-    final CaMeshDeformationMatricesDType in_matrices_d)
+    final CaMeshDeformationMatricesDType in_matrices_d,
+    final CaMetricsType in_metrics)
   {
     this.matrices_d = NullCheck.notNull(in_matrices_d, "Matrices D");
+    this.metrics = NullCheck.notNull(in_metrics, "Metrics");
     this.matrix_deform_d = PMatrixHeapArrayM4x4D.newMatrix();
     this.matrix_context_4x4d = new MatrixM4x4D.ContextMM4D();
     this.temporary_4d = new VectorM4D();
+    this.vertex_indices = new VectorM4L();
+    this.vertex_weights = new VectorM4D();
+    this.cluster_minimum = new VectorM3D();
+    this.cluster_maximum = new VectorM3D();
+
+    /*
+     * The vertex writers read the cursors and output buffer of the current
+     * deformation from fields, so that no capturing lambda is allocated on
+     * each call.
+     */
+
+    this.writer_deformed = this::writeDeformedData;
+    this.writer_output = this::writeOutputData;
   }
 
   /**
@@ -61,7 +99,24 @@ public final class CaMeshDeformerCPU implements CaMeshDeformerCPUType
   public static CaMeshDeformerCPUType create(
     final CaMeshDeformationMatricesDType in_matrices_d)
   {
-    return new CaMeshDeformerCPU(in_matrices_d);
+    return new CaMeshDeformerCPU(in_matrices_d, CaMetricsDisabled.get());
+  }
+
+  /**
+   * Create a mesh deformer that publishes the number of vertices deformed,
+   * and the time taken to deform them, to the given metrics receiver.
+   *
+   * @param in_matrices_d A deformation matrix provider
+   * @param in_metrics    A metrics receiver
+   *
+   * @return A new mesh deformer
+   */
+
+  public static CaMeshDeformerCPUType createWithMetrics(
+    final CaMeshDeformationMatricesDType in_matrices_d,
+    final CaMetricsType in_metrics)
+  {
+    return new CaMeshDeformerCPU(in_matrices_d, in_metrics);
   }
 
   @Override
@@ -72,91 +127,343 @@ public final class CaMeshDeformerCPU implements CaMeshDeformerCPUType
     NullCheck.notNull(skeleton, "Skeleton");
     NullCheck.notNull(mesh, "Mesh");
 
-    final VectorM4L indices = new VectorM4L();
-    final VectorM4D weights = new VectorM4D();
+    final long version = skeleton.poseVersion();
+    if (mesh.deformedPoseVersion() == version) {
+      return;
+    }
+
+    this.target_cursors = mesh.meshTargetCursors();
+    this.source_cursors = mesh.meshSourceCursors();
+    try {
+      this.deformFullD(skeleton, mesh, this.writer_deformed);
+    } finally {
+      this.target_cursors = null;
+      this.source_cursors = null;
+    }
+    mesh.setDeformedPoseVersion(version);
+  }
+
+  @Override
+  public void deformIntoD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final CaMeshDeformableCPUReadableType mesh,
+    final CaMeshDeformationOutputType output)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(mesh, "Mesh");
+    NullCheck.notNull(output, "Output");
+
+    final Seq<CaMeshDeformationOutputAttribute> attributes =
+      output.attributes();
+    final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> sources_by_name =
+      mesh.meshSourceCursors();
+    final CaMeshDeformableAttributeCursorReadableType[] sources =
+      new CaMeshDeformableAttributeCursorReadableType[attributes.size()];
+    final CaMeshDeformationOutputAttribute[] outputs =
+      new CaMeshDeformationOutputAttribute[attributes.size()];
+
+    int index = 0;
+    for (final CaMeshDeformationOutputAttribute attribute : attributes) {
+      final String name = attribute.name();
+      final Option<CaMeshDeformableAttributeCursorReadableType> source_opt =
+        sources_by_name.get(name);
+      Preconditions.checkPrecondition(
+        name,
+        source_opt.isDefined(),
+        n -> "Mesh must have a source attribute named " + n);
+      sources[index] = source_opt.get();
+      outputs[index] = attribute;
+      ++index;
+    }
+
+    /*
+     * The buffer is written with absolute operations starting at offset 0,
+     * and absolute operations may not write beyond the limit of the buffer.
+     */
+
+    final ByteBuffer buffer = output.buffer();
+    final long stride = Integer.toUnsignedLong(output.strideOctets());
+    final long required = Math.multiplyExact(mesh.vertexCount(), stride);
+    final long limit = Integer.toUnsignedLong(buffer.limit());
+    Preconditions.checkPreconditionL(
+      required,
+      required <= limit,
+      x -> "Output buffer must have a limit of at least " + x + " octets");
+
+    this.output_buffer = buffer;
+    this.output_sources = sources;
+    this.output_attributes = outputs;
+    this.output_stride = stride;
+    try {
+      this.deformFullD(skeleton, mesh, this.writer_output);
+    } finally {
+      this.output_buffer = null;
+      this.output_sources = null;
+      this.output_attributes = null;
+    }
+  }
+
+  @Override
+  public int deformClustersD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final CaMeshDeformableCPUType mesh,
+    final CaMeshClusterVisibilityType visibility)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(mesh, "Mesh");
+    NullCheck.notNull(visibility, "Visibility");
+
+    final Optional<CaMeshClusters> clusters_opt = mesh.clusters();
+    Preconditions.checkPrecondition(
+      clusters_opt.isPresent(), "Mesh must have clusters");
+
+    final CaMeshClusters clusters = clusters_opt.get();
+    Preconditions.checkPreconditionL(
+      Integer.toUnsignedLong(clusters.vertexCount()),
+      Integer.toUnsignedLong(clusters.vertexCount()) == mesh.vertexCount(),
+      x -> "Clusters must cover exactly the vertices of the mesh");
+
+    final long version = skeleton.poseVersion();
+    if (mesh.deformedPoseVersion() == version) {
+      return DEFORMATION_SKIPPED;
+    }
+
     final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints =
       skeleton.jointsByID();
 
-    final SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors =
-      mesh.meshTargetCursors();
-    final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors =
-      mesh.meshSourceCursors();
+    final boolean measure = this.metrics.isEnabled();
+    long time_then = 0L;
+    if (measure) {
+      time_then = System.nanoTime();
+    }
+
+    this.target_cursors = mesh.meshTargetCursors();
+    this.source_cursors = mesh.meshSourceCursors();
+    try {
+      final int deformed = this.deformVisibleClustersD(
+        skeleton, joints, mesh, clusters, visibility, measure, time_then);
+
+      if (deformed == clusters.clusterCount()) {
+        mesh.setDeformedPoseVersion(version);
+      } else {
+        mesh.setDeformedPoseVersion(0L);
+      }
+      return deformed;
+    } finally {
+      this.target_cursors = null;
+      this.source_cursors = null;
+    }
+  }
+
+  private int deformVisibleClustersD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints,
+    final CaMeshDeformableCPUType mesh,
+    final CaMeshClusters clusters,
+    final CaMeshClusterVisibilityType visibility,
+    final boolean measure,
+    final long time_then)
+  {
+    long vertices = 0L;
+    int deformed = 0;
+    for (int cluster = 0; cluster < clusters.clusterCount(); ++cluster) {
+      clusters.clusterPosedBoundsD(
+        skeleton, cluster, this.cluster_minimum, this.cluster_maximum);
+
+      final boolean visible =
+        visibility.isClusterVisible(
+          cluster,
+          this.cluster_minimum.getXD(),
+          this.cluster_minimum.getYD(),
+          this.cluster_minimum.getZD(),
+          this.cluster_maximum.getXD(),
+          this.cluster_maximum.getYD(),
+          this.cluster_maximum.getZD());
+
+      if (visible) {
+        final int end = clusters.clusterVerticesEnd(cluster);
+        for (int vertex = clusters.clusterVerticesStart(cluster);
+             vertex < end;
+             ++vertex) {
+          this.deformVertexD(
+            joints, mesh, Integer.toUnsignedLong(vertex), this.writer_deformed);
+        }
+        vertices += Integer.toUnsignedLong(
+          end - clusters.clusterVerticesStart(cluster));
+        ++deformed;
+      }
+    }
+
+    if (measure) {
+      this.metrics.onDeformation(vertices, System.nanoTime() - time_then);
+    }
+    return deformed;
+  }
+
+  private void deformFullD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final CaMeshDeformableCPUReadableType mesh,
+    final VertexWriterType writer)
+  {
+    if (this.metrics.isEnabled()) {
+      final long time_then = System.nanoTime();
+      this.deformAllD(skeleton, mesh, writer);
+      final long time_now = System.nanoTime();
+      this.metrics.onDeformation(mesh.vertexCount(), time_now - time_then);
+      return;
+    }
+
+    this.deformAllD(skeleton, mesh, writer);
+  }
+
+  private void deformAllD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final CaMeshDeformableCPUReadableType mesh,
+    final VertexWriterType writer)
+  {
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints =
+      skeleton.jointsByID();
+
+    final Optional<CaMeshInfluenceSets> sets_opt = mesh.influenceSets();
+    if (sets_opt.isPresent()) {
+      this.deformGroupedD(joints, sets_opt.get(), mesh, writer);
+      return;
+    }
 
     for (long vertex = 0L;
          Long.compareUnsigned(vertex, mesh.vertexCount()) < 0;
          ++vertex) {
+      this.deformVertexD(joints, mesh, vertex, writer);
+    }
+  }
+
+  private void deformVertexD(
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints,
+    final CaMeshDeformableCPUReadableType mesh,
+    final long vertex,
+    final VertexWriterType writer)
+  {
+    final VectorM4L indices = this.vertex_indices;
+    final VectorM4D weights = this.vertex_weights;
+    mesh.jointIndicesForVertex(vertex, indices);
+    mesh.jointWeightsForVertex(vertex, weights);
+
+    final CaEvaluatedJointReadableDType joint_0 =
+      joints.get(Math.toIntExact(indices.getXL()));
+    final CaEvaluatedJointReadableDType joint_1 =
+      joints.get(Math.toIntExact(indices.getYL()));
+    final CaEvaluatedJointReadableDType joint_2 =
+      joints.get(Math.toIntExact(indices.getZL()));
+    final CaEvaluatedJointReadableDType joint_3 =
+      joints.get(Math.toIntExact(indices.getWL()));
 
-      mesh.jointIndicesForVertex(vertex, indices);
-      mesh.jointWeightsForVertex(vertex, weights);
+    final double weight_0 = weights.getXD();
+    final double weight_1 = weights.getYD();
+    final double weight_2 = weights.getZD();
+    final double weight_3 = weights.getWD();
 
-      final CaEvaluatedJointReadableDType joint_0 =
-        joints.get(Math.toIntExact(indices.getXL()));
-      final CaEvaluatedJointReadableDType joint_1 =
-        joints.get(Math.toIntExact(indices.getYL()));
-      final CaEvaluatedJointReadableDType joint_2 =
-        joints.get(Math.toIntExact(indices.getZL()));
-      final CaEvaluatedJointReadableDType joint_3 =
-        joints.get(Math.toIntExact(indices.getWL()));
+    this.matrices_d.weightedDeformationMatrixExplicitD(
+      joint_0.transformDeform4x4D(),
+      weight_0,
+      joint_1.transformDeform4x4D(),
+      weight_1,
+      joint_2.transformDeform4x4D(),
+      weight_2,
+      joint_3.transformDeform4x4D(),
+      weight_3,
+      this.matrix_deform_d);
 
-      final double weight_0 = weights.getXD();
-      final double weight_1 = weights.getYD();
-      final double weight_2 = weights.getZD();
-      final double weight_3 = weights.getWD();
+    writer.write(vertex);
+  }
 
-      this.matrices_d.weightedDeformationMatrixExplicitD(
-        joint_0.transformDeform4x4D(),
-        weight_0,
-        joint_1.transformDeform4x4D(),
-        weight_1,
-        joint_2.transformDeform4x4D(),
-        weight_2,
-        joint_3.transformDeform4x4D(),
-        weight_3,
-        this.matrix_deform_d);
+  /**
+   * Deform the mesh one influence set at a time: the blended matrix for each
+   * set is computed once, using a specialized kernel for sets with one or two
+   * influences, and then applied to every vertex of the set.
+   */
+
+  private void deformGroupedD(
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints,
+    final CaMeshInfluenceSets sets,
+    final CaMeshDeformableCPUReadableType mesh,
+    final VertexWriterType writer)
+  {
+    Preconditions.checkPreconditionL(
+      Integer.toUnsignedLong(sets.vertexCount()),
+      Integer.toUnsignedLong(sets.vertexCount()) == mesh.vertexCount(),
+      x -> "Influence sets must cover exactly the vertices of the mesh");
 
-      this.writeDeformedData(target_cursors, source_cursors, vertex);
+    for (int set = 0; set < sets.setCount(); ++set) {
+      this.setMatrixD(joints, sets, set);
+
+      final int end = sets.setVerticesEnd(set);
+      for (int position = sets.setVerticesStart(set); position < end; ++position) {
+        writer.write(Integer.toUnsignedLong(sets.groupedVertex(position)));
+      }
+    }
+  }
+
+  private void setMatrixD(
+    final Int2ReferenceSortedMap<CaEvaluatedJointReadableDType> joints,
+    final CaMeshInfluenceSets sets,
+    final int set)
+  {
+    switch (sets.setInfluenceCount(set)) {
+      case 1: {
+        this.matrices_d.weightedDeformationMatrixExplicit1D(
+          joints.get(sets.setJointIndex(set, 0)).transformDeform4x4D(),
+          sets.setJointWeight(set, 0),
+          this.matrix_deform_d);
+        break;
+      }
+      case 2: {
+        this.matrices_d.weightedDeformationMatrixExplicit2D(
+          joints.get(sets.setJointIndex(set, 0)).transformDeform4x4D(),
+          sets.setJointWeight(set, 0),
+          joints.get(sets.setJointIndex(set, 1)).transformDeform4x4D(),
+          sets.setJointWeight(set, 1),
+          this.matrix_deform_d);
+        break;
+      }
+      default: {
+        this.matrices_d.weightedDeformationMatrixExplicitD(
+          joints.get(sets.setJointIndex(set, 0)).transformDeform4x4D(),
+          sets.setJointWeight(set, 0),
+          joints.get(sets.setJointIndex(set, 1)).transformDeform4x4D(),
+          sets.setJointWeight(set, 1),
+          joints.get(sets.setJointIndex(set, 2)).transformDeform4x4D(),
+          sets.setJointWeight(set, 2),
+          joints.get(sets.setJointIndex(set, 3)).transformDeform4x4D(),
+          sets.setJointWeight(set, 3),
+          this.matrix_deform_d);
+        break;
+      }
     }
   }
 
   private void writeDeformedData(
-    final Map<String, CaMeshDeformableAttributeCursorType> target_cursors,
-    final Map<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
     final long vertex)
   {
-    for (final String name : source_cursors.keySet()) {
+    final Map<String, CaMeshDeformableAttributeCursorType> targets =
+      NullCheck.notNull(this.target_cursors, "Target cursors");
+    final Map<String, CaMeshDeformableAttributeCursorReadableType> sources =
+      NullCheck.notNull(this.source_cursors, "Source cursors");
+
+    for (final String name : sources.keySet()) {
       final CaMeshDeformableAttributeCursorReadableType source =
-        source_cursors.get(name).get();
+        sources.get(name).get();
       final CaMeshDeformableAttributeCursorType target =
-        target_cursors.get(name).get();
+        targets.get(name).get();
 
       source.setVertex(vertex);
       target.setVertex(vertex);
 
+      final double w = this.transformSource(source);
+
       switch (source.kind()) {
         case CURSOR_FLOAT_3: {
-          final CaMeshDeformableAttributeCursorReadable3Type source3 =
-            (CaMeshDeformableAttributeCursorReadable3Type) source;
           final CaMeshDeformableAttributeCursor3Type target3 =
             (CaMeshDeformableAttributeCursor3Type) target;
-
-          source3.get3D(this.temporary_4d);
-          switch (source3.semantic()) {
-            case POSITION: {
-              this.temporary_4d.setWD(1.0);
-              break;
-            }
-            case DIRECTION: {
-              this.temporary_4d.setWD(0.0);
-              break;
-            }
-          }
-
-          MatrixM4x4D.multiplyVector4D(
-            this.matrix_context_4x4d,
-            this.matrix_deform_d,
-            this.temporary_4d,
-            this.temporary_4d);
-
           target3.set3D(
             this.temporary_4d.getXD(),
             this.temporary_4d.getYD(),
@@ -165,38 +472,149 @@ public final class CaMeshDeformerCPU implements CaMeshDeformerCPUType
         }
 
         case CURSOR_FLOAT_4: {
-          final CaMeshDeformableAttributeCursorReadable4Type source4 =
-            (CaMeshDeformableAttributeCursorReadable4Type) source;
           final CaMeshDeformableAttributeCursor4Type target4 =
             (CaMeshDeformableAttributeCursor4Type) target;
-
-          source4.get4D(this.temporary_4d);
-          final double saved_w = this.temporary_4d.getWD();
-          switch (source4.semantic()) {
-            case POSITION: {
-              this.temporary_4d.setWD(1.0);
-              break;
-            }
-            case DIRECTION: {
-              this.temporary_4d.setWD(0.0);
-              break;
-            }
-          }
-
-          MatrixM4x4D.multiplyVector4D(
-            this.matrix_context_4x4d,
-            this.matrix_deform_d,
-            this.temporary_4d,
-            this.temporary_4d);
-
           target4.set4D(
             this.temporary_4d.getXD(),
             this.temporary_4d.getYD(),
             this.temporary_4d.getZD(),
-            saved_w);
+            w);
+          break;
+        }
+      }
+    }
+  }
+
+  private void writeOutputData(
+    final long vertex)
+  {
+    final ByteBuffer buffer =
+      NullCheck.notNull(this.output_buffer, "Output buffer");
+    final CaMeshDeformableAttributeCursorReadableType[] sources =
+      NullCheck.notNull(this.output_sources, "Output sources");
+    final CaMeshDeformationOutputAttribute[] attributes =
+      NullCheck.notNull(this.output_attributes, "Output attributes");
+    final long base = vertex * this.output_stride;
+
+    for (int index = 0; index < sources.length; ++index) {
+      final CaMeshDeformableAttributeCursorReadableType source = sources[index];
+      final CaMeshDeformationOutputAttribute attribute = attributes[index];
+
+      source.setVertex(vertex);
+      final double w = this.transformSource(source);
+      final int offset =
+        Math.toIntExact(base + Integer.toUnsignedLong(attribute.offsetOctets()));
+
+      switch (attribute.encoding()) {
+        case OUTPUT_FLOAT32_3: {
+          buffer.putFloat(offset, (float) this.temporary_4d.getXD());
+          buffer.putFloat(offset + 4, (float) this.temporary_4d.getYD());
+          buffer.putFloat(offset + 8, (float) this.temporary_4d.getZD());
+          break;
+        }
+        case OUTPUT_FLOAT32_4: {
+          buffer.putFloat(offset, (float) this.temporary_4d.getXD());
+          buffer.putFloat(offset + 4, (float) this.temporary_4d.getYD());
+          buffer.putFloat(offset + 8, (float) this.temporary_4d.getZD());
+          buffer.putFloat(offset + 12, (float) w);
+          break;
+        }
+        case OUTPUT_FLOAT16_4: {
+          buffer.putShort(
+            offset, CaMeshDeformationPacking.packFloat16(this.temporary_4d.getXD()));
+          buffer.putShort(
+            offset + 2, CaMeshDeformationPacking.packFloat16(this.temporary_4d.getYD()));
+          buffer.putShort(
+            offset + 4, CaMeshDeformationPacking.packFloat16(this.temporary_4d.getZD()));
+          buffer.putShort(
+            offset + 6, CaMeshDeformationPacking.packFloat16(w));
+          break;
+        }
+        case OUTPUT_OCTAHEDRAL_SNORM16_2: {
+          final int packed =
+            CaMeshDeformationPacking.packOctahedral16(
+              this.temporary_4d.getXD(),
+              this.temporary_4d.getYD(),
+              this.temporary_4d.getZD());
+          buffer.putShort(offset, (short) packed);
+          buffer.putShort(offset + 2, (short) (packed >>> 16));
+          break;
+        }
+        case OUTPUT_SNORM_10_10_10_2: {
+          buffer.putInt(
+            offset,
+            CaMeshDeformationPacking.packSNorm1010102(
+              this.temporary_4d.getXD(),
+              this.temporary_4d.getYD(),
+              this.temporary_4d.getZD(),
+              w));
           break;
         }
       }
     }
   }
+
+  /**
+   * Read the given source attribute at its current vertex and transform it by
+   * the current deformation matrix, leaving the result in the temporary
+   * vector. The returned value is the fourth component that should be written
+   * by four-component outputs: The original fourth component for
+   * four-component sources (such as the handedness of tangent vectors), and
+   * the homogeneous coordinate implied by the semantic otherwise.
+   */
+
+  private double transformSource(
+    final CaMeshDeformableAttributeCursorReadableType source)
+  {
+    double w_semantic = 0.0;
+    switch (source.semantic()) {
+      case POSITION: {
+        w_semantic = 1.0;
+        break;
+      }
+      case DIRECTION: {
+        w_semantic = 0.0;
+        break;
+      }
+    }
+
+    double w_output = w_semantic;
+    switch (source.kind()) {
+      case CURSOR_FLOAT_3: {
+        final CaMeshDeformableAttributeCursorReadable3Type source3 =
+          (CaMeshDeformableAttributeCursorReadable3Type) source;
+        source3.get3D(this.temporary_4d);
+        break;
+      }
+      case CURSOR_FLOAT_4: {
+        final CaMeshDeformableAttributeCursorReadable4Type source4 =
+          (CaMeshDeformableAttributeCursorReadable4Type) source;
+        source4.get4D(this.temporary_4d);
+        w_output = this.temporary_4d.getWD();
+        break;
+      }
+    }
+
+    this.temporary_4d.setWD(w_semantic);
+    MatrixM4x4D.multiplyVector4D(
+      this.matrix_context_4x4d,
+      this.matrix_deform_d,
+      this.temporary_4d,
+      this.temporary_4d);
+    return w_output;
+  }
+
+  /**
+   * A receiver of deformed vertices. The deformation matrix for the vertex
+   * is current when the receiver is called.
+   */
+
+  private interface VertexWriterType
+  {
+    /**
+     * @param vertex The deformed vertex
+     */
+
+    void write(long vertex);
+  }
 }
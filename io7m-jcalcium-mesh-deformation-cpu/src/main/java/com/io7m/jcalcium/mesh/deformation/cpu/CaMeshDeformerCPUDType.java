@@ -25,7 +25,21 @@ import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonReadableDType;
 public interface CaMeshDeformerCPUDType
 {
   /**
-   * Deform a mesh.
+   * The value returned by {@link #deformClustersD(CaEvaluatedSkeletonReadableDType,
+   * CaMeshDeformableCPUType, CaMeshClusterVisibilityType)} when the pose had
+   * not changed and no deformation was performed.
+   */
+
+  int DEFORMATION_SKIPPED = -1;
+
+  /**
+   * <p>Deform a mesh.</p>
+   *
+   * <p>If the mesh was most recently deformed with the current pose version of
+   * the skeleton (see {@link CaEvaluatedSkeletonReadableDType#poseVersion()}
+   * and {@link CaMeshDeformableCPUType#deformedPoseVersion()}), the target
+   * buffer of the mesh is already up-to-date and the deformation is
+   * skipped.</p>
    *
    * @param skeleton The skeleton
    * @param mesh     The deformable mesh
@@ -34,4 +48,58 @@ public interface CaMeshDeformerCPUDType
   void deformD(
     CaEvaluatedSkeletonReadableDType skeleton,
     CaMeshDeformableCPUType mesh);
+
+  /**
+   * <p>Deform a mesh, writing the deformed data directly into a
+   * caller-supplied output buffer in the layout described by {@code output}
+   * rather than into the target buffer of the mesh. This allows deformed data
+   * to be written straight into, for example, a mapped staging buffer in the
+   * vertex format of a renderer.</p>
+   *
+   * <p>The contents of the output buffer are not tracked, so the deformation
+   * is always performed in full.</p>
+   *
+   * @param skeleton The skeleton
+   * @param mesh     The deformable mesh
+   * @param output   The output buffer description
+   */
+
+  void deformIntoD(
+    CaEvaluatedSkeletonReadableDType skeleton,
+    CaMeshDeformableCPUReadableType mesh,
+    CaMeshDeformationOutputType output);
+
+  /**
+   * <p>Deform only those clusters of a mesh that are deemed visible by the
+   * given predicate. The predicate is evaluated for each cluster with a
+   * conservative bound of the cluster in the current pose, computed from the
+   * joint transforms alone (see {@link CaMeshClusters}). The target data of
+   * clusters that are not visible is left unchanged.</p>
+   *
+   * <p>If every cluster is deformed, the deformed pose version of the mesh is
+   * updated as for {@link #deformD(CaEvaluatedSkeletonReadableDType,
+   * CaMeshDeformableCPUType)}. Otherwise, the pose version is reset to
+   * {@code 0}, because the target data does not correspond to any single
+   * pose.</p>
+   *
+   * <p>If the mesh was most recently deformed in full with the current pose
+   * version of the skeleton, the target data is already up-to-date, the
+   * visibility predicate is not evaluated, and {@link #DEFORMATION_SKIPPED}
+   * is returned. This is distinct from {@code 0}, which indicates that the
+   * pose had changed but no cluster was visible.</p>
+   *
+   * @param skeleton   The skeleton
+   * @param mesh       The deformable mesh, which must have clusters
+   * @param visibility The visibility predicate
+   *
+   * @return The number of clusters that were deformed, or
+   * {@link #DEFORMATION_SKIPPED} if the pose had not changed
+   *
+   * @see CaMeshDeformableCPUReadableType#clusters()
+   */
+
+  int deformClustersD(
+    CaEvaluatedSkeletonReadableDType skeleton,
+    CaMeshDeformableCPUType mesh,
+    CaMeshClusterVisibilityType visibility);
 }
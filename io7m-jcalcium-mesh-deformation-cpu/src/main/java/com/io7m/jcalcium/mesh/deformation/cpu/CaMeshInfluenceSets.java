@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorM4D;
+import com.io7m.jtensors.VectorM4L;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * <p>An analysis of the distinct <i>influence sets</i> of a mesh.</p>
+ *
+ * <p>An influence set is a unique combination of joint indices and joint
+ * weights. Vertices that share an influence set are deformed by the same
+ * blended deformation matrix, so the matrix need only be computed once per
+ * set per deformation, rather than once per vertex.</p>
+ *
+ * <p>The joints of each set are stored with all joints of nonzero weight
+ * first, in their original order. The number of joints with nonzero weight
+ * is the <i>influence count</i> of the set, and is in the range {@code [1,
+ * 4]}. A set in which all weights are zero is treated as having a single
+ * influence of weight zero.</p>
+ *
+ * <p>Vertices are grouped by set: the vertices of set {@code s} are stored in
+ * ascending order at positions {@code [setVerticesStart(s),
+ * setVerticesEnd(s))} of the grouped vertex order. Deforming vertices in this
+ * order keeps each blended matrix in use for as long as possible.</p>
+ */
+
+public final class CaMeshInfluenceSets
+{
+  private final int vertex_count;
+  private final int set_count;
+  private final int[] set_joints;
+  private final double[] set_weights;
+  private final int[] set_influences;
+  private final int[] set_offsets;
+  private final int[] vertices_grouped;
+  private final int[] vertex_sets;
+
+  private CaMeshInfluenceSets(
+    final int in_vertex_count,
+    final int in_set_count,
+    final int[] in_set_joints,
+    final double[] in_set_weights,
+    final int[] in_set_influences,
+    final int[] in_set_offsets,
+    final int[] in_vertices_grouped,
+    final int[] in_vertex_sets)
+  {
+    this.vertex_count = in_vertex_count;
+    this.set_count = in_set_count;
+    this.set_joints = in_set_joints;
+    this.set_weights = in_set_weights;
+    this.set_influences = in_set_influences;
+    this.set_offsets = in_set_offsets;
+    this.vertices_grouped = in_vertices_grouped;
+    this.vertex_sets = in_vertex_sets;
+  }
+
+  /**
+   * Analyze the given mesh.
+   *
+   * @param mesh The mesh
+   *
+   * @return The influence sets of the mesh
+   */
+
+  public static CaMeshInfluenceSets analyze(
+    final CaMeshDeformableCPUReadableType mesh)
+  {
+    NullCheck.notNull(mesh, "Mesh");
+
+    final long mesh_vertex_count = mesh.vertexCount();
+    Preconditions.checkPreconditionL(
+      mesh_vertex_count,
+      Long.compareUnsigned(mesh_vertex_count, (long) Integer.MAX_VALUE) <= 0,
+      x -> "Vertex count must be representable as an integer");
+
+    final int count = (int) mesh_vertex_count;
+    final int[] vertex_sets = new int[count];
+    final Object2IntOpenHashMap<Key> sets = new Object2IntOpenHashMap<>();
+    sets.defaultReturnValue(-1);
+
+    int[] joints = new int[64];
+    double[] weights = new double[64];
+    int[] influences = new int[16];
+
+    final VectorM4L indices = new VectorM4L();
+    final VectorM4D vertex_weights = new VectorM4D();
+    final int[] slot_joints = new int[4];
+    final double[] slot_weights = new double[4];
+
+    for (int vertex = 0; vertex < count; ++vertex) {
+      mesh.jointIndicesForVertex((long) vertex, indices);
+      mesh.jointWeightsForVertex((long) vertex, vertex_weights);
+
+      slot_joints[0] = Math.toIntExact(indices.getXL());
+      slot_joints[1] = Math.toIntExact(indices.getYL());
+      slot_joints[2] = Math.toIntExact(indices.getZL());
+      slot_joints[3] = Math.toIntExact(indices.getWL());
+      slot_weights[0] = vertex_weights.getXD();
+      slot_weights[1] = vertex_weights.getYD();
+      slot_weights[2] = vertex_weights.getZD();
+      slot_weights[3] = vertex_weights.getWD();
+
+      final Key key = new Key(slot_joints, slot_weights);
+      int set = sets.getInt(key);
+      if (set == -1) {
+        set = sets.size();
+        sets.put(key, set);
+
+        if (set >= influences.length) {
+          joints = Arrays.copyOf(joints, joints.length * 2);
+          weights = Arrays.copyOf(weights, weights.length * 2);
+          influences = Arrays.copyOf(influences, influences.length * 2);
+        }
+
+        influences[set] = compact(slot_joints, slot_weights, set, joints, weights);
+      }
+
+      vertex_sets[vertex] = set;
+    }
+
+    final int set_count = sets.size();
+    final int[] offsets = new int[set_count + 1];
+    for (int vertex = 0; vertex < count; ++vertex) {
+      ++offsets[vertex_sets[vertex] + 1];
+    }
+    for (int set = 0; set < set_count; ++set) {
+      offsets[set + 1] += offsets[set];
+    }
+
+    final int[] cursor = Arrays.copyOf(offsets, set_count);
+    final int[] grouped = new int[count];
+    for (int vertex = 0; vertex < count; ++vertex) {
+      final int set = vertex_sets[vertex];
+      grouped[cursor[set]] = vertex;
+      ++cursor[set];
+    }
+
+    return new CaMeshInfluenceSets(
+      count,
+      set_count,
+      Arrays.copyOf(joints, set_count * 4),
+      Arrays.copyOf(weights, set_count * 4),
+      Arrays.copyOf(influences, set_count),
+      offsets,
+      grouped,
+      vertex_sets);
+  }
+
+  /**
+   * Store the joints of a new set, nonzero weights first, and return the
+   * influence count.
+   */
+
+  private static int compact(
+    final int[] slot_joints,
+    final double[] slot_weights,
+    final int set,
+    final int[] joints,
+    final double[] weights)
+  {
+    final int base = set * 4;
+    int position = 0;
+    for (int slot = 0; slot < 4; ++slot) {
+      if (slot_weights[slot] != 0.0) {
+        joints[base + position] = slot_joints[slot];
+        weights[base + position] = slot_weights[slot];
+        ++position;
+      }
+    }
+
+    final int nonzero = position;
+    for (int slot = 0; slot < 4; ++slot) {
+      if (slot_weights[slot] == 0.0) {
+        joints[base + position] = slot_joints[slot];
+        weights[base + position] = slot_weights[slot];
+        ++position;
+      }
+    }
+
+    return Math.max(1, nonzero);
+  }
+
+  /**
+   * @return The number of vertices in the analyzed mesh
+   */
+
+  public int vertexCount()
+  {
+    return this.vertex_count;
+  }
+
+  /**
+   * @return The number of distinct influence sets
+   */
+
+  public int setCount()
+  {
+    return this.set_count;
+  }
+
+  /**
+   * @param set The set index
+   *
+   * @return The number of joints with nonzero weight in the set
+   */
+
+  public int setInfluenceCount(
+    final int set)
+  {
+    return this.set_influences[set];
+  }
+
+  /**
+   * @param set  The set index
+   * @param slot The joint slot in the range {@code [0, 3]}
+   *
+   * @return The index of the joint in the given slot
+   */
+
+  public int setJointIndex(
+    final int set,
+    final int slot)
+  {
+    return this.set_joints[(set * 4) + slot];
+  }
+
+  /**
+   * @param set  The set index
+   * @param slot The joint slot in the range {@code [0, 3]}
+   *
+   * @return The weight of the joint in the given slot
+   */
+
+  public double setJointWeight(
+    final int set,
+    final int slot)
+  {
+    return this.set_weights[(set * 4) + slot];
+  }
+
+  /**
+   * @param set The set index
+   *
+   * @return The position of the first vertex of the set in the grouped vertex
+   * order
+   *
+   * @see #groupedVertex(int)
+   */
+
+  public int setVerticesStart(
+    final int set)
+  {
+    return this.set_offsets[set];
+  }
+
+  /**
+   * @param set The set index
+   *
+   * @return The position after the last vertex of the set in the grouped
+   * vertex order
+   *
+   * @see #groupedVertex(int)
+   */
+
+  public int setVerticesEnd(
+    final int set)
+  {
+    return this.set_offsets[set + 1];
+  }
+
+  /**
+   * @param position A position in the grouped vertex order
+   *
+   * @return The vertex at the given position
+   */
+
+  public int groupedVertex(
+    final int position)
+  {
+    return this.vertices_grouped[position];
+  }
+
+  /**
+   * @param vertex The vertex index
+   *
+   * @return The influence set of the given vertex
+   */
+
+  public int setForVertex(
+    final int vertex)
+  {
+    return this.vertex_sets[vertex];
+  }
+
+  /**
+   * @param influences The influence count in the range {@code [1, 4]}
+   *
+   * @return The number of sets with exactly the given influence count
+   */
+
+  public int setCountWithInfluences(
+    final int influences)
+  {
+    int result = 0;
+    for (int set = 0; set < this.set_count; ++set) {
+      if (this.set_influences[set] == influences) {
+        ++result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A key that compares joint indices exactly and weights by their bit
+   * patterns.
+   */
+
+  private static final class Key
+  {
+    private final int[] joints;
+    private final long[] weights;
+    private final int hash;
+
+    Key(
+      final int[] in_joints,
+      final double[] in_weights)
+    {
+      this.joints = in_joints.clone();
+      this.weights = new long[4];
+      for (int slot = 0; slot < 4; ++slot) {
+        this.weights[slot] = Double.doubleToLongBits(in_weights[slot]);
+      }
+      this.hash =
+        (31 * Arrays.hashCode(this.joints)) + Arrays.hashCode(this.weights);
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return Arrays.equals(this.joints, other.joints)
+        && Arrays.equals(this.weights, other.weights);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.hash;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.cpu;
+
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonReadableDType;
+import com.io7m.jcalcium.mesh.meta.CaMeshJointBounds;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetadataType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorM3D;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import javaslang.collection.Seq;
+
+/**
+ * <p>Bounds for a deformed mesh computed from the per-joint bounds stored in
+ * the mesh metadata (see {@link CaMeshJointBounds}).</p>
+ *
+ * <p>Each deformed vertex is a weighted combination of the vertex
+ * transformed by each of its joints, so the union of the per-joint bounds
+ * transformed by the current joint transforms contains the entire deformed
+ * mesh. The bound can therefore be computed in time proportional to the
+ * number of joints, without deforming the mesh, and used to avoid deforming
+ * meshes that are not visible at all. The bounds assume that the joint
+ * weights of each vertex are nonnegative and sum to at most {@code 1.0}.
+ * Vertices whose weights sum to less than {@code 1.0} are pulled towards the
+ * origin, so the origin is included in the bounds if the metadata indicates
+ * that the mesh contains such vertices
+ * (see {@link CaMeshMetadataType#includesOrigin()}).</p>
+ */
+
+public final class CaMeshPoseBounds
+{
+  private final int[] joints;
+  private final double[] boxes;
+  private final boolean includes_origin;
+
+  private CaMeshPoseBounds(
+    final int[] in_joints,
+    final double[] in_boxes,
+    final boolean in_includes_origin)
+  {
+    this.joints = in_joints;
+    this.boxes = in_boxes;
+    this.includes_origin = in_includes_origin;
+  }
+
+  /**
+   * Create pose bounds from the given mesh metadata.
+   *
+   * @param meta The mesh metadata
+   *
+   * @return The pose bounds for the mesh
+   */
+
+  public static CaMeshPoseBounds create(
+    final CaMeshMetadataType meta)
+  {
+    NullCheck.notNull(meta, "Metadata");
+
+    final Seq<CaMeshJointBounds> bounds = meta.jointBounds().values();
+    final int[] joints = new int[bounds.size()];
+    final double[] boxes = new double[bounds.size() * 6];
+
+    for (int index = 0; index < bounds.size(); ++index) {
+      final CaMeshJointBounds b = bounds.get(index);
+      final PVectorI3D<CaSpaceJointType> min = b.minimum();
+      final PVectorI3D<CaSpaceJointType> max = b.maximum();
+      final int base = index * 6;
+      joints[index] = b.jointID();
+      boxes[base] = (min.getXD() + max.getXD()) * 0.5;
+      boxes[base + 1] = (min.getYD() + max.getYD()) * 0.5;
+      boxes[base + 2] = (min.getZD() + max.getZD()) * 0.5;
+      boxes[base + 3] = (max.getXD() - min.getXD()) * 0.5;
+      boxes[base + 4] = (max.getYD() - min.getYD()) * 0.5;
+      boxes[base + 5] = (max.getZD() - min.getZD()) * 0.5;
+    }
+
+    return new CaMeshPoseBounds(joints, boxes, meta.includesOrigin());
+  }
+
+  /**
+   * @return The number of joints with bounds
+   */
+
+  public int jointCount()
+  {
+    return this.joints.length;
+  }
+
+  /**
+   * Calculate a conservative bounding box, in object space, for the mesh
+   * deformed by the current pose of the given skeleton.
+   *
+   * @param skeleton The evaluated skeleton
+   * @param minimum  The minimum corner of the box
+   * @param maximum  The maximum corner of the box
+   *
+   * @return {@code false} iff there are no per-joint bounds, in which case
+   * the resulting box is empty
+   */
+
+  public boolean poseBoundsD(
+    final CaEvaluatedSkeletonReadableDType skeleton,
+    final VectorM3D minimum,
+    final VectorM3D maximum)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(minimum, "Minimum");
+    NullCheck.notNull(maximum, "Maximum");
+
+    CaMeshBoxes.empty(minimum, maximum);
+
+    if (this.includes_origin && this.joints.length > 0) {
+      minimum.set3D(0.0, 0.0, 0.0);
+      maximum.set3D(0.0, 0.0, 0.0);
+    }
+
+    for (int index = 0; index < this.joints.length; ++index) {
+      final PMatrixReadable4x4DType<CaSpaceJointType, CaSpaceObjectType> m =
+        skeleton.jointsByID().get(this.joints[index]).transformJointObject4x4D();
+
+      final int base = index * 6;
+      CaMeshBoxes.transformUnionD(
+        m,
+        this.boxes[base],
+        this.boxes[base + 1],
+        this.boxes[base + 2],
+        this.boxes[base + 3],
+        this.boxes[base + 4],
+        this.boxes[base + 5],
+        minimum,
+        maximum);
+    }
+
+    return this.joints.length > 0;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jnull.NullCheck;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads directly from a byte buffer, such as a mapped
+ * file, without any intermediate buffering.
+ */
+
+final class CaByteBufferInputStream extends InputStream
+{
+  private final ByteBuffer buffer;
+
+  CaByteBufferInputStream(
+    final ByteBuffer in_buffer)
+  {
+    this.buffer = NullCheck.notNull(in_buffer, "Buffer");
+  }
+
+  @Override
+  public int read()
+  {
+    if (!this.buffer.hasRemaining()) {
+      return -1;
+    }
+    return (int) this.buffer.get() & 0xff;
+  }
+
+  @Override
+  public int read(
+    final byte[] data,
+    final int offset,
+    final int length)
+  {
+    if (length == 0) {
+      return 0;
+    }
+
+    final int remaining = this.buffer.remaining();
+    if (remaining == 0) {
+      return -1;
+    }
+
+    final int count = Math.min(length, remaining);
+    this.buffer.get(data, offset, count);
+    return count;
+  }
+
+  @Override
+  public long skip(
+    final long count)
+  {
+    if (count <= 0L) {
+      return 0L;
+    }
+
+    final int skipped =
+      (int) Math.min(count, (long) this.buffer.remaining());
+    this.buffer.position(this.buffer.position() + skipped);
+    return (long) skipped;
+  }
+
+  @Override
+  public int available()
+  {
+    return this.buffer.remaining();
+  }
+}
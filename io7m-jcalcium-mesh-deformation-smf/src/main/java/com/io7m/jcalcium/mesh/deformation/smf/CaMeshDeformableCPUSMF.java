@@ -17,10 +17,8 @@
 package com.io7m.jcalcium.mesh.deformation.smf;
 
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
-import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
 import com.io7m.jpra.runtime.java.JPRACursor1DType;
-import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
 import javaslang.collection.SortedMap;
 
@@ -32,44 +30,44 @@ public final class CaMeshDeformableCPUSMF
   extends CaMeshDeformableCPUSMFAbstract
 {
   private CaMeshDeformableCPUSMF(
-    final SortedMap<String, CaMeshDeformableAttributeCursorType> in_target_cursors,
+    final CaMeshDeformableCPUSMFTargetRing in_targets,
     final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_source_cursors,
     final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_joint_indices_cursor,
-    final JPRACursor1DType<SMFByteBufferFloat4Type> in_joint_weights_cursor,
+    final CaMeshDeformableCPUSMFJointWeightsType in_joint_weights,
     final long in_vertex_count)
   {
     super(
-      in_target_cursors,
+      in_targets,
       in_source_cursors,
       in_joint_indices_cursor,
-      in_joint_weights_cursor,
+      in_joint_weights,
       in_vertex_count);
   }
 
   /**
    * Create a mesh.
    *
-   * @param in_target_cursors       The set of target cursors
+   * @param in_targets              The ring of target buffers
    * @param in_source_cursors       The set of source cursors
    * @param in_joint_indices_cursor The joint index cursor
-   * @param in_joint_weights_cursor The joint weight cursor
+   * @param in_joint_weights        The joint weight reader
    * @param in_vertex_count         The number of vertices
    *
    * @return A new mesh
    */
 
   public static CaMeshDeformableCPUType create(
-    final SortedMap<String, CaMeshDeformableAttributeCursorType> in_target_cursors,
+    final CaMeshDeformableCPUSMFTargetRing in_targets,
     final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_source_cursors,
     final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_joint_indices_cursor,
-    final JPRACursor1DType<SMFByteBufferFloat4Type> in_joint_weights_cursor,
+    final CaMeshDeformableCPUSMFJointWeightsType in_joint_weights,
     final long in_vertex_count)
   {
     return new CaMeshDeformableCPUSMF(
-      in_target_cursors,
+      in_targets,
       in_source_cursors,
       in_joint_indices_cursor,
-      in_joint_weights_cursor,
+      in_joint_weights,
       in_vertex_count);
   }
 }
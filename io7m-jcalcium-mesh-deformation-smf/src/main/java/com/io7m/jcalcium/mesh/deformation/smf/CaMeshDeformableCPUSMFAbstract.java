@@ -17,17 +17,20 @@
 package com.io7m.jcalcium.mesh.deformation.smf;
 
 import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets;
 import com.io7m.jnull.NullCheck;
 import com.io7m.jpra.runtime.java.JPRACursor1DType;
 import com.io7m.jtensors.VectorWritable4DType;
 import com.io7m.jtensors.VectorWritable4LType;
-import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
 import javaslang.collection.SortedMap;
 
+import java.util.Optional;
+
 /**
  * An abstract SMF implementation of the {@link CaMeshDeformableCPUType} type.
  */
@@ -35,34 +38,51 @@ import javaslang.collection.SortedMap;
 public abstract class CaMeshDeformableCPUSMFAbstract implements
   CaMeshDeformableCPUType
 {
-  private final SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors;
+  private final CaMeshDeformableCPUSMFTargetRing targets;
   private final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors;
   private final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> joint_indices_cursor;
-  private final JPRACursor1DType<SMFByteBufferFloat4Type> joint_weights_cursor;
+  private final CaMeshDeformableCPUSMFJointWeightsType joint_weights;
   private final long vertex_count;
+  private Optional<CaMeshInfluenceSets> influence_sets;
+  private Optional<CaMeshClusters> clusters;
 
   protected CaMeshDeformableCPUSMFAbstract(
-    final SortedMap<String, CaMeshDeformableAttributeCursorType> in_target_cursors,
+    final CaMeshDeformableCPUSMFTargetRing in_targets,
     final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_source_cursors,
     final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_joint_indices_cursor,
-    final JPRACursor1DType<SMFByteBufferFloat4Type> in_joint_weights_cursor,
+    final CaMeshDeformableCPUSMFJointWeightsType in_joint_weights,
     final long in_vertex_count)
   {
-    this.target_cursors =
-      NullCheck.notNull(in_target_cursors, "Target cursors");
+    this.targets =
+      NullCheck.notNull(in_targets, "Targets");
     this.source_cursors =
       NullCheck.notNull(in_source_cursors, "Source cursors");
     this.joint_indices_cursor =
       NullCheck.notNull(in_joint_indices_cursor, "Indices cursor");
-    this.joint_weights_cursor =
-      NullCheck.notNull(in_joint_weights_cursor, "Weights cursor");
+    this.joint_weights =
+      NullCheck.notNull(in_joint_weights, "Weights");
     this.vertex_count = in_vertex_count;
+    this.influence_sets = Optional.empty();
+    this.clusters = Optional.empty();
+  }
+
+  /**
+   * @return The ring of target buffers for the mesh
+   */
+
+  public final CaMeshDeformableCPUSMFTargetRing targets()
+  {
+    return this.targets;
   }
 
+  /**
+   * @return The target cursors of the current write slot of {@link #targets()}
+   */
+
   @Override
   public final SortedMap<String, CaMeshDeformableAttributeCursorType> meshTargetCursors()
   {
-    return this.target_cursors;
+    return this.targets.slotCursors(this.targets.writeSlot());
   }
 
   @Override
@@ -103,9 +123,63 @@ public abstract class CaMeshDeformableCPUSMFAbstract implements
       Long.compareUnsigned(vertex, this.vertexCount()) < 0,
       x -> "Vertex must exist");
 
-    final JPRACursor1DType<SMFByteBufferFloat4Type> c =
-      this.joint_weights_cursor;
-    c.setElementIndex(Math.toIntExact(vertex));
-    c.getElementView().get4D(out);
+    this.joint_weights.weightsForVertex(Math.toIntExact(vertex), out);
+  }
+
+  @Override
+  public final Optional<CaMeshInfluenceSets> influenceSets()
+  {
+    return this.influence_sets;
+  }
+
+  @Override
+  public final void analyzeInfluenceSets()
+  {
+    if (!this.influence_sets.isPresent()) {
+      this.influence_sets = Optional.of(CaMeshInfluenceSets.analyze(this));
+    }
+  }
+
+  @Override
+  public final void setInfluenceSets(
+    final CaMeshInfluenceSets sets)
+  {
+    NullCheck.notNull(sets, "Sets");
+    Preconditions.checkPreconditionL(
+      Integer.toUnsignedLong(sets.vertexCount()),
+      Integer.toUnsignedLong(sets.vertexCount()) == this.vertex_count,
+      x -> "Influence sets must cover exactly the vertices of the mesh");
+    this.influence_sets = Optional.of(sets);
+  }
+
+  @Override
+  public final Optional<CaMeshClusters> clusters()
+  {
+    return this.clusters;
+  }
+
+  @Override
+  public final void setClusters(
+    final CaMeshClusters in_clusters)
+  {
+    NullCheck.notNull(in_clusters, "Clusters");
+    Preconditions.checkPreconditionL(
+      Integer.toUnsignedLong(in_clusters.vertexCount()),
+      Integer.toUnsignedLong(in_clusters.vertexCount()) == this.vertex_count,
+      x -> "Clusters must cover exactly the vertices of the mesh");
+    this.clusters = Optional.of(in_clusters);
+  }
+
+  @Override
+  public final long deformedPoseVersion()
+  {
+    return this.targets.writePoseVersion();
+  }
+
+  @Override
+  public final void setDeformedPoseVersion(
+    final long version)
+  {
+    this.targets.setWritePoseVersion(version);
   }
 }
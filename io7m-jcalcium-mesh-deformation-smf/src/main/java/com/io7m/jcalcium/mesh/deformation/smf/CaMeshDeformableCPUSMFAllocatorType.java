@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.smfj.core.SMFTriangles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>The interface used to allocate buffers for SMF-backed CPU-side deformable
+ * meshes.</p>
+ *
+ * <p>The default implementations allocate heap buffers in native byte
+ * order.</p>
+ *
+ * @see CaMeshDeformableCPUSMFTargetArena
+ */
+
+public interface CaMeshDeformableCPUSMFAllocatorType
+{
+  /**
+   * Called when a new buffer is required to hold {@code size_octets} octets of
+   * joint data.
+   *
+   * @param size_octets The required size
+   *
+   * @return An allocated buffer
+   */
+
+  default ByteBuffer onAllocateJointBuffer(
+    final long size_octets)
+  {
+    final int isize = Math.toIntExact(size_octets);
+    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Called when a new buffer is required to hold {@code size_octets} octets of
+   * source data.
+   *
+   * @param size_octets The required size
+   *
+   * @return An allocated buffer
+   */
+
+  default ByteBuffer onAllocateSourceBuffer(
+    final long size_octets)
+  {
+    final int isize = Math.toIntExact(size_octets);
+    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Called when a new buffer is required to hold {@code size_octets} octets of
+   * target data.
+   *
+   * @param size_octets The required size
+   *
+   * @return An allocated buffer
+   */
+
+  default ByteBuffer onAllocateTargetBuffer(
+    final long size_octets)
+  {
+    final int isize = Math.toIntExact(size_octets);
+    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Called when a new buffer is required to hold {@code size_octets} octets of
+   * auxiliary data.
+   *
+   * @param size_octets The required size
+   *
+   * @return An allocated buffer
+   */
+
+  default ByteBuffer onAllocateAuxiliaryBuffer(
+    final long size_octets)
+  {
+    final int isize = Math.toIntExact(size_octets);
+    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Called when a new buffer is required to hold {@code size_octets} octets of
+   * triangle data.
+   *
+   * @param triangles   Information about the triangles that will be written
+   * @param size_octets The required size
+   *
+   * @return An allocated buffer
+   */
+
+  default ByteBuffer onAllocateTriangleBuffer(
+    final SMFTriangles triangles,
+    final long size_octets)
+  {
+    final int isize = Math.toIntExact(size_octets);
+    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
+  }
+}
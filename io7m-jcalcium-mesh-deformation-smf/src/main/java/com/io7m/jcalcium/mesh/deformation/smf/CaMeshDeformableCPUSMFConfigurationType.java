@@ -66,6 +66,61 @@ public interface CaMeshDeformableCPUSMFConfigurationType
     return name -> true;
   }
 
+  /**
+   * <p>If {@code true}, the influence sets of the mesh will be analyzed when
+   * the mesh is loaded.</p>
+   *
+   * <p>By default, meshes are not analyzed.</p>
+   *
+   * @return {@code true} iff the influence sets should be analyzed
+   *
+   * @see com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets
+   */
+
+  @Value.Default
+  default boolean analyzeInfluenceSets()
+  {
+    return false;
+  }
+
+  /**
+   * <p>The maximum number of vertices in each cluster of the mesh. If the
+   * value is positive, the mesh will be partitioned into clusters when it is
+   * loaded, allowing the deformation of clusters that are not visible to be
+   * skipped.</p>
+   *
+   * <p>By default, the value is {@code 0} and meshes are not
+   * partitioned.</p>
+   *
+   * @return The maximum number of vertices in each cluster
+   *
+   * @see com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters
+   */
+
+  @Value.Default
+  default int clusterVertexCount()
+  {
+    return 0;
+  }
+
+  /**
+   * <p>The number of target buffers allocated for each mesh. With more than
+   * one target buffer, deformation of one frame can overlap with reading of
+   * the previous frame.</p>
+   *
+   * <p>By default, meshes have a single target buffer.</p>
+   *
+   * @return The number of target buffers
+   *
+   * @see CaMeshDeformableCPUSMFTargetRing
+   */
+
+  @Value.Default
+  default int targetBufferCount()
+  {
+    return 1;
+  }
+
   /**
    * @return The set of attributes that will be subject to deformation, by name
    */
@@ -88,4 +143,21 @@ public interface CaMeshDeformableCPUSMFConfigurationType
         })));
   }
 
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.targetBufferCount() < 1) {
+      throw new IllegalArgumentException(
+        "Target buffer count must be at least 1");
+    }
+    if (this.clusterVertexCount() < 0) {
+      throw new IllegalArgumentException(
+        "Cluster vertex count must be nonnegative");
+    }
+  }
+
 }
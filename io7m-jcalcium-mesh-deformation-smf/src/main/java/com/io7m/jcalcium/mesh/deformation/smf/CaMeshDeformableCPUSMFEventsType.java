@@ -17,19 +17,13 @@
 package com.io7m.jcalcium.mesh.deformation.smf;
 
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
-import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
 import com.io7m.jpra.runtime.java.JPRACursor1DType;
-import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferPackedTriangles;
 import com.io7m.smfj.core.SMFHeader;
-import com.io7m.smfj.core.SMFTriangles;
 import javaslang.collection.SortedMap;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-
 /**
  * The event receiver interface for producing SMF-backed CPU-side deformable
  * meshes.
@@ -38,6 +32,7 @@ import java.nio.ByteOrder;
  */
 
 public interface CaMeshDeformableCPUSMFEventsType<T extends CaMeshDeformableCPUType>
+  extends CaMeshDeformableCPUSMFAllocatorType
 {
   /**
    * Called unconditionally when mesh creation begins.
@@ -49,98 +44,25 @@ public interface CaMeshDeformableCPUSMFEventsType<T extends CaMeshDeformableCPUT
   }
 
   /**
-   * Called when a new buffer is required to hold {@code size_octets} octets of
-   * joint data.
-   *
-   * @param size_octets The required size
-   *
-   * @return An allocated buffer
-   */
-
-  default ByteBuffer onAllocateJointBuffer(
-    final long size_octets)
-  {
-    final int isize = Math.toIntExact(size_octets);
-    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
-  }
-
-  /**
-   * Called when a new buffer is required to hold {@code size_octets} octets of
-   * source data.
-   *
-   * @param size_octets The required size
-   *
-   * @return An allocated buffer
-   */
-
-  default ByteBuffer onAllocateSourceBuffer(
-    final long size_octets)
-  {
-    final int isize = Math.toIntExact(size_octets);
-    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
-  }
-
-  /**
-   * Called when a new buffer is required to hold {@code size_octets} octets of
-   * target data.
+   * <p>Called when all data has been parsed and processed.</p>
    *
-   * @param size_octets The required size
+   * <p>If the mesh is being created from a {@link CaMeshDeformableCPUSMFTemplate},
+   * the joint, source, auxiliary and triangle data are shared with every other
+   * mesh created from the same template and must not be modified. Only the
+   * target data belongs to the new mesh.</p>
    *
-   * @return An allocated buffer
-   */
-
-  default ByteBuffer onAllocateTargetBuffer(
-    final long size_octets)
-  {
-    final int isize = Math.toIntExact(size_octets);
-    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
-  }
-
-  /**
-   * Called when a new buffer is required to hold {@code size_octets} octets of
-   * auxiliary data.
-   *
-   * @param size_octets The required size
-   *
-   * @return An allocated buffer
-   */
-
-  default ByteBuffer onAllocateAuxiliaryBuffer(
-    final long size_octets)
-  {
-    final int isize = Math.toIntExact(size_octets);
-    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
-  }
-
-  /**
-   * Called when a new buffer is required to hold {@code size_octets} octets of
-   * triangle data.
-   *
-   * @param triangles   Information about the triangles that will be written
-   * @param size_octets The required size
-   *
-   * @return An allocated buffer
-   */
-
-  default ByteBuffer onAllocateTriangleBuffer(
-    final SMFTriangles triangles,
-    final long size_octets)
-  {
-    final int isize = Math.toIntExact(size_octets);
-    return ByteBuffer.allocate(isize).order(ByteOrder.nativeOrder());
-  }
-
-  /**
-   * Called when all data has been parsed and processed.
+   * <p>The ring of target buffers has {@link
+   * CaMeshDeformableCPUSMFConfigurationType#targetBufferCount()} slots, each
+   * allocated with {@link #onAllocateTargetBuffer(long)}.</p>
    *
    * @param header              The SMF mesh header
    * @param joint_data          Packed joint data
    * @param cursor_joint_index  A cursor into the joint data for joint indices
-   * @param cursor_joint_weight A cursor into the joint data for joint weights
+   * @param joint_weights       A reader for the joint weights in the joint
+   *                            data
    * @param source_data         Packed source data
    * @param source_cursors      The set of source cursors
-   * @param target_data         Packed target data
-   * @param target_cursors      The set of target cursors
+   * @param targets             The ring of target buffers
    * @param aux_data            Packed auxiliary data
    * @param triangle_data       Packed triangle data
    *
@@ -151,11 +73,10 @@ public interface CaMeshDeformableCPUSMFEventsType<T extends CaMeshDeformableCPUT
     SMFHeader header,
     CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data,
     JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index,
-    JPRACursor1DType<SMFByteBufferFloat4Type> cursor_joint_weight,
+    CaMeshDeformableCPUSMFJointWeightsType joint_weights,
     CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data,
     SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
-    CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> target_data,
-    SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors,
+    CaMeshDeformableCPUSMFTargetRing targets,
     CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data,
     SMFByteBufferPackedTriangles triangle_data);
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jpra.runtime.java.JPRACursor1DType;
+import com.io7m.jtensors.VectorM4L;
+import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
+import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
+
+/**
+ * Functions to create readers of packed joint weights.
+ */
+
+public final class CaMeshDeformableCPUSMFJointWeights
+{
+  private CaMeshDeformableCPUSMFJointWeights()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a reader for weights packed as floating point values.
+   *
+   * @param cursor    A cursor over the packed weights
+   * @param size_bits The size in bits of each weight component
+   *
+   * @return A weight reader
+   */
+
+  public static CaMeshDeformableCPUSMFJointWeightsType ofFloating(
+    final JPRACursor1DType<SMFByteBufferFloat4Type> cursor,
+    final int size_bits)
+  {
+    return new Floating(cursor, size_bits);
+  }
+
+  /**
+   * Create a reader for weights packed as normalized unsigned integers. A
+   * packed value {@code q} is decoded as {@code q / (2 ^ size_bits - 1)}.
+   *
+   * @param cursor    A cursor over the packed weights
+   * @param size_bits The size in bits of each weight component (8 or 16)
+   *
+   * @return A weight reader
+   */
+
+  public static CaMeshDeformableCPUSMFJointWeightsType ofNormalizedUnsigned(
+    final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor,
+    final int size_bits)
+  {
+    return new NormalizedUnsigned(cursor, size_bits);
+  }
+
+  private static final class Floating
+    implements CaMeshDeformableCPUSMFJointWeightsType
+  {
+    private final JPRACursor1DType<SMFByteBufferFloat4Type> cursor;
+    private final SMFByteBufferFloat4Type view;
+    private final int size_bits;
+
+    Floating(
+      final JPRACursor1DType<SMFByteBufferFloat4Type> in_cursor,
+      final int in_size_bits)
+    {
+      this.cursor = NullCheck.notNull(in_cursor, "Cursor");
+      this.view = this.cursor.getElementView();
+      this.size_bits = in_size_bits;
+    }
+
+    @Override
+    public int componentSizeBits()
+    {
+      return this.size_bits;
+    }
+
+    @Override
+    public void weightsForVertex(
+      final int vertex,
+      final VectorWritable4DType out)
+    {
+      this.cursor.setElementIndex(vertex);
+      this.view.get4D(out);
+    }
+  }
+
+  private static final class NormalizedUnsigned
+    implements CaMeshDeformableCPUSMFJointWeightsType
+  {
+    private final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor;
+    private final SMFByteBufferIntegerUnsigned4Type view;
+    private final VectorM4L temporary;
+    private final double scale;
+    private final int size_bits;
+
+    NormalizedUnsigned(
+      final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_cursor,
+      final int in_size_bits)
+    {
+      this.cursor = NullCheck.notNull(in_cursor, "Cursor");
+
+      Preconditions.checkPreconditionI(
+        in_size_bits,
+        in_size_bits == 8 || in_size_bits == 16,
+        x -> "Normalized weight size must be 8 or 16 bits");
+
+      this.view = this.cursor.getElementView();
+      this.temporary = new VectorM4L();
+      this.size_bits = in_size_bits;
+      this.scale = 1.0 / (double) ((1 << in_size_bits) - 1);
+    }
+
+    @Override
+    public int componentSizeBits()
+    {
+      return this.size_bits;
+    }
+
+    @Override
+    public void weightsForVertex(
+      final int vertex,
+      final VectorWritable4DType out)
+    {
+      this.cursor.setElementIndex(vertex);
+      this.view.get4UL(this.temporary);
+      out.set4D(
+        (double) this.temporary.getXL() * this.scale,
+        (double) this.temporary.getYL() * this.scale,
+        (double) this.temporary.getZL() * this.scale,
+        (double) this.temporary.getWL() * this.scale);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jtensors.VectorWritable4DType;
+
+/**
+ * <p>The type of readers of packed joint weights.</p>
+ *
+ * <p>Joint weights may be packed either as floating point values or as
+ * normalized unsigned integers. Readers decode either representation to
+ * floating point weights.</p>
+ *
+ * @see CaMeshDeformableCPUSMFJointWeights
+ */
+
+public interface CaMeshDeformableCPUSMFJointWeightsType
+{
+  /**
+   * @return The size in bits of each packed weight component
+   */
+
+  int componentSizeBits();
+
+  /**
+   * Read the weights for the given vertex.
+   *
+   * @param vertex The vertex index
+   * @param out    The output vector that will contain joint weights
+   */
+
+  void weightsForVertex(
+    int vertex,
+    VectorWritable4DType out);
+}
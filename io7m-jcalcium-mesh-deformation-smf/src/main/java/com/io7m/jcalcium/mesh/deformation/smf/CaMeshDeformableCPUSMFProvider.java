@@ -18,13 +18,16 @@ package com.io7m.jcalcium.mesh.deformation.smf;
 
 import com.io7m.jaffirm.core.Invariants;
 import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursor3Type;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursor4Type;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSemantic;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSourceSelection;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUReadableType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets;
 import com.io7m.jcalcium.mesh.processing.smf.CaSchemas;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jlexing.core.LexicalPosition;
@@ -32,6 +35,7 @@ import com.io7m.jnull.NullCheck;
 import com.io7m.jpra.runtime.java.JPRACursor1DType;
 import com.io7m.jtensors.VectorWritable3DType;
 import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.jtensors.VectorWritable4LType;
 import com.io7m.junreachable.UnreachableCodeException;
 import com.io7m.smfj.bytebuffer.SMFByteBufferCursors;
 import com.io7m.smfj.bytebuffer.SMFByteBufferFloat3Type;
@@ -75,7 +79,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -142,92 +148,398 @@ public final class CaMeshDeformableCPUSMFProvider
 
     try {
       events.onStart();
+      return parseTemplate(
+        parser_provider, validator, meta, config, events, path, stream)
+        .flatMap(template -> instantiate(template, events));
+    } finally {
+      events.onFinish();
+    }
+  }
 
-      final SMFByteBufferPackedMeshLoaderType loader =
-        SMFByteBufferPackedMeshes.newLoader(
-          meta, new Packer<>(config, events, validator));
-
-      return runParser(parser_provider, path, stream, loader).flatMap(
-        ignored -> {
-          try {
-            final SMFByteBufferPackedMesh mesh = loader.mesh();
-
-            final SortedMap<Integer, SMFByteBufferPackedAttributeSet> attribute_sets_by_id =
-              mesh.attributeSetsByID();
-
-            final SMFByteBufferPackedAttributeSet joint_attributes =
-              attribute_sets_by_id.get(Integer.valueOf(INDEX_JOINTS)).get();
-            final SMFByteBufferPackedAttributeSet source_attributes =
-              attribute_sets_by_id.get(Integer.valueOf(INDEX_SOURCE)).get();
-            final SMFByteBufferPackedAttributeSet aux_attributes =
-              attribute_sets_by_id.get(Integer.valueOf(INDEX_AUX)).get();
-
-            final long size =
-              Integer.toUnsignedLong(source_attributes.byteBuffer().capacity());
-            final ByteBuffer target =
-              events.onAllocateTargetBuffer(size);
-
-            Invariants.checkInvariantL(
-              (long) target.capacity(),
-              size == (long) target.capacity(),
-              x -> "Allocated target buffer must be of size " + size);
-
-            final SMFByteBufferPackedAttributeSet target_attributes =
-              SMFByteBufferPackedAttributeSet.builder()
-                .from(source_attributes)
-                .setByteBuffer(target)
-                .setId(INDEX_TARGET)
-                .build();
-
-            final SMFByteBufferPackingConfiguration joint_data_config =
-              joint_attributes.configuration();
-            final SortedMap<SMFAttributeName, SMFByteBufferPackedAttribute> joint_data_by_name =
-              joint_data_config.packedAttributesByName();
-
-            final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index =
-              SMFByteBufferCursors.createUnsigned4(
-                joint_data_config,
-                joint_data_by_name.get(JOINT_INDICES_NAME).get(),
-                joint_attributes.byteBuffer());
-            final JPRACursor1DType<SMFByteBufferFloat4Type> cursor_joint_weight =
-              SMFByteBufferCursors.createFloat4(
-                joint_data_config,
-                joint_data_by_name.get(JOINT_WEIGHTS_NAME).get(),
-                joint_attributes.byteBuffer());
-
-            final Optional<SMFByteBufferPackedTriangles> tri_opt = mesh.triangles();
-            Preconditions.checkPrecondition(
-              tri_opt.isPresent(),
-              "Triangles must be present");
-
-            final Tuple2<
-              SortedMap<String, CaMeshDeformableAttributeCursorReadableType>,
-              SortedMap<String, CaMeshDeformableAttributeCursorType>> pair =
-              createCursors(config, source_attributes, target);
-
-            return valid(events.onCreated(
-              mesh.header(),
-              CaMeshDeformableCPUSMFPackedAttributeSet.of(joint_attributes),
-              cursor_joint_index,
-              cursor_joint_weight,
-              CaMeshDeformableCPUSMFPackedAttributeSet.of(source_attributes),
-              pair._1,
-              CaMeshDeformableCPUSMFPackedAttributeSet.of(target_attributes),
-              pair._2,
-              CaMeshDeformableCPUSMFPackedAttributeSet.of(aux_attributes),
-              tri_opt.get()
-            ));
-
-          } catch (final Exception e) {
-            return invalid(List.of(
-              SMFProcessingError.of(e.getMessage(), Optional.of(e))));
-          }
-        });
+  /**
+   * <p>Create a new mesh template from an SMF file. The file is parsed and
+   * validated exactly once, and the resulting joint, source, auxiliary and
+   * triangle data are shared by every mesh subsequently created with
+   * {@link #createFromTemplate(CaMeshDeformableCPUSMFTemplateType,
+   * CaMeshDeformableCPUSMFEventsType)}.</p>
+   *
+   * @param parser_provider A parser provider
+   * @param validator       A mesh validator
+   * @param meta            A metadata listener
+   * @param config          The mesh configuration
+   * @param allocator       An allocator for the shared buffers
+   * @param path            The mesh path to be used in error messages
+   * @param stream          A stream referring to an SMF file
+   *
+   * @return A mesh template, or a list of reasons why the template could not
+   * be created
+   */
+
+  public static Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate>
+  createTemplateFromStream(
+    final SMFParserProviderType parser_provider,
+    final SMFSchemaValidatorType validator,
+    final SMFParserEventsMetaType meta,
+    final CaMeshDeformableCPUSMFConfiguration config,
+    final CaMeshDeformableCPUSMFAllocatorType allocator,
+    final Path path,
+    final InputStream stream)
+  {
+    NullCheck.notNull(parser_provider, "Parser provider");
+    NullCheck.notNull(validator, "Validator");
+    NullCheck.notNull(meta, "AddMetadata");
+    NullCheck.notNull(config, "Config");
+    NullCheck.notNull(allocator, "Allocator");
+    NullCheck.notNull(path, "Path");
+    NullCheck.notNull(stream, "Stream");
+
+    return parseTemplate(
+      parser_provider, validator, meta, config, allocator, path, stream);
+  }
+
+  /**
+   * <p>Create a new CPU-deformable mesh from a template. Only a target buffer
+   * is allocated; all other data is shared with the template.</p>
+   *
+   * @param template The mesh template
+   * @param events   An event receiver
+   * @param <T>      The precise type of meshes created
+   *
+   * @return A deformable mesh, or a list of reasons why the mesh could not be
+   * created
+   */
+
+  public static <T extends CaMeshDeformableCPUType> Validation<List<SMFErrorType>, T>
+  createFromTemplate(
+    final CaMeshDeformableCPUSMFTemplateType template,
+    final CaMeshDeformableCPUSMFEventsType<T> events)
+  {
+    NullCheck.notNull(template, "Template");
+    NullCheck.notNull(events, "Events");
+
+    try {
+      events.onStart();
+      return instantiate(template, events);
+    } finally {
+      events.onFinish();
+    }
+  }
+
+  /**
+   * <p>Create a new CPU-deformable mesh from an SMF file on disk. The file is
+   * mapped into memory and parsed directly from the mapping, avoiding the
+   * intermediate copies made when reading through a stream.</p>
+   *
+   * @param parser_provider A parser provider
+   * @param validator       A mesh validator
+   * @param meta            A metadata listener
+   * @param config          The mesh configuration
+   * @param events          An event receiver
+   * @param path            The path of an SMF file
+   * @param <T>             The precise type of meshes created
+   *
+   * @return A deformable mesh, or a list of reasons why the mesh could not be
+   * created
+   */
+
+  public static <T extends CaMeshDeformableCPUType> Validation<List<SMFErrorType>, T>
+  createFromFile(
+    final SMFParserProviderType parser_provider,
+    final SMFSchemaValidatorType validator,
+    final SMFParserEventsMetaType meta,
+    final CaMeshDeformableCPUSMFConfiguration config,
+    final CaMeshDeformableCPUSMFEventsType<T> events,
+    final Path path)
+  {
+    NullCheck.notNull(parser_provider, "Parser provider");
+    NullCheck.notNull(validator, "Validator");
+    NullCheck.notNull(meta, "AddMetadata");
+    NullCheck.notNull(config, "Config");
+    NullCheck.notNull(events, "Events");
+    NullCheck.notNull(path, "Path");
+
+    try {
+      events.onStart();
+      final InputStream stream = new CaByteBufferInputStream(mapFile(path));
+      return parseTemplate(
+        parser_provider, validator, meta, config, events, path, stream)
+        .flatMap(template -> instantiate(template, events));
+    } catch (final IOException e) {
+      return invalid(List.of(ioError(path, e)));
     } finally {
       events.onFinish();
     }
   }
 
+  /**
+   * <p>Create a new mesh template from an SMF file on disk. The file is mapped
+   * into memory and parsed directly from the mapping.</p>
+   *
+   * @param parser_provider A parser provider
+   * @param validator       A mesh validator
+   * @param meta            A metadata listener
+   * @param config          The mesh configuration
+   * @param allocator       An allocator for the shared buffers
+   * @param path            The path of an SMF file
+   *
+   * @return A mesh template, or a list of reasons why the template could not
+   * be created
+   *
+   * @see #createTemplateFromStream(SMFParserProviderType,
+   * SMFSchemaValidatorType, SMFParserEventsMetaType,
+   * CaMeshDeformableCPUSMFConfiguration, CaMeshDeformableCPUSMFAllocatorType,
+   * Path, InputStream)
+   */
+
+  public static Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate>
+  createTemplateFromFile(
+    final SMFParserProviderType parser_provider,
+    final SMFSchemaValidatorType validator,
+    final SMFParserEventsMetaType meta,
+    final CaMeshDeformableCPUSMFConfiguration config,
+    final CaMeshDeformableCPUSMFAllocatorType allocator,
+    final Path path)
+  {
+    NullCheck.notNull(parser_provider, "Parser provider");
+    NullCheck.notNull(validator, "Validator");
+    NullCheck.notNull(meta, "AddMetadata");
+    NullCheck.notNull(config, "Config");
+    NullCheck.notNull(allocator, "Allocator");
+    NullCheck.notNull(path, "Path");
+
+    try {
+      final InputStream stream = new CaByteBufferInputStream(mapFile(path));
+      return parseTemplate(
+        parser_provider, validator, meta, config, allocator, path, stream);
+    } catch (final IOException e) {
+      return invalid(List.of(ioError(path, e)));
+    }
+  }
+
+  private static Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate>
+  parseTemplate(
+    final SMFParserProviderType parser_provider,
+    final SMFSchemaValidatorType validator,
+    final SMFParserEventsMetaType meta,
+    final CaMeshDeformableCPUSMFConfiguration config,
+    final CaMeshDeformableCPUSMFAllocatorType allocator,
+    final Path path,
+    final InputStream stream)
+  {
+    final SMFByteBufferPackedMeshLoaderType loader =
+      SMFByteBufferPackedMeshes.newLoader(
+        meta, new Packer(config, allocator, validator));
+
+    return runParser(parser_provider, path, stream, loader).flatMap(
+      ignored -> {
+        try {
+          final SMFByteBufferPackedMesh mesh = loader.mesh();
+
+          final SortedMap<Integer, SMFByteBufferPackedAttributeSet> attribute_sets_by_id =
+            mesh.attributeSetsByID();
+
+          final SMFByteBufferPackedAttributeSet joint_attributes =
+            attribute_sets_by_id.get(Integer.valueOf(INDEX_JOINTS)).get();
+          final SMFByteBufferPackedAttributeSet source_attributes =
+            attribute_sets_by_id.get(Integer.valueOf(INDEX_SOURCE)).get();
+          final SMFByteBufferPackedAttributeSet aux_attributes =
+            attribute_sets_by_id.get(Integer.valueOf(INDEX_AUX)).get();
+
+          final Optional<SMFByteBufferPackedTriangles> tri_opt = mesh.triangles();
+          Preconditions.checkPrecondition(
+            tri_opt.isPresent(),
+            "Triangles must be present");
+
+          final CaMeshDeformableCPUSMFTemplate.Builder template_builder =
+            CaMeshDeformableCPUSMFTemplate.builder();
+          template_builder.setConfiguration(config);
+          template_builder.setHeader(mesh.header());
+          template_builder.setJointData(
+            CaMeshDeformableCPUSMFPackedAttributeSet.of(joint_attributes));
+          template_builder.setSourceData(
+            CaMeshDeformableCPUSMFPackedAttributeSet.of(source_attributes));
+          template_builder.setAuxiliaryData(
+            CaMeshDeformableCPUSMFPackedAttributeSet.of(aux_attributes));
+          template_builder.setTriangleData(tri_opt.get());
+
+          final JointView view =
+            new JointView(
+              joint_attributes,
+              createCursors(
+                config, source_attributes, source_attributes.byteBuffer())._1,
+              mesh.header().vertexCount());
+
+          if (config.analyzeInfluenceSets()) {
+            final CaMeshInfluenceSets sets = CaMeshInfluenceSets.analyze(view);
+            LOG.debug(
+              "{}: {} vertices, {} influence sets",
+              path,
+              Integer.valueOf(sets.vertexCount()),
+              Integer.valueOf(sets.setCount()));
+            template_builder.setInfluenceSets(sets);
+          }
+
+          if (config.clusterVertexCount() > 0) {
+            final CaMeshClusters clusters =
+              CaMeshClusters.partition(view, config.clusterVertexCount());
+            LOG.debug(
+              "{}: {} vertices, {} clusters",
+              path,
+              Integer.valueOf(clusters.vertexCount()),
+              Integer.valueOf(clusters.clusterCount()));
+            template_builder.setClusters(clusters);
+          }
+
+          return valid(template_builder.build());
+        } catch (final Exception e) {
+          return invalid(List.of(
+            SMFProcessingError.of(e.getMessage(), Optional.of(e))));
+        }
+      });
+  }
+
+  private static <T extends CaMeshDeformableCPUType> Validation<List<SMFErrorType>, T>
+  instantiate(
+    final CaMeshDeformableCPUSMFTemplateType template,
+    final CaMeshDeformableCPUSMFEventsType<T> events)
+  {
+    try {
+      final SMFByteBufferPackedAttributeSet joint_attributes =
+        share(template.jointData().set());
+      final SMFByteBufferPackedAttributeSet source_attributes =
+        share(template.sourceData().set());
+      final SMFByteBufferPackedAttributeSet aux_attributes =
+        share(template.auxiliaryData().set());
+
+      final CaMeshDeformableCPUSMFConfiguration config =
+        template.configuration();
+      final long size = template.targetSizeOctets();
+
+      SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors =
+        TreeMap.empty();
+      Vector<CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType>> target_data =
+        Vector.empty();
+      Vector<SortedMap<String, CaMeshDeformableAttributeCursorType>> target_cursors =
+        Vector.empty();
+
+      for (int slot = 0; slot < config.targetBufferCount(); ++slot) {
+        final ByteBuffer target = events.onAllocateTargetBuffer(size);
+
+        Invariants.checkInvariantL(
+          (long) target.capacity(),
+          size == (long) target.capacity(),
+          x -> "Allocated target buffer must be of size " + size);
+
+        final SMFByteBufferPackedAttributeSet target_attributes =
+          SMFByteBufferPackedAttributeSet.builder()
+            .from(source_attributes)
+            .setByteBuffer(target)
+            .setId(INDEX_TARGET)
+            .build();
+
+        final Tuple2<
+          SortedMap<String, CaMeshDeformableAttributeCursorReadableType>,
+          SortedMap<String, CaMeshDeformableAttributeCursorType>> pair =
+          createCursors(config, source_attributes, target);
+
+        source_cursors = pair._1;
+        target_data = target_data.append(
+          CaMeshDeformableCPUSMFPackedAttributeSet.of(target_attributes));
+        target_cursors = target_cursors.append(pair._2);
+      }
+
+      final T created = events.onCreated(
+        template.header(),
+        CaMeshDeformableCPUSMFPackedAttributeSet.of(joint_attributes),
+        createJointIndices(joint_attributes),
+        createJointWeights(joint_attributes),
+        CaMeshDeformableCPUSMFPackedAttributeSet.of(source_attributes),
+        source_cursors,
+        CaMeshDeformableCPUSMFTargetRing.create(target_data, target_cursors),
+        CaMeshDeformableCPUSMFPackedAttributeSet.of(aux_attributes),
+        template.triangleData()
+      );
+
+      template.influenceSets().ifPresent(created::setInfluenceSets);
+      template.clusters().ifPresent(created::setClusters);
+      return valid(created);
+
+    } catch (final Exception e) {
+      return invalid(List.of(
+        SMFProcessingError.of(e.getMessage(), Optional.of(e))));
+    }
+  }
+
+  /**
+   * Create a view of a shared attribute set. The view shares the contents of
+   * the original buffer but has its own position, limit and mark.
+   */
+
+  private static SMFByteBufferPackedAttributeSet share(
+    final SMFByteBufferPackedAttributeSet set)
+  {
+    final ByteBuffer buffer = set.byteBuffer();
+    return SMFByteBufferPackedAttributeSet.builder()
+      .from(set)
+      .setByteBuffer(buffer.duplicate().order(buffer.order()))
+      .build();
+  }
+
+  private static JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type>
+  createJointIndices(
+    final SMFByteBufferPackedAttributeSet joint_attributes)
+  {
+    final SMFByteBufferPackingConfiguration joint_data_config =
+      joint_attributes.configuration();
+    return SMFByteBufferCursors.createUnsigned4(
+      joint_data_config,
+      joint_data_config.packedAttributesByName().get(JOINT_INDICES_NAME).get(),
+      joint_attributes.byteBuffer());
+  }
+
+  private static CaMeshDeformableCPUSMFJointWeightsType createJointWeights(
+    final SMFByteBufferPackedAttributeSet joint_attributes)
+  {
+    final SMFByteBufferPackingConfiguration joint_data_config =
+      joint_attributes.configuration();
+    return createJointWeights(
+      joint_data_config,
+      joint_data_config.packedAttributesByName().get(JOINT_WEIGHTS_NAME).get(),
+      joint_attributes.byteBuffer());
+  }
+
+  /**
+   * Create a reader for joint weights. Weights are stored either as floating
+   * point values or, if the mesh has been compiled with quantized weights,
+   * as normalized unsigned integers. In the latter case, the weights are
+   * decoded directly from the packed integers.
+   */
+
+  private static CaMeshDeformableCPUSMFJointWeightsType createJointWeights(
+    final SMFByteBufferPackingConfiguration config,
+    final SMFByteBufferPackedAttribute packed,
+    final ByteBuffer buffer)
+  {
+    final SMFAttribute attribute = packed.attribute();
+    switch (attribute.componentType()) {
+      case ELEMENT_TYPE_FLOATING: {
+        return CaMeshDeformableCPUSMFJointWeights.ofFloating(
+          SMFByteBufferCursors.createFloat4(config, packed, buffer),
+          attribute.componentSizeBits());
+      }
+      case ELEMENT_TYPE_INTEGER_UNSIGNED: {
+        return CaMeshDeformableCPUSMFJointWeights.ofNormalizedUnsigned(
+          SMFByteBufferCursors.createUnsigned4(config, packed, buffer),
+          attribute.componentSizeBits());
+      }
+      case ELEMENT_TYPE_INTEGER_SIGNED: {
+        break;
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
   private static Validation<List<SMFErrorType>, Unit> runParser(
     final SMFParserProviderType parser_provider,
     final Path path,
@@ -246,17 +558,41 @@ public final class CaMeshDeformableCPUSMFProvider
         return invalid(loader.errors());
       }
     } catch (final IOException e) {
-      final SMFParseError error =
-        SMFParseError.of(
-          LexicalPosition.of(0, 0, Optional.of(path)),
-          e.getMessage(),
-          Optional.of(e));
-      return invalid(List.of(error));
+      return invalid(List.of(ioError(path, e)));
     }
 
     return valid(Unit.unit());
   }
 
+  private static SMFErrorType ioError(
+    final Path path,
+    final IOException e)
+  {
+    return SMFParseError.of(
+      LexicalPosition.of(0, 0, Optional.of(path)),
+      e.getMessage(),
+      Optional.of(e));
+  }
+
+  /**
+   * Map the given file into memory. The mapping remains valid after the
+   * channel is closed.
+   */
+
+  private static ByteBuffer mapFile(
+    final Path path)
+    throws IOException
+  {
+    try (final FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > (long) Integer.MAX_VALUE) {
+        throw new IOException("File is too large: " + size + " octets");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+    }
+  }
+
   /**
    * Instantiate cursors for all of the required attributes.
    */
@@ -333,20 +669,20 @@ public final class CaMeshDeformableCPUSMFProvider
     return Tuple.of(r_source_cursors, r_target_cursors);
   }
 
-  private static final class Packer<T extends CaMeshDeformableCPUType>
+  private static final class Packer
     implements SMFByteBufferPackerEventsType
   {
     private final SMFSchemaValidatorType validator;
     private final CaMeshDeformableCPUSMFConfiguration config;
-    private final CaMeshDeformableCPUSMFEventsType<T> events;
+    private final CaMeshDeformableCPUSMFAllocatorType allocator;
 
     private Packer(
       final CaMeshDeformableCPUSMFConfiguration in_config,
-      final CaMeshDeformableCPUSMFEventsType<T> in_events,
+      final CaMeshDeformableCPUSMFAllocatorType in_allocator,
       final SMFSchemaValidatorType in_validator)
     {
       this.config = NullCheck.notNull(in_config, "Config");
-      this.events = NullCheck.notNull(in_events, "Events");
+      this.allocator = NullCheck.notNull(in_allocator, "Allocator");
       this.validator = NullCheck.notNull(in_validator, "Validator");
     }
 
@@ -452,6 +788,51 @@ public final class CaMeshDeformableCPUSMFProvider
         .build();
     }
 
+    /**
+     * Joint weights must be floating point values, or 8 or 16-bit normalized
+     * unsigned integers. The schema cannot express this, so it is checked
+     * explicitly.
+     */
+
+    private static Validation<List<SMFErrorType>, SMFHeader> checkJointWeights(
+      final SMFHeader header)
+    {
+      final SMFAttribute attr =
+        header.attributesByName().get(JOINT_WEIGHTS_NAME).get();
+
+      switch (attr.componentType()) {
+        case ELEMENT_TYPE_FLOATING: {
+          return valid(header);
+        }
+        case ELEMENT_TYPE_INTEGER_UNSIGNED: {
+          if (attr.componentSizeBits() == 8 || attr.componentSizeBits() == 16) {
+            return valid(header);
+          }
+          break;
+        }
+        case ELEMENT_TYPE_INTEGER_SIGNED: {
+          break;
+        }
+      }
+
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Joint weights attribute is of the wrong type.");
+      sb.append(System.lineSeparator());
+      sb.append("  Attribute: ");
+      sb.append(attr.name().value());
+      sb.append(System.lineSeparator());
+      sb.append("  Expected type: float 4 any | integer-unsigned 4 (8 | 16)");
+      sb.append(System.lineSeparator());
+      sb.append("  Received type: ");
+      sb.append(attr.componentType().getName());
+      sb.append(" ");
+      sb.append(attr.componentCount());
+      sb.append(" ");
+      sb.append(attr.componentSizeBits());
+      sb.append(System.lineSeparator());
+      return invalid(List.of(SMFProcessingError.of(sb.toString(), Optional.empty())));
+    }
+
     @Override
     public Validation<List<SMFErrorType>, SortedMap<Integer, SMFByteBufferPackingConfiguration>>
     onHeader(
@@ -460,25 +841,27 @@ public final class CaMeshDeformableCPUSMFProvider
       final SMFSchema schema_new =
         createSchemaWithRequired(CaSchemas.standardConventions(), this.config);
 
-      return this.validator.validate(head, schema_new).map(header -> {
-        final SMFByteBufferPackingConfiguration mesh_source_config =
-          createMeshSourcePackingConfiguration(
-            header,
-            this.config.sourceAttributes());
-        final SMFByteBufferPackingConfiguration mesh_joint_config =
-          createMeshJointPackingConfiguration(header);
-        final SMFByteBufferPackingConfiguration aux_b =
-          createMeshAuxiliaryPackingConfiguration(
-            this.config,
-            header,
-            mesh_source_config,
-            mesh_joint_config);
-
-        return TreeMap.ofEntries(
-          Tuple.of(Integer.valueOf(INDEX_SOURCE), mesh_source_config),
-          Tuple.of(Integer.valueOf(INDEX_AUX), aux_b),
-          Tuple.of(Integer.valueOf(INDEX_JOINTS), mesh_joint_config));
-      });
+      return this.validator.validate(head, schema_new)
+        .flatMap(Packer::checkJointWeights)
+        .map(header -> {
+          final SMFByteBufferPackingConfiguration mesh_source_config =
+            createMeshSourcePackingConfiguration(
+              header,
+              this.config.sourceAttributes());
+          final SMFByteBufferPackingConfiguration mesh_joint_config =
+            createMeshJointPackingConfiguration(header);
+          final SMFByteBufferPackingConfiguration aux_b =
+            createMeshAuxiliaryPackingConfiguration(
+              this.config,
+              header,
+              mesh_source_config,
+              mesh_joint_config);
+
+          return TreeMap.ofEntries(
+            Tuple.of(Integer.valueOf(INDEX_SOURCE), mesh_source_config),
+            Tuple.of(Integer.valueOf(INDEX_AUX), aux_b),
+            Tuple.of(Integer.valueOf(INDEX_JOINTS), mesh_joint_config));
+        });
     }
 
     @Override
@@ -493,7 +876,7 @@ public final class CaMeshDeformableCPUSMFProvider
       final long size)
     {
       final ByteBuffer r =
-        this.events.onAllocateTriangleBuffer(triangles, size);
+        this.allocator.onAllocateTriangleBuffer(triangles, size);
       Invariants.checkInvariantL(
         (long) r.capacity(),
         size == (long) r.capacity(),
@@ -509,7 +892,7 @@ public final class CaMeshDeformableCPUSMFProvider
     {
       switch (id.intValue()) {
         case INDEX_AUX: {
-          final ByteBuffer r = this.events.onAllocateAuxiliaryBuffer(size);
+          final ByteBuffer r = this.allocator.onAllocateAuxiliaryBuffer(size);
           Invariants.checkInvariantL(
             (long) r.capacity(),
             size == (long) r.capacity(),
@@ -517,7 +900,7 @@ public final class CaMeshDeformableCPUSMFProvider
           return r;
         }
         case INDEX_SOURCE: {
-          final ByteBuffer r = this.events.onAllocateSourceBuffer(size);
+          final ByteBuffer r = this.allocator.onAllocateSourceBuffer(size);
           Invariants.checkInvariantL(
             (long) r.capacity(),
             size == (long) r.capacity(),
@@ -525,7 +908,7 @@ public final class CaMeshDeformableCPUSMFProvider
           return r;
         }
         case INDEX_JOINTS: {
-          final ByteBuffer r = this.events.onAllocateJointBuffer(size);
+          final ByteBuffer r = this.allocator.onAllocateJointBuffer(size);
           Invariants.checkInvariantL(
             (long) r.capacity(),
             size == (long) r.capacity(),
@@ -539,6 +922,60 @@ public final class CaMeshDeformableCPUSMFProvider
     }
   }
 
+  /**
+   * A read-only view of the joint and source data of a template, used to
+   * analyze influence sets and clusters before any mesh has been created.
+   */
+
+  private static final class JointView implements
+    CaMeshDeformableCPUReadableType
+  {
+    private final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> indices;
+    private final CaMeshDeformableCPUSMFJointWeightsType weights;
+    private final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> sources;
+    private final long vertex_count;
+
+    JointView(
+      final SMFByteBufferPackedAttributeSet joint_attributes,
+      final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_sources,
+      final long in_vertex_count)
+    {
+      this.indices = createJointIndices(joint_attributes);
+      this.weights = createJointWeights(joint_attributes);
+      this.sources = in_sources;
+      this.vertex_count = in_vertex_count;
+    }
+
+    @Override
+    public SortedMap<String, CaMeshDeformableAttributeCursorReadableType> meshSourceCursors()
+    {
+      return this.sources;
+    }
+
+    @Override
+    public long vertexCount()
+    {
+      return this.vertex_count;
+    }
+
+    @Override
+    public void jointIndicesForVertex(
+      final long vertex,
+      final VectorWritable4LType out)
+    {
+      this.indices.setElementIndex(Math.toIntExact(vertex));
+      this.indices.getElementView().get4UL(out);
+    }
+
+    @Override
+    public void jointWeightsForVertex(
+      final long vertex,
+      final VectorWritable4DType out)
+    {
+      this.weights.weightsForVertex(Math.toIntExact(vertex), out);
+    }
+  }
+
   private static final class Cursor3 implements
     CaMeshDeformableAttributeCursor3Type
   {
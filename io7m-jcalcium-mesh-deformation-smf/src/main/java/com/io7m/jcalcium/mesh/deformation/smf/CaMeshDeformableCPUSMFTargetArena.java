@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * <p>A pooled arena of equally-sized target buffers.</p>
+ *
+ * <p>The arena allocates direct memory in chunks of a fixed number of slots
+ * and hands out slices of those chunks as target buffers. Released buffers are
+ * returned to the pool and reused by subsequent allocations, so creating and
+ * discarding many meshes instantiated from the same {@link
+ * CaMeshDeformableCPUSMFTemplate} does not repeatedly allocate memory.</p>
+ *
+ * <p>Arenas are typically used from an implementation of {@link
+ * CaMeshDeformableCPUSMFAllocatorType#onAllocateTargetBuffer(long)}.</p>
+ *
+ * <p>Arenas are not thread-safe.</p>
+ */
+
+public final class CaMeshDeformableCPUSMFTargetArena
+{
+  private final int slot_size;
+  private final int chunk_slots;
+  private final ArrayDeque<ByteBuffer> free;
+  private final Set<ByteBuffer> allocated;
+  private long slots;
+
+  private CaMeshDeformableCPUSMFTargetArena(
+    final int in_slot_size,
+    final int in_chunk_slots)
+  {
+    this.slot_size = in_slot_size;
+    this.chunk_slots = in_chunk_slots;
+    this.free = new ArrayDeque<>(in_chunk_slots);
+    this.allocated = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.slots = 0L;
+  }
+
+  /**
+   * Create a new arena.
+   *
+   * @param slot_size_octets The size in octets of each target buffer
+   * @param chunk_slots      The number of target buffers allocated at once
+   *                         when the arena is exhausted
+   *
+   * @return A new arena
+   */
+
+  public static CaMeshDeformableCPUSMFTargetArena create(
+    final long slot_size_octets,
+    final int chunk_slots)
+  {
+    Preconditions.checkPreconditionL(
+      slot_size_octets,
+      slot_size_octets > 0L,
+      x -> "Slot size must be positive");
+    Preconditions.checkPreconditionI(
+      chunk_slots,
+      chunk_slots > 0,
+      x -> "Chunk slot count must be positive");
+    Preconditions.checkPreconditionL(
+      slot_size_octets,
+      slot_size_octets <= (long) (Integer.MAX_VALUE / chunk_slots),
+      x -> "Chunk size must not exceed " + Integer.MAX_VALUE + " octets");
+
+    return new CaMeshDeformableCPUSMFTargetArena(
+      Math.toIntExact(slot_size_octets), chunk_slots);
+  }
+
+  /**
+   * Create a new arena suitable for meshes instantiated from the given
+   * template.
+   *
+   * @param template    The template
+   * @param chunk_slots The number of target buffers allocated at once when the
+   *                    arena is exhausted
+   *
+   * @return A new arena
+   */
+
+  public static CaMeshDeformableCPUSMFTargetArena createForTemplate(
+    final CaMeshDeformableCPUSMFTemplateType template,
+    final int chunk_slots)
+  {
+    return create(template.targetSizeOctets(), chunk_slots);
+  }
+
+  /**
+   * @return The size in octets of each target buffer
+   */
+
+  public long slotSizeOctets()
+  {
+    return Integer.toUnsignedLong(this.slot_size);
+  }
+
+  /**
+   * @return The total number of target buffers created by the arena
+   */
+
+  public long slotCount()
+  {
+    return this.slots;
+  }
+
+  /**
+   * @return The number of target buffers currently allocated
+   */
+
+  public long allocatedCount()
+  {
+    return Integer.toUnsignedLong(this.allocated.size());
+  }
+
+  /**
+   * Allocate a target buffer. The contents of the buffer are unspecified, but
+   * the position of the buffer is {@code 0} and its limit is equal to its
+   * capacity.
+   *
+   * @param size_octets The required size, which must be equal to {@link
+   *                    #slotSizeOctets()}
+   *
+   * @return A target buffer in native byte order
+   */
+
+  public ByteBuffer allocate(
+    final long size_octets)
+  {
+    Preconditions.checkPreconditionL(
+      size_octets,
+      size_octets == this.slotSizeOctets(),
+      x -> "Requested size must be " + this.slotSizeOctets());
+
+    if (this.free.isEmpty()) {
+      this.allocateChunk();
+    }
+
+    final ByteBuffer buffer = this.free.pop();
+    this.allocated.add(buffer);
+    return buffer;
+  }
+
+  /**
+   * Return a target buffer to the arena. The buffer must not be used after it
+   * has been released. The position and limit of the buffer are reset so that
+   * the next user of the buffer does not observe them.
+   *
+   * @param buffer A buffer previously returned by {@link
+   *               #allocate(long)}
+   */
+
+  public void release(
+    final ByteBuffer buffer)
+  {
+    Preconditions.checkPrecondition(
+      buffer,
+      this.allocated.remove(buffer),
+      x -> "Buffer must have been allocated by this arena");
+    buffer.clear();
+    this.free.push(buffer);
+  }
+
+  private void allocateChunk()
+  {
+    final ByteBuffer chunk =
+      ByteBuffer.allocateDirect(Math.multiplyExact(this.slot_size, this.chunk_slots))
+        .order(ByteOrder.nativeOrder());
+
+    for (int index = 0; index < this.chunk_slots; ++index) {
+      final int offset = index * this.slot_size;
+      chunk.limit(offset + this.slot_size);
+      chunk.position(offset);
+      this.free.add(chunk.slice().order(ByteOrder.nativeOrder()));
+    }
+    this.slots = this.slots + (long) this.chunk_slots;
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
+import com.io7m.jnull.NullCheck;
+import javaslang.collection.SortedMap;
+import javaslang.collection.Vector;
+
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A ring of target buffers for a deformable mesh.</p>
+ *
+ * <p>A ring consists of one or more <i>slots</i>, each of which has its own
+ * target buffer and target cursors. At any given time, exactly one slot is the
+ * <i>write</i> slot: Deformers write into the write slot via {@link
+ * com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType#meshTargetCursors()}.
+ * With more than one slot, a single producer thread (typically the thread
+ * performing deformation) and a single consumer thread (typically a renderer)
+ * may exchange slots without locking:</p>
+ *
+ * <ol>
+ * <li>The producer calls {@link #acquireWrite()} to select a write slot that
+ * is neither the most recently published slot nor the slot currently held by
+ * the consumer, deforms the mesh, and then calls {@link #publish()}.</li>
+ * <li>The consumer calls {@link #acquireRead()} to obtain the most recently
+ * published slot, reads or uploads its target buffer, and then calls {@link
+ * #releaseRead()}.</li>
+ * </ol>
+ *
+ * <p>With three or more slots, {@link #acquireWrite()} always succeeds. With
+ * two slots, it fails if the consumer is still holding the previously
+ * published slot. A ring with a single slot performs no handoff at all: the
+ * write slot is always slot {@code 0}, and callers are responsible for
+ * ensuring that deformation and reading do not overlap.</p>
+ */
+
+public final class CaMeshDeformableCPUSMFTargetRing
+{
+  private static final long NONE = 0xffff_ffffL;
+  private static final long MASK = 0xffff_ffffL;
+
+  private final Vector<CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType>> data;
+  private final Vector<SortedMap<String, CaMeshDeformableAttributeCursorType>> cursors;
+  private final long[] pose_versions;
+  private final AtomicLong state;
+  private int write;
+
+  private CaMeshDeformableCPUSMFTargetRing(
+    final Vector<CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType>> in_data,
+    final Vector<SortedMap<String, CaMeshDeformableAttributeCursorType>> in_cursors)
+  {
+    this.data = NullCheck.notNull(in_data, "Data");
+    this.cursors = NullCheck.notNull(in_cursors, "Cursors");
+    this.pose_versions = new long[in_data.size()];
+    this.state = new AtomicLong(pack(NONE, NONE));
+    this.write = 0;
+  }
+
+  /**
+   * Create a new ring.
+   *
+   * @param in_data    The target data for each slot
+   * @param in_cursors The target cursors for each slot
+   *
+   * @return A new ring
+   */
+
+  public static CaMeshDeformableCPUSMFTargetRing create(
+    final Vector<CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType>> in_data,
+    final Vector<SortedMap<String, CaMeshDeformableAttributeCursorType>> in_cursors)
+  {
+    NullCheck.notNull(in_data, "Data");
+    NullCheck.notNull(in_cursors, "Cursors");
+
+    Preconditions.checkPreconditionI(
+      in_data.size(),
+      in_data.size() > 0,
+      x -> "Ring must have at least one slot");
+    Preconditions.checkPreconditionI(
+      in_cursors.size(),
+      in_cursors.size() == in_data.size(),
+      x -> "Ring must have cursors for each slot");
+
+    return new CaMeshDeformableCPUSMFTargetRing(in_data, in_cursors);
+  }
+
+  private static long pack(
+    final long latest,
+    final long reading)
+  {
+    return (latest << 32) | reading;
+  }
+
+  private static long latestOf(
+    final long s)
+  {
+    return (s >>> 32) & MASK;
+  }
+
+  private static long readingOf(
+    final long s)
+  {
+    return s & MASK;
+  }
+
+  /**
+   * @return The number of slots in the ring
+   */
+
+  public int slotCount()
+  {
+    return this.data.size();
+  }
+
+  /**
+   * @param slot The slot
+   *
+   * @return The target data for the given slot
+   */
+
+  public CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> slotData(
+    final int slot)
+  {
+    return this.data.get(slot);
+  }
+
+  /**
+   * @param slot The slot
+   *
+   * @return The target cursors for the given slot
+   */
+
+  public SortedMap<String, CaMeshDeformableAttributeCursorType> slotCursors(
+    final int slot)
+  {
+    return this.cursors.get(slot);
+  }
+
+  /**
+   * @return The current write slot
+   */
+
+  public int writeSlot()
+  {
+    return this.write;
+  }
+
+  /**
+   * @return The pose version with which the current write slot was most
+   * recently deformed
+   */
+
+  long writePoseVersion()
+  {
+    return this.pose_versions[this.write];
+  }
+
+  /**
+   * Set the pose version of the current write slot.
+   *
+   * @param version The pose version
+   */
+
+  void setWritePoseVersion(
+    final long version)
+  {
+    this.pose_versions[this.write] = version;
+  }
+
+  /**
+   * Select a new write slot. Must only be called by the producer.
+   *
+   * @return {@code true} if a write slot was selected, {@code false} if no
+   * slot is currently available
+   */
+
+  public boolean acquireWrite()
+  {
+    final int count = this.data.size();
+    if (count == 1) {
+      return true;
+    }
+
+    final long s = this.state.get();
+    final long latest = latestOf(s);
+    final long reading = readingOf(s);
+
+    for (int offset = 1; offset <= count; ++offset) {
+      final int slot = (this.write + offset) % count;
+      final long slot_l = Integer.toUnsignedLong(slot);
+      if (slot_l != latest && slot_l != reading) {
+        this.write = slot;
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Publish the current write slot, making it the slot returned by
+   * subsequent calls to {@link #acquireRead()}. Must only be called by the
+   * producer.
+   */
+
+  public void publish()
+  {
+    final long slot_l = Integer.toUnsignedLong(this.write);
+    while (true) {
+      final long s = this.state.get();
+      if (this.state.compareAndSet(s, pack(slot_l, readingOf(s)))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Acquire the most recently published slot for reading. The slot will not
+   * be written until it is released with {@link #releaseRead()}. Must only be
+   * called by the consumer, and the consumer must not already hold a slot.
+   *
+   * @return The acquired slot, or nothing if no slot has yet been published
+   */
+
+  public OptionalInt acquireRead()
+  {
+    while (true) {
+      final long s = this.state.get();
+      Preconditions.checkPreconditionL(
+        readingOf(s),
+        readingOf(s) == NONE,
+        x -> "Consumer must not already hold a slot");
+
+      final long latest = latestOf(s);
+      if (latest == NONE) {
+        return OptionalInt.empty();
+      }
+      if (this.state.compareAndSet(s, pack(latest, latest))) {
+        return OptionalInt.of((int) latest);
+      }
+    }
+  }
+
+  /**
+   * Release the slot previously acquired with {@link #acquireRead()}. Must
+   * only be called by the consumer.
+   */
+
+  public void releaseRead()
+  {
+    while (true) {
+      final long s = this.state.get();
+      if (this.state.compareAndSet(s, pack(latestOf(s), NONE))) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.deformation.smf;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets;
+import com.io7m.smfj.bytebuffer.SMFByteBufferPackedTriangles;
+import com.io7m.smfj.core.SMFHeader;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * <p>A parsed and validated SMF mesh from which any number of deformable
+ * meshes can be instantiated.</p>
+ *
+ * <p>The joint, source, auxiliary and triangle data of a template are
+ * read-only and are shared by every mesh instantiated from the template. Each
+ * instantiated mesh owns only a target buffer.</p>
+ *
+ * @see CaMeshDeformableCPUSMFProvider#createTemplateFromStream
+ * @see CaMeshDeformableCPUSMFProvider#createFromTemplate
+ */
+
+@Value.Immutable
+@CaImmutableStyleType
+public interface CaMeshDeformableCPUSMFTemplateType
+{
+  /**
+   * @return The configuration used to create the template
+   */
+
+  CaMeshDeformableCPUSMFConfiguration configuration();
+
+  /**
+   * @return The SMF mesh header
+   */
+
+  SMFHeader header();
+
+  /**
+   * @return The shared packed joint data
+   */
+
+  CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> jointData();
+
+  /**
+   * @return The shared packed source data
+   */
+
+  CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> sourceData();
+
+  /**
+   * @return The shared packed auxiliary data
+   */
+
+  CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> auxiliaryData();
+
+  /**
+   * @return The shared packed triangle data
+   */
+
+  SMFByteBufferPackedTriangles triangleData();
+
+  /**
+   * The influence sets of the mesh, present if and only if {@link
+   * CaMeshDeformableCPUSMFConfigurationType#analyzeInfluenceSets()} is
+   * {@code true} in the template's configuration. The influence sets are
+   * shared by every mesh instantiated from the template.
+   *
+   * @return The influence sets of the mesh
+   */
+
+  Optional<CaMeshInfluenceSets> influenceSets();
+
+  /**
+   * The clusters of the mesh, present if and only if {@link
+   * CaMeshDeformableCPUSMFConfigurationType#clusterVertexCount()} is
+   * positive in the template's configuration. The clusters are shared by all
+   * meshes instantiated from the template.
+   *
+   * @return The clusters of the mesh
+   */
+
+  Optional<CaMeshClusters> clusters();
+
+  /**
+   * @return The size in octets of the target buffer of each instantiated mesh
+   */
+
+  default long targetSizeOctets()
+  {
+    return Integer.toUnsignedLong(
+      this.sourceData().set().byteBuffer().capacity());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.meta;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import org.immutables.value.Value;
+
+/**
+ * <p>An axis-aligned bounding box of the vertices of a mesh that are
+ * influenced by a given joint, expressed in the space of that joint in the
+ * rest pose.</p>
+ *
+ * <p>Transforming the box by the current joint-to-object transform of the
+ * joint yields a bound for the deformed positions of those vertices relative
+ * to the joint, without deforming any vertices.</p>
+ */
+
+@CaImmutableStyleType
+@Value.Immutable
+public interface CaMeshJointBoundsType
+{
+  /**
+   * @return The joint ID
+   */
+
+  @Value.Parameter
+  int jointID();
+
+  /**
+   * @return The minimum corner of the box
+   */
+
+  @Value.Parameter
+  PVectorI3D<CaSpaceJointType> minimum();
+
+  /**
+   * @return The maximum corner of the box
+   */
+
+  @Value.Parameter
+  PVectorI3D<CaSpaceJointType> maximum();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final PVectorI3D<CaSpaceJointType> min = this.minimum();
+    final PVectorI3D<CaSpaceJointType> max = this.maximum();
+    if (min.getXD() > max.getXD()
+      || min.getYD() > max.getYD()
+      || min.getZD() > max.getZD()) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Minimum corner of bounds must be <= maximum corner.");
+      sb.append(System.lineSeparator());
+      sb.append("  Joint: ");
+      sb.append(this.jointID());
+      sb.append(System.lineSeparator());
+      throw new IllegalArgumentException(sb.toString());
+    }
+  }
+}
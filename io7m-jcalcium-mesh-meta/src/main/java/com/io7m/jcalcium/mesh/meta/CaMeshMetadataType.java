@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.meta;
+
+import com.io7m.jcalcium.core.CaImmutableStyleType;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import javaslang.Tuple2;
+import javaslang.collection.SortedMap;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+/**
+ * The metadata stored in a mesh.
+ */
+
+@CaImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface CaMeshMetadataType
+{
+  /**
+   * @return The metadata of the skeleton with which the mesh is compatible
+   */
+
+  @Value.Parameter
+  CaSkeletonMetadata skeleton();
+
+  /**
+   * The per-joint bounds of the mesh, by joint ID. Joints that influence no
+   * vertices have no bounds. The map is empty if the bounds were not
+   * computed.
+   *
+   * @return The per-joint bounds of the mesh
+   */
+
+  @Value.Parameter
+  SortedMap<Integer, CaMeshJointBounds> jointBounds();
+
+  /**
+   * <p>{@code true} iff the joint weights of at least one vertex of the mesh
+   * sum to less than {@code 1.0}. Such vertices are pulled towards the
+   * object space origin when the mesh is deformed, so the origin must be
+   * included in any bounds computed from the per-joint bounds.</p>
+   *
+   * <p>By default, the value is {@code false}.</p>
+   *
+   * @return {@code true} iff the deformed mesh may include the origin
+   */
+
+  @Value.Default
+  default boolean includesOrigin()
+  {
+    return false;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    for (final Tuple2<Integer, CaMeshJointBounds> pair : this.jointBounds()) {
+      final Integer id = pair._1;
+      final CaMeshJointBounds bounds = pair._2;
+      if (id.intValue() != bounds.jointID()) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Joint bounds must be keyed by joint ID.");
+        sb.append(System.lineSeparator());
+        sb.append("  Key: ");
+        sb.append(id);
+        sb.append(System.lineSeparator());
+        sb.append("  Joint: ");
+        sb.append(bounds.jointID());
+        sb.append(System.lineSeparator());
+        throw new IllegalArgumentException(sb.toString());
+      }
+    }
+  }
+}
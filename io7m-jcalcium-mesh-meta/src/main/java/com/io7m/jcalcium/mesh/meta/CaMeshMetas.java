@@ -23,7 +23,10 @@ import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
 import com.io7m.jcalcium.mesh.meta.v1.Meta;
 import com.io7m.jintegers.Unsigned32;
 import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 
@@ -74,6 +77,30 @@ public final class CaMeshMetas
     final int version_minor)
   {
     NullCheck.notNull(meta, "Metadata");
+    return serialize(
+      CaMeshMetadata.of(meta, TreeMap.empty()), version_major, version_minor);
+  }
+
+  /**
+   * Serialize the given metadata using the data format for major version {@code
+   * version_major} and minor version {@code version_minor}. Per-joint bounds,
+   * and the flag that indicates whether the bounds include the origin, are
+   * only serialized for version 1.1 and above, and are silently omitted from
+   * earlier versions.
+   *
+   * @param meta          The metadata
+   * @param version_major The major version
+   * @param version_minor The minor version
+   *
+   * @return Serialized metadata
+   */
+
+  public static byte[] serialize(
+    final CaMeshMetadata meta,
+    final int version_major,
+    final int version_minor)
+  {
+    NullCheck.notNull(meta, "Metadata");
 
     switch (version_major) {
       case 1: {
@@ -87,7 +114,7 @@ public final class CaMeshMetas
   }
 
   private static byte[] serializeV1(
-    final CaSkeletonMetadata meta,
+    final CaMeshMetadata meta,
     final long version_major,
     final long version_minor)
   {
@@ -103,11 +130,19 @@ public final class CaMeshMetas
         bos.write(byte4);
 
         final Meta.V1SkeletonMeta.Builder b = Meta.V1SkeletonMeta.newBuilder();
-        final CaSkeletonName name = meta.name();
+        final CaSkeletonName name = meta.skeleton().name();
         b.setName(name.value());
-        final CaSkeletonHash hash = meta.hash();
+        final CaSkeletonHash hash = meta.skeleton().hash();
         b.setHashAlgorithm(hash.algorithm());
         b.setHashValue(ByteString.copyFrom(Hex.decodeHex(hash.value().toCharArray())));
+
+        if (version_minor >= 1L) {
+          for (final CaMeshJointBounds bounds : meta.jointBounds().values()) {
+            b.addJointBounds(serializeJointBoundsV1(bounds));
+          }
+          b.setIncludesOrigin(meta.includesOrigin());
+        }
+
         final byte[] serialized = b.build().toByteArray();
 
         Unsigned32.packToBuffer((long) serialized.length, buffer4, 0);
@@ -122,6 +157,20 @@ public final class CaMeshMetas
     }
   }
 
+  private static Meta.V1JointBounds serializeJointBoundsV1(
+    final CaMeshJointBounds bounds)
+  {
+    final Meta.V1JointBounds.Builder b = Meta.V1JointBounds.newBuilder();
+    b.setJointId(bounds.jointID());
+    b.setMinimumX(bounds.minimum().getXD());
+    b.setMinimumY(bounds.minimum().getYD());
+    b.setMinimumZ(bounds.minimum().getZD());
+    b.setMaximumX(bounds.maximum().getXD());
+    b.setMaximumY(bounds.maximum().getYD());
+    b.setMaximumZ(bounds.maximum().getZD());
+    return b.build();
+  }
+
   /**
    * Deserialize metadata from given bytes.
    *
@@ -132,6 +181,20 @@ public final class CaMeshMetas
 
   public static CaSkeletonMetadata deserialize(
     final byte[] data)
+  {
+    return deserializeMesh(data).skeleton();
+  }
+
+  /**
+   * Deserialize metadata, including any per-joint bounds, from given bytes.
+   *
+   * @param data Serialized metadata
+   *
+   * @return Mesh metadata
+   */
+
+  public static CaMeshMetadata deserializeMesh(
+    final byte[] data)
   {
     final ByteBuffer wrap = ByteBuffer.wrap(data);
     wrap.order(ByteOrder.BIG_ENDIAN);
@@ -167,7 +230,7 @@ public final class CaMeshMetas
     throw new IllegalArgumentException(sb.toString());
   }
 
-  private static CaSkeletonMetadata deserializeV1(
+  private static CaMeshMetadata deserializeV1(
     final byte[] data,
     final int size)
   {
@@ -184,8 +247,20 @@ public final class CaMeshMetas
       final String hash_algo =
         v1.getHashAlgorithm();
 
-      return CaSkeletonMetadata.of(
-        name, CaSkeletonHash.of(hash_algo, hash_value));
+      SortedMap<Integer, CaMeshJointBounds> bounds = TreeMap.empty();
+      for (final Meta.V1JointBounds b : v1.getJointBoundsList()) {
+        final int joint_id = b.getJointId();
+        bounds = bounds.put(
+          Integer.valueOf(joint_id),
+          CaMeshJointBounds.of(
+            joint_id,
+            new PVectorI3D<>(b.getMinimumX(), b.getMinimumY(), b.getMinimumZ()),
+            new PVectorI3D<>(b.getMaximumX(), b.getMaximumY(), b.getMaximumZ())));
+      }
+
+      return CaMeshMetadata.of(
+        CaSkeletonMetadata.of(name, CaSkeletonHash.of(hash_algo, hash_value)),
+        bounds).withIncludesOrigin(v1.getIncludesOrigin());
 
     } catch (final IOException e) {
       // Byte array streams do not actually do I/O
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.processing.core;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+
+/**
+ * <p>An accumulator that aggregates weights for a mesh incrementally, one
+ * weight at a time, in any order.</p>
+ *
+ * <p>Only the four best weights seen so far for each vertex are retained, so
+ * the accumulator requires storage proportional to {@code vertex_count * 4}
+ * regardless of the number of joints. Each joint is identified by a
+ * <i>rank</i>: an index into the array of joint IDs given at construction.
+ * Where two joints have equal weights for a vertex, the joint with the lower
+ * rank is picked first. The results are therefore identical to those of
+ * {@link CaMeshWeightAggregation#aggregateWeightsArrays(int[], double[][],
+ * java.util.concurrent.Executor)} given the joints in rank order, no matter
+ * in which order the weights are added.</p>
+ *
+ * <p>Accumulators are not thread-safe.</p>
+ */
+
+public final class CaMeshWeightAccumulator
+{
+  private final int vertex_count;
+  private final int[] joint_ids;
+  private final int[] best_ranks;
+  private final double[] best_weights;
+  private final byte[] counts;
+  private boolean finished;
+
+  private CaMeshWeightAccumulator(
+    final int in_vertex_count,
+    final int[] in_joint_ids)
+  {
+    this.joint_ids = NullCheck.notNull(in_joint_ids, "Joint IDs");
+
+    Preconditions.checkPreconditionI(
+      in_vertex_count,
+      in_vertex_count >= 0 && in_vertex_count <= Integer.MAX_VALUE / 4,
+      x -> "Vertex count must be in the range [0, " + (Integer.MAX_VALUE / 4) + "]");
+    Preconditions.checkPreconditionI(
+      this.joint_ids.length,
+      this.joint_ids.length > 0,
+      x -> "Must provide at least one joint");
+
+    this.vertex_count = in_vertex_count;
+    this.best_ranks = new int[in_vertex_count * 4];
+    this.best_weights = new double[in_vertex_count * 4];
+    this.counts = new byte[in_vertex_count];
+    this.finished = false;
+  }
+
+  /**
+   * Create a new accumulator.
+   *
+   * @param vertex_count The number of vertices in the mesh
+   * @param joint_ids    The joint IDs, in rank order
+   *
+   * @return A new accumulator
+   */
+
+  public static CaMeshWeightAccumulator create(
+    final int vertex_count,
+    final int[] joint_ids)
+  {
+    return new CaMeshWeightAccumulator(vertex_count, joint_ids.clone());
+  }
+
+  /**
+   * Add a weight for the given vertex and joint.
+   *
+   * @param rank   The rank of the joint
+   * @param vertex The vertex index
+   * @param weight The weight
+   */
+
+  public void addWeight(
+    final int rank,
+    final int vertex,
+    final double weight)
+  {
+    Preconditions.checkPrecondition(!this.finished, "Accumulator must not be finished");
+
+    final int count = (int) this.counts[vertex];
+    final int base = vertex * 4;
+
+    int position = count;
+    while (position > 0 && this.isBetter(rank, weight, base + position - 1)) {
+      --position;
+    }
+
+    if (position >= 4) {
+      return;
+    }
+
+    final int last = Math.min(count, 3);
+    for (int index = last; index > position; --index) {
+      this.best_ranks[base + index] = this.best_ranks[base + index - 1];
+      this.best_weights[base + index] = this.best_weights[base + index - 1];
+    }
+
+    this.best_ranks[base + position] = rank;
+    this.best_weights[base + position] = weight;
+    this.counts[vertex] = (byte) Math.min(count + 1, 4);
+  }
+
+  private boolean isBetter(
+    final int rank,
+    final double weight,
+    final int offset)
+  {
+    final int c = Double.compare(weight, this.best_weights[offset]);
+    if (c == 0) {
+      return rank < this.best_ranks[offset];
+    }
+    return c > 0;
+  }
+
+  /**
+   * Finish accumulation and return the aggregated weights. The accumulator
+   * cannot be used after this method has been called.
+   *
+   * @return The aggregated weights
+   */
+
+  public CaMeshWeightsAggregatedArrays finish()
+  {
+    Preconditions.checkPrecondition(!this.finished, "Accumulator must not be finished");
+    this.finished = true;
+
+    /*
+     * The rank and weight arrays are converted in place to joint IDs and
+     * rescaled weights, so that no extra storage is required.
+     */
+
+    for (int vertex = 0; vertex < this.vertex_count; ++vertex) {
+      final int count = (int) this.counts[vertex];
+      final int base = vertex * 4;
+      for (int slot = 0; slot < 4; ++slot) {
+        if (slot < count) {
+          this.best_ranks[base + slot] =
+            this.joint_ids[this.best_ranks[base + slot]];
+        } else {
+          this.best_ranks[base + slot] = 0;
+          this.best_weights[base + slot] = 0.0;
+        }
+      }
+      CaMeshWeightAggregation.rescale(this.best_weights, base);
+    }
+
+    return new CaMeshWeightsAggregatedArrays(
+      this.vertex_count, this.best_ranks, this.best_weights);
+  }
+}
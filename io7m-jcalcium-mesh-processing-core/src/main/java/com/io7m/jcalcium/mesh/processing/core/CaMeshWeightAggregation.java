@@ -22,21 +22,17 @@ import com.io7m.jcalcium.core.CaJointName;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jequality.AlmostEqualDouble;
 import com.io7m.jnull.NullCheck;
-import com.io7m.jtensors.VectorI4D;
-import com.io7m.jtensors.VectorI4L;
 import com.io7m.junreachable.UnreachableCodeException;
-import javaslang.Tuple;
-import javaslang.Tuple2;
-import javaslang.collection.List;
-import javaslang.collection.Map;
-import javaslang.collection.Seq;
-import javaslang.collection.Set;
 import javaslang.collection.SortedMap;
 import javaslang.collection.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Functions to aggregate weights in a mesh.
@@ -47,6 +43,13 @@ public final class CaMeshWeightAggregation
   private static final Logger LOG;
   private static final AlmostEqualDouble.ContextRelative CONTEXT;
 
+  /**
+   * The number of vertices processed by each task when aggregating weights
+   * in parallel.
+   */
+
+  private static final int CHUNK_SIZE = 16384;
+
   static {
     LOG = LoggerFactory.getLogger(CaMeshWeightAggregation.class);
 
@@ -76,10 +79,49 @@ public final class CaMeshWeightAggregation
     NullCheck.notNull(skeleton, "Skeleton");
     NullCheck.notNull(weights, "Weights");
 
-    Preconditions.checkPreconditionI(
-      weights.size(),
-      weights.size() > 0,
-      x -> "Must provide at least one weight array");
+    final SortedMap<CaJointName, double[]> arrays =
+      weights.mapValues(CaMeshWeightAggregation::unbox);
+    return aggregateWeightsArrays(skeleton, arrays, Runnable::run)
+      .toAggregated();
+  }
+
+  private static double[] unbox(
+    final Vector<Double> values)
+  {
+    final double[] result = new double[values.size()];
+    int index = 0;
+    for (final Double value : values) {
+      result[index] = value.doubleValue();
+      ++index;
+    }
+    return result;
+  }
+
+  /**
+   * Given an array of vertex weights for each joint, pick the four largest
+   * weights for each vertex and record the joint IDs for each weight. Joints
+   * are considered in the iteration order of {@code weights}; where two
+   * joints have equal weights for a vertex, the joint that appears first is
+   * picked first.
+   *
+   * @param skeleton The skeleton
+   * @param weights  The per-joint weights
+   * @param executor An executor used to process ranges of vertices in
+   *                 parallel
+   *
+   * @return A set of packed weights
+   *
+   * @see #aggregateWeightsArrays(int[], double[][], Executor)
+   */
+
+  public static CaMeshWeightsAggregatedArrays aggregateWeightsArrays(
+    final CaSkeleton skeleton,
+    final SortedMap<CaJointName, double[]> weights,
+    final Executor executor)
+  {
+    NullCheck.notNull(skeleton, "Skeleton");
+    NullCheck.notNull(weights, "Weights");
+    NullCheck.notNull(executor, "Executor");
 
     weights.forEach(
       p -> Preconditions.checkPrecondition(
@@ -87,145 +129,204 @@ public final class CaMeshWeightAggregation
         skeleton.jointsByName().containsKey(p._1),
         j -> "Skeleton must contain the named joint"));
 
-    final Set<Integer> vertex_counts =
-      weights.values().map(vs -> Integer.valueOf(vs.size())).toSet();
+    final int[] joint_ids = new int[weights.size()];
+    final double[][] joint_weights = new double[weights.size()][];
 
-    Preconditions.checkPrecondition(
-      vertex_counts.size() == 1, "Weight arrays must all be the same length");
+    int index = 0;
+    for (final CaJointName name : weights.keySet()) {
+      joint_ids[index] =
+        skeleton.jointsByName().get(name).get().value().id();
+      joint_weights[index] = weights.get(name).get();
+      ++index;
+    }
 
-    final int vertex_count = vertex_counts.iterator().get().intValue();
+    return aggregateWeightsArrays(joint_ids, joint_weights, executor);
+  }
 
-    final SortedMap<CaJointName, Integer> joint_ids =
-      skeleton.jointsByName().mapValues(
-        node -> Integer.valueOf(node.value().id()));
+  /**
+   * <p>Given an array of vertex weights for each joint, pick the four largest
+   * weights for each vertex and record the joint IDs for each weight. The
+   * weights for joint {@code joint_ids[j]} are given by {@code weights[j]}.
+   * Where two joints have equal weights for a vertex, the joint with the
+   * lower index {@code j} is picked first.</p>
+   *
+   * <p>The range of vertices is divided into fixed-size chunks and each chunk
+   * is submitted to {@code executor}. The results do not depend on the
+   * executor used.</p>
+   *
+   * @param joint_ids The joint ID for each weight array
+   * @param weights   The per-joint weights
+   * @param executor  An executor used to process ranges of vertices in
+   *                  parallel
+   *
+   * @return A set of packed weights
+   */
 
-    Vector<VectorI4L> result_indices = Vector.empty();
-    Vector<VectorI4D> result_weights = Vector.empty();
+  public static CaMeshWeightsAggregatedArrays aggregateWeightsArrays(
+    final int[] joint_ids,
+    final double[][] weights,
+    final Executor executor)
+  {
+    NullCheck.notNull(joint_ids, "Joint IDs");
+    NullCheck.notNull(weights, "Weights");
+    NullCheck.notNull(executor, "Executor");
 
-    for (int vertex_index = 0; vertex_index < vertex_count; ++vertex_index) {
-      final int vi = vertex_index;
+    Preconditions.checkPreconditionI(
+      weights.length,
+      weights.length > 0,
+      x -> "Must provide at least one weight array");
+    Preconditions.checkPreconditionI(
+      joint_ids.length,
+      joint_ids.length == weights.length,
+      x -> "Must provide exactly one joint ID per weight array");
+
+    final int vertex_count = weights[0].length;
+    for (int joint = 0; joint < weights.length; ++joint) {
+      Preconditions.checkPrecondition(
+        weights[joint].length == vertex_count,
+        "Weight arrays must all be the same length");
+    }
 
-      final List<Tuple2<Integer, Double>> weighted_indices =
-        weights
-          .map((joint, array) -> jointLookup(joint, array, joint_ids, vi))
-          .toList()
-          .sorted(compareWeightedIndex())
-          .take(4);
+    final int[] out_indices = new int[vertex_count * 4];
+    final double[] out_weights = new double[vertex_count * 4];
+
+    final List<CompletableFuture<Void>> futures =
+      new ArrayList<>((vertex_count / CHUNK_SIZE) + 1);
+    for (int start = 0; start < vertex_count; start += CHUNK_SIZE) {
+      final int chunk_start = start;
+      final int chunk_end = Math.min(vertex_count, start + CHUNK_SIZE);
+      futures.add(CompletableFuture.runAsync(
+        () -> aggregateRange(
+          joint_ids,
+          weights,
+          chunk_start,
+          chunk_end,
+          out_indices,
+          out_weights),
+        executor));
+    }
 
-      final Tuple2<VectorI4L, VectorI4D> packed = packWeights(weighted_indices);
-      result_indices = result_indices.append(packed._1);
-      result_weights = result_weights.append(packed._2);
+    LOG.debug(
+      "aggregating {} vertices in {} chunks",
+      Integer.valueOf(vertex_count),
+      Integer.valueOf(futures.size()));
+
+    for (final CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (final CompletionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw e;
+      }
     }
 
-    return CaMeshWeightsAggregated.of(result_weights, result_indices);
+    return new CaMeshWeightsAggregatedArrays(
+      vertex_count, out_indices, out_weights);
   }
 
-  private static Tuple2<Integer, Double> jointLookup(
-    final CaJointName joint_name,
-    final Seq<Double> array,
-    final Map<CaJointName, Integer> names_to_ids,
-    final int f_index)
-  {
-    return Tuple.of(names_to_ids.get(joint_name).get(), array.get(f_index));
-  }
+  /**
+   * Aggregate the weights for the vertices in {@code [start, end)}. The four
+   * best weights are selected by insertion into a four-element list: a
+   * weight is inserted in front of the first selected weight that it is
+   * strictly greater than, which yields the same result as a stable
+   * descending sort followed by taking the first four elements.
+   */
 
-  private static Tuple2<VectorI4L, VectorI4D> packWeights(
-    final Seq<Tuple2<Integer, Double>> weighted_indices)
+  private static void aggregateRange(
+    final int[] joint_ids,
+    final double[][] weights,
+    final int start,
+    final int end,
+    final int[] out_indices,
+    final double[] out_weights)
   {
-    switch (weighted_indices.size()) {
-      case 1: {
-        final VectorI4L index4 = new VectorI4L(
-          weighted_indices.get(0)._1.longValue(),
-          0L,
-          0L,
-          0L);
-        final VectorI4D weight4 = new VectorI4D(
-          weighted_indices.get(0)._2.doubleValue(),
-          0.0,
-          0.0,
-          0.0);
-        return Tuple.of(index4, rescale(weight4));
+    final int[] best_ids = new int[4];
+    final double[] best_weights = new double[4];
+
+    for (int vertex = start; vertex < end; ++vertex) {
+      int count = 0;
+      for (int joint = 0; joint < weights.length; ++joint) {
+        count = insert(
+          best_ids, best_weights, count, joint_ids[joint], weights[joint][vertex]);
       }
 
-      case 2: {
-        final VectorI4L index4 = new VectorI4L(
-          weighted_indices.get(0)._1.longValue(),
-          weighted_indices.get(1)._1.longValue(),
-          0L,
-          0L);
-        final VectorI4D weight4 = new VectorI4D(
-          weighted_indices.get(0)._2.doubleValue(),
-          weighted_indices.get(1)._2.doubleValue(),
-          0.0,
-          0.0);
-        return Tuple.of(index4, rescale(weight4));
+      final int base = vertex * 4;
+      for (int slot = 0; slot < 4; ++slot) {
+        if (slot < count) {
+          out_indices[base + slot] = best_ids[slot];
+          out_weights[base + slot] = best_weights[slot];
+        } else {
+          out_indices[base + slot] = 0;
+          out_weights[base + slot] = 0.0;
+        }
       }
 
-      case 3: {
-        final VectorI4L index4 = new VectorI4L(
-          weighted_indices.get(0)._1.longValue(),
-          weighted_indices.get(1)._1.longValue(),
-          weighted_indices.get(2)._1.longValue(),
-          0L);
-        final VectorI4D weight4 = new VectorI4D(
-          weighted_indices.get(0)._2.doubleValue(),
-          weighted_indices.get(1)._2.doubleValue(),
-          weighted_indices.get(2)._2.doubleValue(),
-          0.0);
-        return Tuple.of(index4, rescale(weight4));
-      }
+      rescale(out_weights, base);
+    }
+  }
 
-      case 4: {
-        final VectorI4L index4 = new VectorI4L(
-          weighted_indices.get(0)._1.longValue(),
-          weighted_indices.get(1)._1.longValue(),
-          weighted_indices.get(2)._1.longValue(),
-          weighted_indices.get(3)._1.longValue());
-        final VectorI4D weight4 = new VectorI4D(
-          weighted_indices.get(0)._2.doubleValue(),
-          weighted_indices.get(1)._2.doubleValue(),
-          weighted_indices.get(2)._2.doubleValue(),
-          weighted_indices.get(3)._2.doubleValue());
-        return Tuple.of(index4, rescale(weight4));
-      }
+  private static int insert(
+    final int[] best_ids,
+    final double[] best_weights,
+    final int count,
+    final int id,
+    final double weight)
+  {
+    int position = count;
+    while (position > 0
+      && Double.compare(weight, best_weights[position - 1]) > 0) {
+      --position;
+    }
 
-      default: {
-        throw new UnreachableCodeException();
-      }
+    if (position >= 4) {
+      return count;
+    }
+
+    final int last = Math.min(count, 3);
+    for (int index = last; index > position; --index) {
+      best_ids[index] = best_ids[index - 1];
+      best_weights[index] = best_weights[index - 1];
     }
+
+    best_ids[position] = id;
+    best_weights[position] = weight;
+    return Math.min(count + 1, 4);
   }
 
   /**
-   * Scale the components of the given vector such that the sum of all
-   * components is {@code 1.0}. Special case: A zero vector always yields a zero
-   * vector.
+   * Scale the four weights at {@code base} such that the sum of all weights
+   * is {@code 1.0}. Special case: Four zero weights always yield four zero
+   * weights.
    */
 
-  private static VectorI4D rescale(
-    final VectorI4D weight4)
+  static void rescale(
+    final double[] weights,
+    final int base)
   {
     final double sum =
-      weight4.getXD() + weight4.getYD() + weight4.getZD() + weight4.getWD();
+      weights[base] + weights[base + 1] + weights[base + 2] + weights[base + 3];
 
     if (sum == 0.0) {
-      return weight4;
+      return;
     }
 
-    final double rx = weight4.getXD() / sum;
-    final double ry = weight4.getYD() / sum;
-    final double rz = weight4.getZD() / sum;
-    final double rw = weight4.getWD() / sum;
+    final double rx = weights[base] / sum;
+    final double ry = weights[base + 1] / sum;
+    final double rz = weights[base + 2] / sum;
+    final double rw = weights[base + 3] / sum;
 
     final double rsum = rx + ry + rz + rw;
     Postconditions.checkPostconditionD(
       rsum,
       AlmostEqualDouble.almostEqual(CONTEXT, rsum, 1.0),
       x -> "Resulting weight sum must be ~= 1.0");
-    return new VectorI4D(rx, ry, rz, rw);
-  }
 
-  private static Comparator<Tuple2<Integer, Double>> compareWeightedIndex()
-  {
-    return (x, y) -> Double.compare(y._2.doubleValue(), x._2.doubleValue());
+    weights[base] = rx;
+    weights[base + 1] = ry;
+    weights[base + 2] = rz;
+    weights[base + 3] = rw;
   }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.processing.core;
+
+import com.io7m.jaffirm.core.Postconditions;
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * <p>Functions to quantize aggregated weights to normalized unsigned
+ * integers.</p>
+ *
+ * <p>A weight {@code w} quantized to {@code b} bits is stored as an unsigned
+ * integer {@code q} such that {@code w ~= q / (2 ^ b - 1)}. The four quantized
+ * weights of each vertex are renormalized so that they sum to exactly {@code
+ * 2 ^ b - 1}, unless all four weights are zero.</p>
+ */
+
+public final class CaMeshWeightQuantization
+{
+  private CaMeshWeightQuantization()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param bits The number of bits per weight
+   *
+   * @return The largest quantized value for the given size
+   */
+
+  public static int maximum(
+    final int bits)
+  {
+    checkBits(bits);
+    return (1 << bits) - 1;
+  }
+
+  private static void checkBits(
+    final int bits)
+  {
+    Preconditions.checkPreconditionI(
+      bits,
+      bits == 8 || bits == 16,
+      x -> "Quantized weight size must be 8 or 16 bits");
+  }
+
+  /**
+   * <p>Quantize weights. The given array is assumed to contain four weights
+   * per vertex, in the format produced by {@link CaMeshWeightAggregation}.</p>
+   *
+   * <p>Each weight is first scaled and rounded down. The units lost by
+   * rounding are then given back, one at a time, to the weights that lost the
+   * most, so that the quantized weights of each vertex sum to exactly {@link
+   * #maximum(int)} and each quantized weight differs from the exact scaled
+   * weight by less than one.</p>
+   *
+   * @param weights The weights, four per vertex
+   * @param bits    The number of bits per weight (8 or 16)
+   *
+   * @return The quantized weights, four per vertex
+   */
+
+  public static int[] quantize(
+    final double[] weights,
+    final int bits)
+  {
+    NullCheck.notNull(weights, "Weights");
+    checkBits(bits);
+    Preconditions.checkPreconditionI(
+      weights.length,
+      weights.length % 4 == 0,
+      x -> "Weights array must contain four elements per vertex");
+
+    final int max = maximum(bits);
+    final int[] out = new int[weights.length];
+    final double[] lost = new double[4];
+
+    for (int base = 0; base < weights.length; base += 4) {
+      final double sum =
+        weights[base] + weights[base + 1] + weights[base + 2] + weights[base + 3];
+
+      if (sum == 0.0) {
+        continue;
+      }
+
+      int total = 0;
+      for (int slot = 0; slot < 4; ++slot) {
+        final double scaled = (weights[base + slot] / sum) * (double) max;
+        final int q = (int) Math.floor(scaled);
+        out[base + slot] = q;
+        lost[slot] = scaled - (double) q;
+        total += q;
+      }
+
+      /*
+       * Rounding down loses strictly less than one unit per weight, so each
+       * weight is given back at most one unit.
+       */
+
+      for (int remaining = max - total; remaining > 0; --remaining) {
+        int best = 0;
+        for (int slot = 1; slot < 4; ++slot) {
+          if (lost[slot] > lost[best]) {
+            best = slot;
+          }
+        }
+        out[base + best] += 1;
+        lost[best] = -1.0;
+      }
+
+      final int result =
+        out[base] + out[base + 1] + out[base + 2] + out[base + 3];
+      Postconditions.checkPostconditionI(
+        result,
+        result == max,
+        x -> "Quantized weight sum must be " + max);
+    }
+
+    return out;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.processing.core;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorI4D;
+import com.io7m.jtensors.VectorI4L;
+import javaslang.collection.Vector;
+
+/**
+ * <p>A set of aggregated weights for a mesh, stored in flat primitive
+ * arrays.</p>
+ *
+ * <p>The weights and joint indices for vertex {@code v} are stored at
+ * offsets {@code [v * 4, v * 4 + 3]} of the respective arrays, with the same
+ * meaning as the components of the vectors in {@link
+ * CaMeshWeightsAggregatedType}.</p>
+ *
+ * @see CaMeshWeightAggregation#aggregateWeightsArrays(int[], double[][],
+ * java.util.concurrent.Executor)
+ */
+
+public final class CaMeshWeightsAggregatedArrays
+{
+  private final int vertex_count;
+  private final int[] indices;
+  private final double[] weights;
+
+  CaMeshWeightsAggregatedArrays(
+    final int in_vertex_count,
+    final int[] in_indices,
+    final double[] in_weights)
+  {
+    this.vertex_count = in_vertex_count;
+    this.indices = NullCheck.notNull(in_indices, "Indices");
+    this.weights = NullCheck.notNull(in_weights, "Weights");
+
+    Preconditions.checkPreconditionI(
+      this.indices.length,
+      this.indices.length == this.vertex_count * 4,
+      x -> "Indices array must contain four elements per vertex");
+    Preconditions.checkPreconditionI(
+      this.weights.length,
+      this.weights.length == this.vertex_count * 4,
+      x -> "Weights array must contain four elements per vertex");
+  }
+
+  /**
+   * @return The number of vertices
+   */
+
+  public int vertexCount()
+  {
+    return this.vertex_count;
+  }
+
+  /**
+   * @return The per-vertex joint indices, four elements per vertex. The
+   * array is not copied and must not be modified.
+   */
+
+  public int[] vertexBoneIndices()
+  {
+    return this.indices;
+  }
+
+  /**
+   * @return The per-vertex weights, four elements per vertex. The array is
+   * not copied and must not be modified.
+   */
+
+  public double[] vertexWeights()
+  {
+    return this.weights;
+  }
+
+  /**
+   * @return The required size in bits to store bone indices (will be {@code
+   * {8|16|32}})
+   *
+   * @see CaMeshWeightsAggregatedType#indexBitsRequired()
+   */
+
+  public int indexBitsRequired()
+  {
+    int max = 0;
+    for (int index = 0; index < this.indices.length; ++index) {
+      max = Math.max(max, this.indices[index]);
+    }
+
+    int required = 8;
+    if (max >= 255) {
+      required = 16;
+    }
+    if (max >= 65535) {
+      required = 32;
+    }
+    return required;
+  }
+
+  /**
+   * Convert the arrays to the equivalent immutable value.
+   *
+   * @return The aggregated weights as vectors
+   */
+
+  public CaMeshWeightsAggregated toAggregated()
+  {
+    final VectorI4L[] out_indices = new VectorI4L[this.vertex_count];
+    final VectorI4D[] out_weights = new VectorI4D[this.vertex_count];
+
+    for (int vertex = 0; vertex < this.vertex_count; ++vertex) {
+      final int base = vertex * 4;
+      out_indices[vertex] = new VectorI4L(
+        (long) this.indices[base],
+        (long) this.indices[base + 1],
+        (long) this.indices[base + 2],
+        (long) this.indices[base + 3]);
+      out_weights[vertex] = new VectorI4D(
+        this.weights[base],
+        this.weights[base + 1],
+        this.weights[base + 2],
+        this.weights[base + 3]);
+    }
+
+    return CaMeshWeightsAggregated.of(
+      Vector.of(out_weights), Vector.of(out_indices));
+  }
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.processing.smf;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.loader.api.CaLoaderType;
+import com.io7m.jcalcium.mesh.meta.CaMeshJointBounds;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetadata;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetas;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.VectorI4D;
+import com.io7m.jtensors.VectorI4L;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating3;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating4;
+import com.io7m.smfj.processing.api.SMFAttributeArrayIntegerUnsigned4;
+import com.io7m.smfj.processing.api.SMFAttributeArrayType;
+import com.io7m.smfj.processing.api.SMFFilterCommandContext;
+import com.io7m.smfj.processing.api.SMFFilterCommandParsing;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import com.io7m.smfj.processing.api.SMFMemoryMeshFilterType;
+import com.io7m.smfj.processing.api.SMFMetadata;
+import com.io7m.smfj.processing.api.SMFProcessingError;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import javaslang.collection.Vector;
+import javaslang.control.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static java.util.Optional.empty;
+
+/**
+ * A filter command that computes, for each joint of a skeleton, a bounding
+ * box in joint space that contains every vertex of the mesh that the joint
+ * influences. The boxes are stored in the mesh metadata and allow a
+ * conservative bounding box for any pose of the mesh to be computed without
+ * deforming any vertices. If the joint weights of any vertex sum to less
+ * than {@code 1.0}, the metadata also records that the deformed mesh may
+ * include the origin.
+ *
+ * @see CaMeshMetadata#jointBounds()
+ */
+
+public final class CaFilterCommandCompileMeshJointBounds implements
+  SMFMemoryMeshFilterType
+{
+  /**
+   * The command name.
+   */
+
+  public static final String NAME;
+
+  private static final String SYNTAX;
+  private static final Logger LOG;
+  private static final double WEIGHT_SUM_TOLERANCE = 1.0e-3;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaFilterCommandCompileMeshJointBounds.class);
+    NAME = "compile-mesh-joint-bounds";
+    SYNTAX = "<skeleton> <indices-attribute> <weights-attribute> <position-attribute>";
+  }
+
+  private final Path skeleton_file;
+  private final SMFAttributeName attr_name_indices;
+  private final SMFAttributeName attr_name_weights;
+  private final SMFAttributeName attr_name_position;
+
+  private CaFilterCommandCompileMeshJointBounds(
+    final Path in_skeleton,
+    final SMFAttributeName in_attr_name_indices,
+    final SMFAttributeName in_attr_name_weights,
+    final SMFAttributeName in_attr_name_position)
+  {
+    this.skeleton_file =
+      NullCheck.notNull(in_skeleton, "Skeleton");
+    this.attr_name_indices =
+      NullCheck.notNull(in_attr_name_indices, "Indices");
+    this.attr_name_weights =
+      NullCheck.notNull(in_attr_name_weights, "Weights");
+    this.attr_name_position =
+      NullCheck.notNull(in_attr_name_position, "Position");
+  }
+
+  /**
+   * Create a new filter.
+   *
+   * @param in_skeleton           The path to the skeleton file
+   * @param in_attr_name_indices  The name of the attribute that contains
+   *                              joint indices
+   * @param in_attr_name_weights  The name of the attribute that contains
+   *                              joint weights
+   * @param in_attr_name_position The name of the attribute that contains
+   *                              vertex positions
+   *
+   * @return A new filter
+   */
+
+  public static SMFMemoryMeshFilterType create(
+    final Path in_skeleton,
+    final SMFAttributeName in_attr_name_indices,
+    final SMFAttributeName in_attr_name_weights,
+    final SMFAttributeName in_attr_name_position)
+  {
+    return new CaFilterCommandCompileMeshJointBounds(
+      in_skeleton,
+      in_attr_name_indices,
+      in_attr_name_weights,
+      in_attr_name_position);
+  }
+
+  private static String makeSyntax()
+  {
+    return NAME + " " + SYNTAX;
+  }
+
+  /**
+   * Attempt to parse a command.
+   *
+   * @param file The file, if any
+   * @param line The line
+   * @param text The text
+   *
+   * @return A parsed command or a list of parse errors
+   */
+
+  public static Validation<List<SMFParseError>, SMFMemoryMeshFilterType> parse(
+    final Optional<Path> file,
+    final int line,
+    final List<String> text)
+  {
+    NullCheck.notNull(file, "file");
+    NullCheck.notNull(text, "text");
+
+    if (text.length() == 4) {
+      try {
+        final Path skeleton_file =
+          Paths.get(text.get(0));
+        final SMFAttributeName attr_indices =
+          SMFAttributeName.of(text.get(1));
+        final SMFAttributeName attr_weights =
+          SMFAttributeName.of(text.get(2));
+        final SMFAttributeName attr_position =
+          SMFAttributeName.of(text.get(3));
+
+        LOG.debug("skeleton file:      {}", skeleton_file);
+        LOG.debug("attribute indices:  {}", attr_indices.value());
+        LOG.debug("attribute weights:  {}", attr_weights.value());
+        LOG.debug("attribute position: {}", attr_position.value());
+
+        return Validation.valid(new CaFilterCommandCompileMeshJointBounds(
+          skeleton_file, attr_indices, attr_weights, attr_position));
+      } catch (final IllegalArgumentException e) {
+        return SMFFilterCommandParsing.errorExpectedGotValidation(
+          file, line, makeSyntax(), text);
+      }
+    }
+    return SMFFilterCommandParsing.errorExpectedGotValidation(
+      file, line, makeSyntax(), text);
+  }
+
+  private static SMFProcessingError errorMissing(
+    final SMFAttributeName name)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Source attribute does not exist.");
+    sb.append(System.lineSeparator());
+    sb.append("  Attribute: ");
+    sb.append(name.value());
+    sb.append(System.lineSeparator());
+    return SMFProcessingError.of(sb.toString(), empty());
+  }
+
+  private static SMFProcessingError errorLength(
+    final SMFAttributeName name,
+    final long expected,
+    final long received)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Source attribute has the wrong number of elements.");
+    sb.append(System.lineSeparator());
+    sb.append("  Attribute: ");
+    sb.append(name.value());
+    sb.append(System.lineSeparator());
+    sb.append("  Expected: ");
+    sb.append(expected);
+    sb.append(System.lineSeparator());
+    sb.append("  Received: ");
+    sb.append(received);
+    sb.append(System.lineSeparator());
+    return SMFProcessingError.of(sb.toString(), empty());
+  }
+
+  private static SMFProcessingError errorJointIndex(
+    final int vertex,
+    final long index,
+    final int joint_count)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Joint index is out of range.");
+    sb.append(System.lineSeparator());
+    sb.append("  Vertex: ");
+    sb.append(vertex);
+    sb.append(System.lineSeparator());
+    sb.append("  Joint index: ");
+    sb.append(index);
+    sb.append(System.lineSeparator());
+    sb.append("  Joint count: ");
+    sb.append(joint_count);
+    sb.append(System.lineSeparator());
+    return SMFProcessingError.of(sb.toString(), empty());
+  }
+
+  private static List<SMFProcessingError> checkJointIndices(
+    final Vector<VectorI4L> indices,
+    final Vector<Boolean> weighted,
+    final int joint_count)
+  {
+    List<SMFProcessingError> errors = List.empty();
+    final long[] slots = new long[4];
+    for (int vertex = 0; vertex < indices.size(); ++vertex) {
+      final VectorI4L vertex_indices = indices.get(vertex);
+      slots[0] = vertex_indices.getXL();
+      slots[1] = vertex_indices.getYL();
+      slots[2] = vertex_indices.getZL();
+      slots[3] = vertex_indices.getWL();
+
+      final int base = vertex * 4;
+      for (int slot = 0; slot < 4; ++slot) {
+        final long index = slots[slot];
+        if (weighted.get(base + slot).booleanValue()
+          && (index < 0L || index >= (long) joint_count)) {
+          errors = errors.append(errorJointIndex(vertex, index, joint_count));
+        }
+      }
+    }
+    return errors;
+  }
+
+  private static SMFProcessingError errorWrongType(
+    final SMFMemoryMesh mesh,
+    final SMFAttributeName name,
+    final String expected)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Source attribute is of the wrong type.");
+    sb.append(System.lineSeparator());
+    sb.append("  Attribute: ");
+    sb.append(name.value());
+    sb.append(System.lineSeparator());
+    sb.append("  Expected type: ");
+    sb.append(expected);
+    sb.append(System.lineSeparator());
+    sb.append("  Received type: ");
+    final SMFAttribute attr = mesh.header().attributesByName().get(name).get();
+    sb.append(attr.componentType().getName());
+    sb.append(" ");
+    sb.append(attr.componentCount());
+    sb.append(" ");
+    sb.append(attr.componentSizeBits());
+    sb.append(System.lineSeparator());
+    return SMFProcessingError.of(sb.toString(), empty());
+  }
+
+  private static boolean isUnderweight(
+    final double sum)
+  {
+    return sum < 1.0 - WEIGHT_SUM_TOLERANCE;
+  }
+
+  private static double unormMaximum(
+    final SMFMemoryMesh mesh,
+    final SMFAttributeName name)
+  {
+    final SMFAttribute attr = mesh.header().attributesByName().get(name).get();
+    return Math.pow(2.0, (double) attr.componentSizeBits()) - 1.0;
+  }
+
+  private static boolean isJcalciumMeta(
+    final SMFMetadata meta)
+  {
+    return meta.vendor() == Integer.toUnsignedLong(CaMeshMetas.VENDOR_ID)
+      && meta.schema() == Integer.toUnsignedLong(CaMeshMetas.PRODUCT_ID);
+  }
+
+  private static double transformRow(
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m,
+    final int row,
+    final VectorI3D p)
+  {
+    return (m.getRowColumnD(row, 0) * p.getXD())
+      + (m.getRowColumnD(row, 1) * p.getYD())
+      + (m.getRowColumnD(row, 2) * p.getZD())
+      + m.getRowColumnD(row, 3);
+  }
+
+  @Override
+  public String name()
+  {
+    return NAME;
+  }
+
+  @Override
+  public String syntax()
+  {
+    return makeSyntax();
+  }
+
+  @Override
+  public Validation<List<SMFProcessingError>, SMFMemoryMesh> filter(
+    final SMFFilterCommandContext context,
+    final SMFMemoryMesh mesh)
+  {
+    NullCheck.notNull(context, "context");
+    NullCheck.notNull(mesh, "mesh");
+
+    final Map<SMFAttributeName, SMFAttributeArrayType> arrays = mesh.arrays();
+    List<SMFProcessingError> errors = List.empty();
+
+    Vector<VectorI4L> indices = Vector.empty();
+    final Optional<SMFAttributeArrayType> array_indices =
+      arrays.get(this.attr_name_indices).toJavaOptional();
+    if (array_indices.isPresent()) {
+      final SMFAttributeArrayType array = array_indices.get();
+      if (array instanceof SMFAttributeArrayIntegerUnsigned4) {
+        indices = ((SMFAttributeArrayIntegerUnsigned4) array).values();
+      } else {
+        errors = errors.append(errorWrongType(
+          mesh, this.attr_name_indices, "integer-unsigned 4 any"));
+      }
+    } else {
+      errors = errors.append(errorMissing(this.attr_name_indices));
+    }
+
+    Vector<Boolean> weighted = Vector.empty();
+    boolean includes_origin = false;
+    final Optional<SMFAttributeArrayType> array_weights =
+      arrays.get(this.attr_name_weights).toJavaOptional();
+    if (array_weights.isPresent()) {
+      final SMFAttributeArrayType array = array_weights.get();
+      if (array instanceof SMFAttributeArrayFloating4) {
+        final Vector<VectorI4D> values =
+          ((SMFAttributeArrayFloating4) array).values();
+        weighted = values.flatMap(
+          w -> Vector.of(
+            Boolean.valueOf(w.getXD() != 0.0),
+            Boolean.valueOf(w.getYD() != 0.0),
+            Boolean.valueOf(w.getZD() != 0.0),
+            Boolean.valueOf(w.getWD() != 0.0)));
+        includes_origin = values.exists(
+          w -> isUnderweight(w.getXD() + w.getYD() + w.getZD() + w.getWD()));
+      } else if (array instanceof SMFAttributeArrayIntegerUnsigned4) {
+        final Vector<VectorI4L> values =
+          ((SMFAttributeArrayIntegerUnsigned4) array).values();
+        final double max = unormMaximum(mesh, this.attr_name_weights);
+        weighted = values.flatMap(
+          w -> Vector.of(
+            Boolean.valueOf(w.getXL() != 0L),
+            Boolean.valueOf(w.getYL() != 0L),
+            Boolean.valueOf(w.getZL() != 0L),
+            Boolean.valueOf(w.getWL() != 0L)));
+        includes_origin = values.exists(
+          w -> isUnderweight(
+            (double) (w.getXL() + w.getYL() + w.getZL() + w.getWL()) / max));
+      } else {
+        errors = errors.append(errorWrongType(
+          mesh, this.attr_name_weights, "float 4 any | integer-unsigned 4 any"));
+      }
+    } else {
+      errors = errors.append(errorMissing(this.attr_name_weights));
+    }
+
+    Vector<VectorI3D> positions = Vector.empty();
+    final Optional<SMFAttributeArrayType> array_positions =
+      arrays.get(this.attr_name_position).toJavaOptional();
+    if (array_positions.isPresent()) {
+      final SMFAttributeArrayType array = array_positions.get();
+      if (array instanceof SMFAttributeArrayFloating3) {
+        positions = ((SMFAttributeArrayFloating3) array).values();
+      } else {
+        errors = errors.append(errorWrongType(
+          mesh, this.attr_name_position, "float 3 any"));
+      }
+    } else {
+      errors = errors.append(errorMissing(this.attr_name_position));
+    }
+
+    if (errors.isEmpty()) {
+      final long vertex_count = (long) positions.size();
+      if ((long) indices.size() != vertex_count) {
+        errors = errors.append(errorLength(
+          this.attr_name_indices, vertex_count, (long) indices.size()));
+      }
+      if ((long) weighted.size() != vertex_count * 4L) {
+        errors = errors.append(errorLength(
+          this.attr_name_weights, vertex_count, (long) (weighted.size() / 4)));
+      }
+    }
+
+    if (errors.isEmpty()) {
+      try {
+        return this.process(
+          context, mesh, indices, weighted, includes_origin, positions);
+      } catch (final CaLoaderException e) {
+        return Validation.invalid(List.of(
+          SMFProcessingError.of(e.getMessage(), Optional.of(e))));
+      } catch (final NoSuchFileException e) {
+        return Validation.invalid(List.of(
+          SMFProcessingError.of(
+            "No such file: " + e.getMessage(),
+            Optional.of(e))));
+      } catch (final IOException e) {
+        return Validation.invalid(List.of(
+          SMFProcessingError.of(e.getMessage(), Optional.of(e))));
+      }
+    }
+    return Validation.invalid(errors);
+  }
+
+  private Validation<List<SMFProcessingError>, SMFMemoryMesh> process(
+    final SMFFilterCommandContext context,
+    final SMFMemoryMesh mesh,
+    final Vector<VectorI4L> indices,
+    final Vector<Boolean> weighted,
+    final boolean includes_origin,
+    final Vector<VectorI3D> positions)
+    throws CaLoaderException, IOException
+  {
+    final Path file = context.resolvePath(this.skeleton_file);
+    LOG.debug("resolved skeleton file: {}", file);
+
+    final CaLoaderType loader = CaFilterCommandCompileMeshWeights.findLoader();
+    try (final InputStream stream = Files.newInputStream(file)) {
+      final CaSkeleton skeleton =
+        loader.loadCompiledSkeletonFromStream(stream, file.toUri());
+      final CaSkeletonRestPoseDType rest =
+        CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), skeleton);
+
+      final int joint_count = skeleton.jointsByID().size();
+      final List<SMFProcessingError> errors =
+        checkJointIndices(indices, weighted, joint_count);
+      if (!errors.isEmpty()) {
+        return Validation.invalid(errors);
+      }
+
+      final double[] minimum = new double[joint_count * 3];
+      final double[] maximum = new double[joint_count * 3];
+      final boolean[] influenced = new boolean[joint_count];
+
+      for (int vertex = 0; vertex < positions.size(); ++vertex) {
+        final VectorI3D position = positions.get(vertex);
+        final VectorI4L vertex_indices = indices.get(vertex);
+        final int base = vertex * 4;
+        includeVertex(rest, minimum, maximum, influenced, position,
+          weighted.get(base).booleanValue(), (int) vertex_indices.getXL());
+        includeVertex(rest, minimum, maximum, influenced, position,
+          weighted.get(base + 1).booleanValue(), (int) vertex_indices.getYL());
+        includeVertex(rest, minimum, maximum, influenced, position,
+          weighted.get(base + 2).booleanValue(), (int) vertex_indices.getZL());
+        includeVertex(rest, minimum, maximum, influenced, position,
+          weighted.get(base + 3).booleanValue(), (int) vertex_indices.getWL());
+      }
+
+      SortedMap<Integer, CaMeshJointBounds> bounds = TreeMap.empty();
+      for (int joint = 0; joint < joint_count; ++joint) {
+        if (influenced[joint]) {
+          final int base = joint * 3;
+          bounds = bounds.put(
+            Integer.valueOf(joint),
+            CaMeshJointBounds.of(
+              joint,
+              new PVectorI3D<>(minimum[base], minimum[base + 1], minimum[base + 2]),
+              new PVectorI3D<>(maximum[base], maximum[base + 1], maximum[base + 2])));
+        }
+      }
+
+      LOG.debug("joints with bounds: {}", Integer.valueOf(bounds.size()));
+      LOG.debug("includes origin: {}", Boolean.valueOf(includes_origin));
+
+      final CaMeshMetadata meta =
+        CaMeshMetadata.of(skeleton.meta(), bounds)
+          .withIncludesOrigin(includes_origin);
+      final SMFMetadata meta_new = SMFMetadata.of(
+        Integer.toUnsignedLong(CaMeshMetas.VENDOR_ID),
+        Integer.toUnsignedLong(CaMeshMetas.PRODUCT_ID),
+        CaMeshMetas.serialize(meta, 1, 1));
+
+      final Vector<SMFMetadata> meta_kept =
+        mesh.metadata().filter(m -> !isJcalciumMeta(m));
+
+      final SMFHeader header =
+        SMFHeader.builder()
+          .from(mesh.header())
+          .setMetaCount((long) meta_kept.size() + 1L)
+          .build();
+
+      return Validation.valid(
+        SMFMemoryMesh.builder()
+          .from(mesh)
+          .setHeader(header)
+          .setMetadata(meta_kept.append(meta_new))
+          .build());
+    }
+  }
+
+  private static void includeVertex(
+    final CaSkeletonRestPoseDType rest,
+    final double[] minimum,
+    final double[] maximum,
+    final boolean[] influenced,
+    final VectorI3D position,
+    final boolean weighted,
+    final int joint)
+  {
+    if (!weighted) {
+      return;
+    }
+
+    final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m =
+      rest.transformInverseRest4x4D(joint);
+
+    final double x = transformRow(m, 0, position);
+    final double y = transformRow(m, 1, position);
+    final double z = transformRow(m, 2, position);
+
+    final int base = joint * 3;
+    if (influenced[joint]) {
+      minimum[base] = Math.min(minimum[base], x);
+      minimum[base + 1] = Math.min(minimum[base + 1], y);
+      minimum[base + 2] = Math.min(minimum[base + 2], z);
+      maximum[base] = Math.max(maximum[base], x);
+      maximum[base + 1] = Math.max(maximum[base + 1], y);
+      maximum[base + 2] = Math.max(maximum[base + 2], z);
+    } else {
+      influenced[joint] = true;
+      minimum[base] = x;
+      minimum[base + 1] = y;
+      minimum[base + 2] = z;
+      maximum[base] = x;
+      maximum[base + 1] = y;
+      maximum[base + 2] = z;
+    }
+  }
+}
@@ -23,13 +23,18 @@ import com.io7m.jcalcium.loader.api.CaLoaderFormatProviderType;
 import com.io7m.jcalcium.loader.api.CaLoaderType;
 import com.io7m.jcalcium.mesh.meta.CaMeshMetas;
 import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightAggregation;
-import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightsAggregated;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightQuantization;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightsAggregatedArrays;
 import com.io7m.jlexing.core.LexicalPosition;
 import com.io7m.jnull.NullCheck;
+import com.io7m.jtensors.VectorI4D;
+import com.io7m.jtensors.VectorI4L;
+import com.io7m.junreachable.UnreachableCodeException;
 import com.io7m.smfj.core.SMFAttribute;
 import com.io7m.smfj.core.SMFAttributeName;
 import com.io7m.smfj.core.SMFHeader;
 import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
 import com.io7m.smfj.processing.api.SMFAttributeArrayFloating1;
 import com.io7m.smfj.processing.api.SMFAttributeArrayFloating4;
 import com.io7m.smfj.processing.api.SMFAttributeArrayIntegerUnsigned4;
@@ -60,6 +65,7 @@ import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
@@ -69,9 +75,17 @@ import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_INTEGER_UNSIGNED;
 import static java.util.Optional.empty;
 
 /**
- * A filter command that aggregates weights for a mesh.
+ * <p>A filter command that aggregates weights for a mesh.</p>
+ *
+ * <p>The size of the produced indices attribute is derived from the largest
+ * ID of the joints matched by the source pattern, rather than from the
+ * indices that are actually selected, so that the in-memory and streaming
+ * forms of the filter produce identical output. For {@code float32}
+ * weights, this can produce wider indices than earlier versions of the
+ * filter did for the same mesh.</p>
  *
  * @see CaMeshWeightAggregation
+ * @see CaMeshWeightsStreamingFilter
  */
 
 public final class CaFilterCommandCompileMeshWeights implements
@@ -90,7 +104,7 @@ public final class CaFilterCommandCompileMeshWeights implements
   static {
     LOG = LoggerFactory.getLogger(CaFilterCommandCompileMeshWeights.class);
     NAME = "compile-mesh-weights";
-    SYNTAX = "<skeleton> <indices-attribute> <weights-attribute> ('meta' | 'no-meta') <pattern>";
+    SYNTAX = "<skeleton> <indices-attribute> <weights-attribute> ('meta' | 'no-meta') <pattern> [('float32' | 'unorm16' | 'unorm8')]";
   }
 
   private final SMFAttributeName attr_name_indices;
@@ -98,13 +112,15 @@ public final class CaFilterCommandCompileMeshWeights implements
   private final Pattern source_pattern;
   private final Path skeleton_file;
   private final AddMetadata meta;
+  private final WeightEncoding encoding;
 
   private CaFilterCommandCompileMeshWeights(
     final Path in_skeleton,
     final SMFAttributeName in_attr_name_indices,
     final SMFAttributeName in_attr_name_weights,
     final AddMetadata in_meta,
-    final Pattern in_source_pattern)
+    final Pattern in_source_pattern,
+    final WeightEncoding in_encoding)
   {
     this.skeleton_file =
       NullCheck.notNull(in_skeleton, "Skeleton");
@@ -116,6 +132,8 @@ public final class CaFilterCommandCompileMeshWeights implements
       NullCheck.notNull(in_meta, "AddMetadata");
     this.source_pattern =
       NullCheck.notNull(in_source_pattern, "Source pattern");
+    this.encoding =
+      NullCheck.notNull(in_encoding, "Encoding");
   }
 
   /**
@@ -140,13 +158,48 @@ public final class CaFilterCommandCompileMeshWeights implements
     final SMFAttributeName in_attr_name_weights,
     final AddMetadata in_meta,
     final Pattern in_source_pattern)
+  {
+    return create(
+      in_skeleton,
+      in_attr_name_indices,
+      in_attr_name_weights,
+      in_meta,
+      in_source_pattern,
+      WeightEncoding.FLOAT32);
+  }
+
+  /**
+   * Create a new filter.
+   *
+   * @param in_skeleton          The path to the skeleton file
+   * @param in_attr_name_indices The name of the attribute that will contain
+   *                             joint indices
+   * @param in_attr_name_weights The name of the attribute that will contain
+   *                             joint weights
+   * @param in_source_pattern    A regular expression used to match input
+   *                             attribute names
+   * @param in_meta              Whether or not metadata should be introduced
+   *                             into the mesh
+   * @param in_encoding          The encoding used for joint weights
+   *
+   * @return A new filter
+   */
+
+  public static SMFMemoryMeshFilterType create(
+    final Path in_skeleton,
+    final SMFAttributeName in_attr_name_indices,
+    final SMFAttributeName in_attr_name_weights,
+    final AddMetadata in_meta,
+    final Pattern in_source_pattern,
+    final WeightEncoding in_encoding)
   {
     return new CaFilterCommandCompileMeshWeights(
       in_skeleton,
       in_attr_name_indices,
       in_attr_name_weights,
       in_meta,
-      in_source_pattern);
+      in_source_pattern,
+      in_encoding);
   }
 
   private static String makeSyntax()
@@ -172,7 +225,7 @@ public final class CaFilterCommandCompileMeshWeights implements
     NullCheck.notNull(file, "file");
     NullCheck.notNull(text, "text");
 
-    if (text.length() == 5) {
+    if (text.length() == 5 || text.length() == 6) {
       try {
         final Path skeleton_file =
           Paths.get(text.get(0));
@@ -185,14 +238,20 @@ public final class CaFilterCommandCompileMeshWeights implements
         final Pattern pattern =
           Pattern.compile(text.get(4));
 
+        WeightEncoding encoding = WeightEncoding.FLOAT32;
+        if (text.length() == 6) {
+          encoding = WeightEncoding.of(text.get(5));
+        }
+
         LOG.debug("skeleton file:     {}", skeleton_file);
         LOG.debug("attribute indices: {}", attr_indices.value());
         LOG.debug("attribute weights: {}", attr_weights.value());
         LOG.debug("meta:              {}", meta);
         LOG.debug("pattern:           {}", pattern.pattern());
+        LOG.debug("encoding:          {}", encoding);
 
         return Validation.valid(new CaFilterCommandCompileMeshWeights(
-          skeleton_file, attr_indices, attr_weights, meta, pattern));
+          skeleton_file, attr_indices, attr_weights, meta, pattern, encoding));
       } catch (final PatternSyntaxException e) {
         final StringBuilder sb = new StringBuilder(128);
         sb.append("Incorrect command syntax.");
@@ -218,7 +277,7 @@ public final class CaFilterCommandCompileMeshWeights implements
       file, line, makeSyntax(), text);
   }
 
-  private static CaLoaderType findLoader()
+  static CaLoaderType findLoader()
   {
     final ServiceLoader<CaLoaderFormatProviderType> service_loader =
       ServiceLoader.load(CaLoaderFormatProviderType.class);
@@ -233,6 +292,47 @@ public final class CaFilterCommandCompileMeshWeights implements
     throw new UnsupportedOperationException("No available skeleton loader");
   }
 
+  /**
+   * Create a streaming equivalent of this filter. The skeleton is loaded
+   * immediately, and the returned receiver delivers filtered events to
+   * {@code downstream}.
+   *
+   * @param context    The filter command context
+   * @param downstream The receiver of the filtered events
+   *
+   * @return A streaming filter
+   *
+   * @throws CaLoaderException On errors loading the skeleton
+   * @throws IOException       On I/O errors
+   * @see CaMeshWeightsStreamingFilter
+   */
+
+  public SMFParserEventsType streaming(
+    final SMFFilterCommandContext context,
+    final SMFParserEventsType downstream)
+    throws CaLoaderException, IOException
+  {
+    NullCheck.notNull(context, "context");
+    NullCheck.notNull(downstream, "downstream");
+
+    final Path file = context.resolvePath(this.skeleton_file);
+    LOG.debug("resolved skeleton file: {}", file);
+
+    final CaLoaderType loader = findLoader();
+    try (final InputStream stream = Files.newInputStream(file)) {
+      final CaSkeleton skeleton =
+        loader.loadCompiledSkeletonFromStream(stream, file.toUri());
+      return CaMeshWeightsStreamingFilter.create(
+        skeleton,
+        this.attr_name_indices,
+        this.attr_name_weights,
+        this.meta,
+        this.source_pattern,
+        this.encoding,
+        downstream);
+    }
+  }
+
   @Override
   public String name()
   {
@@ -384,17 +484,50 @@ public final class CaFilterCommandCompileMeshWeights implements
     try (final InputStream stream = Files.newInputStream(file)) {
       final CaSkeleton skeleton =
         loader.loadCompiledSkeletonFromStream(stream, file.toUri());
-      final CaMeshWeightsAggregated packed =
-        CaMeshWeightAggregation.aggregateWeights(skeleton, arrays_by_joint);
+
+      /*
+       * Aggregation is split across the common pool, and the results are
+       * converted directly from the primitive arrays into the SMF arrays.
+       */
+
+      final CaMeshWeightsAggregatedArrays packed =
+        CaMeshWeightAggregation.aggregateWeightsArrays(
+          skeleton,
+          arrays_by_joint.mapValues(CaFilterCommandCompileMeshWeights::unbox),
+          ForkJoinPool.commonPool());
 
       final SMFAttribute attr_indices =
         SMFAttribute.of(
           this.attr_name_indices,
           ELEMENT_TYPE_INTEGER_UNSIGNED,
           4,
-          packed.indexBitsRequired());
-      final SMFAttribute attr_weights =
-        SMFAttribute.of(this.attr_name_weights, ELEMENT_TYPE_FLOATING, 4, 32);
+          indexBits(this.encoding, skeleton, maximumJointID(skeleton, arrays_by_joint)));
+
+      final SMFAttribute attr_weights;
+      final SMFAttributeArrayType array_weights;
+      switch (this.encoding) {
+        case FLOAT32: {
+          attr_weights =
+            SMFAttribute.of(this.attr_name_weights, ELEMENT_TYPE_FLOATING, 4, 32);
+          array_weights =
+            SMFAttributeArrayFloating4.of(weightVectors(packed.vertexWeights()));
+          break;
+        }
+        case UNORM8:
+        case UNORM16: {
+          final int bits = this.encoding.bits();
+          attr_weights =
+            SMFAttribute.of(
+              this.attr_name_weights, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, bits);
+          array_weights =
+            SMFAttributeArrayIntegerUnsigned4.of(indexVectors(
+              CaMeshWeightQuantization.quantize(packed.vertexWeights(), bits)));
+          break;
+        }
+        default: {
+          throw new UnreachableCodeException();
+        }
+      }
 
       final SMFHeader.Builder header_builder =
         SMFHeader.builder()
@@ -405,9 +538,10 @@ public final class CaFilterCommandCompileMeshWeights implements
       final Map<SMFAttributeName, SMFAttributeArrayType> arrays_new =
         mesh.arrays().put(
           this.attr_name_indices,
-          SMFAttributeArrayIntegerUnsigned4.of(packed.vertexBoneIndices())).put(
+          SMFAttributeArrayIntegerUnsigned4.of(
+            indexVectors(packed.vertexBoneIndices()))).put(
           this.attr_name_weights,
-          SMFAttributeArrayFloating4.of(packed.vertexWeights()));
+          array_weights);
 
       final SMFMemoryMesh.Builder mesh_builder =
         SMFMemoryMesh.builder()
@@ -432,6 +566,104 @@ public final class CaFilterCommandCompileMeshWeights implements
     }
   }
 
+  private static int maximumJointID(
+    final CaSkeleton skeleton,
+    final SortedMap<CaJointName, Vector<Double>> arrays_by_joint)
+  {
+    int max_id = 0;
+    for (final CaJointName name : arrays_by_joint.keySet()) {
+      max_id = Math.max(
+        max_id, skeleton.jointsByName().get(name).get().value().id());
+    }
+    return max_id;
+  }
+
+  /**
+   * Determine the size of the indices attribute. The size is derived from the
+   * largest ID of the matched joints rather than from the selected indices,
+   * so that the streaming filter (which must produce a header before any
+   * weights are seen) produces identical output. Quantized encodings are
+   * intended to shrink skinning data, so 8-bit indices are used whenever
+   * every joint of the skeleton fits in 8 bits.
+   */
+
+  static int indexBits(
+    final WeightEncoding encoding,
+    final CaSkeleton skeleton,
+    final int max_joint_id)
+  {
+    switch (encoding) {
+      case FLOAT32: {
+        return indexBitsRequired(max_joint_id);
+      }
+      case UNORM8:
+      case UNORM16: {
+        if (skeleton.jointsByID().size() <= 256) {
+          return 8;
+        }
+        return indexBitsRequired(max_joint_id);
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+  }
+
+  private static int indexBitsRequired(
+    final int max)
+  {
+    int required = 8;
+    if (max >= 255) {
+      required = 16;
+    }
+    if (max >= 65535) {
+      required = 32;
+    }
+    return required;
+  }
+
+  private static double[] unbox(
+    final Vector<Double> values)
+  {
+    final double[] result = new double[values.size()];
+    int index = 0;
+    for (final Double value : values) {
+      result[index] = value.doubleValue();
+      ++index;
+    }
+    return result;
+  }
+
+  private static Vector<VectorI4D> weightVectors(
+    final double[] weights)
+  {
+    final VectorI4D[] out = new VectorI4D[weights.length / 4];
+    for (int vertex = 0; vertex < out.length; ++vertex) {
+      final int base = vertex * 4;
+      out[vertex] = new VectorI4D(
+        weights[base],
+        weights[base + 1],
+        weights[base + 2],
+        weights[base + 3]);
+    }
+    return Vector.of(out);
+  }
+
+  private static Vector<VectorI4L> indexVectors(
+    final int[] values)
+  {
+    final VectorI4L[] out = new VectorI4L[values.length / 4];
+    for (int vertex = 0; vertex < out.length; ++vertex) {
+      final int base = vertex * 4;
+      out[vertex] = new VectorI4L(
+        Integer.toUnsignedLong(values[base]),
+        Integer.toUnsignedLong(values[base + 1]),
+        Integer.toUnsignedLong(values[base + 2]),
+        Integer.toUnsignedLong(values[base + 3]));
+    }
+    return Vector.of(out);
+  }
+
   /**
    * A specification of whether or not skeleton metadata should be added to the
    * mesh.
@@ -474,4 +706,74 @@ public final class CaFilterCommandCompileMeshWeights implements
     }
   }
 
+  /**
+   * The encoding used for joint weights.
+   */
+
+  public enum WeightEncoding
+  {
+    /**
+     * Weights are stored as 32-bit floating point values.
+     */
+
+    FLOAT32(32),
+
+    /**
+     * Weights are stored as 16-bit normalized unsigned integers.
+     *
+     * @see CaMeshWeightQuantization
+     */
+
+    UNORM16(16),
+
+    /**
+     * Weights are stored as 8-bit normalized unsigned integers.
+     *
+     * @see CaMeshWeightQuantization
+     */
+
+    UNORM8(8);
+
+    private final int bits;
+
+    WeightEncoding(
+      final int in_bits)
+    {
+      this.bits = in_bits;
+    }
+
+    /**
+     * @return The size in bits of each weight component
+     */
+
+    public int bits()
+    {
+      return this.bits;
+    }
+
+    /**
+     * Parse an encoding from a string
+     *
+     * @param text Must be "float32", "unorm16", or "unorm8"
+     *
+     * @return An encoding
+     */
+
+    public static WeightEncoding of(
+      final String text)
+    {
+      switch (text) {
+        case "float32":
+          return FLOAT32;
+        case "unorm16":
+          return UNORM16;
+        case "unorm8":
+          return UNORM8;
+        default: {
+          throw new IllegalArgumentException(
+            "Expected 'float32', 'unorm16', or 'unorm8'.");
+        }
+      }
+    }
+  }
 }
@@ -39,6 +39,9 @@ public final class CaFilterCommandProvider extends
     super(SMFFilterCommandModule.of(
       "com.io7m.jcalcium",
       TreeMap.ofEntries(
+        Tuple.of(
+          CaFilterCommandCompileMeshJointBounds.NAME,
+          CaFilterCommandCompileMeshJointBounds::parse),
         Tuple.of(
           CaFilterCommandCompileMeshWeights.NAME,
           CaFilterCommandCompileMeshWeights::parse),
@@ -0,0 +1,646 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.mesh.processing.smf;
+
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetas;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightAccumulator;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightQuantization;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightsAggregatedArrays;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import javaslang.collection.HashMap;
+import javaslang.collection.Map;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_FLOATING;
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_INTEGER_UNSIGNED;
+import static java.util.Optional.empty;
+
+/**
+ * <p>A streaming equivalent of {@link CaFilterCommandCompileMeshWeights}.</p>
+ *
+ * <p>The filter consumes SMF parser events, passes them on to a downstream
+ * receiver, and aggregates the values of the matched {@code GROUP:*}
+ * attributes into a {@link CaMeshWeightAccumulator} as they arrive. When the
+ * last attribute of the original mesh has been received, the aggregated
+ * indices and weights attributes are delivered downstream. The filter
+ * itself never holds the group attributes, so its own working memory is
+ * proportional to {@code vertex_count * 4}. The group attributes are still
+ * passed downstream, so the peak memory use of the whole pipeline depends
+ * on the downstream receiver: a receiver that retains every attribute, such
+ * as a memory mesh producer, still holds all of the group attributes.</p>
+ *
+ * <p>The aggregated indices and weights are identical to those produced by
+ * {@link CaFilterCommandCompileMeshWeights}, and an instance is normally
+ * obtained via {@link CaFilterCommandCompileMeshWeights#streaming}.</p>
+ *
+ * <p>If the header cannot be accepted (because the output attributes already
+ * exist, a matched attribute has the wrong type, no attributes are matched,
+ * or a matched attribute does not name a joint in the skeleton), the errors
+ * are delivered downstream and the filter passes all further events through
+ * unmodified.</p>
+ */
+
+public final class CaMeshWeightsStreamingFilter implements SMFParserEventsType
+{
+  private static final Logger LOG;
+  private static final String GROUP_ATTRIBUTE_PREFIX = "GROUP:";
+
+  static {
+    LOG = LoggerFactory.getLogger(CaMeshWeightsStreamingFilter.class);
+  }
+
+  private final CaSkeleton skeleton;
+  private final SMFAttributeName attr_name_indices;
+  private final SMFAttributeName attr_name_weights;
+  private final CaFilterCommandCompileMeshWeights.AddMetadata meta;
+  private final CaFilterCommandCompileMeshWeights.WeightEncoding encoding;
+  private final Pattern source_pattern;
+  private final SMFParserEventsType downstream;
+  private Map<SMFAttributeName, Integer> ranks;
+  private CaMeshWeightAccumulator accumulator;
+  private SMFAttribute attr_indices;
+  private SMFAttribute attr_weights;
+  private int attribute_count;
+  private int attributes_finished;
+  private int current_rank;
+  private int current_vertex;
+  private boolean failed;
+
+  private CaMeshWeightsStreamingFilter(
+    final CaSkeleton in_skeleton,
+    final SMFAttributeName in_attr_name_indices,
+    final SMFAttributeName in_attr_name_weights,
+    final CaFilterCommandCompileMeshWeights.AddMetadata in_meta,
+    final Pattern in_source_pattern,
+    final CaFilterCommandCompileMeshWeights.WeightEncoding in_encoding,
+    final SMFParserEventsType in_downstream)
+  {
+    this.skeleton =
+      NullCheck.notNull(in_skeleton, "Skeleton");
+    this.attr_name_indices =
+      NullCheck.notNull(in_attr_name_indices, "Indices");
+    this.attr_name_weights =
+      NullCheck.notNull(in_attr_name_weights, "Weights");
+    this.meta =
+      NullCheck.notNull(in_meta, "AddMetadata");
+    this.source_pattern =
+      NullCheck.notNull(in_source_pattern, "Source pattern");
+    this.encoding =
+      NullCheck.notNull(in_encoding, "Encoding");
+    this.downstream =
+      NullCheck.notNull(in_downstream, "Downstream");
+
+    this.ranks = HashMap.empty();
+    this.current_rank = -1;
+    this.failed = true;
+  }
+
+  /**
+   * Create a new streaming filter.
+   *
+   * @param in_skeleton          The skeleton
+   * @param in_attr_name_indices The name of the attribute that will contain
+   *                             joint indices
+   * @param in_attr_name_weights The name of the attribute that will contain
+   *                             joint weights
+   * @param in_meta              Whether or not metadata should be introduced
+   *                             into the mesh
+   * @param in_source_pattern    A regular expression used to match input
+   *                             attribute names
+   * @param in_encoding          The encoding used for joint weights
+   * @param in_downstream        The receiver of the filtered events
+   *
+   * @return A new filter
+   */
+
+  public static SMFParserEventsType create(
+    final CaSkeleton in_skeleton,
+    final SMFAttributeName in_attr_name_indices,
+    final SMFAttributeName in_attr_name_weights,
+    final CaFilterCommandCompileMeshWeights.AddMetadata in_meta,
+    final Pattern in_source_pattern,
+    final CaFilterCommandCompileMeshWeights.WeightEncoding in_encoding,
+    final SMFParserEventsType in_downstream)
+  {
+    return new CaMeshWeightsStreamingFilter(
+      in_skeleton,
+      in_attr_name_indices,
+      in_attr_name_weights,
+      in_meta,
+      in_source_pattern,
+      in_encoding,
+      in_downstream);
+  }
+
+  private void error(
+    final String message)
+  {
+    this.failed = true;
+    this.downstream.onError(SMFParseError.of(
+      LexicalPosition.of(0, 0, empty()), message, empty()));
+  }
+
+  @Override
+  public void onStart()
+  {
+    this.downstream.onStart();
+  }
+
+  @Override
+  public void onVersionReceived(
+    final SMFFormatVersion version)
+  {
+    this.downstream.onVersionReceived(version);
+  }
+
+  @Override
+  public void onFinish()
+  {
+    if (!this.failed) {
+      switch (this.meta) {
+        case META: {
+          final byte[] data = CaMeshMetas.serialize(this.skeleton.meta(), 1, 0);
+          final long vendor = Integer.toUnsignedLong(CaMeshMetas.VENDOR_ID);
+          final long schema = Integer.toUnsignedLong(CaMeshMetas.PRODUCT_ID);
+          if (this.downstream.onMeta(vendor, schema, (long) data.length)) {
+            this.downstream.onMetaData(vendor, schema, data);
+          }
+          break;
+        }
+        case NO_META: {
+          break;
+        }
+      }
+    }
+
+    this.downstream.onFinish();
+  }
+
+  @Override
+  public void onError(
+    final SMFParseError e)
+  {
+    this.failed = true;
+    this.downstream.onError(e);
+  }
+
+  @Override
+  public void onHeaderParsed(
+    final SMFHeader header)
+  {
+    NullCheck.notNull(header, "Header");
+
+    this.failed = false;
+    this.checkOutputAttributes(header);
+    this.selectSourceAttributes(header);
+
+    final long vertex_count = header.vertexCount();
+    if (!this.failed && vertex_count > (long) (Integer.MAX_VALUE / 4)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Mesh has too many vertices.");
+      sb.append(System.lineSeparator());
+      sb.append("  Vertex count: ");
+      sb.append(Long.toUnsignedString(vertex_count));
+      sb.append(System.lineSeparator());
+      this.error(sb.toString());
+    }
+
+    if (this.failed) {
+      this.downstream.onHeaderParsed(header);
+      return;
+    }
+
+    final int[] joint_ids = new int[this.ranks.size()];
+    int max_id = 0;
+    for (final SMFAttributeName name : this.ranks.keySet()) {
+      final CaJointName joint = jointName(name);
+      final int id =
+        this.skeleton.jointsByName().get(joint).get().value().id();
+      joint_ids[this.ranks.get(name).get().intValue()] = id;
+      max_id = Math.max(max_id, id);
+    }
+
+    this.accumulator =
+      CaMeshWeightAccumulator.create((int) vertex_count, joint_ids);
+    this.attribute_count = header.attributesInOrder().size();
+    this.attributes_finished = 0;
+
+    this.attr_indices =
+      SMFAttribute.of(
+        this.attr_name_indices,
+        ELEMENT_TYPE_INTEGER_UNSIGNED,
+        4,
+        CaFilterCommandCompileMeshWeights.indexBits(
+          this.encoding, this.skeleton, max_id));
+
+    switch (this.encoding) {
+      case FLOAT32: {
+        this.attr_weights =
+          SMFAttribute.of(this.attr_name_weights, ELEMENT_TYPE_FLOATING, 4, 32);
+        break;
+      }
+      case UNORM8:
+      case UNORM16: {
+        this.attr_weights =
+          SMFAttribute.of(
+            this.attr_name_weights,
+            ELEMENT_TYPE_INTEGER_UNSIGNED,
+            4,
+            this.encoding.bits());
+        break;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+
+    final SMFHeader.Builder header_builder =
+      SMFHeader.builder()
+        .from(header)
+        .addAttributesInOrder(this.attr_indices)
+        .addAttributesInOrder(this.attr_weights);
+
+    switch (this.meta) {
+      case META: {
+        header_builder.setMetaCount(header.metaCount() + 1L);
+        break;
+      }
+      case NO_META: {
+        break;
+      }
+    }
+
+    this.downstream.onHeaderParsed(header_builder.build());
+  }
+
+  private static CaJointName jointName(
+    final SMFAttributeName name)
+  {
+    return CaJointName.of(
+      name.value().substring(GROUP_ATTRIBUTE_PREFIX.length()));
+  }
+
+  private void selectSourceAttributes(
+    final SMFHeader header)
+  {
+    SortedMap<CaJointName, SMFAttributeName> sources = TreeMap.empty();
+    for (final SMFAttribute attr : header.attributesInOrder()) {
+      final SMFAttributeName name = attr.name();
+      if (name.value().startsWith(GROUP_ATTRIBUTE_PREFIX)) {
+        final String name_sub =
+          name.value().substring(GROUP_ATTRIBUTE_PREFIX.length());
+        if (this.source_pattern.matcher(name_sub).matches()) {
+          LOG.debug("matched attribute {}", name.value());
+          if (attr.componentType() == ELEMENT_TYPE_FLOATING
+            && attr.componentCount() == 1) {
+            sources = sources.put(jointName(name), name);
+          } else {
+            final StringBuilder sb = new StringBuilder(128);
+            sb.append("Source attribute is of the wrong type.");
+            sb.append(System.lineSeparator());
+            sb.append("  Attribute: ");
+            sb.append(name.value());
+            sb.append(System.lineSeparator());
+            sb.append("  Expected type: float 1 any");
+            sb.append(System.lineSeparator());
+            sb.append("  Received type: ");
+            sb.append(attr.componentType().getName());
+            sb.append(" ");
+            sb.append(attr.componentCount());
+            sb.append(" ");
+            sb.append(attr.componentSizeBits());
+            sb.append(System.lineSeparator());
+            this.error(sb.toString());
+          }
+        } else {
+          LOG.debug("did not match attribute {}", name.value());
+        }
+      }
+    }
+
+    if (sources.isEmpty()) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("No attributes were matched by the given pattern.");
+      sb.append(System.lineSeparator());
+      sb.append("  Pattern: ");
+      sb.append(this.source_pattern.pattern());
+      sb.append(System.lineSeparator());
+      this.error(sb.toString());
+    }
+
+    /*
+     * Joints are ranked in name order, so that ties are broken in the same
+     * manner as the in-memory filter.
+     */
+
+    this.ranks = HashMap.empty();
+    int rank = 0;
+    for (final CaJointName joint : sources.keySet()) {
+      if (this.skeleton.jointsByName().containsKey(joint)) {
+        this.ranks = this.ranks.put(
+          sources.get(joint).get(), Integer.valueOf(rank));
+        ++rank;
+      } else {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Skeleton does not contain the named joint.");
+        sb.append(System.lineSeparator());
+        sb.append("  Joint: ");
+        sb.append(joint.value());
+        sb.append(System.lineSeparator());
+        this.error(sb.toString());
+      }
+    }
+  }
+
+  private void checkOutputAttributes(
+    final SMFHeader header)
+  {
+    if (header.attributesByName().containsKey(this.attr_name_indices)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Output attribute already exists.");
+      sb.append(System.lineSeparator());
+      sb.append("  Attribute: ");
+      sb.append(this.attr_name_indices.value());
+      sb.append(System.lineSeparator());
+      this.error(sb.toString());
+    }
+
+    if (header.attributesByName().containsKey(this.attr_name_weights)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Output attribute already exists.");
+      sb.append(System.lineSeparator());
+      sb.append("  Attribute: ");
+      sb.append(this.attr_name_weights.value());
+      sb.append(System.lineSeparator());
+      this.error(sb.toString());
+    }
+  }
+
+  @Override
+  public void onDataAttributeStart(
+    final SMFAttribute attribute)
+  {
+    this.current_rank = -1;
+    this.current_vertex = 0;
+    if (!this.failed) {
+      final Optional<Integer> rank =
+        this.ranks.get(attribute.name()).toJavaOptional();
+      if (rank.isPresent()) {
+        this.current_rank = rank.get().intValue();
+      }
+    }
+    this.downstream.onDataAttributeStart(attribute);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned1(
+    final long x)
+  {
+    this.downstream.onDataAttributeValueIntegerSigned1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned2(
+    final long x,
+    final long y)
+  {
+    this.downstream.onDataAttributeValueIntegerSigned2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    this.downstream.onDataAttributeValueIntegerSigned3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    this.downstream.onDataAttributeValueIntegerSigned4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned1(
+    final long x)
+  {
+    this.downstream.onDataAttributeValueIntegerUnsigned1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned2(
+    final long x,
+    final long y)
+  {
+    this.downstream.onDataAttributeValueIntegerUnsigned2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    this.downstream.onDataAttributeValueIntegerUnsigned3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    this.downstream.onDataAttributeValueIntegerUnsigned4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat1(
+    final double x)
+  {
+    if (this.current_rank >= 0) {
+      this.accumulator.addWeight(this.current_rank, this.current_vertex, x);
+      ++this.current_vertex;
+    }
+    this.downstream.onDataAttributeValueFloat1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat2(
+    final double x,
+    final double y)
+  {
+    this.downstream.onDataAttributeValueFloat2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat3(
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.downstream.onDataAttributeValueFloat3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat4(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    this.downstream.onDataAttributeValueFloat4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeFinish(
+    final SMFAttribute attribute)
+  {
+    this.current_rank = -1;
+    this.downstream.onDataAttributeFinish(attribute);
+
+    if (!this.failed) {
+      ++this.attributes_finished;
+      if (this.attributes_finished == this.attribute_count) {
+        this.emitAggregated();
+      }
+    }
+  }
+
+  /**
+   * Deliver the aggregated indices and weights downstream. The accumulator
+   * is released immediately afterwards.
+   */
+
+  private void emitAggregated()
+  {
+    final CaMeshWeightsAggregatedArrays packed = this.accumulator.finish();
+    this.accumulator = null;
+
+    LOG.debug("emitting weights for {} vertices",
+              Integer.valueOf(packed.vertexCount()));
+
+    final int[] indices = packed.vertexBoneIndices();
+    final double[] weights = packed.vertexWeights();
+    final int vertex_count = packed.vertexCount();
+
+    this.downstream.onDataAttributeStart(this.attr_indices);
+    for (int vertex = 0; vertex < vertex_count; ++vertex) {
+      final int base = vertex * 4;
+      this.downstream.onDataAttributeValueIntegerUnsigned4(
+        Integer.toUnsignedLong(indices[base]),
+        Integer.toUnsignedLong(indices[base + 1]),
+        Integer.toUnsignedLong(indices[base + 2]),
+        Integer.toUnsignedLong(indices[base + 3]));
+    }
+    this.downstream.onDataAttributeFinish(this.attr_indices);
+
+    this.downstream.onDataAttributeStart(this.attr_weights);
+    switch (this.encoding) {
+      case FLOAT32: {
+        for (int vertex = 0; vertex < vertex_count; ++vertex) {
+          final int base = vertex * 4;
+          this.downstream.onDataAttributeValueFloat4(
+            weights[base],
+            weights[base + 1],
+            weights[base + 2],
+            weights[base + 3]);
+        }
+        break;
+      }
+      case UNORM8:
+      case UNORM16: {
+        final int[] quantized =
+          CaMeshWeightQuantization.quantize(weights, this.encoding.bits());
+        for (int vertex = 0; vertex < vertex_count; ++vertex) {
+          final int base = vertex * 4;
+          this.downstream.onDataAttributeValueIntegerUnsigned4(
+            Integer.toUnsignedLong(quantized[base]),
+            Integer.toUnsignedLong(quantized[base + 1]),
+            Integer.toUnsignedLong(quantized[base + 2]),
+            Integer.toUnsignedLong(quantized[base + 3]));
+        }
+        break;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+    this.downstream.onDataAttributeFinish(this.attr_weights);
+  }
+
+  @Override
+  public void onDataTrianglesStart()
+  {
+    this.downstream.onDataTrianglesStart();
+  }
+
+  @Override
+  public void onDataTriangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    this.downstream.onDataTriangle(v0, v1, v2);
+  }
+
+  @Override
+  public void onDataTrianglesFinish()
+  {
+    this.downstream.onDataTrianglesFinish();
+  }
+
+  @Override
+  public boolean onMeta(
+    final long vendor,
+    final long schema,
+    final long length)
+  {
+    return this.downstream.onMeta(vendor, schema, length);
+  }
+
+  @Override
+  public void onMetaData(
+    final long vendor,
+    final long schema,
+    final byte[] data)
+  {
+    this.downstream.onMetaData(vendor, schema, data);
+  }
+}
@@ -130,10 +130,17 @@ public final class CaSchemas
         OptionalInt.of(4),
         OptionalInt.empty());
 
+    /*
+     * Joint weights may be floating point, or normalized unsigned integers
+     * (see CaFilterCommandCompileMeshWeights.WeightEncoding). Schemas cannot
+     * express a choice of component types, so consumers are expected to
+     * check the component type themselves.
+     */
+
     final SMFSchemaAttribute joint_weights =
       SMFSchemaAttribute.of(
         JOINT_WEIGHTS_NAME,
-        Optional.of(SMFComponentType.ELEMENT_TYPE_FLOATING),
+        Optional.empty(),
         OptionalInt.of(4),
         OptionalInt.empty());
 
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.cmdline;
+
+import com.io7m.jcalcium.cmdline.CaBatch;
+import com.io7m.jcalcium.tests.processing.smf.CaTestFilesystems;
+import javaslang.collection.List;
+import org.hamcrest.core.StringContains;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CaBatchTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private FileSystem filesystem;
+  private ExecutorService executor;
+  private Path root;
+
+  @Before
+  public void setUp()
+  {
+    this.filesystem = CaTestFilesystems.makeEmptyUnixFilesystem();
+    this.root = this.filesystem.getRootDirectories().iterator().next();
+    this.executor = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.executor.shutdown();
+    this.filesystem.close();
+  }
+
+  private Path file(
+    final String name,
+    final long time)
+    throws IOException
+  {
+    final Path path = this.root.resolve(name);
+    Files.createDirectories(path.getParent());
+    Files.write(path, name.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+    return path;
+  }
+
+  @Test
+  public void testManifest()
+    throws Exception
+  {
+    final Path manifest = this.root.resolve("x/manifest.txt");
+    Files.createDirectories(manifest.getParent());
+    Files.write(manifest, List.of(
+      "# A comment",
+      "",
+      "a.csj a.ccp",
+      "  y/b.csj    /out/b.ccp  ").toJavaList(), StandardCharsets.UTF_8);
+
+    final List<CaBatch.Job> jobs = CaBatch.jobsFromManifest(manifest);
+    Assert.assertEquals(2L, (long) jobs.size());
+    Assert.assertEquals(this.root.resolve("x/a.csj"), jobs.get(0).input());
+    Assert.assertEquals(this.root.resolve("x/a.ccp"), jobs.get(0).output());
+    Assert.assertEquals(this.root.resolve("x/y/b.csj"), jobs.get(1).input());
+    Assert.assertEquals(this.root.resolve("out/b.ccp"), jobs.get(1).output());
+  }
+
+  @Test
+  public void testManifestMalformed()
+    throws Exception
+  {
+    final Path manifest = this.root.resolve("manifest.txt");
+    Files.write(manifest, List.of(
+      "a.csj a.ccp",
+      "b.csj").toJavaList(), StandardCharsets.UTF_8);
+
+    this.expected.expect(IOException.class);
+    this.expected.expectMessage(
+      StringContains.containsString("Malformed manifest line."));
+    CaBatch.jobsFromManifest(manifest);
+  }
+
+  @Test
+  public void testUpToDateMissingOutput()
+    throws Exception
+  {
+    final Path input = this.file("a.csj", 1000L);
+    final CaBatch.Job job = new CaBatch.Job(input, this.root.resolve("a.ccp"));
+    Assert.assertFalse(CaBatch.isUpToDate(job, List.empty()));
+  }
+
+  @Test
+  public void testUpToDate()
+    throws Exception
+  {
+    final Path input = this.file("a.csj", 1000L);
+    final Path output = this.file("a.ccp", 2000L);
+    final Path dependency = this.file("b.csj", 1000L);
+    final CaBatch.Job job = new CaBatch.Job(input, output);
+
+    Assert.assertTrue(CaBatch.isUpToDate(job, List.empty()));
+    Assert.assertTrue(CaBatch.isUpToDate(job, List.of(dependency)));
+
+    Files.setLastModifiedTime(dependency, FileTime.fromMillis(3000L));
+    Assert.assertTrue(CaBatch.isUpToDate(job, List.empty()));
+    Assert.assertFalse(CaBatch.isUpToDate(job, List.of(dependency)));
+
+    Files.setLastModifiedTime(input, FileTime.fromMillis(3000L));
+    Assert.assertFalse(CaBatch.isUpToDate(job, List.empty()));
+  }
+
+  @Test
+  public void testRunSkipsUpToDate()
+    throws Exception
+  {
+    final CaBatch.Job job_current =
+      new CaBatch.Job(this.file("a.csj", 1000L), this.file("a.ccp", 2000L));
+    final CaBatch.Job job_stale =
+      new CaBatch.Job(this.file("b.csj", 3000L), this.file("b.ccp", 2000L));
+    final List<CaBatch.Job> jobs = List.of(job_current, job_stale);
+
+    final AtomicInteger count = new AtomicInteger(0);
+    final CaBatch.JobCompilerType compiler = job -> {
+      count.incrementAndGet();
+      return true;
+    };
+
+    Assert.assertTrue(
+      CaBatch.run(this.executor, jobs, List.empty(), false, compiler));
+    Assert.assertEquals(1L, (long) count.get());
+
+    count.set(0);
+    Assert.assertTrue(
+      CaBatch.run(this.executor, jobs, List.empty(), true, compiler));
+    Assert.assertEquals(2L, (long) count.get());
+  }
+
+  @Test
+  public void testRunFailure()
+    throws Exception
+  {
+    final List<CaBatch.Job> jobs = List.of(
+      new CaBatch.Job(this.file("a.csj", 1000L), this.root.resolve("a.ccp")),
+      new CaBatch.Job(this.file("b.csj", 1000L), this.root.resolve("b.ccp")));
+
+    final AtomicInteger count = new AtomicInteger(0);
+    Assert.assertFalse(CaBatch.run(
+      this.executor, jobs, List.empty(), false, job -> {
+        count.incrementAndGet();
+        if (job.input().endsWith("a.csj")) {
+          throw new IOException("Failed");
+        }
+        return true;
+      }));
+    Assert.assertEquals(2L, (long) count.get());
+
+    Assert.assertFalse(CaBatch.run(
+      this.executor, jobs, List.empty(), false, job -> false));
+  }
+
+  @Test
+  public void testRunError()
+    throws Exception
+  {
+    final List<CaBatch.Job> jobs = List.of(
+      new CaBatch.Job(this.file("a.csj", 1000L), this.root.resolve("a.ccp")));
+
+    this.expected.expect(LinkageError.class);
+    CaBatch.run(this.executor, jobs, List.empty(), true, job -> {
+      throw new LinkageError("Failed");
+    });
+  }
+}
@@ -246,6 +246,96 @@ public abstract class CaCompilerContract
       r.getError().get(0).code());
   }
 
+  private static CaDefinitionJoint joint(
+    final CaJointName name,
+    final Optional<CaJointName> parent)
+  {
+    return CaDefinitionJoint.of(
+      name,
+      parent,
+      new PVectorI3D<>(),
+      new QuaternionI4D(),
+      new VectorI3D(1.0, 1.0, 1.0));
+  }
+
+  @Test
+  public void testCompileCyclicMultiple()
+  {
+    final CaCompilerType cc = this.create();
+
+    final CaJointName root = CaJointName.of("root");
+    final CaJointName a0 = CaJointName.of("a0");
+    final CaJointName a1 = CaJointName.of("a1");
+    final CaJointName a2 = CaJointName.of("a2");
+    final CaJointName b0 = CaJointName.of("b0");
+    final CaJointName b1 = CaJointName.of("b1");
+    final CaJointName c0 = CaJointName.of("c0");
+
+    final CaDefinitionSkeleton.Builder b = CaDefinitionSkeleton.builder();
+    b.setName(CaSkeletonName.of("skeleton"));
+    b.setActions(HashMap.empty());
+    b.setJoints(HashMap.ofEntries(
+      Tuple.of(root, joint(root, Optional.empty())),
+      Tuple.of(a0, joint(a0, Optional.of(a2))),
+      Tuple.of(a1, joint(a1, Optional.of(a0))),
+      Tuple.of(a2, joint(a2, Optional.of(a1))),
+      Tuple.of(b0, joint(b0, Optional.of(b1))),
+      Tuple.of(b1, joint(b1, Optional.of(b0))),
+      Tuple.of(c0, joint(c0, Optional.of(a1)))));
+
+    final Validation<List<CaCompileError>, CaSkeleton> r =
+      cc.compile(b.build());
+
+    dump(r);
+    Assert.assertFalse(r.isValid());
+    Assert.assertEquals(2L, (long) r.getError().size());
+    r.getError().forEach(e -> Assert.assertEquals(
+      CaCompileErrorCode.ERROR_JOINT_CYCLE, e.code()));
+  }
+
+  @Test
+  public void testCompileLargeDeepChains()
+  {
+    final CaCompilerType cc = this.create();
+
+    final int chains = 10;
+    final int depth = 10000;
+
+    final CaJointName root = CaJointName.of("root");
+    Map<CaJointName, CaDefinitionJoint> joints =
+      HashMap.of(root, joint(root, Optional.empty()));
+
+    for (int chain = 0; chain < chains; ++chain) {
+      CaJointName parent = root;
+      for (int index = 0; index < depth; ++index) {
+        final CaJointName name =
+          CaJointName.of(String.format("chain%d_%d", chain, index));
+        joints = joints.put(name, joint(name, Optional.of(parent)));
+        parent = name;
+      }
+    }
+
+    final CaDefinitionSkeleton.Builder b = CaDefinitionSkeleton.builder();
+    b.setName(CaSkeletonName.of("skeleton"));
+    b.setActions(HashMap.empty());
+    b.setJoints(joints);
+
+    final Validation<List<CaCompileError>, CaSkeleton> r =
+      cc.compile(b.build());
+
+    Assert.assertTrue(r.isValid());
+    Assert.assertEquals(
+      (long) (chains * depth) + 1L,
+      (long) r.get().jointsByName().size());
+
+    final JOTreeNodeReadableType<CaJoint> last =
+      r.get().jointsByName().get(
+        CaJointName.of(String.format("chain%d_%d", 0, depth - 1))).get();
+    Assert.assertEquals(
+      CaJointName.of(String.format("chain%d_%d", 0, depth - 2)),
+      last.parentReadable().get().value().name());
+  }
+
   @Test
   public void testCompileActionNonexistentJoint()
   {
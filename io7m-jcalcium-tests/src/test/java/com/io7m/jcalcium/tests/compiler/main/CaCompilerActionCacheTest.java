@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.compiler.main;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionCacheType;
+import com.io7m.jcalcium.compiler.api.CaCompilerActionHash;
+import com.io7m.jcalcium.compiler.api.CaCompilerType;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionCurves;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionType;
+import com.io7m.jcalcium.format.protobuf3.v1.CaV1Protobuf3ActionCache;
+import com.io7m.jcalcium.generators.CaDefinitionSkeletonGenerator;
+import com.io7m.jcalcium.generators.JointTreeGenerator;
+import com.io7m.jcalcium.tests.processing.smf.CaTestFilesystems;
+import com.io7m.jnull.NullCheck;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CaCompilerActionCacheTest
+{
+  private FileSystem filesystem;
+  private ExecutorService exec;
+
+  private static CaDefinitionSkeleton generate()
+  {
+    return new CaDefinitionSkeletonGenerator(
+      new JointTreeGenerator().next()).next();
+  }
+
+  private static CaSkeleton compile(
+    final CaCompilerType compiler,
+    final CaDefinitionSkeleton skeleton)
+  {
+    final Validation<List<CaCompileError>, CaSkeleton> r =
+      compiler.compile(skeleton);
+    Assert.assertTrue(r.isValid());
+    return r.get();
+  }
+
+  @Before
+  public void setup()
+  {
+    this.filesystem = CaTestFilesystems.makeEmptyUnixFilesystem();
+    this.exec = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.exec.shutdown();
+    this.filesystem.close();
+  }
+
+  private CountingCache cache(
+    final Path directory)
+    throws Exception
+  {
+    return new CountingCache(CaV1Protobuf3ActionCache.create(directory));
+  }
+
+  @Test
+  public void testUnchangedFromCache()
+    throws Exception
+  {
+    final Path directory = this.filesystem.getPath("/cache");
+    final CaDefinitionSkeleton skeleton = generate();
+    final int count = skeleton.actions().size();
+
+    final CountingCache c0 = this.cache(directory);
+    final CaSkeleton s0 = compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, c0), skeleton);
+    Assert.assertEquals(0L, (long) c0.hits.get());
+    Assert.assertEquals((long) count, (long) c0.misses.get());
+    Assert.assertEquals((long) count, (long) c0.stores.get());
+
+    final CountingCache c1 = this.cache(directory);
+    final CaSkeleton s1 = compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, c1), skeleton);
+    Assert.assertEquals((long) count, (long) c1.hits.get());
+    Assert.assertEquals(0L, (long) c1.misses.get());
+    Assert.assertEquals(0L, (long) c1.stores.get());
+
+    Assert.assertEquals(s0.actionsByName(), s1.actionsByName());
+    Assert.assertEquals(
+      compile(CaCompiler.create(), skeleton).actionsByName(),
+      s1.actionsByName());
+  }
+
+  @Test
+  public void testEditedActionRecompiled()
+    throws Exception
+  {
+    final Path directory = this.filesystem.getPath("/cache");
+    final CaDefinitionSkeleton skeleton = generate();
+    final int count = skeleton.actions().size();
+    Assert.assertTrue(count > 0);
+
+    compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, this.cache(directory)),
+      skeleton);
+
+    final CaActionName name = skeleton.actions().keySet().head();
+    final CaDefinitionActionCurves original =
+      (CaDefinitionActionCurves) skeleton.actions().get(name).get();
+
+    final CaDefinitionActionCurves.Builder ab =
+      CaDefinitionActionCurves.builder();
+    ab.setName(original.name());
+    ab.setCurves(original.curves());
+    ab.setFramesPerSecond(original.framesPerSecond() + 1);
+
+    final javaslang.collection.Map<CaActionName, CaDefinitionActionType> actions =
+      skeleton.actions().put(name, ab.build());
+    final CaDefinitionSkeleton edited =
+      CaDefinitionSkeleton.of(skeleton.name(), skeleton.joints(), actions);
+
+    final CountingCache c1 = this.cache(directory);
+    final CaSkeleton s1 = compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, c1), edited);
+    Assert.assertEquals((long) count - 1L, (long) c1.hits.get());
+    Assert.assertEquals(1L, (long) c1.misses.get());
+    Assert.assertEquals(1L, (long) c1.stores.get());
+    Assert.assertEquals(
+      (long) original.framesPerSecond() + 1L,
+      (long) s1.actionsByName().get(name).get().framesPerSecond());
+  }
+
+  @Test
+  public void testCorruptEntriesIgnored()
+    throws Exception
+  {
+    final Path directory = this.filesystem.getPath("/cache");
+    final CaDefinitionSkeleton skeleton = generate();
+    final int count = skeleton.actions().size();
+
+    final CaSkeleton s0 = compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, this.cache(directory)),
+      skeleton);
+
+    try (final DirectoryStream<Path> entries =
+           Files.newDirectoryStream(directory)) {
+      for (final Path entry : entries) {
+        Files.write(entry, "garbage".getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    final CountingCache c1 = this.cache(directory);
+    final CaSkeleton s1 = compile(
+      CaCompiler.createWithExecutorAndCache(this.exec, c1), skeleton);
+    Assert.assertEquals(0L, (long) c1.hits.get());
+    Assert.assertEquals((long) count, (long) c1.misses.get());
+    Assert.assertEquals(s0.actionsByName(), s1.actionsByName());
+  }
+
+  private static final class CountingCache implements CaCompilerActionCacheType
+  {
+    private final CaCompilerActionCacheType delegate;
+    private final AtomicInteger hits;
+    private final AtomicInteger misses;
+    private final AtomicInteger stores;
+
+    CountingCache(
+      final CaCompilerActionCacheType in_delegate)
+    {
+      this.delegate = NullCheck.notNull(in_delegate, "Delegate");
+      this.hits = new AtomicInteger(0);
+      this.misses = new AtomicInteger(0);
+      this.stores = new AtomicInteger(0);
+    }
+
+    @Override
+    public Optional<CaActionType> cachedAction(
+      final CaCompilerActionHash hash)
+    {
+      final Optional<CaActionType> r = this.delegate.cachedAction(hash);
+      if (r.isPresent()) {
+        this.hits.incrementAndGet();
+      } else {
+        this.misses.incrementAndGet();
+      }
+      return r;
+    }
+
+    @Override
+    public void cacheAction(
+      final CaCompilerActionHash hash,
+      final CaActionType action)
+    {
+      this.stores.incrementAndGet();
+      this.delegate.cacheAction(hash, action);
+    }
+  }
+}
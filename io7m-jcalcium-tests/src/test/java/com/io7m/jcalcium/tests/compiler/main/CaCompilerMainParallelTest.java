@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.compiler.main;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.api.CaCompilerType;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.generators.CaDefinitionSkeletonGenerator;
+import com.io7m.jcalcium.generators.JointTree;
+import com.io7m.jcalcium.generators.JointTreeGenerator;
+import com.io7m.jcalcium.tests.compiler.api.CaCompilerContract;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import net.java.quickcheck.QuickCheck;
+import net.java.quickcheck.characteristic.AbstractCharacteristic;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class CaCompilerMainParallelTest extends CaCompilerContract
+{
+  private static final ExecutorService EXEC;
+
+  static {
+    EXEC = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void tearDownExecutor()
+  {
+    EXEC.shutdown();
+  }
+
+  @Override
+  protected CaCompilerType create()
+  {
+    return CaCompiler.createWithExecutor(EXEC);
+  }
+
+  @Test
+  public void testParallelIdenticalToSerial()
+  {
+    final CaCompilerType serial = CaCompiler.create();
+    final CaCompilerType parallel = this.create();
+    final JointTree tree = new JointTreeGenerator().next();
+
+    QuickCheck.forAll(
+      25,
+      new CaDefinitionSkeletonGenerator(tree),
+      new AbstractCharacteristic<CaDefinitionSkeleton>()
+      {
+        @Override
+        protected void doSpecify(final CaDefinitionSkeleton original)
+          throws Throwable
+        {
+          final Validation<List<CaCompileError>, CaSkeleton> r_serial =
+            serial.compile(original);
+          final Validation<List<CaCompileError>, CaSkeleton> r_parallel =
+            parallel.compile(original);
+
+          Assert.assertTrue(r_serial.isValid());
+          Assert.assertTrue(r_parallel.isValid());
+
+          final CaSkeleton s_serial = r_serial.get();
+          final CaSkeleton s_parallel = r_parallel.get();
+          Assert.assertEquals(s_serial.meta(), s_parallel.meta());
+          Assert.assertEquals(
+            s_serial.actionsByName(), s_parallel.actionsByName());
+        }
+      });
+  }
+}
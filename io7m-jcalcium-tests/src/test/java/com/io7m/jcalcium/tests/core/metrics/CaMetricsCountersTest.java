@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.core.metrics;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaActionName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
+import com.io7m.jcalcium.core.compiled.actions.CaActionType;
+import com.io7m.jcalcium.core.definitions.CaFormatDescription;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.core.metrics.CaMetricsCounters;
+import com.io7m.jcalcium.core.metrics.CaMetricsDisabled;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedJointReadableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContextMatricesType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContextType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatorSingleType;
+import com.io7m.jcalcium.evaluator.main.CaEvaluatorSingleD;
+import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletonParameters;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletons;
+import com.io7m.jcalcium.loader.api.CaLoaderAsynchronous;
+import com.io7m.jcalcium.loader.api.CaLoaderAsynchronousType;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistry;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryConfiguration;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMF;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFConfiguration;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFEventsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFJointWeightsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFPackedAttributeSet;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFProvider;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTargetRing;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetAuxiliaryType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetJointType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaSetSourceType;
+import com.io7m.jcalcium.tests.processing.smf.CaTestFilesystems;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import com.io7m.jpra.runtime.java.JPRACursor1DType;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
+import com.io7m.smfj.bytebuffer.SMFByteBufferPackedTriangles;
+import com.io7m.smfj.core.SMFErrorType;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.parser.api.SMFParserEventsMeta;
+import com.io7m.smfj.validation.main.SMFSchemaValidator;
+import javaslang.collection.List;
+import javaslang.collection.SortedMap;
+import javaslang.control.Validation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class CaMetricsCountersTest
+{
+  private static CaFormatDescription protobuf3()
+  {
+    return new CaProtobuf3FormatProvider().loaderFormat();
+  }
+
+  private static void checkLoaded(
+    final CaMetricsCounters m,
+    final Path path)
+    throws Exception
+  {
+    final String name = protobuf3().name();
+    Assert.assertEquals(
+      Long.valueOf(1L), m.loadsByFormat().get(name).get());
+    Assert.assertEquals(
+      Long.valueOf(Files.size(path)), m.loadOctetsByFormat().get(name).get());
+    Assert.assertEquals(1L, (long) m.loadsByFormat().size());
+  }
+
+  private static CaMeshDeformableCPUType loadStandard()
+    throws Exception
+  {
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMetricsCountersTest.class.getResourceAsStream(path.toString())) {
+      final Validation<List<SMFErrorType>, CaMeshDeformableCPUType> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          new SMFFormatText(),
+          new SMFSchemaValidator(),
+          SMFParserEventsMeta.ignore(),
+          CaMeshDeformableCPUSMFConfiguration.builder().build(),
+          new MeshEvents(),
+          path,
+          stream);
+      Assert.assertTrue(results.isValid());
+      return results.get();
+    }
+  }
+
+  private static CaFormatDescription format()
+  {
+    final CaFormatDescription.Builder b = CaFormatDescription.builder();
+    b.setMimeType("application/x-example");
+    b.setDescription("Example");
+    b.setName("example");
+    b.setSuffix("ex");
+    return b.build();
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    Assert.assertFalse(CaMetricsDisabled.get().isEnabled());
+    Assert.assertSame(CaMetricsDisabled.get(), CaMetricsDisabled.get());
+  }
+
+  @Test
+  public void testCountersAccumulate()
+  {
+    final CaMetricsCounters m = CaMetricsCounters.create();
+    Assert.assertTrue(m.isEnabled());
+
+    m.onEvaluation(10, 100L);
+    m.onEvaluation(20, 200L);
+    m.onMatricesBuilt(2);
+    m.onDeformation(1000L, 50L);
+    m.onContextPoolHit();
+    m.onContextPoolHit();
+    m.onContextPoolMiss();
+    m.onLoad(format(), 128L, 10L);
+    m.onLoad(format(), 256L, 20L);
+    m.onActionCompiled(CaActionName.of("a"), 5L);
+    m.onActionCompiled(CaActionName.of("a"), 7L);
+
+    Assert.assertEquals(2L, m.evaluations());
+    Assert.assertEquals(30L, m.evaluationJoints());
+    Assert.assertEquals(300L, m.evaluationNanoseconds());
+    Assert.assertEquals(2L, m.matricesBuilt());
+    Assert.assertEquals(1L, m.deformations());
+    Assert.assertEquals(1000L, m.verticesDeformed());
+    Assert.assertEquals(50L, m.deformationNanoseconds());
+    Assert.assertEquals(2L, m.contextPoolHits());
+    Assert.assertEquals(1L, m.contextPoolMisses());
+    Assert.assertEquals(
+      Long.valueOf(2L), m.loadsByFormat().get("example").get());
+    Assert.assertEquals(
+      Long.valueOf(384L), m.loadOctetsByFormat().get("example").get());
+    Assert.assertEquals(
+      Long.valueOf(30L), m.loadNanosecondsByFormat().get("example").get());
+    Assert.assertEquals(
+      Long.valueOf(12L),
+      m.compileNanosecondsByAction().get(CaActionName.of("a")).get());
+
+    m.reset();
+
+    Assert.assertEquals(0L, m.evaluations());
+    Assert.assertEquals(0L, m.evaluationJoints());
+    Assert.assertEquals(0L, m.matricesBuilt());
+    Assert.assertEquals(0L, m.verticesDeformed());
+    Assert.assertEquals(0L, m.contextPoolHits());
+    Assert.assertEquals(0L, m.contextPoolMisses());
+    Assert.assertTrue(m.loadsByFormat().isEmpty());
+    Assert.assertTrue(m.compileNanosecondsByAction().isEmpty());
+  }
+
+  @Test
+  public void testContextPool()
+  {
+    final CaMetricsCounters m = CaMetricsCounters.create();
+    final CaEvaluationContextType c = CaEvaluationContext.createWithMetrics(m);
+    Assert.assertSame(m, c.metrics());
+
+    final CaEvaluationContextMatricesType cc0 = c.newMatrices();
+    cc0.close();
+    final CaEvaluationContextMatricesType cc1 = c.newMatrices();
+    cc1.close();
+
+    Assert.assertEquals(1L, m.contextPoolMisses());
+    Assert.assertEquals(1L, m.contextPoolHits());
+  }
+
+  @Test
+  public void testCompileAndEvaluate()
+  {
+    final CaMetricsCounters m = CaMetricsCounters.create();
+
+    final CaSyntheticSkeletonParameters parameters =
+      CaSyntheticSkeletonParameters.builder()
+        .setSeed(0x1234L)
+        .setJointCount(32)
+        .setActionCount(2)
+        .setFrameCount(30)
+        .setKeyframeInterval(5)
+        .build();
+
+    final Validation<List<CaCompileError>, CaSkeleton> r =
+      CaCompiler.createWithExecutorAndMetrics(Runnable::run, m)
+        .compile(CaSyntheticSkeletons.generate(parameters));
+    Assert.assertTrue(r.isValid());
+
+    final CaSkeleton skeleton = r.get();
+    Assert.assertEquals(
+      skeleton.actionsByName().keySet(),
+      m.compileNanosecondsByAction().keySet());
+
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), skeleton);
+    final CaEvaluationContextType context =
+      CaEvaluationContext.createWithMetrics(m);
+    final CaEvaluatedSkeletonMutableDType eval_skeleton =
+      CaEvaluatedSkeletonD.create(context, rest_pose);
+    final CaActionType action =
+      skeleton.actionsByName().get(CaSyntheticSkeletons.actionName(0)).get();
+    final CaEvaluatorSingleType eval =
+      CaEvaluatorSingleD.create(context, eval_skeleton, action, 60);
+
+    for (int frame = 0; frame < 10; ++frame) {
+      eval.evaluateForGlobalFrame(0L, (long) frame, 1.0);
+      for (final CaEvaluatedJointReadableDType joint :
+        eval_skeleton.jointsByID().values()) {
+        joint.transformDeform4x4D();
+      }
+    }
+
+    Assert.assertEquals(10L, m.evaluations());
+    Assert.assertEquals(10L * 32L, m.evaluationJoints());
+
+    /*
+     * Transforms are only rebuilt when the pose has changed, so at most
+     * two matrices are built per joint per frame.
+     */
+
+    Assert.assertTrue(m.matricesBuilt() > 0L);
+    Assert.assertTrue(m.matricesBuilt() <= 10L * 32L * 2L);
+    Assert.assertEquals(0L, m.matricesBuilt() % 2L);
+    Assert.assertTrue(m.contextPoolMisses() > 0L);
+    Assert.assertTrue(m.contextPoolHits() > m.contextPoolMisses());
+  }
+
+  @Test
+  public void testSkeletonRegistry()
+    throws Exception
+  {
+    try (final FileSystem fs = CaTestFilesystems.makeEmptyUnixFilesystem()) {
+      final Path path = fs.getPath("/skeleton.ccp");
+      CaTestSkeletons.writeProtobuf3(
+        CaTestSkeletons.compiledSynthetic(), CaFormatVersion.of(1, 0), path);
+
+      final CaMetricsCounters m = CaMetricsCounters.create();
+      final CaSkeletonRegistryType registry =
+        CaSkeletonRegistry.createWithMetrics(
+          CaSkeletonRegistryConfiguration.builder().build(), m);
+
+      registry.get(path);
+      checkLoaded(m, path);
+
+      /*
+       * Cached entries are not loaded again.
+       */
+
+      registry.get(path);
+      checkLoaded(m, path);
+    }
+  }
+
+  @Test
+  public void testLoaderAsynchronous()
+    throws Exception
+  {
+    try (final FileSystem fs = CaTestFilesystems.makeEmptyUnixFilesystem()) {
+      final Path path = fs.getPath("/skeleton.ccp");
+      CaTestSkeletons.writeProtobuf3(
+        CaTestSkeletons.compiledSynthetic(), CaFormatVersion.of(1, 0), path);
+
+      final CaMetricsCounters m = CaMetricsCounters.create();
+      final CaLoaderAsynchronousType loader =
+        CaLoaderAsynchronous.createWithMetrics(Runnable::run, Runnable::run, m);
+
+      loader.loadCompiledSkeletonFromFile(path).get();
+      checkLoaded(m, path);
+    }
+  }
+
+  @Test
+  public void testMeshDeformer()
+    throws Exception
+  {
+    final CaMetricsCounters m = CaMetricsCounters.create();
+    final CaMeshDeformableCPUType mesh = loadStandard();
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(
+        new MatrixM4x4D.ContextMM4D(), CaTestSkeletons.compiledSynthetic());
+    final CaEvaluatedSkeletonMutableDType eval_skeleton =
+      CaEvaluatedSkeletonD.create(CaEvaluationContext.create(), rest_pose);
+    final CaMeshDeformerCPUType deformer =
+      CaMeshDeformerCPU.createWithMetrics(
+        CaMeshDeformationMatrices.create(), m);
+
+    deformer.deformD(eval_skeleton, mesh);
+    Assert.assertEquals(1L, m.deformations());
+    Assert.assertEquals(mesh.vertexCount(), m.verticesDeformed());
+
+    /*
+     * The pose has not changed, so the second deformation is skipped and
+     * is not counted.
+     */
+
+    deformer.deformD(eval_skeleton, mesh);
+    Assert.assertEquals(1L, m.deformations());
+    Assert.assertEquals(mesh.vertexCount(), m.verticesDeformed());
+  }
+
+  private static final class MeshEvents
+    implements CaMeshDeformableCPUSMFEventsType<CaMeshDeformableCPUType>
+  {
+    MeshEvents()
+    {
+
+    }
+
+    @Override
+    public CaMeshDeformableCPUType onCreated(
+      final SMFHeader header,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data,
+      final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index,
+      final CaMeshDeformableCPUSMFJointWeightsType joint_weights,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data,
+      final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
+      final CaMeshDeformableCPUSMFTargetRing targets,
+      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data,
+      final SMFByteBufferPackedTriangles triangle_data)
+    {
+      return CaMeshDeformableCPUSMF.create(
+        targets,
+        source_cursors,
+        cursor_joint_index,
+        joint_weights,
+        header.vertexCount());
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.deformation.cpu;
+
+import com.io7m.jaffirm.core.PreconditionViolationException;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursor3Type;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSemantic;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUDType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import com.io7m.jorchard.core.JOTreeNode;
+import com.io7m.jorchard.core.JOTreeNodeType;
+import com.io7m.jtensors.VectorM3D;
+import com.io7m.jtensors.VectorWritable3DType;
+import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.jtensors.VectorWritable4LType;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public final class CaMeshClustersTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static final class ArrayCursor implements
+    CaMeshDeformableAttributeCursor3Type
+  {
+    private final double[][] values;
+    private long vertex;
+
+    ArrayCursor(
+      final double[][] in_values)
+    {
+      this.values = in_values;
+    }
+
+    @Override
+    public long vertex()
+    {
+      return this.vertex;
+    }
+
+    @Override
+    public void setVertex(final long in_vertex)
+    {
+      this.vertex = in_vertex;
+    }
+
+    @Override
+    public CaMeshDeformableAttributeSemantic semantic()
+    {
+      return CaMeshDeformableAttributeSemantic.POSITION;
+    }
+
+    @Override
+    public void get3D(final VectorWritable3DType out)
+    {
+      final double[] v = this.values[(int) this.vertex];
+      out.set3D(v[0], v[1], v[2]);
+    }
+
+    @Override
+    public void set3D(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final double[] v = this.values[(int) this.vertex];
+      v[0] = x;
+      v[1] = y;
+      v[2] = z;
+    }
+  }
+
+  /**
+   * Eight vertices along the X axis. The first four are influenced by joint
+   * 0, and the last four by joint 1.
+   */
+
+  private static final class Mesh implements CaMeshDeformableCPUType
+  {
+    private final double[][] source_values;
+    private final double[][] target_values;
+    private final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> sources;
+    private final SortedMap<String, CaMeshDeformableAttributeCursorType> targets;
+    private Optional<CaMeshClusters> clusters;
+    private long version;
+
+    Mesh()
+    {
+      this.source_values = new double[8][];
+      this.target_values = new double[8][];
+      for (int index = 0; index < 8; ++index) {
+        this.source_values[index] = new double[]{(double) index, 0.0, 0.0};
+        this.target_values[index] =
+          new double[]{Double.NaN, Double.NaN, Double.NaN};
+      }
+      this.sources =
+        TreeMap.of("POSITION", new ArrayCursor(this.source_values));
+      this.targets =
+        TreeMap.of("POSITION", new ArrayCursor(this.target_values));
+      this.clusters = Optional.empty();
+    }
+
+    @Override
+    public SortedMap<String, CaMeshDeformableAttributeCursorType> meshTargetCursors()
+    {
+      return this.targets;
+    }
+
+    @Override
+    public SortedMap<String, CaMeshDeformableAttributeCursorReadableType> meshSourceCursors()
+    {
+      return this.sources;
+    }
+
+    @Override
+    public long vertexCount()
+    {
+      return 8L;
+    }
+
+    @Override
+    public void jointIndicesForVertex(
+      final long vertex,
+      final VectorWritable4LType out)
+    {
+      if (vertex < 4L) {
+        out.set4L(0L, 0L, 0L, 0L);
+      } else {
+        out.set4L(1L, 0L, 0L, 0L);
+      }
+    }
+
+    @Override
+    public void jointWeightsForVertex(
+      final long vertex,
+      final VectorWritable4DType out)
+    {
+      out.set4D(1.0, 0.0, 0.0, 0.0);
+    }
+
+    @Override
+    public Optional<CaMeshClusters> clusters()
+    {
+      return this.clusters;
+    }
+
+    @Override
+    public void setClusters(
+      final CaMeshClusters in_clusters)
+    {
+      this.clusters = Optional.of(in_clusters);
+    }
+
+    @Override
+    public long deformedPoseVersion()
+    {
+      return this.version;
+    }
+
+    @Override
+    public void setDeformedPoseVersion(
+      final long in_version)
+    {
+      this.version = in_version;
+    }
+  }
+
+  /**
+   * A skeleton in which joint 1 has been moved 10 units along the Y axis
+   * relative to its rest pose.
+   */
+
+  private static CaEvaluatedSkeletonMutableDType movedSkeleton()
+  {
+    final JOTreeNodeType<CaJoint> node_0 =
+      JOTreeNode.create(CaTestSkeletons.joint("joint.000", 0, 0.0));
+    final JOTreeNodeType<CaJoint> node_1 =
+      JOTreeNode.create(CaTestSkeletons.joint("joint.001", 1, 1.0));
+    node_0.childAdd(node_1);
+
+    final CaEvaluatedSkeletonMutableDType eval_skeleton =
+      CaTestSkeletons.evaluated(CaTestSkeletons.skeleton(node_0));
+    eval_skeleton.jointsMutableByID().get(1).setTranslation3D(
+      new PVectorI3D<>(0.0, 11.0, 0.0));
+    return eval_skeleton;
+  }
+
+  private static CaMeshDeformerCPUType deformer()
+  {
+    return CaMeshDeformerCPU.create(CaMeshDeformationMatrices.create());
+  }
+
+  @Test
+  public void testPartition()
+  {
+    final CaMeshClusters clusters = CaMeshClusters.partition(new Mesh(), 3);
+    Assert.assertEquals(8L, (long) clusters.vertexCount());
+    Assert.assertEquals(3L, (long) clusters.clusterCount());
+
+    Assert.assertEquals(0L, (long) clusters.clusterVerticesStart(0));
+    Assert.assertEquals(3L, (long) clusters.clusterVerticesEnd(0));
+    Assert.assertEquals(3L, (long) clusters.clusterVerticesStart(1));
+    Assert.assertEquals(6L, (long) clusters.clusterVerticesEnd(1));
+    Assert.assertEquals(6L, (long) clusters.clusterVerticesStart(2));
+    Assert.assertEquals(8L, (long) clusters.clusterVerticesEnd(2));
+
+    Assert.assertEquals(1L, (long) clusters.clusterJointCount(0));
+    Assert.assertEquals(0L, (long) clusters.clusterJoint(0, 0));
+    Assert.assertEquals(2L, (long) clusters.clusterJointCount(1));
+    Assert.assertEquals(0L, (long) clusters.clusterJoint(1, 0));
+    Assert.assertEquals(1L, (long) clusters.clusterJoint(1, 1));
+    Assert.assertEquals(1L, (long) clusters.clusterJointCount(2));
+    Assert.assertEquals(1L, (long) clusters.clusterJoint(2, 0));
+
+    final VectorM3D minimum = new VectorM3D();
+    final VectorM3D maximum = new VectorM3D();
+    clusters.clusterRestBounds(1, minimum, maximum);
+    Assert.assertEquals(new VectorM3D(3.0, 0.0, 0.0), minimum);
+    Assert.assertEquals(new VectorM3D(5.0, 0.0, 0.0), maximum);
+  }
+
+  @Test
+  public void testPartitionInvalidSize()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    CaMeshClusters.partition(new Mesh(), 0);
+  }
+
+  @Test
+  public void testPosedBounds()
+  {
+    final CaEvaluatedSkeletonMutableDType skeleton = movedSkeleton();
+    final CaMeshClusters clusters = CaMeshClusters.partition(new Mesh(), 3);
+
+    final VectorM3D minimum = new VectorM3D();
+    final VectorM3D maximum = new VectorM3D();
+
+    clusters.clusterPosedBoundsD(skeleton, 0, minimum, maximum);
+    Assert.assertEquals(0.0, minimum.getXD(), 0.000001);
+    Assert.assertEquals(0.0, minimum.getYD(), 0.000001);
+    Assert.assertEquals(2.0, maximum.getXD(), 0.000001);
+    Assert.assertEquals(0.0, maximum.getYD(), 0.000001);
+
+    clusters.clusterPosedBoundsD(skeleton, 1, minimum, maximum);
+    Assert.assertEquals(3.0, minimum.getXD(), 0.000001);
+    Assert.assertEquals(0.0, minimum.getYD(), 0.000001);
+    Assert.assertEquals(5.0, maximum.getXD(), 0.000001);
+    Assert.assertEquals(10.0, maximum.getYD(), 0.000001);
+
+    clusters.clusterPosedBoundsD(skeleton, 2, minimum, maximum);
+    Assert.assertEquals(6.0, minimum.getXD(), 0.000001);
+    Assert.assertEquals(10.0, minimum.getYD(), 0.000001);
+    Assert.assertEquals(7.0, maximum.getXD(), 0.000001);
+    Assert.assertEquals(10.0, maximum.getYD(), 0.000001);
+  }
+
+  @Test
+  public void testDeformClustersCulled()
+  {
+    final CaEvaluatedSkeletonMutableDType skeleton = movedSkeleton();
+    final Mesh mesh = new Mesh();
+    mesh.setClusters(CaMeshClusters.partition(mesh, 3));
+    mesh.setDeformedPoseVersion(23L);
+
+    final int deformed = deformer().deformClustersD(
+      skeleton,
+      mesh,
+      (cluster, min_x, min_y, min_z, max_x, max_y, max_z) -> max_y < 5.0);
+
+    Assert.assertEquals(1L, (long) deformed);
+    Assert.assertEquals(0L, mesh.deformedPoseVersion());
+
+    for (int vertex = 0; vertex < 3; ++vertex) {
+      Assert.assertEquals((double) vertex, mesh.target_values[vertex][0], 0.000001);
+      Assert.assertEquals(0.0, mesh.target_values[vertex][1], 0.000001);
+    }
+    for (int vertex = 3; vertex < 8; ++vertex) {
+      Assert.assertTrue(Double.isNaN(mesh.target_values[vertex][0]));
+    }
+  }
+
+  @Test
+  public void testDeformClustersAll()
+  {
+    final CaEvaluatedSkeletonMutableDType skeleton = movedSkeleton();
+    final Mesh mesh = new Mesh();
+    mesh.setClusters(CaMeshClusters.partition(mesh, 3));
+
+    final CaMeshDeformerCPUType deformer = deformer();
+    final int deformed = deformer.deformClustersD(
+      skeleton,
+      mesh,
+      (cluster, min_x, min_y, min_z, max_x, max_y, max_z) -> true);
+
+    Assert.assertEquals(3L, (long) deformed);
+    Assert.assertEquals(skeleton.poseVersion(), mesh.deformedPoseVersion());
+
+    for (int vertex = 0; vertex < 8; ++vertex) {
+      final double y;
+      if (vertex < 4) {
+        y = 0.0;
+      } else {
+        y = 10.0;
+      }
+      Assert.assertEquals((double) vertex, mesh.target_values[vertex][0], 0.000001);
+      Assert.assertEquals(y, mesh.target_values[vertex][1], 0.000001);
+    }
+
+    for (final double[] value : mesh.target_values) {
+      Arrays.fill(value, Double.NaN);
+    }
+
+    Assert.assertEquals(
+      (long) CaMeshDeformerCPUDType.DEFORMATION_SKIPPED,
+      (long) deformer.deformClustersD(
+        skeleton,
+        mesh,
+        (cluster, min_x, min_y, min_z, max_x, max_y, max_z) -> true));
+    Assert.assertTrue(Double.isNaN(mesh.target_values[0][0]));
+  }
+
+  @Test
+  public void testDeformClustersNoneVisible()
+  {
+    final CaEvaluatedSkeletonMutableDType skeleton = movedSkeleton();
+    final Mesh mesh = new Mesh();
+    mesh.setClusters(CaMeshClusters.partition(mesh, 3));
+
+    final int deformed = deformer().deformClustersD(
+      skeleton,
+      mesh,
+      (cluster, min_x, min_y, min_z, max_x, max_y, max_z) -> false);
+
+    Assert.assertEquals(0L, (long) deformed);
+    Assert.assertNotEquals(
+      (long) CaMeshDeformerCPUDType.DEFORMATION_SKIPPED, (long) deformed);
+    Assert.assertEquals(0L, mesh.deformedPoseVersion());
+    for (int vertex = 0; vertex < 8; ++vertex) {
+      Assert.assertTrue(Double.isNaN(mesh.target_values[vertex][0]));
+    }
+  }
+
+  @Test
+  public void testDeformClustersMissing()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    deformer().deformClustersD(
+      movedSkeleton(),
+      new Mesh(),
+      (cluster, min_x, min_y, min_z, max_x, max_y, max_z) -> true);
+  }
+}
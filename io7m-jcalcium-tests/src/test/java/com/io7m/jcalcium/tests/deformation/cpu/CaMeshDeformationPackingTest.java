@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.deformation.cpu;
+
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationPacking;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class CaMeshDeformationPackingTest
+{
+  private static int snorm10(
+    final int packed,
+    final int shift)
+  {
+    return (packed << (22 - shift)) >> 22;
+  }
+
+  @Test
+  public void testFloat16Exact()
+  {
+    Assert.assertEquals((short) 0x0000, CaMeshDeformationPacking.packFloat16(0.0));
+    Assert.assertEquals((short) 0x8000, CaMeshDeformationPacking.packFloat16(-0.0));
+    Assert.assertEquals((short) 0x3c00, CaMeshDeformationPacking.packFloat16(1.0));
+    Assert.assertEquals((short) 0xbc00, CaMeshDeformationPacking.packFloat16(-1.0));
+    Assert.assertEquals((short) 0x4000, CaMeshDeformationPacking.packFloat16(2.0));
+    Assert.assertEquals((short) 0x3800, CaMeshDeformationPacking.packFloat16(0.5));
+    Assert.assertEquals((short) 0x7bff, CaMeshDeformationPacking.packFloat16(65504.0));
+    Assert.assertEquals((short) 0x0400, CaMeshDeformationPacking.packFloat16(Math.pow(2.0, -14.0)));
+    Assert.assertEquals((short) 0x0001, CaMeshDeformationPacking.packFloat16(Math.pow(2.0, -24.0)));
+  }
+
+  @Test
+  public void testFloat16Rounding()
+  {
+    /*
+     * 1 + 2^-11 lies exactly halfway between 1.0 and the next half value,
+     * and rounds to the even mantissa.
+     */
+
+    Assert.assertEquals(
+      (short) 0x3c00,
+      CaMeshDeformationPacking.packFloat16(1.0 + Math.pow(2.0, -11.0)));
+    Assert.assertEquals(
+      (short) 0x3c02,
+      CaMeshDeformationPacking.packFloat16(1.0 + (3.0 * Math.pow(2.0, -11.0))));
+  }
+
+  @Test
+  public void testFloat16Special()
+  {
+    Assert.assertEquals((short) 0x7c00, CaMeshDeformationPacking.packFloat16(65520.0));
+    Assert.assertEquals((short) 0x7c00, CaMeshDeformationPacking.packFloat16(Double.POSITIVE_INFINITY));
+    Assert.assertEquals((short) 0xfc00, CaMeshDeformationPacking.packFloat16(Double.NEGATIVE_INFINITY));
+    Assert.assertEquals((short) 0x7e00, CaMeshDeformationPacking.packFloat16(Double.NaN));
+    Assert.assertEquals((short) 0x0000, CaMeshDeformationPacking.packFloat16(Math.pow(2.0, -26.0)));
+  }
+
+  @Test
+  public void testOctahedral()
+  {
+    Assert.assertEquals(0, CaMeshDeformationPacking.packOctahedral16(0.0, 0.0, 0.0));
+    Assert.assertEquals(0, CaMeshDeformationPacking.packOctahedral16(0.0, 0.0, 1.0));
+    Assert.assertEquals(
+      0x7fff, CaMeshDeformationPacking.packOctahedral16(1.0, 0.0, 0.0));
+    Assert.assertEquals(
+      0x7fff0000, CaMeshDeformationPacking.packOctahedral16(0.0, 2.0, 0.0));
+    Assert.assertEquals(
+      0x7fff7fff, CaMeshDeformationPacking.packOctahedral16(0.0, 0.0, -1.0));
+
+    final int packed =
+      CaMeshDeformationPacking.packOctahedral16(-1.0, -1.0, 0.0);
+    Assert.assertEquals(-16383, (int) (short) packed);
+    Assert.assertEquals(-16383, (int) (short) (packed >>> 16));
+  }
+
+  @Test
+  public void testSNorm1010102()
+  {
+    final int packed_x =
+      CaMeshDeformationPacking.packSNorm1010102(2.0, 0.0, 0.0, 1.0);
+    Assert.assertEquals(511, snorm10(packed_x, 0));
+    Assert.assertEquals(0, snorm10(packed_x, 10));
+    Assert.assertEquals(0, snorm10(packed_x, 20));
+    Assert.assertEquals(1, packed_x >> 30);
+
+    final int packed_z =
+      CaMeshDeformationPacking.packSNorm1010102(0.0, 0.0, -3.0, -1.0);
+    Assert.assertEquals(0, snorm10(packed_z, 0));
+    Assert.assertEquals(0, snorm10(packed_z, 10));
+    Assert.assertEquals(-511, snorm10(packed_z, 20));
+    Assert.assertEquals(-1, packed_z >> 30);
+
+    final int packed_zero =
+      CaMeshDeformationPacking.packSNorm1010102(0.0, 0.0, 0.0, 0.0);
+    Assert.assertEquals(0x40000000, packed_zero);
+  }
+}
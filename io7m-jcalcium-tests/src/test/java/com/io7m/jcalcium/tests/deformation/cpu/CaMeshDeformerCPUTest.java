@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.deformation.cpu;
+
+import com.io7m.jaffirm.core.PreconditionViolationException;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorKind;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadable3Type;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadable4Type;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSemantic;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationOutput;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationOutputAttribute;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationOutputEncoding;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import com.io7m.jtensors.VectorWritable3DType;
+import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.jtensors.VectorWritable4LType;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import javaslang.collection.List;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class CaMeshDeformerCPUTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static final class ArrayCursor implements
+    CaMeshDeformableAttributeCursorReadable3Type,
+    CaMeshDeformableAttributeCursorReadable4Type
+  {
+    private final CaMeshDeformableAttributeSemantic semantic;
+    private final double[][] values;
+    private final boolean four;
+    private long vertex;
+
+    ArrayCursor(
+      final CaMeshDeformableAttributeSemantic in_semantic,
+      final boolean in_four,
+      final double[][] in_values)
+    {
+      this.semantic = in_semantic;
+      this.four = in_four;
+      this.values = in_values;
+    }
+
+    @Override
+    public long vertex()
+    {
+      return this.vertex;
+    }
+
+    @Override
+    public void setVertex(final long in_vertex)
+    {
+      this.vertex = in_vertex;
+    }
+
+    @Override
+    public CaMeshDeformableAttributeSemantic semantic()
+    {
+      return this.semantic;
+    }
+
+    @Override
+    public CaMeshDeformableAttributeCursorKind kind()
+    {
+      if (this.four) {
+        return CaMeshDeformableAttributeCursorKind.CURSOR_FLOAT_4;
+      }
+      return CaMeshDeformableAttributeCursorKind.CURSOR_FLOAT_3;
+    }
+
+    @Override
+    public void get3D(final VectorWritable3DType out)
+    {
+      final double[] v = this.values[(int) this.vertex];
+      out.set3D(v[0], v[1], v[2]);
+    }
+
+    @Override
+    public void get4D(final VectorWritable4DType out)
+    {
+      final double[] v = this.values[(int) this.vertex];
+      out.set4D(v[0], v[1], v[2], v[3]);
+    }
+  }
+
+  private static final class Mesh implements CaMeshDeformableCPUReadableType
+  {
+    private final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> sources;
+
+    Mesh()
+    {
+      this.sources = TreeMap.of(
+        "POSITION",
+        new ArrayCursor(
+          CaMeshDeformableAttributeSemantic.POSITION,
+          false,
+          new double[][]{{0.0, 0.0, 0.0}, {1.0, 1.0, 1.0}}),
+        "NORMAL",
+        new ArrayCursor(
+          CaMeshDeformableAttributeSemantic.DIRECTION,
+          false,
+          new double[][]{{0.0, 0.0, 1.0}, {0.0, 1.0, 0.0}}),
+        "TANGENT4",
+        new ArrayCursor(
+          CaMeshDeformableAttributeSemantic.DIRECTION,
+          true,
+          new double[][]{{1.0, 0.0, 0.0, -1.0}, {1.0, 0.0, 0.0, 1.0}}));
+    }
+
+    @Override
+    public SortedMap<String, CaMeshDeformableAttributeCursorReadableType> meshSourceCursors()
+    {
+      return this.sources;
+    }
+
+    @Override
+    public long vertexCount()
+    {
+      return 2L;
+    }
+
+    @Override
+    public void jointIndicesForVertex(
+      final long vertex,
+      final VectorWritable4LType out)
+    {
+      out.set4L(0L, 0L, 0L, 0L);
+    }
+
+    @Override
+    public void jointWeightsForVertex(
+      final long vertex,
+      final VectorWritable4DType out)
+    {
+      out.set4D(1.0, 0.0, 0.0, 0.0);
+    }
+  }
+
+  private static CaEvaluatedSkeletonMutableDType translatedSkeleton()
+  {
+    final CaEvaluatedSkeletonMutableDType eval_skeleton =
+      CaTestSkeletons.evaluated(CaTestSkeletons.singleJoint("joint.000"));
+    eval_skeleton.jointsMutableByID().get(0).setTranslation3D(
+      new PVectorI3D<>(1.0, 2.0, 3.0));
+    return eval_skeleton;
+  }
+
+  private static CaMeshDeformerCPUType deformer()
+  {
+    return CaMeshDeformerCPU.create(CaMeshDeformationMatrices.create());
+  }
+
+  @Test
+  public void testDeformIntoInterleaved()
+  {
+    final ByteBuffer buffer =
+      ByteBuffer.allocate(2 * 44).order(ByteOrder.LITTLE_ENDIAN);
+
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        buffer,
+        44,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "POSITION", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3),
+          CaMeshDeformationOutputAttribute.of(
+            "NORMAL", 12, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3),
+          CaMeshDeformationOutputAttribute.of(
+            "TANGENT4", 24, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_4)));
+
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+
+    Assert.assertEquals(0L, (long) buffer.position());
+
+    Assert.assertEquals(1.0f, buffer.getFloat(0), 0.0f);
+    Assert.assertEquals(2.0f, buffer.getFloat(4), 0.0f);
+    Assert.assertEquals(3.0f, buffer.getFloat(8), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(12), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(16), 0.0f);
+    Assert.assertEquals(1.0f, buffer.getFloat(20), 0.0f);
+    Assert.assertEquals(1.0f, buffer.getFloat(24), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(28), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(32), 0.0f);
+    Assert.assertEquals(-1.0f, buffer.getFloat(36), 0.0f);
+
+    Assert.assertEquals(2.0f, buffer.getFloat(44), 0.0f);
+    Assert.assertEquals(3.0f, buffer.getFloat(48), 0.0f);
+    Assert.assertEquals(4.0f, buffer.getFloat(52), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(56), 0.0f);
+    Assert.assertEquals(1.0f, buffer.getFloat(60), 0.0f);
+    Assert.assertEquals(0.0f, buffer.getFloat(64), 0.0f);
+    Assert.assertEquals(1.0f, buffer.getFloat(80), 0.0f);
+  }
+
+  @Test
+  public void testDeformIntoPacked()
+  {
+    final ByteBuffer buffer =
+      ByteBuffer.allocate(2 * 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        buffer,
+        16,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "POSITION", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT16_4),
+          CaMeshDeformationOutputAttribute.of(
+            "NORMAL", 8, CaMeshDeformationOutputEncoding.OUTPUT_OCTAHEDRAL_SNORM16_2),
+          CaMeshDeformationOutputAttribute.of(
+            "TANGENT4", 12, CaMeshDeformationOutputEncoding.OUTPUT_SNORM_10_10_10_2)));
+
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+
+    Assert.assertEquals((short) 0x3c00, buffer.getShort(0));
+    Assert.assertEquals((short) 0x4000, buffer.getShort(2));
+    Assert.assertEquals((short) 0x4200, buffer.getShort(4));
+    Assert.assertEquals((short) 0x3c00, buffer.getShort(6));
+    Assert.assertEquals((short) 0, buffer.getShort(8));
+    Assert.assertEquals((short) 0, buffer.getShort(10));
+    Assert.assertEquals(511 | (0b11 << 30), buffer.getInt(12));
+
+    Assert.assertEquals((short) 0x4000, buffer.getShort(16));
+    Assert.assertEquals((short) 0x4200, buffer.getShort(18));
+    Assert.assertEquals((short) 0x4400, buffer.getShort(20));
+    Assert.assertEquals((short) 0, buffer.getShort(24));
+    Assert.assertEquals((short) 0x7fff, buffer.getShort(26));
+    Assert.assertEquals(511 | (0b01 << 30), buffer.getInt(28));
+  }
+
+  @Test
+  public void testDeformIntoPositionFour()
+  {
+    final ByteBuffer buffer =
+      ByteBuffer.allocate(2 * 16).order(ByteOrder.BIG_ENDIAN);
+
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        buffer,
+        16,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "POSITION", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_4)));
+
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+
+    Assert.assertEquals(1.0f, buffer.getFloat(0), 0.0f);
+    Assert.assertEquals(2.0f, buffer.getFloat(4), 0.0f);
+    Assert.assertEquals(3.0f, buffer.getFloat(8), 0.0f);
+    Assert.assertEquals(1.0f, buffer.getFloat(12), 0.0f);
+  }
+
+  @Test
+  public void testDeformIntoTooSmall()
+  {
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        ByteBuffer.allocate(12),
+        12,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "POSITION", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3)));
+
+    this.expected.expect(PreconditionViolationException.class);
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+  }
+
+  @Test
+  public void testDeformIntoLimitTooSmall()
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(24);
+    buffer.limit(12);
+
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        buffer,
+        12,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "POSITION", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3)));
+
+    this.expected.expect(PreconditionViolationException.class);
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+  }
+
+  @Test
+  public void testDeformIntoMissingAttribute()
+  {
+    final CaMeshDeformationOutput output =
+      CaMeshDeformationOutput.of(
+        ByteBuffer.allocate(24),
+        12,
+        List.of(
+          CaMeshDeformationOutputAttribute.of(
+            "UV", 0, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3)));
+
+    this.expected.expect(PreconditionViolationException.class);
+    deformer().deformIntoD(translatedSkeleton(), new Mesh(), output);
+  }
+
+  @Test
+  public void testOutputAttributeOutsideStride()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaMeshDeformationOutput.of(
+      ByteBuffer.allocate(32),
+      16,
+      List.of(
+        CaMeshDeformationOutputAttribute.of(
+          "POSITION", 8, CaMeshDeformationOutputEncoding.OUTPUT_FLOAT32_3)));
+  }
+}
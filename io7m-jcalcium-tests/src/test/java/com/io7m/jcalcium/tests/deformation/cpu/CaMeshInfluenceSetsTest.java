@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.deformation.cpu;
+
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableCPUReadableType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets;
+import com.io7m.jtensors.VectorWritable4DType;
+import com.io7m.jtensors.VectorWritable4LType;
+import javaslang.collection.SortedMap;
+import javaslang.collection.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class CaMeshInfluenceSetsTest
+{
+  private static final class Mesh implements CaMeshDeformableCPUReadableType
+  {
+    private final long[][] indices;
+    private final double[][] weights;
+
+    Mesh(
+      final long[][] in_indices,
+      final double[][] in_weights)
+    {
+      this.indices = in_indices;
+      this.weights = in_weights;
+    }
+
+    @Override
+    public SortedMap<String, CaMeshDeformableAttributeCursorReadableType> meshSourceCursors()
+    {
+      return TreeMap.empty();
+    }
+
+    @Override
+    public long vertexCount()
+    {
+      return (long) this.indices.length;
+    }
+
+    @Override
+    public void jointIndicesForVertex(
+      final long vertex,
+      final VectorWritable4LType out)
+    {
+      final long[] i = this.indices[(int) vertex];
+      out.set4L(i[0], i[1], i[2], i[3]);
+    }
+
+    @Override
+    public void jointWeightsForVertex(
+      final long vertex,
+      final VectorWritable4DType out)
+    {
+      final double[] w = this.weights[(int) vertex];
+      out.set4D(w[0], w[1], w[2], w[3]);
+    }
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    final CaMeshInfluenceSets sets =
+      CaMeshInfluenceSets.analyze(new Mesh(new long[0][], new double[0][]));
+    Assert.assertEquals(0L, (long) sets.vertexCount());
+    Assert.assertEquals(0L, (long) sets.setCount());
+  }
+
+  @Test
+  public void testGrouping()
+  {
+    final long[][] indices = {
+      {3L, 0L, 0L, 0L},
+      {1L, 2L, 0L, 0L},
+      {3L, 0L, 0L, 0L},
+      {1L, 2L, 4L, 5L},
+      {1L, 2L, 0L, 0L},
+      {3L, 0L, 0L, 0L},
+    };
+    final double[][] weights = {
+      {1.0, 0.0, 0.0, 0.0},
+      {0.5, 0.5, 0.0, 0.0},
+      {1.0, 0.0, 0.0, 0.0},
+      {0.25, 0.25, 0.25, 0.25},
+      {0.5, 0.5, 0.0, 0.0},
+      {1.0, 0.0, 0.0, 0.0},
+    };
+
+    final CaMeshInfluenceSets sets =
+      CaMeshInfluenceSets.analyze(new Mesh(indices, weights));
+
+    Assert.assertEquals(6L, (long) sets.vertexCount());
+    Assert.assertEquals(3L, (long) sets.setCount());
+    Assert.assertEquals(1L, (long) sets.setCountWithInfluences(1));
+    Assert.assertEquals(1L, (long) sets.setCountWithInfluences(2));
+    Assert.assertEquals(0L, (long) sets.setCountWithInfluences(3));
+    Assert.assertEquals(1L, (long) sets.setCountWithInfluences(4));
+
+    Assert.assertEquals(0L, (long) sets.setForVertex(0));
+    Assert.assertEquals(1L, (long) sets.setForVertex(1));
+    Assert.assertEquals(0L, (long) sets.setForVertex(2));
+    Assert.assertEquals(2L, (long) sets.setForVertex(3));
+    Assert.assertEquals(1L, (long) sets.setForVertex(4));
+    Assert.assertEquals(0L, (long) sets.setForVertex(5));
+
+    Assert.assertEquals(1L, (long) sets.setInfluenceCount(0));
+    Assert.assertEquals(3L, (long) sets.setJointIndex(0, 0));
+    Assert.assertEquals(1.0, sets.setJointWeight(0, 0), 0.0);
+
+    Assert.assertEquals(0L, (long) sets.setVerticesStart(0));
+    Assert.assertEquals(3L, (long) sets.setVerticesEnd(0));
+    Assert.assertEquals(0L, (long) sets.groupedVertex(0));
+    Assert.assertEquals(2L, (long) sets.groupedVertex(1));
+    Assert.assertEquals(5L, (long) sets.groupedVertex(2));
+
+    Assert.assertEquals(3L, (long) sets.setVerticesStart(1));
+    Assert.assertEquals(5L, (long) sets.setVerticesEnd(1));
+    Assert.assertEquals(1L, (long) sets.groupedVertex(3));
+    Assert.assertEquals(4L, (long) sets.groupedVertex(4));
+
+    Assert.assertEquals(5L, (long) sets.setVerticesStart(2));
+    Assert.assertEquals(6L, (long) sets.setVerticesEnd(2));
+    Assert.assertEquals(3L, (long) sets.groupedVertex(5));
+  }
+
+  @Test
+  public void testZeroWeightsCompacted()
+  {
+    final long[][] indices = {
+      {7L, 8L, 9L, 10L},
+      {7L, 8L, 9L, 10L},
+    };
+    final double[][] weights = {
+      {0.0, 0.75, 0.0, 0.25},
+      {0.0, 0.0, 0.0, 0.0},
+    };
+
+    final CaMeshInfluenceSets sets =
+      CaMeshInfluenceSets.analyze(new Mesh(indices, weights));
+
+    Assert.assertEquals(2L, (long) sets.setCount());
+
+    Assert.assertEquals(2L, (long) sets.setInfluenceCount(0));
+    Assert.assertEquals(8L, (long) sets.setJointIndex(0, 0));
+    Assert.assertEquals(0.75, sets.setJointWeight(0, 0), 0.0);
+    Assert.assertEquals(10L, (long) sets.setJointIndex(0, 1));
+    Assert.assertEquals(0.25, sets.setJointWeight(0, 1), 0.0);
+    Assert.assertEquals(0.0, sets.setJointWeight(0, 2), 0.0);
+    Assert.assertEquals(0.0, sets.setJointWeight(0, 3), 0.0);
+
+    Assert.assertEquals(1L, (long) sets.setInfluenceCount(1));
+    Assert.assertEquals(7L, (long) sets.setJointIndex(1, 0));
+    Assert.assertEquals(0.0, sets.setJointWeight(1, 0), 0.0);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.deformation.cpu;
+
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshPoseBounds;
+import com.io7m.jcalcium.mesh.meta.CaMeshJointBounds;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetadata;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetas;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import com.io7m.jtensors.VectorM3D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import javaslang.collection.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class CaMeshPoseBoundsTest
+{
+  private static CaEvaluatedSkeletonMutableDType skeleton()
+  {
+    return CaTestSkeletons.evaluated(CaTestSkeletons.singleJoint("joint.000"));
+  }
+
+  private static CaMeshMetadata metadata()
+  {
+    return CaMeshMetadata.of(
+      CaTestSkeletons.metadata(),
+      TreeMap.of(
+        Integer.valueOf(0),
+        CaMeshJointBounds.of(
+          0,
+          new PVectorI3D<>(-1.0, -2.0, -3.0),
+          new PVectorI3D<>(1.0, 2.0, 3.0))));
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    final CaMeshPoseBounds bounds =
+      CaMeshPoseBounds.create(
+        CaMeshMetadata.of(CaTestSkeletons.metadata(), TreeMap.empty()));
+
+    final VectorM3D min = new VectorM3D();
+    final VectorM3D max = new VectorM3D();
+    Assert.assertEquals(0L, (long) bounds.jointCount());
+    Assert.assertFalse(bounds.poseBoundsD(skeleton(), min, max));
+  }
+
+  @Test
+  public void testRestPose()
+  {
+    final CaMeshPoseBounds bounds = CaMeshPoseBounds.create(metadata());
+
+    final VectorM3D min = new VectorM3D();
+    final VectorM3D max = new VectorM3D();
+    Assert.assertEquals(1L, (long) bounds.jointCount());
+    Assert.assertTrue(bounds.poseBoundsD(skeleton(), min, max));
+
+    Assert.assertEquals(-1.0, min.getXD(), 0.0);
+    Assert.assertEquals(-2.0, min.getYD(), 0.0);
+    Assert.assertEquals(-3.0, min.getZD(), 0.0);
+    Assert.assertEquals(1.0, max.getXD(), 0.0);
+    Assert.assertEquals(2.0, max.getYD(), 0.0);
+    Assert.assertEquals(3.0, max.getZD(), 0.0);
+  }
+
+  @Test
+  public void testTranslated()
+  {
+    final CaMeshPoseBounds bounds = CaMeshPoseBounds.create(metadata());
+
+    final CaEvaluatedSkeletonMutableDType skeleton = skeleton();
+    skeleton.jointsMutableByID().get(0).setTranslation3D(
+      new PVectorI3D<>(10.0, 20.0, 30.0));
+
+    final VectorM3D min = new VectorM3D();
+    final VectorM3D max = new VectorM3D();
+    Assert.assertTrue(bounds.poseBoundsD(skeleton, min, max));
+
+    Assert.assertEquals(9.0, min.getXD(), 0.0);
+    Assert.assertEquals(18.0, min.getYD(), 0.0);
+    Assert.assertEquals(27.0, min.getZD(), 0.0);
+    Assert.assertEquals(11.0, max.getXD(), 0.0);
+    Assert.assertEquals(22.0, max.getYD(), 0.0);
+    Assert.assertEquals(33.0, max.getZD(), 0.0);
+  }
+
+  @Test
+  public void testTranslatedIncludesOrigin()
+  {
+    final CaMeshPoseBounds bounds =
+      CaMeshPoseBounds.create(metadata().withIncludesOrigin(true));
+
+    final CaEvaluatedSkeletonMutableDType skeleton = skeleton();
+    skeleton.jointsMutableByID().get(0).setTranslation3D(
+      new PVectorI3D<>(10.0, 20.0, 30.0));
+
+    final VectorM3D min = new VectorM3D();
+    final VectorM3D max = new VectorM3D();
+    Assert.assertTrue(bounds.poseBoundsD(skeleton, min, max));
+
+    Assert.assertEquals(0.0, min.getXD(), 0.0);
+    Assert.assertEquals(0.0, min.getYD(), 0.0);
+    Assert.assertEquals(0.0, min.getZD(), 0.0);
+    Assert.assertEquals(11.0, max.getXD(), 0.0);
+    Assert.assertEquals(22.0, max.getYD(), 0.0);
+    Assert.assertEquals(33.0, max.getZD(), 0.0);
+  }
+
+  @Test
+  public void testMetadataRoundTrip()
+  {
+    final CaMeshMetadata meta = metadata();
+
+    Assert.assertEquals(
+      meta, CaMeshMetas.deserializeMesh(CaMeshMetas.serialize(meta, 1, 1)));
+    Assert.assertEquals(
+      CaMeshMetadata.of(CaTestSkeletons.metadata(), TreeMap.empty()),
+      CaMeshMetas.deserializeMesh(CaMeshMetas.serialize(meta, 1, 0)));
+    Assert.assertEquals(
+      CaTestSkeletons.metadata(),
+      CaMeshMetas.deserialize(CaMeshMetas.serialize(meta, 1, 1)));
+
+    final CaMeshMetadata meta_origin = meta.withIncludesOrigin(true);
+    Assert.assertEquals(
+      meta_origin,
+      CaMeshMetas.deserializeMesh(CaMeshMetas.serialize(meta_origin, 1, 1)));
+    Assert.assertEquals(
+      CaMeshMetadata.of(CaTestSkeletons.metadata(), TreeMap.empty()),
+      CaMeshMetas.deserializeMesh(CaMeshMetas.serialize(meta_origin, 1, 0)));
+  }
+}
@@ -17,29 +17,38 @@
 package com.io7m.jcalcium.tests.deformation.smf;
 
 import com.io7m.jaffirm.core.PreconditionViolationException;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshClusters;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorKind;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadable3Type;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadable4Type;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorReadableType;
-import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeCursorType;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSemantic;
 import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformableAttributeSourceSelection;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformationMatrices;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPU;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshDeformerCPUType;
+import com.io7m.jcalcium.mesh.deformation.cpu.CaMeshInfluenceSets;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFAbstract;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFConfiguration;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFEventsType;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFJointWeightsType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFPackedAttributeSet;
 import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFProvider;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTargetArena;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTargetRing;
+import com.io7m.jcalcium.mesh.deformation.smf.CaMeshDeformableCPUSMFTemplate;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetAuxiliaryType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetJointType;
 import com.io7m.jcalcium.mesh.deformation.smf.CaSetSourceType;
-import com.io7m.jcalcium.mesh.deformation.smf.CaSetTargetType;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
 import com.io7m.jpra.runtime.java.JPRACursor1DType;
 import com.io7m.jtensors.VectorM3D;
 import com.io7m.jtensors.VectorM3L;
 import com.io7m.jtensors.VectorM4D;
 import com.io7m.jtensors.VectorM4L;
+import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.smfj.bytebuffer.SMFByteBufferCursors;
-import com.io7m.smfj.bytebuffer.SMFByteBufferFloat4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned3Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferIntegerUnsigned4Type;
 import com.io7m.smfj.bytebuffer.SMFByteBufferPackedAttribute;
@@ -68,7 +77,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.OptionalInt;
 import java.nio.file.Paths;
 
 public final class CaMeshDeformableCPUSMFTest
@@ -83,32 +96,29 @@ public final class CaMeshDeformableCPUSMFTest
   {
     private final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data;
     private final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data;
-    private final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> target_data;
     private final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data;
     private final SMFByteBufferPackedTriangles triangle_data;
 
     public CPUMesh(
-      final SortedMap<String, CaMeshDeformableAttributeCursorType> in_target_cursors,
+      final CaMeshDeformableCPUSMFTargetRing in_targets,
       final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> in_source_cursors,
       final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> in_joint_indices_cursor,
-      final JPRACursor1DType<SMFByteBufferFloat4Type> in_joint_weights_cursor,
+      final CaMeshDeformableCPUSMFJointWeightsType in_joint_weights,
       final long in_vertex_count,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> in_joint_data,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> in_source_data,
-      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> in_target_data,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> in_aux_data,
       final SMFByteBufferPackedTriangles in_triangle_data)
     {
       super(
-        in_target_cursors,
+        in_targets,
         in_source_cursors,
         in_joint_indices_cursor,
-        in_joint_weights_cursor,
+        in_joint_weights,
         in_vertex_count);
 
       this.joint_data = in_joint_data;
       this.source_data = in_source_data;
-      this.target_data = in_target_data;
       this.aux_data = in_aux_data;
       this.triangle_data = in_triangle_data;
     }
@@ -122,23 +132,21 @@ public final class CaMeshDeformableCPUSMFTest
       final SMFHeader header,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetJointType> joint_data,
       final JPRACursor1DType<SMFByteBufferIntegerUnsigned4Type> cursor_joint_index,
-      final JPRACursor1DType<SMFByteBufferFloat4Type> cursor_joint_weight,
+      final CaMeshDeformableCPUSMFJointWeightsType joint_weights,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetSourceType> source_data,
       final SortedMap<String, CaMeshDeformableAttributeCursorReadableType> source_cursors,
-      final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetTargetType> target_data,
-      final SortedMap<String, CaMeshDeformableAttributeCursorType> target_cursors,
+      final CaMeshDeformableCPUSMFTargetRing targets,
       final CaMeshDeformableCPUSMFPackedAttributeSet<CaSetAuxiliaryType> aux_data,
       final SMFByteBufferPackedTriangles triangle_data)
     {
       return new CPUMesh(
-        target_cursors,
+        targets,
         source_cursors,
         cursor_joint_index,
-        cursor_joint_weight,
+        joint_weights,
         header.vertexCount(),
         joint_data,
         source_data,
-        target_data,
         aux_data,
         triangle_data);
     }
@@ -376,7 +384,7 @@ public final class CaMeshDeformableCPUSMFTest
 
         Assert.assertEquals(
           (long) mesh.source_data.set().byteBuffer().capacity(),
-          (long) mesh.target_data.set().byteBuffer().capacity());
+          (long) mesh.targets().slotData(0).set().byteBuffer().capacity());
 
         {
           final CaMeshDeformableAttributeCursorReadable3Type c =
@@ -659,4 +667,520 @@ public final class CaMeshDeformableCPUSMFTest
       Assert.assertFalse(results.isValid());
     }
   }
+
+  @Test
+  public void testQuantizedWeights()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder().build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/quantized8.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+      final CPUMesh mesh = results.get();
+
+      final VectorM4D out = new VectorM4D();
+      mesh.jointWeightsForVertex(0L, out);
+      Assert.assertEquals(128.0 / 255.0, out.getXD(), 0.0);
+      Assert.assertEquals(64.0 / 255.0, out.getYD(), 0.0);
+      Assert.assertEquals(63.0 / 255.0, out.getZD(), 0.0);
+      Assert.assertEquals(0.0, out.getWD(), 0.0);
+    }
+  }
+
+  @Test
+  public void testBadWeightsSigned()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder().build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/weights_signed.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertFalse(results.isValid());
+      Assert.assertThat(
+        results.getError().get(0).message(),
+        StringContains.containsString("Joint weights attribute is of the wrong type"));
+    }
+  }
+
+  @Test
+  public void testAnalyzeInfluenceSets()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder()
+        .setAnalyzeInfluenceSets(true)
+        .build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+      final CPUMesh mesh = results.get();
+
+      final CaMeshInfluenceSets sets = mesh.influenceSets().get();
+      Assert.assertEquals(1L, (long) sets.vertexCount());
+      Assert.assertEquals(1L, (long) sets.setCount());
+      Assert.assertEquals(1L, (long) sets.setInfluenceCount(0));
+    }
+  }
+
+  @Test
+  public void testDeformedPoseVersion()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder().build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+      final CPUMesh mesh = results.get();
+
+      Assert.assertEquals(0L, mesh.deformedPoseVersion());
+      mesh.setDeformedPoseVersion(23L);
+      Assert.assertEquals(23L, mesh.deformedPoseVersion());
+    }
+  }
+
+  private static CaEvaluatedSkeletonMutableDType evaluatedSkeleton()
+  {
+    return CaTestSkeletons.evaluated(CaTestSkeletons.singleJoint("root"));
+  }
+
+  private static byte[] contents(
+    final ByteBuffer buffer)
+  {
+    final byte[] data = new byte[buffer.capacity()];
+    for (int index = 0; index < data.length; ++index) {
+      data[index] = buffer.get(index);
+    }
+    return data;
+  }
+
+  private static void fill(
+    final ByteBuffer buffer,
+    final byte value)
+  {
+    for (int index = 0; index < buffer.capacity(); ++index) {
+      buffer.put(index, value);
+    }
+  }
+
+  @Test
+  public void testDeformSkippedWhenPoseUnchanged()
+    throws Exception
+  {
+    final CPUMesh mesh = loadStandardWithTargets(1);
+    final CaEvaluatedSkeletonMutableDType skeleton = evaluatedSkeleton();
+    final CaMeshDeformerCPUType deformer =
+      CaMeshDeformerCPU.create(CaMeshDeformationMatrices.create());
+    final ByteBuffer target =
+      mesh.targets().slotData(0).set().byteBuffer();
+
+    deformer.deformD(skeleton, mesh);
+    Assert.assertEquals(skeleton.poseVersion(), mesh.deformedPoseVersion());
+    final byte[] deformed_0 = contents(target);
+
+    /*
+     * The pose has not changed, so the target buffer must not be rewritten.
+     */
+
+    fill(target, (byte) 0x7f);
+    final byte[] overwritten = contents(target);
+    Assert.assertFalse(Arrays.equals(deformed_0, overwritten));
+
+    deformer.deformD(skeleton, mesh);
+    Assert.assertArrayEquals(overwritten, contents(target));
+
+    /*
+     * Moving a joint changes the pose, so the target buffer must be rewritten.
+     */
+
+    skeleton.jointsMutableByID().get(0).setTranslation3D(
+      new PVectorI3D<>(1.0, 2.0, 3.0));
+    Assert.assertNotEquals(skeleton.poseVersion(), mesh.deformedPoseVersion());
+
+    deformer.deformD(skeleton, mesh);
+    Assert.assertEquals(skeleton.poseVersion(), mesh.deformedPoseVersion());
+
+    final byte[] deformed_1 = contents(target);
+    Assert.assertFalse(Arrays.equals(overwritten, deformed_1));
+    Assert.assertFalse(Arrays.equals(deformed_0, deformed_1));
+  }
+
+  @Test
+  public void testTemplateInstances()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder()
+        .setAnalyzeInfluenceSets(true)
+        .build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+
+      final Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate> results =
+        CaMeshDeformableCPUSMFProvider.createTemplateFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+      final CaMeshDeformableCPUSMFTemplate template = results.get();
+      Assert.assertTrue(template.influenceSets().isPresent());
+
+      final CaMeshDeformableCPUSMFTargetArena arena =
+        CaMeshDeformableCPUSMFTargetArena.createForTemplate(template, 2);
+
+      final CPUMeshEvents events = new CPUMeshEvents()
+      {
+        @Override
+        public ByteBuffer onAllocateTargetBuffer(
+          final long size_octets)
+        {
+          return arena.allocate(size_octets);
+        }
+      };
+
+      final CPUMesh mesh_0 =
+        CaMeshDeformableCPUSMFProvider.createFromTemplate(template, events).get();
+      final CPUMesh mesh_1 =
+        CaMeshDeformableCPUSMFProvider.createFromTemplate(template, events).get();
+      final CPUMesh mesh_2 =
+        CaMeshDeformableCPUSMFProvider.createFromTemplate(template, events).get();
+
+      Assert.assertEquals(3L, arena.allocatedCount());
+      Assert.assertEquals(4L, arena.slotCount());
+
+      Assert.assertSame(
+        template.influenceSets().get(), mesh_0.influenceSets().get());
+      Assert.assertSame(
+        template.influenceSets().get(), mesh_1.influenceSets().get());
+
+      final ByteBuffer target_0 = mesh_0.targets().slotData(0).set().byteBuffer();
+      final ByteBuffer target_1 = mesh_1.targets().slotData(0).set().byteBuffer();
+      final ByteBuffer target_2 = mesh_2.targets().slotData(0).set().byteBuffer();
+      Assert.assertNotSame(target_0, target_1);
+      Assert.assertNotSame(target_1, target_2);
+      Assert.assertEquals(
+        template.targetSizeOctets(), (long) target_0.capacity());
+
+      target_0.putInt(0, 0x10203040);
+      Assert.assertEquals(0L, (long) target_1.getInt(0));
+
+      final ByteBuffer source_0 = mesh_0.source_data.set().byteBuffer();
+      final ByteBuffer source_1 = mesh_1.source_data.set().byteBuffer();
+      Assert.assertNotSame(source_0, source_1);
+      Assert.assertEquals(source_0, source_1);
+      Assert.assertEquals(
+        template.sourceData().set().byteBuffer(), source_0);
+
+      arena.release(target_1);
+      Assert.assertEquals(2L, arena.allocatedCount());
+
+      final CPUMesh mesh_3 =
+        CaMeshDeformableCPUSMFProvider.createFromTemplate(template, events).get();
+      Assert.assertSame(target_1, mesh_3.targets().slotData(0).set().byteBuffer());
+      Assert.assertEquals(4L, arena.slotCount());
+    }
+  }
+
+  @Test
+  public void testTargetArenaReleaseClears()
+  {
+    final CaMeshDeformableCPUSMFTargetArena arena =
+      CaMeshDeformableCPUSMFTargetArena.create(16L, 4);
+
+    final ByteBuffer buffer = arena.allocate(16L);
+    buffer.limit(8);
+    buffer.position(4);
+    arena.release(buffer);
+
+    final ByteBuffer again = arena.allocate(16L);
+    Assert.assertSame(buffer, again);
+    Assert.assertEquals(0L, (long) again.position());
+    Assert.assertEquals(16L, (long) again.limit());
+  }
+
+  @Test
+  public void testTargetArenaReleaseForeign()
+  {
+    final CaMeshDeformableCPUSMFTargetArena arena =
+      CaMeshDeformableCPUSMFTargetArena.create(16L, 4);
+
+    this.expected.expect(PreconditionViolationException.class);
+    arena.release(ByteBuffer.allocate(16));
+  }
+
+  @Test
+  public void testTargetArenaWrongSize()
+  {
+    final CaMeshDeformableCPUSMFTargetArena arena =
+      CaMeshDeformableCPUSMFTargetArena.create(16L, 4);
+
+    this.expected.expect(PreconditionViolationException.class);
+    arena.allocate(32L);
+  }
+
+  @Test
+  public void testFromFile()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder().build();
+
+    final Path file = Files.createTempFile("jcalcium-", ".smft");
+    try {
+      try (final InputStream stream =
+             CaMeshDeformableCPUSMFTest.class.getResourceAsStream(
+               "/com/io7m/jcalcium/tests/deformation/smf/standard.smft")) {
+        Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromFile(
+          provider, validator, meta, config, new CPUMeshEvents(), file);
+      Assert.assertTrue(results.isValid());
+
+      final CPUMesh mesh = results.get();
+      Assert.assertEquals(1L, mesh.vertexCount());
+      Assert.assertEquals(
+        (long) mesh.source_data.set().byteBuffer().capacity(),
+        (long) mesh.targets().slotData(0).set().byteBuffer().capacity());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testFromFileNonexistent()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder().build();
+
+    final Path directory = Files.createTempDirectory("jcalcium-");
+    try {
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromFile(
+          provider,
+          validator,
+          meta,
+          config,
+          new CPUMeshEvents(),
+          directory.resolve("nonexistent.smft"));
+      Assert.assertTrue(results.isInvalid());
+    } finally {
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  @Test
+  public void testClusters()
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder()
+        .setClusterVertexCount(64)
+        .build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+      final Validation<List<SMFErrorType>, CaMeshDeformableCPUSMFTemplate> results =
+        CaMeshDeformableCPUSMFProvider.createTemplateFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+
+      final CaMeshDeformableCPUSMFTemplate template = results.get();
+      final CaMeshClusters clusters = template.clusters().get();
+      Assert.assertEquals(1L, (long) clusters.clusterCount());
+      Assert.assertEquals(1L, (long) clusters.vertexCount());
+
+      final CPUMesh mesh =
+        CaMeshDeformableCPUSMFProvider.createFromTemplate(
+          template, new CPUMeshEvents()).get();
+      Assert.assertSame(clusters, mesh.clusters().get());
+    }
+  }
+
+  @Test
+  public void testClusterVertexCountInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaMeshDeformableCPUSMFConfiguration.builder()
+      .setClusterVertexCount(-1)
+      .build();
+  }
+
+  private static CPUMesh loadStandardWithTargets(
+    final int count)
+    throws Exception
+  {
+    final SMFParserProviderType provider = new SMFFormatText();
+    final SMFSchemaValidatorType validator = new SMFSchemaValidator();
+    final SMFParserEventsMetaType meta = SMFParserEventsMeta.ignore();
+    final CaMeshDeformableCPUSMFConfiguration config =
+      CaMeshDeformableCPUSMFConfiguration.builder()
+        .setTargetBufferCount(count)
+        .build();
+
+    final Path path = Paths.get(
+      "/com/io7m/jcalcium/tests/deformation/smf/standard.smft");
+
+    try (final InputStream stream =
+           CaMeshDeformableCPUSMFTest.class.getResourceAsStream(path.toString())) {
+      final Validation<List<SMFErrorType>, CPUMesh> results =
+        CaMeshDeformableCPUSMFProvider.createFromStream(
+          provider, validator, meta, config, new CPUMeshEvents(), path, stream);
+      Assert.assertTrue(results.isValid());
+      return results.get();
+    }
+  }
+
+  @Test
+  public void testTargetRingTriple()
+    throws Exception
+  {
+    final CPUMesh mesh = loadStandardWithTargets(3);
+    final CaMeshDeformableCPUSMFTargetRing ring = mesh.targets();
+    Assert.assertEquals(3L, (long) ring.slotCount());
+    Assert.assertNotSame(
+      ring.slotData(0).set().byteBuffer(),
+      ring.slotData(1).set().byteBuffer());
+    Assert.assertNotSame(
+      ring.slotData(1).set().byteBuffer(),
+      ring.slotData(2).set().byteBuffer());
+
+    Assert.assertFalse(ring.acquireRead().isPresent());
+
+    Assert.assertTrue(ring.acquireWrite());
+    final int slot_0 = ring.writeSlot();
+    Assert.assertSame(ring.slotCursors(slot_0), mesh.meshTargetCursors());
+    mesh.setDeformedPoseVersion(23L);
+    ring.publish();
+
+    final OptionalInt read_0 = ring.acquireRead();
+    Assert.assertEquals(slot_0, read_0.getAsInt());
+
+    Assert.assertTrue(ring.acquireWrite());
+    final int slot_1 = ring.writeSlot();
+    Assert.assertNotEquals(slot_0, slot_1);
+    Assert.assertEquals(0L, mesh.deformedPoseVersion());
+    ring.publish();
+
+    Assert.assertTrue(ring.acquireWrite());
+    final int slot_2 = ring.writeSlot();
+    Assert.assertNotEquals(slot_0, slot_2);
+    Assert.assertNotEquals(slot_1, slot_2);
+
+    ring.releaseRead();
+    final OptionalInt read_1 = ring.acquireRead();
+    Assert.assertEquals(slot_1, read_1.getAsInt());
+    ring.releaseRead();
+
+    Assert.assertTrue(ring.acquireWrite());
+    Assert.assertEquals(slot_0, ring.writeSlot());
+    Assert.assertEquals(23L, mesh.deformedPoseVersion());
+  }
+
+  @Test
+  public void testTargetRingDoubleExhausted()
+    throws Exception
+  {
+    final CPUMesh mesh = loadStandardWithTargets(2);
+    final CaMeshDeformableCPUSMFTargetRing ring = mesh.targets();
+
+    Assert.assertTrue(ring.acquireWrite());
+    ring.publish();
+    Assert.assertTrue(ring.acquireRead().isPresent());
+
+    Assert.assertTrue(ring.acquireWrite());
+    ring.publish();
+    Assert.assertFalse(ring.acquireWrite());
+
+    ring.releaseRead();
+    Assert.assertTrue(ring.acquireWrite());
+  }
+
+  @Test
+  public void testTargetRingReadTwice()
+    throws Exception
+  {
+    final CPUMesh mesh = loadStandardWithTargets(2);
+    final CaMeshDeformableCPUSMFTargetRing ring = mesh.targets();
+
+    Assert.assertTrue(ring.acquireWrite());
+    ring.publish();
+    ring.acquireRead();
+
+    this.expected.expect(PreconditionViolationException.class);
+    ring.acquireRead();
+  }
+
+  @Test
+  public void testTargetBufferCountInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaMeshDeformableCPUSMFConfiguration.builder()
+      .setTargetBufferCount(0)
+      .build();
+  }
 }
@@ -140,4 +140,106 @@ public final class CaEvaluatedSkeletonDTest
       });
     });
   }
+
+  private static CaEvaluatedSkeletonMutableDType twoJointSkeleton()
+  {
+    final CaJoint joint_0 =
+      CaJoint.of(
+        CaJointName.of("joint.000"),
+        0,
+        new PVectorI3D<>(0.0, 0.0, 0.0),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0));
+
+    final CaJoint joint_1 =
+      CaJoint.of(
+        CaJointName.of("joint.001"),
+        1,
+        new PVectorI3D<>(0.0, 1.0, 0.0),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0));
+
+    final JOTreeNodeType<CaJoint> node_0 = JOTreeNode.create(joint_0);
+    final JOTreeNodeType<CaJoint> node_1 = JOTreeNode.create(joint_1);
+    node_0.childAdd(node_1);
+
+    final CaSkeleton.Builder cb = CaSkeleton.builder();
+    cb.setJoints(node_0);
+    cb.setActionsByName(TreeMap.empty());
+    cb.setMeta(CaSkeletonMetadata.of(
+      CaSkeletonName.of("skeleton"),
+      CaSkeletonHash.of("SHA2-256", "3cb4e2c9e926cce1aa345f1e1724db8683a2aa1056b236ecd7c3aba318a9416d")));
+
+    final CaEvaluationContextType context =
+      CaEvaluationContext.create();
+    final CaSkeletonRestPoseDType rest_pose =
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), cb.build());
+    return CaEvaluatedSkeletonD.create(context, rest_pose);
+  }
+
+  @Test
+  public void testPoseVersionUnchanged()
+  {
+    final CaEvaluatedSkeletonMutableDType eval_skeleton = twoJointSkeleton();
+    final CaEvaluatedJointMutableDType eval_joint =
+      eval_skeleton.jointsMutableByID().get(1);
+
+    final long version_0 = eval_skeleton.poseVersion();
+    Assert.assertNotEquals(0L, version_0);
+    Assert.assertEquals(version_0, eval_skeleton.poseVersion());
+
+    eval_joint.setTranslation3D(new PVectorI3D<>(0.0, 1.0, 0.0));
+    eval_joint.setOrientation(new QuaternionI4D());
+    eval_joint.setScale(new VectorI3D(1.0, 1.0, 1.0));
+    Assert.assertEquals(version_0, eval_skeleton.poseVersion());
+  }
+
+  @Test
+  public void testPoseVersionChanged()
+  {
+    final CaEvaluatedSkeletonMutableDType eval_skeleton = twoJointSkeleton();
+    final CaEvaluatedJointMutableDType eval_joint =
+      eval_skeleton.jointsMutableByID().get(1);
+
+    final long version_0 = eval_skeleton.poseVersion();
+    eval_joint.setTranslation3D(new PVectorI3D<>(0.0, 2.0, 0.0));
+    final long version_1 = eval_skeleton.poseVersion();
+    Assert.assertNotEquals(version_0, version_1);
+
+    eval_joint.setScale(new VectorI3D(2.0, 1.0, 1.0));
+    final long version_2 = eval_skeleton.poseVersion();
+    Assert.assertNotEquals(version_1, version_2);
+
+    eval_joint.setOrientation(new QuaternionI4D(0.0, 0.0, 1.0, 0.0));
+    final long version_3 = eval_skeleton.poseVersion();
+    Assert.assertNotEquals(version_2, version_3);
+  }
+
+  @Test
+  public void testPoseVersionDistinctSkeletons()
+  {
+    final CaEvaluatedSkeletonMutableDType eval_skeleton_0 = twoJointSkeleton();
+    final CaEvaluatedSkeletonMutableDType eval_skeleton_1 = twoJointSkeleton();
+    Assert.assertNotEquals(
+      eval_skeleton_0.poseVersion(),
+      eval_skeleton_1.poseVersion());
+  }
+
+  @Test
+  public void testPoseChildTransformFollowsParent()
+  {
+    final CaEvaluatedSkeletonMutableDType eval_skeleton = twoJointSkeleton();
+    final CaEvaluatedJointMutableDType eval_joint_0 =
+      eval_skeleton.jointsMutableByID().get(0);
+    final CaEvaluatedJointMutableDType eval_joint_1 =
+      eval_skeleton.jointsMutableByID().get(1);
+
+    Assert.assertEquals(
+      1.0, eval_joint_1.transformJointObject4x4D().getR1C3D(), 0.0);
+
+    eval_joint_0.setTranslation3D(new PVectorI3D<>(0.0, 3.0, 0.0));
+
+    Assert.assertEquals(
+      4.0, eval_joint_1.transformJointObject4x4D().getR1C3D(), 0.0);
+  }
 }
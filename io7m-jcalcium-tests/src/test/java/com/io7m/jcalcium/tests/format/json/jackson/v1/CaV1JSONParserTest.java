@@ -16,6 +16,7 @@
 
 package com.io7m.jcalcium.tests.format.json.jackson.v1;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.io7m.jcalcium.core.CaActionName;
 import com.io7m.jcalcium.core.CaCurveEasing;
 import com.io7m.jcalcium.core.CaCurveInterpolation;
@@ -33,6 +34,7 @@ import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslationTy
 import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
 import com.io7m.jcalcium.format.json.jackson.CaJSON;
 import com.io7m.jcalcium.format.json.jackson.v1.CaV1JSONFormat;
+import com.io7m.jcalcium.format.json.jackson.v1.CaV1JSONStreamingParser;
 import com.io7m.jcalcium.parser.api.CaParseError;
 import com.io7m.jtensors.QuaternionI4D;
 import com.io7m.jtensors.VectorI3D;
@@ -80,14 +82,39 @@ public final class CaV1JSONParserTest
     return CaV1JSONParserTest.class.getResourceAsStream(s);
   }
 
-  @Test
-  public void testEmpty()
+  /**
+   * Parse the given resource with both the databind and the streaming
+   * parsers, check that the results are equivalent, and return the result
+   * of the streaming parser.
+   */
+
+  private static Validation<List<CaParseError>, CaDefinitionSkeleton> parse(
+    final String s)
   {
     final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("empty.csj"), uri("empty.csj"));
-
+      p.parseSkeletonFromStream(resource(s), uri(s));
     dump(r);
+
+    final CaV1JSONStreamingParser ps =
+      new CaV1JSONStreamingParser(new JsonFactory());
+    final Validation<List<CaParseError>, CaDefinitionSkeleton> rs =
+      ps.parseSkeletonFromStream(resource(s), uri(s));
+    dump(rs);
+
+    Assert.assertEquals(
+      Boolean.valueOf(r.isValid()), Boolean.valueOf(rs.isValid()));
+    if (r.isValid()) {
+      Assert.assertEquals(r.get(), rs.get());
+    }
+    return rs;
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
+      parse("empty.csj");
     Assert.assertTrue(r.isValid());
     Assert.assertEquals("empty", r.get().name().value());
   }
@@ -95,11 +122,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testJoint0()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("joint0.csj"), uri("joint0.csj"));
-
-    dump(r);
+      parse("joint0.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeletonType s = r.get();
     Assert.assertEquals("joint0", s.name().value());
@@ -125,11 +149,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testJoint1()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("joint1.csj"), uri("joint1.csj"));
-
-    dump(r);
+      parse("joint1.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeleton s = r.get();
     Assert.assertEquals("joint1", s.name().value());
@@ -156,11 +177,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testAction0()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("action0.csj"), uri("action0.csj"));
-
-    dump(r);
+      parse("action0.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeleton s = r.get();
     Assert.assertEquals(0L, (long) s.actions().size());
@@ -169,11 +187,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testAction1()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("action1.csj"), uri("action1.csj"));
-
-    dump(r);
+      parse("action1.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeleton s = r.get();
     Assert.assertEquals(1L, (long) s.actions().size());
@@ -203,11 +218,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testAction2()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("action2.csj"), uri("action2.csj"));
-
-    dump(r);
+      parse("action2.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeleton s = r.get();
     Assert.assertEquals(1L, (long) s.actions().size());
@@ -237,11 +249,8 @@ public final class CaV1JSONParserTest
   @Test
   public void testAction3()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(resource("action3.csj"), uri("action3.csj"));
-
-    dump(r);
+      parse("action3.csj");
     Assert.assertTrue(r.isValid());
     final CaDefinitionSkeleton s = r.get();
     Assert.assertEquals(1L, (long) s.actions().size());
@@ -273,26 +282,64 @@ public final class CaV1JSONParserTest
   @Test
   public void testDuplicateAction()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(
-        resource("dup_action.csj"),
-        uri("dup_action.csj"));
-
-    dump(r);
+      parse("dup_action.csj");
     Assert.assertFalse(r.isValid());
   }
 
   @Test
   public void testDuplicateJoint()
   {
-    final CaV1JSONFormat p = new CaV1JSONFormat(CaJSON.createMapper());
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
-      p.parseSkeletonFromStream(
-        resource("dup_joint.csj"),
-        uri("dup_joint.csj"));
+      parse("dup_joint.csj");
+    Assert.assertFalse(r.isValid());
+  }
+
+  @Test
+  public void testAction4FieldOrder()
+  {
+    final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
+      parse("action4.csj");
+
+    Assert.assertTrue(r.isValid());
+    final CaDefinitionSkeleton s = r.get();
+    Assert.assertEquals(1L, (long) s.actions().size());
+
+    final CaDefinitionActionCurvesType act = (CaDefinitionActionCurvesType)
+      s.actions().get(CaActionName.of("action0")).get();
+    Assert.assertEquals(2L, (long) act.curves().size());
+
+    final CaDefinitionCurveTranslationType ct =
+      (CaDefinitionCurveTranslationType)
+        act.curves().get(CaJointName.of("joint.000")).get().get(0);
+    Assert.assertEquals(2L, (long) ct.keyframes().size());
+    Assert.assertEquals(10L, (long) ct.keyframes().get(1).index());
+    Assert.assertEquals(
+      new PVectorI3D<>(3.0, 4.0, 5.0), ct.keyframes().get(1).translation());
+
+    final CaDefinitionCurveScaleType cs =
+      (CaDefinitionCurveScaleType)
+        act.curves().get(CaJointName.of("joint.001")).get().get(0);
+    Assert.assertEquals(
+      CaCurveInterpolation.CURVE_INTERPOLATION_QUADRATIC,
+      cs.keyframes().get(0).interpolation());
+  }
+
+  @Test
+  public void testBadVector()
+  {
+    final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
+      parse("bad_vector.csj");
+
+    Assert.assertFalse(r.isValid());
+  }
+
+  @Test
+  public void testBadKeyframe()
+  {
+    final Validation<List<CaParseError>, CaDefinitionSkeleton> r =
+      parse("bad_keyframe.csj");
 
-    dump(r);
     Assert.assertFalse(r.isValid());
   }
 }
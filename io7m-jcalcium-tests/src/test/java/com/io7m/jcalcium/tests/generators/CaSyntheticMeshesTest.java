@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.generators;
+
+import com.io7m.jcalcium.generators.CaSyntheticMeshParameters;
+import com.io7m.jcalcium.generators.CaSyntheticMeshes;
+import com.io7m.jcalcium.generators.CaSyntheticWeightDistribution;
+import com.io7m.jtensors.VectorI3L;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating1;
+import com.io7m.smfj.processing.api.SMFAttributeArrayType;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import javaslang.collection.Vector;
+import javaslang.control.Option;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public final class CaSyntheticMeshesTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static double[][] weights(
+    final SMFMemoryMesh mesh,
+    final int joint_count)
+  {
+    final int vertex_count = Math.toIntExact(mesh.header().vertexCount());
+    final double[][] weights = new double[vertex_count][joint_count];
+    for (int joint = 0; joint < joint_count; ++joint) {
+      final Option<SMFAttributeArrayType> array_opt =
+        mesh.arrays().get(CaSyntheticMeshes.groupAttributeName(joint));
+      if (array_opt.isDefined()) {
+        final Vector<Double> values =
+          ((SMFAttributeArrayFloating1) array_opt.get()).values();
+        for (int vertex = 0; vertex < vertex_count; ++vertex) {
+          weights[vertex][joint] = values.get(vertex).doubleValue();
+        }
+      }
+    }
+    return weights;
+  }
+
+  @Test
+  public void testDeterministic()
+  {
+    final CaSyntheticMeshParameters parameters =
+      CaSyntheticMeshParameters.builder()
+        .setSeed(0x1234L)
+        .setVertexCount(500)
+        .setJointCount(16)
+        .setWeightDistribution(
+          CaSyntheticWeightDistribution.WEIGHT_DISTRIBUTION_RANDOM)
+        .build();
+
+    final SMFMemoryMesh m0 = CaSyntheticMeshes.generate(parameters);
+    final SMFMemoryMesh m1 = CaSyntheticMeshes.generate(parameters);
+    Assert.assertEquals(m0, m1);
+
+    final SMFMemoryMesh m2 = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .from(parameters)
+        .setSeed(0x1235L)
+        .build());
+    Assert.assertNotEquals(m0, m2);
+  }
+
+  @Test
+  public void testStructure()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.of(1000, 32));
+
+    Assert.assertEquals(1000L, mesh.header().vertexCount());
+    Assert.assertEquals(34L, (long) mesh.header().attributesInOrder().size());
+    Assert.assertEquals(34L, (long) mesh.arrays().size());
+    Assert.assertEquals(
+      mesh.header().triangles().triangleCount(),
+      (long) mesh.triangles().size());
+    Assert.assertTrue(mesh.triangles().size() > 0);
+
+    for (final VectorI3L triangle : mesh.triangles()) {
+      Assert.assertTrue(triangle.getXL() < 1000L);
+      Assert.assertTrue(triangle.getYL() < 1000L);
+      Assert.assertTrue(triangle.getZL() < 1000L);
+    }
+  }
+
+  @Test
+  public void testUninfluencedJointsOmitted()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .setVertexCount(1)
+        .setJointCount(8)
+        .setInfluencesMinimum(2)
+        .setInfluencesMaximum(2)
+        .build());
+
+    Assert.assertEquals(4L, (long) mesh.header().attributesInOrder().size());
+    Assert.assertEquals(4L, (long) mesh.arrays().size());
+    Assert.assertTrue(mesh.arrays().containsKey(
+      CaSyntheticMeshes.groupAttributeName(0)));
+    Assert.assertTrue(mesh.arrays().containsKey(
+      CaSyntheticMeshes.groupAttributeName(1)));
+    for (int joint = 2; joint < 8; ++joint) {
+      Assert.assertFalse(mesh.arrays().containsKey(
+        CaSyntheticMeshes.groupAttributeName(joint)));
+    }
+  }
+
+  @Test
+  public void testInfluences()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .setVertexCount(400)
+        .setJointCount(10)
+        .setInfluencesMinimum(2)
+        .setInfluencesMaximum(3)
+        .build());
+
+    final double[][] weights = weights(mesh, 10);
+    for (int vertex = 0; vertex < weights.length; ++vertex) {
+      int influences = 0;
+      double sum = 0.0;
+      for (int joint = 0; joint < 10; ++joint) {
+        if (weights[vertex][joint] > 0.0) {
+          ++influences;
+        }
+        sum += weights[vertex][joint];
+      }
+      Assert.assertTrue(influences >= 2);
+      Assert.assertTrue(influences <= 3);
+      Assert.assertEquals(1.0, sum, 0.000001);
+    }
+  }
+
+  @Test
+  public void testFalloff()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .setVertexCount(1)
+        .setJointCount(4)
+        .setInfluencesMinimum(3)
+        .setInfluencesMaximum(3)
+        .build());
+
+    final double[][] weights = weights(mesh, 4);
+    Assert.assertEquals(4.0 / 7.0, weights[0][0], 0.000001);
+    Assert.assertEquals(2.0 / 7.0, weights[0][1], 0.000001);
+    Assert.assertEquals(1.0 / 7.0, weights[0][2], 0.000001);
+    Assert.assertEquals(0.0, weights[0][3], 0.000001);
+  }
+
+  @Test
+  public void testEqual()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .setVertexCount(1)
+        .setJointCount(4)
+        .setInfluencesMinimum(4)
+        .setInfluencesMaximum(4)
+        .setWeightDistribution(
+          CaSyntheticWeightDistribution.WEIGHT_DISTRIBUTION_EQUAL)
+        .build());
+
+    final double[][] weights = weights(mesh, 4);
+    for (int joint = 0; joint < 4; ++joint) {
+      Assert.assertEquals(0.25, weights[0][joint], 0.000001);
+    }
+  }
+
+  @Test
+  public void testInfluencesClampedToJoints()
+  {
+    final SMFMemoryMesh mesh = CaSyntheticMeshes.generate(
+      CaSyntheticMeshParameters.builder()
+        .setVertexCount(16)
+        .setJointCount(2)
+        .setInfluencesMinimum(4)
+        .setInfluencesMaximum(4)
+        .setWeightDistribution(
+          CaSyntheticWeightDistribution.WEIGHT_DISTRIBUTION_EQUAL)
+        .build());
+
+    final double[][] weights = weights(mesh, 2);
+    for (int vertex = 0; vertex < weights.length; ++vertex) {
+      Assert.assertEquals(0.5, weights[vertex][0], 0.000001);
+      Assert.assertEquals(0.5, weights[vertex][1], 0.000001);
+    }
+  }
+
+  @Test
+  public void testInfluencesInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaSyntheticMeshParameters.builder()
+      .setVertexCount(1)
+      .setJointCount(1)
+      .setInfluencesMaximum(5)
+      .build();
+  }
+
+  @Test
+  public void testWeightDistributionNames()
+  {
+    for (final CaSyntheticWeightDistribution d :
+      CaSyntheticWeightDistribution.values()) {
+      Assert.assertEquals(d, CaSyntheticWeightDistribution.of(d.getName()));
+    }
+  }
+}
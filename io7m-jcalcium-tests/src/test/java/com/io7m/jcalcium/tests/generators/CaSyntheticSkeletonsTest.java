@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.generators;
+
+import com.io7m.jcalcium.compiler.api.CaCompileError;
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaDefinitionJoint;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionActionCurves;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveKeyframeTranslationType;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveTranslation;
+import com.io7m.jcalcium.core.definitions.actions.CaDefinitionCurveType;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletonParameters;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletons;
+import javaslang.collection.List;
+import javaslang.control.Validation;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+public final class CaSyntheticSkeletonsTest
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(CaSyntheticSkeletonsTest.class);
+  }
+
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static int depth(
+    final CaDefinitionSkeleton skeleton,
+    final CaJointName name)
+  {
+    int depth = 0;
+    Optional<CaJointName> current =
+      skeleton.joints().get(name).get().parent();
+    while (current.isPresent()) {
+      ++depth;
+      current = skeleton.joints().get(current.get()).get().parent();
+    }
+    return depth;
+  }
+
+  @Test
+  public void testDeterministic()
+  {
+    final CaSyntheticSkeletonParameters parameters =
+      CaSyntheticSkeletonParameters.builder()
+        .setSeed(0x1234L)
+        .setJointCount(64)
+        .setActionCount(2)
+        .setFrameCount(30)
+        .setKeyframeInterval(5)
+        .build();
+
+    final CaDefinitionSkeleton s0 = CaSyntheticSkeletons.generate(parameters);
+    final CaDefinitionSkeleton s1 = CaSyntheticSkeletons.generate(parameters);
+    Assert.assertEquals(s0, s1);
+
+    final CaDefinitionSkeleton s2 = CaSyntheticSkeletons.generate(
+      CaSyntheticSkeletonParameters.builder()
+        .from(parameters)
+        .setSeed(0x1235L)
+        .build());
+    Assert.assertNotEquals(s0, s2);
+  }
+
+  @Test
+  public void testCountsAndDepth()
+  {
+    final CaSyntheticSkeletonParameters parameters =
+      CaSyntheticSkeletonParameters.builder()
+        .setJointCount(200)
+        .setMaximumDepth(6)
+        .setActionCount(3)
+        .setFrameCount(10)
+        .build();
+
+    final CaDefinitionSkeleton s = CaSyntheticSkeletons.generate(parameters);
+    Assert.assertEquals(200L, (long) s.joints().size());
+    Assert.assertEquals(3L, (long) s.actions().size());
+
+    int roots = 0;
+    for (final CaDefinitionJoint joint : s.joints().values()) {
+      if (!joint.parent().isPresent()) {
+        ++roots;
+      }
+      Assert.assertTrue(depth(s, joint.name()) <= 6);
+    }
+    Assert.assertEquals(1L, (long) roots);
+  }
+
+  @Test
+  public void testKeyframeDensity()
+  {
+    final CaSyntheticSkeletonParameters parameters =
+      CaSyntheticSkeletonParameters.builder()
+        .setJointCount(4)
+        .setFrameCount(20)
+        .setKeyframeInterval(7)
+        .build();
+
+    final CaDefinitionSkeleton s = CaSyntheticSkeletons.generate(parameters);
+    final CaDefinitionActionCurves action = (CaDefinitionActionCurves)
+      s.actions().get(CaSyntheticSkeletons.actionName(0)).get();
+
+    Assert.assertEquals(60L, (long) action.framesPerSecond());
+
+    final List<CaDefinitionCurveType> curves =
+      action.curves().get(CaSyntheticSkeletons.jointName(3)).get();
+    Assert.assertEquals(3L, (long) curves.size());
+
+    final CaDefinitionCurveTranslation translation =
+      (CaDefinitionCurveTranslation) curves.get(0);
+    Assert.assertEquals(
+      List.of(Integer.valueOf(0), Integer.valueOf(7), Integer.valueOf(14), Integer.valueOf(20)),
+      translation.keyframes().map(CaDefinitionCurveKeyframeTranslationType::index));
+  }
+
+  @Test
+  public void testCompiles()
+  {
+    final CaDefinitionSkeleton s = CaSyntheticSkeletons.generate(
+      CaSyntheticSkeletonParameters.builder()
+        .setJointCount(100)
+        .setActionCount(2)
+        .setFrameCount(24)
+        .setKeyframeInterval(4)
+        .build());
+
+    final Validation<List<CaCompileError>, CaSkeleton> r =
+      CaCompiler.create().compile(s);
+    if (r.isInvalid()) {
+      r.getError().forEach(e -> LOG.error("{}", e.message()));
+    }
+    Assert.assertTrue(r.isValid());
+    Assert.assertEquals(2L, (long) r.get().actionsByName().size());
+  }
+
+  @Test
+  public void testSingleJoint()
+  {
+    final CaDefinitionSkeleton s = CaSyntheticSkeletons.generate(
+      CaSyntheticSkeletonParameters.builder()
+        .setJointCount(1)
+        .setMaximumDepth(0)
+        .build());
+    Assert.assertEquals(1L, (long) s.joints().size());
+  }
+
+  @Test
+  public void testDepthInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaSyntheticSkeletonParameters.builder()
+      .setJointCount(2)
+      .setMaximumDepth(0)
+      .build();
+  }
+
+  @Test
+  public void testKeyframeIntervalInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    CaSyntheticSkeletonParameters.builder()
+      .setJointCount(2)
+      .setKeyframeInterval(0)
+      .build();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.loader.api;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.loader.api.CaLoaderAsynchronous;
+import com.io7m.jcalcium.loader.api.CaLoaderAsynchronousType;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.tests.processing.smf.CaTestFilesystems;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import javaslang.collection.List;
+import javaslang.collection.Seq;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class CaLoaderAsynchronousTest
+{
+  private FileSystem filesystem;
+  private ExecutorService exec_io;
+  private ExecutorService exec_decode;
+
+  @Before
+  public void setup()
+  {
+    this.filesystem = CaTestFilesystems.makeEmptyUnixFilesystem();
+    this.exec_io = Executors.newFixedThreadPool(2);
+    this.exec_decode = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.exec_io.shutdown();
+    this.exec_decode.shutdown();
+    this.filesystem.close();
+  }
+
+  @Test
+  public void testLoadMany()
+    throws Exception
+  {
+    final CaSkeleton skeleton = CaTestSkeletons.compiledAll();
+
+    List<Path> paths = List.empty();
+    for (int index = 0; index < 16; ++index) {
+      final Path path =
+        this.filesystem.getPath("/skeleton" + index + ".ccp");
+      CaTestSkeletons.writeProtobuf3(skeleton, CaFormatVersion.of(1, 1), path);
+      paths = paths.append(path);
+    }
+
+    final CaLoaderAsynchronousType loader =
+      CaLoaderAsynchronous.create(this.exec_io, this.exec_decode);
+    final Seq<CaSkeleton> results =
+      loader.loadCompiledSkeletonsFromFiles(paths).get();
+
+    Assert.assertEquals((long) paths.size(), (long) results.size());
+    results.forEach(r -> {
+      Assert.assertEquals(skeleton.meta(), r.meta());
+      Assert.assertEquals(skeleton.actionsByName(), r.actionsByName());
+    });
+  }
+
+  @Test
+  public void testLoadFailure()
+    throws Exception
+  {
+    final CaSkeleton skeleton = CaTestSkeletons.compiledAll();
+    final Path path_ok = this.filesystem.getPath("/skeleton.ccp");
+    CaTestSkeletons.writeProtobuf3(skeleton, CaFormatVersion.of(1, 1), path_ok);
+    final Path path_bad = this.filesystem.getPath("/nonexistent.ccp");
+
+    final CaLoaderAsynchronousType loader =
+      CaLoaderAsynchronous.create(this.exec_io, this.exec_decode);
+
+    try {
+      loader.loadCompiledSkeletonsFromFiles(List.of(path_ok, path_bad)).join();
+      Assert.fail();
+    } catch (final CompletionException e) {
+      Assert.assertTrue(e.getCause() instanceof CaLoaderException);
+    }
+  }
+}
@@ -22,8 +22,12 @@ import com.io7m.jcalcium.core.CaActionName;
 import com.io7m.jcalcium.core.CaJointName;
 import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPoseDType;
 import com.io7m.jcalcium.core.compiled.actions.CaActionType;
 import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.spaces.CaSpaceJointType;
+import com.io7m.jcalcium.core.spaces.CaSpaceObjectType;
 import com.io7m.jcalcium.format.json.jackson.CaJSONFormatProvider;
 import com.io7m.jcalcium.loader.api.CaLoaderType;
 import com.io7m.jcalcium.parser.api.CaDefinitionParserType;
@@ -31,6 +35,8 @@ import com.io7m.jcalcium.parser.api.CaParseError;
 import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
 import com.io7m.jcalcium.tests.format.json.jackson.v1.CaV1JSONParserTest;
 import com.io7m.jorchard.core.JOTreeNodeReadableType;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.parameterized.PMatrixReadable4x4DType;
 import javaslang.collection.List;
 import javaslang.collection.SortedMap;
 import javaslang.control.Validation;
@@ -45,6 +51,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Optional;
 
 import static javaslang.control.Validation.valid;
 
@@ -189,6 +196,55 @@ public abstract class CaLoaderContract
     }
   }
 
+  @Test
+  public final void testRestPoseInversesStored()
+    throws Exception
+  {
+    final CaDefinitionParserType pj = new CaJSONFormatProvider().parserCreate();
+    final CaCompiledSerializerType cs = this.serializer();
+    final CaCompilerType cc = this.compiler();
+    final CaLoaderType cl = this.loader();
+
+    final InputStream res = this.resource(
+      "/com/io7m/jcalcium/tests/format/json/jackson/all-1.0.csj");
+    final URI uri =
+      this.uri("/com/io7m/jcalcium/tests/format/json/jackson/all-1.0.csj");
+
+    final CaSkeleton sk_c =
+      cc.compile(pj.parseSkeletonFromStream(res, uri).get()).get();
+    Assert.assertTrue(sk_c.restPoseInverses().isPresent());
+
+    final ByteArrayOutputStream bao = new ByteArrayOutputStream(4096);
+    cs.serializeCompiledSkeletonToStream(sk_c, bao);
+    final ByteArrayInputStream bai = new ByteArrayInputStream(bao.toByteArray());
+    final CaSkeleton sk_l = cl.loadCompiledSkeletonFromStream(bai, uri);
+
+    Assert.assertEquals(sk_c.restPoseInverses(), sk_l.restPoseInverses());
+
+    final MatrixM4x4D.ContextMM4D c = new MatrixM4x4D.ContextMM4D();
+    final CaSkeletonRestPoseDType stored =
+      CaSkeletonRestPose.createD(c, sk_l);
+    final CaSkeletonRestPoseDType computed =
+      CaSkeletonRestPose.createD(
+        c, sk_l.withRestPoseInverses(Optional.empty()));
+
+    for (final Integer id : sk_l.jointsByID().keySet()) {
+      final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m_stored =
+        stored.transformInverseRest4x4D(id.intValue());
+      final PMatrixReadable4x4DType<CaSpaceObjectType, CaSpaceJointType> m_computed =
+        computed.transformInverseRest4x4D(id.intValue());
+
+      for (int row = 0; row < 4; ++row) {
+        for (int column = 0; column < 4; ++column) {
+          Assert.assertEquals(
+            m_computed.getRowColumnD(row, column),
+            m_stored.getRowColumnD(row, column),
+            0.000_000_001);
+        }
+      }
+    }
+  }
+
   protected final void dumpParse(
     final Validation<List<CaParseError>, CaDefinitionSkeleton> r)
   {
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.loader.api;
+
+import com.io7m.jcalcium.core.definitions.CaFormatDescription;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.loader.api.CaLoaderFormatProviderType;
+import com.io7m.jcalcium.loader.api.CaLoaderType;
+import javaslang.collection.SortedSet;
+import javaslang.collection.TreeSet;
+
+/**
+ * A loader provider whose loaders always raise an {@link Error}, used to
+ * test that callers survive errors raised during loading.
+ */
+
+public final class CaLoaderErrorProvider implements CaLoaderFormatProviderType
+{
+  /**
+   * The suffix of files handled by this provider.
+   */
+
+  public static final String SUFFIX = "caerror";
+
+  private static final CaFormatDescription FORMAT;
+
+  static {
+    final CaFormatDescription.Builder b = CaFormatDescription.builder();
+    b.setMimeType("application/x-calcium-error");
+    b.setDescription("A format whose loaders always fail");
+    b.setName("error");
+    b.setSuffix(SUFFIX);
+    FORMAT = b.build();
+  }
+
+  /**
+   * Construct a provider.
+   */
+
+  public CaLoaderErrorProvider()
+  {
+
+  }
+
+  @Override
+  public CaFormatDescription loaderFormat()
+  {
+    return FORMAT;
+  }
+
+  @Override
+  public SortedSet<CaFormatVersion> loaderSupportedVersions()
+  {
+    return TreeSet.of(CaFormatVersion.of(1, 0));
+  }
+
+  @Override
+  public CaLoaderType loaderCreate()
+  {
+    return (is, uri) -> {
+      throw new LinkageError("Simulated loader error: " + uri);
+    };
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.loader.api;
+
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.loader.api.CaLoaderException;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistry;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryConfiguration;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryEntry;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryStatistics;
+import com.io7m.jcalcium.loader.api.CaSkeletonRegistryType;
+import com.io7m.jcalcium.tests.processing.smf.CaTestFilesystems;
+import com.io7m.jcalcium.tests.processing.smf.CaTestSkeletons;
+import org.hamcrest.core.IsInstanceOf;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public final class CaSkeletonRegistryTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private FileSystem filesystem;
+
+  @Before
+  public void setup()
+  {
+    this.filesystem = CaTestFilesystems.makeEmptyUnixFilesystem();
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.filesystem.close();
+  }
+
+  @Test
+  public void testSharedEntry()
+    throws Exception
+  {
+    final Path path = this.filesystem.getPath("/skeleton.ccp");
+    CaTestSkeletons.writeProtobuf3(
+      CaTestSkeletons.compiledAll(), CaFormatVersion.of(1, 0), path);
+
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(CaSkeletonRegistryConfiguration.builder().build());
+
+    final CaSkeletonRegistryEntry e0 = registry.get(path);
+    final CaSkeletonRegistryEntry e1 = registry.get(path);
+    Assert.assertSame(e0, e1);
+    Assert.assertSame(e0.skeleton(), e0.restPoseD().skeleton());
+
+    final CaSkeletonRegistryStatistics stats = registry.statistics();
+    Assert.assertEquals(1L, stats.hits());
+    Assert.assertEquals(1L, stats.misses());
+    Assert.assertEquals(0L, stats.failures());
+    Assert.assertEquals(1L, (long) stats.size());
+  }
+
+  @Test
+  public void testModifiedReloaded()
+    throws Exception
+  {
+    final Path path = this.filesystem.getPath("/skeleton.ccp");
+    CaTestSkeletons.writeProtobuf3(
+      CaTestSkeletons.compiledAll(), CaFormatVersion.of(1, 0), path);
+
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(CaSkeletonRegistryConfiguration.builder().build());
+
+    final CaSkeletonRegistryEntry e0 = registry.get(path);
+    Files.setLastModifiedTime(
+      path,
+      FileTime.fromMillis(e0.modificationTime().toMillis() + 1000L));
+    final CaSkeletonRegistryEntry e1 = registry.get(path);
+
+    Assert.assertNotSame(e0, e1);
+    Assert.assertEquals(e0.skeleton().meta(), e1.skeleton().meta());
+    Assert.assertEquals(2L, registry.statistics().misses());
+    Assert.assertEquals(1L, (long) registry.statistics().size());
+  }
+
+  @Test
+  public void testEvictionBounded()
+    throws Exception
+  {
+    final CaSkeleton skeleton = CaTestSkeletons.compiledAll();
+    final Path path0 = this.filesystem.getPath("/skeleton0.ccp");
+    final Path path1 = this.filesystem.getPath("/skeleton1.ccp");
+    CaTestSkeletons.writeProtobuf3(skeleton, CaFormatVersion.of(1, 0), path0);
+    CaTestSkeletons.writeProtobuf3(skeleton, CaFormatVersion.of(1, 0), path1);
+
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(
+        CaSkeletonRegistryConfiguration.builder()
+          .setMaximumEntries(1)
+          .build());
+
+    registry.get(path0);
+    registry.get(path1);
+
+    final CaSkeletonRegistryStatistics stats = registry.statistics();
+    Assert.assertEquals(1L, stats.evictions());
+    Assert.assertEquals(1L, (long) stats.size());
+  }
+
+  @Test
+  public void testConcurrentLoadsCollapsed()
+    throws Exception
+  {
+    final Path path = this.filesystem.getPath("/skeleton.ccp");
+    CaTestSkeletons.writeProtobuf3(
+      CaTestSkeletons.compiledAll(), CaFormatVersion.of(1, 0), path);
+
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(CaSkeletonRegistryConfiguration.builder().build());
+
+    final int count = 8;
+    final ExecutorService exec = Executors.newFixedThreadPool(count);
+    try {
+      final CountDownLatch latch = new CountDownLatch(1);
+      final List<Future<CaSkeletonRegistryEntry>> futures =
+        new ArrayList<>(count);
+      for (int index = 0; index < count; ++index) {
+        final Callable<CaSkeletonRegistryEntry> task = () -> {
+          latch.await();
+          return registry.get(path);
+        };
+        futures.add(exec.submit(task));
+      }
+
+      latch.countDown();
+
+      final CaSkeletonRegistryEntry first = futures.get(0).get();
+      for (final Future<CaSkeletonRegistryEntry> future : futures) {
+        Assert.assertSame(first, future.get());
+      }
+    } finally {
+      exec.shutdown();
+    }
+
+    final CaSkeletonRegistryStatistics stats = registry.statistics();
+    Assert.assertEquals(1L, stats.misses());
+    Assert.assertEquals(7L, stats.hits());
+  }
+
+  @Test
+  public void testLoaderErrorReleasesWaiters()
+    throws Exception
+  {
+    final Path path =
+      this.filesystem.getPath("/skeleton." + CaLoaderErrorProvider.SUFFIX);
+    Files.write(path, new byte[]{0x0});
+
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(CaSkeletonRegistryConfiguration.builder().build());
+
+    final int count = 8;
+    final ExecutorService exec = Executors.newFixedThreadPool(count);
+    try {
+      final CountDownLatch latch = new CountDownLatch(1);
+      final List<Future<CaSkeletonRegistryEntry>> futures =
+        new ArrayList<>(count);
+      for (int index = 0; index < count; ++index) {
+        final Callable<CaSkeletonRegistryEntry> task = () -> {
+          latch.await();
+          return registry.get(path);
+        };
+        futures.add(exec.submit(task));
+      }
+
+      latch.countDown();
+
+      /*
+       * Every caller, including those waiting on the loading thread, must
+       * observe the error rather than waiting forever.
+       */
+
+      for (final Future<CaSkeletonRegistryEntry> future : futures) {
+        try {
+          future.get(10L, TimeUnit.SECONDS);
+          Assert.fail("Expected an error");
+        } catch (final ExecutionException e) {
+          Assert.assertThat(e.getCause(), IsInstanceOf.instanceOf(LinkageError.class));
+        }
+      }
+    } finally {
+      exec.shutdown();
+    }
+
+    final CaSkeletonRegistryStatistics stats = registry.statistics();
+    Assert.assertTrue(stats.failures() > 0L);
+    Assert.assertEquals(stats.misses(), stats.failures());
+    Assert.assertEquals(0L, (long) stats.size());
+  }
+
+  @Test
+  public void testNonexistent()
+    throws Exception
+  {
+    final CaSkeletonRegistryType registry =
+      CaSkeletonRegistry.create(CaSkeletonRegistryConfiguration.builder().build());
+
+    this.expected.expect(CaLoaderException.class);
+    registry.get(this.filesystem.getPath("/nonexistent.ccp"));
+  }
+}
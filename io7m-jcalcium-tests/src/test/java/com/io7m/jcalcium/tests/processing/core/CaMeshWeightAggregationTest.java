@@ -23,8 +23,10 @@ import com.io7m.jcalcium.core.compiled.CaJoint;
 import com.io7m.jcalcium.core.compiled.CaSkeleton;
 import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
 import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightAccumulator;
 import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightAggregation;
 import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightsAggregated;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightsAggregatedArrays;
 import com.io7m.jorchard.core.JOTreeNode;
 import com.io7m.jorchard.core.JOTreeNodeType;
 import com.io7m.jtensors.QuaternionI4D;
@@ -33,6 +35,8 @@ import com.io7m.jtensors.VectorI4D;
 import com.io7m.jtensors.VectorI4L;
 import com.io7m.jtensors.parameterized.PVectorI3D;
 import javaslang.Tuple;
+import javaslang.Tuple2;
+import javaslang.collection.List;
 import javaslang.collection.SortedMap;
 import javaslang.collection.TreeMap;
 import javaslang.collection.Vector;
@@ -42,6 +46,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public final class CaMeshWeightAggregationTest
 {
   private static final CaSkeletonHash DEFAULT_HASH =
@@ -451,4 +460,137 @@ public final class CaMeshWeightAggregationTest
       "Skeleton must contain the named joint"));
     CaMeshWeightAggregation.aggregateWeights(skeleton, weight_arrays);
   }
+
+  /**
+   * The original boxed implementation of weight aggregation, used as a
+   * reference for the primitive implementation.
+   */
+
+  private static VectorI4D[] referenceWeights(
+    final double[][] weights,
+    final int vertex)
+  {
+    final java.util.List<Tuple2<Integer, Double>> weighted =
+      new ArrayList<>(weights.length);
+    for (int joint = 0; joint < weights.length; ++joint) {
+      weighted.add(Tuple.of(
+        Integer.valueOf(joint), Double.valueOf(weights[joint][vertex])));
+    }
+
+    final List<Tuple2<Integer, Double>> best =
+      List.ofAll(weighted)
+        .sorted((x, y) -> Double.compare(y._2.doubleValue(), x._2.doubleValue()))
+        .take(4);
+
+    final double[] w = new double[4];
+    final double[] i = new double[4];
+    for (int index = 0; index < best.size(); ++index) {
+      i[index] = (double) best.get(index)._1.intValue();
+      w[index] = best.get(index)._2.doubleValue();
+    }
+
+    final double sum = w[0] + w[1] + w[2] + w[3];
+    if (sum != 0.0) {
+      w[0] = w[0] / sum;
+      w[1] = w[1] / sum;
+      w[2] = w[2] / sum;
+      w[3] = w[3] / sum;
+    }
+
+    return new VectorI4D[]{
+      new VectorI4D(i[0], i[1], i[2], i[3]),
+      new VectorI4D(w[0], w[1], w[2], w[3]),
+    };
+  }
+
+  @Test
+  public void testArraysIdenticalToReference()
+  {
+    final Random random = new Random(0x5eedL);
+    final int joint_count = 37;
+    final int vertex_count = 50_000;
+
+    final int[] joint_ids = new int[joint_count];
+    final double[][] weights = new double[joint_count][vertex_count];
+    for (int joint = 0; joint < joint_count; ++joint) {
+      joint_ids[joint] = joint;
+      for (int vertex = 0; vertex < vertex_count; ++vertex) {
+
+        /*
+         * Use a small set of distinct values so that ties are common.
+         */
+
+        weights[joint][vertex] = (double) random.nextInt(8) / 8.0;
+      }
+    }
+
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final CaMeshWeightsAggregatedArrays result =
+        CaMeshWeightAggregation.aggregateWeightsArrays(
+          joint_ids, weights, exec);
+
+      Assert.assertEquals((long) vertex_count, (long) result.vertexCount());
+      final int[] r_indices = result.vertexBoneIndices();
+      final double[] r_weights = result.vertexWeights();
+
+      for (int vertex = 0; vertex < vertex_count; ++vertex) {
+        final VectorI4D[] expected = referenceWeights(weights, vertex);
+        final int base = vertex * 4;
+        Assert.assertEquals(expected[0].getXD(), (double) r_indices[base], 0.0);
+        Assert.assertEquals(expected[0].getYD(), (double) r_indices[base + 1], 0.0);
+        Assert.assertEquals(expected[0].getZD(), (double) r_indices[base + 2], 0.0);
+        Assert.assertEquals(expected[0].getWD(), (double) r_indices[base + 3], 0.0);
+        Assert.assertEquals(expected[1].getXD(), r_weights[base], 0.0);
+        Assert.assertEquals(expected[1].getYD(), r_weights[base + 1], 0.0);
+        Assert.assertEquals(expected[1].getZD(), r_weights[base + 2], 0.0);
+        Assert.assertEquals(expected[1].getWD(), r_weights[base + 3], 0.0);
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void testAccumulatorIdenticalToArrays()
+  {
+    final Random random = new Random(0x5eedL);
+    final int joint_count = 23;
+    final int vertex_count = 10_000;
+
+    final int[] joint_ids = new int[joint_count];
+    final double[][] weights = new double[joint_count][vertex_count];
+    for (int joint = 0; joint < joint_count; ++joint) {
+      joint_ids[joint] = joint * 3;
+      for (int vertex = 0; vertex < vertex_count; ++vertex) {
+        weights[joint][vertex] = (double) random.nextInt(8) / 8.0;
+      }
+    }
+
+    final CaMeshWeightsAggregatedArrays expected =
+      CaMeshWeightAggregation.aggregateWeightsArrays(
+        joint_ids, weights, Runnable::run);
+
+    /*
+     * Feed the joints to the accumulator in reverse order: the result must
+     * not depend on the order in which weights arrive.
+     */
+
+    final CaMeshWeightAccumulator accumulator =
+      CaMeshWeightAccumulator.create(vertex_count, joint_ids);
+    for (int joint = joint_count - 1; joint >= 0; --joint) {
+      for (int vertex = 0; vertex < vertex_count; ++vertex) {
+        accumulator.addWeight(joint, vertex, weights[joint][vertex]);
+      }
+    }
+
+    final CaMeshWeightsAggregatedArrays result = accumulator.finish();
+    Assert.assertEquals((long) vertex_count, (long) result.vertexCount());
+    Assert.assertArrayEquals(
+      expected.vertexBoneIndices(), result.vertexBoneIndices());
+    Assert.assertArrayEquals(
+      expected.vertexWeights(), result.vertexWeights(), 0.0);
+    Assert.assertEquals(
+      (long) expected.indexBitsRequired(), (long) result.indexBitsRequired());
+  }
 }
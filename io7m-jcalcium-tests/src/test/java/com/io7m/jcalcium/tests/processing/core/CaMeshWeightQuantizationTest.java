@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.processing.core;
+
+import com.io7m.jaffirm.core.PreconditionViolationException;
+import com.io7m.jcalcium.mesh.processing.core.CaMeshWeightQuantization;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Random;
+
+public final class CaMeshWeightQuantizationTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  @Test
+  public void testBadBits()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    CaMeshWeightQuantization.quantize(new double[4], 12);
+  }
+
+  @Test
+  public void testBadLength()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    CaMeshWeightQuantization.quantize(new double[3], 8);
+  }
+
+  @Test
+  public void testZero()
+  {
+    final int[] q = CaMeshWeightQuantization.quantize(new double[4], 8);
+    Assert.assertArrayEquals(new int[]{0, 0, 0, 0}, q);
+  }
+
+  @Test
+  public void testThirds()
+  {
+    final double third = 1.0 / 3.0;
+    final int[] q =
+      CaMeshWeightQuantization.quantize(
+        new double[]{third, third, third, 0.0}, 8);
+    Assert.assertArrayEquals(new int[]{85, 85, 85, 0}, q);
+  }
+
+  @Test
+  public void testRandomSumsExact()
+  {
+    final Random random = new Random(0x5eedL);
+    final int vertex_count = 10_000;
+
+    for (final int bits : new int[]{8, 16}) {
+      final double max = (double) CaMeshWeightQuantization.maximum(bits);
+      final double[] weights = new double[vertex_count * 4];
+      for (int base = 0; base < weights.length; base += 4) {
+        double sum = 0.0;
+        for (int slot = 0; slot < 4; ++slot) {
+          weights[base + slot] = random.nextDouble();
+          sum += weights[base + slot];
+        }
+        for (int slot = 0; slot < 4; ++slot) {
+          weights[base + slot] /= sum;
+        }
+      }
+
+      final int[] q = CaMeshWeightQuantization.quantize(weights, bits);
+      for (int base = 0; base < weights.length; base += 4) {
+        Assert.assertEquals(
+          (long) max, (long) (q[base] + q[base + 1] + q[base + 2] + q[base + 3]));
+        for (int slot = 0; slot < 4; ++slot) {
+          Assert.assertEquals(
+            weights[base + slot] * max, (double) q[base + slot], 1.0);
+        }
+      }
+    }
+  }
+}
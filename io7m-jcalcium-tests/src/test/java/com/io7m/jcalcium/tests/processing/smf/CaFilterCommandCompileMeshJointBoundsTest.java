@@ -0,0 +1,531 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.processing.smf;
+
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
+import com.io7m.jcalcium.mesh.meta.CaMeshJointBounds;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetadata;
+import com.io7m.jcalcium.mesh.meta.CaMeshMetas;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshJointBounds;
+import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
+import com.io7m.jcoords.core.conversion.CAxis;
+import com.io7m.jcoords.core.conversion.CAxisSystem;
+import com.io7m.jorchard.core.JOTreeNode;
+import com.io7m.jorchard.core.JOTreeNodeType;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.VectorI4D;
+import com.io7m.jtensors.VectorI4L;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFCoordinateSystem;
+import com.io7m.smfj.core.SMFFaceWindingOrder;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.core.SMFSchemaIdentifier;
+import com.io7m.smfj.core.SMFTriangles;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating1;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating3;
+import com.io7m.smfj.processing.api.SMFAttributeArrayFloating4;
+import com.io7m.smfj.processing.api.SMFAttributeArrayIntegerUnsigned4;
+import com.io7m.smfj.processing.api.SMFFilterCommandContext;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import com.io7m.smfj.processing.api.SMFMemoryMeshFilterType;
+import com.io7m.smfj.processing.api.SMFMetadata;
+import com.io7m.smfj.processing.api.SMFProcessingError;
+import javaslang.Tuple;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import javaslang.collection.TreeMap;
+import javaslang.collection.Vector;
+import javaslang.control.Validation;
+import org.hamcrest.core.StringContains;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_FLOATING;
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_INTEGER_UNSIGNED;
+
+public final class CaFilterCommandCompileMeshJointBoundsTest extends
+  CaMemoryMeshFilterContract
+{
+  private static final Logger LOG;
+  private static final CaSkeletonHash DEFAULT_HASH = CaSkeletonHash.of(
+    "SHA2-256",
+    "3cb4e2c9e926cce1aa345f1e1724db8683a2aa1056b236ecd7c3aba318a9416d");
+
+  private static final SMFAttributeName ATTR_INDICES =
+    SMFAttributeName.of("joint_indices");
+  private static final SMFAttributeName ATTR_WEIGHTS =
+    SMFAttributeName.of("joint_weights");
+  private static final SMFAttributeName ATTR_POSITION =
+    SMFAttributeName.of("POSITION");
+
+  static {
+    LOG = LoggerFactory.getLogger(CaFilterCommandCompileMeshJointBoundsTest.class);
+  }
+
+  private static SMFHeader baseHeader(
+    final List<SMFAttribute> attributes,
+    final long vertices,
+    final long meta)
+  {
+    final SMFCoordinateSystem coords =
+      SMFCoordinateSystem.of(
+        CAxisSystem.of(
+          CAxis.AXIS_POSITIVE_X,
+          CAxis.AXIS_POSITIVE_Y,
+          CAxis.AXIS_NEGATIVE_Z),
+        SMFFaceWindingOrder.FACE_WINDING_ORDER_COUNTER_CLOCKWISE);
+    final SMFSchemaIdentifier schema =
+      SMFSchemaIdentifier.builder().build();
+
+    return SMFHeader.of(
+      SMFTriangles.of(0L, 16L), vertices, schema, coords, attributes, meta);
+  }
+
+  private static CaSkeleton skeleton()
+  {
+    final CaJoint joint_root =
+      CaJoint.of(
+        CaJointName.of("root"),
+        0,
+        new PVectorI3D<>(),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0));
+    final CaJoint joint_child =
+      CaJoint.of(
+        CaJointName.of("child"),
+        1,
+        new PVectorI3D<>(0.0, 1.0, 0.0),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0));
+
+    final JOTreeNodeType<CaJoint> joints = JOTreeNode.create(joint_root);
+    joints.childAdd(JOTreeNode.create(joint_child));
+
+    return CaSkeleton.of(
+      CaSkeletonMetadata.of(CaSkeletonName.of("skeleton"), DEFAULT_HASH),
+      joints,
+      TreeMap.empty());
+  }
+
+  @Test
+  public void testParseIncorrect0()
+  {
+    final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+      CaFilterCommandCompileMeshJointBounds.parse(
+        Optional.empty(),
+        1,
+        List.of("a", "b", "c"));
+    Assert.assertTrue(r.isInvalid());
+  }
+
+  @Test
+  public void testParseIncorrect1()
+  {
+    final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+      CaFilterCommandCompileMeshJointBounds.parse(
+        Optional.empty(),
+        1,
+        List.of("a", "b", "c", "d", "e"));
+    Assert.assertTrue(r.isInvalid());
+  }
+
+  @Test
+  public void testParseIncorrect2()
+  {
+    final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+      CaFilterCommandCompileMeshJointBounds.parse(
+        Optional.empty(),
+        1,
+        List.of("a", "@#<", "c", "d"));
+    Assert.assertTrue(r.isInvalid());
+  }
+
+  @Test
+  public void testParseCorrect0()
+  {
+    final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+      CaFilterCommandCompileMeshJointBounds.parse(
+        Optional.empty(),
+        1,
+        List.of("a", "b", "c", "d"));
+    Assert.assertTrue(r.isValid());
+  }
+
+  @Test
+  public void testAttributeMissing()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(List.empty(), 0L, 0L))
+        .setArrays(HashMap.empty())
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    Assert.assertTrue(r.isInvalid());
+    Assert.assertEquals(3L, (long) r.getError().size());
+    Assert.assertThat(
+      r.getError().get(0).message(),
+      StringContains.containsString("Source attribute does not exist."));
+
+    r.getError().forEach(x -> LOG.error("{}", x.message()));
+  }
+
+  @Test
+  public void testAttributeWrongType()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(ATTR_INDICES, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_WEIGHTS, ELEMENT_TYPE_FLOATING, 4, 32),
+        SMFAttribute.of(ATTR_POSITION, ELEMENT_TYPE_FLOATING, 1, 32));
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes, 0L, 0L))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            ATTR_INDICES,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.empty())),
+          Tuple.of(
+            ATTR_WEIGHTS,
+            SMFAttributeArrayFloating4.of(Vector.empty())),
+          Tuple.of(
+            ATTR_POSITION,
+            SMFAttributeArrayFloating1.of(Vector.empty()))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    Assert.assertTrue(r.isInvalid());
+    Assert.assertThat(
+      r.getError().get(0).message(),
+      StringContains.containsString("Source attribute is of the wrong type."));
+
+    r.getError().forEach(x -> LOG.error("{}", x.message()));
+  }
+
+  @Test
+  public void testBounds()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(ATTR_INDICES, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_WEIGHTS, ELEMENT_TYPE_FLOATING, 4, 32),
+        SMFAttribute.of(ATTR_POSITION, ELEMENT_TYPE_FLOATING, 3, 32));
+
+    final SMFMetadata existing =
+      SMFMetadata.of(
+        Integer.toUnsignedLong(CaMeshMetas.VENDOR_ID),
+        Integer.toUnsignedLong(CaMeshMetas.PRODUCT_ID),
+        CaMeshMetas.serialize(skeleton().meta(), 1, 0));
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes, 3L, 1L))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            ATTR_INDICES,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.of(
+              new VectorI4L(0L, 0L, 0L, 0L),
+              new VectorI4L(0L, 1L, 0L, 0L),
+              new VectorI4L(1L, 0L, 0L, 0L)))),
+          Tuple.of(
+            ATTR_WEIGHTS,
+            SMFAttributeArrayFloating4.of(Vector.of(
+              new VectorI4D(1.0, 0.0, 0.0, 0.0),
+              new VectorI4D(0.5, 0.5, 0.0, 0.0),
+              new VectorI4D(1.0, 0.0, 0.0, 0.0)))),
+          Tuple.of(
+            ATTR_POSITION,
+            SMFAttributeArrayFloating3.of(Vector.of(
+              new VectorI3D(-1.0, 0.0, -2.0),
+              new VectorI3D(1.0, 1.0, 2.0),
+              new VectorI3D(0.0, 3.0, 0.0))))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.of(existing))
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    if (r.isInvalid()) {
+      r.getError().forEach(x -> LOG.error("{}", x.message()));
+    }
+    Assert.assertTrue(r.isValid());
+
+    final SMFMemoryMesh result = r.get();
+    Assert.assertEquals(1L, result.header().metaCount());
+    Assert.assertEquals(1L, (long) result.metadata().size());
+
+    final CaMeshMetadata meta =
+      CaMeshMetas.deserializeMesh(result.metadata().get(0).data());
+
+    Assert.assertEquals(skeleton().meta(), meta.skeleton());
+    Assert.assertFalse(meta.includesOrigin());
+    Assert.assertEquals(2L, (long) meta.jointBounds().size());
+    Assert.assertEquals(
+      CaMeshJointBounds.of(
+        0,
+        new PVectorI3D<>(-1.0, 0.0, -2.0),
+        new PVectorI3D<>(1.0, 1.0, 2.0)),
+      meta.jointBounds().get(Integer.valueOf(0)).get());
+
+    /*
+     * The child joint is one unit along Y, so vertices are moved one unit
+     * down in its joint space.
+     */
+
+    Assert.assertEquals(
+      CaMeshJointBounds.of(
+        1,
+        new PVectorI3D<>(0.0, 0.0, 0.0),
+        new PVectorI3D<>(1.0, 2.0, 2.0)),
+      meta.jointBounds().get(Integer.valueOf(1)).get());
+  }
+
+  @Test
+  public void testBoundsIncludesOrigin()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(ATTR_INDICES, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_WEIGHTS, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_POSITION, ELEMENT_TYPE_FLOATING, 3, 32));
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes, 2L, 0L))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            ATTR_INDICES,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.of(
+              new VectorI4L(0L, 0L, 0L, 0L),
+              new VectorI4L(1L, 0L, 0L, 0L)))),
+          Tuple.of(
+            ATTR_WEIGHTS,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.of(
+              new VectorI4L(255L, 0L, 0L, 0L),
+              new VectorI4L(128L, 0L, 0L, 0L)))),
+          Tuple.of(
+            ATTR_POSITION,
+            SMFAttributeArrayFloating3.of(Vector.of(
+              new VectorI3D(4.0, 4.0, 4.0),
+              new VectorI3D(5.0, 5.0, 5.0))))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    if (r.isInvalid()) {
+      r.getError().forEach(x -> LOG.error("{}", x.message()));
+    }
+    Assert.assertTrue(r.isValid());
+
+    final CaMeshMetadata meta =
+      CaMeshMetas.deserializeMesh(r.get().metadata().get(0).data());
+    Assert.assertTrue(meta.includesOrigin());
+    Assert.assertEquals(2L, (long) meta.jointBounds().size());
+  }
+
+  @Test
+  public void testJointIndexOutOfRange()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(ATTR_INDICES, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_WEIGHTS, ELEMENT_TYPE_FLOATING, 4, 32),
+        SMFAttribute.of(ATTR_POSITION, ELEMENT_TYPE_FLOATING, 3, 32));
+
+    /*
+     * The second vertex refers to joint 2 with a non-zero weight, but the
+     * skeleton only has two joints. The unweighted index 200 is ignored.
+     */
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes, 2L, 0L))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            ATTR_INDICES,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.of(
+              new VectorI4L(0L, 200L, 0L, 0L),
+              new VectorI4L(1L, 2L, 0L, 0L)))),
+          Tuple.of(
+            ATTR_WEIGHTS,
+            SMFAttributeArrayFloating4.of(Vector.of(
+              new VectorI4D(1.0, 0.0, 0.0, 0.0),
+              new VectorI4D(0.5, 0.5, 0.0, 0.0)))),
+          Tuple.of(
+            ATTR_POSITION,
+            SMFAttributeArrayFloating3.of(Vector.of(
+              new VectorI3D(0.0, 0.0, 0.0),
+              new VectorI3D(1.0, 1.0, 1.0))))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    Assert.assertTrue(r.isInvalid());
+    Assert.assertEquals(1L, (long) r.getError().size());
+    Assert.assertThat(
+      r.getError().get(0).message(),
+      StringContains.containsString("Joint index is out of range."));
+
+    r.getError().forEach(x -> LOG.error("{}", x.message()));
+  }
+
+  @Test
+  public void testAttributeWrongLength()
+    throws Exception
+  {
+    final Path path = this.writeSkeleton(skeleton());
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshJointBounds.create(
+        path, ATTR_INDICES, ATTR_WEIGHTS, ATTR_POSITION);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(ATTR_INDICES, ELEMENT_TYPE_INTEGER_UNSIGNED, 4, 8),
+        SMFAttribute.of(ATTR_WEIGHTS, ELEMENT_TYPE_FLOATING, 4, 32),
+        SMFAttribute.of(ATTR_POSITION, ELEMENT_TYPE_FLOATING, 3, 32));
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes, 2L, 0L))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            ATTR_INDICES,
+            SMFAttributeArrayIntegerUnsigned4.of(Vector.of(
+              new VectorI4L(0L, 0L, 0L, 0L)))),
+          Tuple.of(
+            ATTR_WEIGHTS,
+            SMFAttributeArrayFloating4.of(Vector.of(
+              new VectorI4D(1.0, 0.0, 0.0, 0.0)))),
+          Tuple.of(
+            ATTR_POSITION,
+            SMFAttributeArrayFloating3.of(Vector.of(
+              new VectorI3D(0.0, 0.0, 0.0),
+              new VectorI3D(1.0, 1.0, 1.0))))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    Assert.assertTrue(r.isInvalid());
+    Assert.assertEquals(2L, (long) r.getError().size());
+    Assert.assertThat(
+      r.getError().get(0).message(),
+      StringContains.containsString(
+        "Source attribute has the wrong number of elements."));
+
+    r.getError().forEach(x -> LOG.error("{}", x.message()));
+  }
+
+  private Path writeSkeleton(
+    final CaSkeleton skeleton)
+    throws IOException
+  {
+    final CaFormatVersion version =
+      CaFormatVersion.of(1, 0);
+    final CaCompiledSerializerType serial =
+      new CaProtobuf3FormatProvider().serializerCreate(version);
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Path path = root.resolve("skeleton.ccp");
+    Files.deleteIfExists(path);
+
+    try (final OutputStream os = Files.newOutputStream(path)) {
+      serial.serializeCompiledSkeletonToStream(skeleton, os);
+      os.flush();
+    }
+    return path;
+  }
+}
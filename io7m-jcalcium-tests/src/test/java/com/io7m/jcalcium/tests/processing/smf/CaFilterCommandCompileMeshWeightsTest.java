@@ -25,6 +25,7 @@ import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
 import com.io7m.jcalcium.core.definitions.CaFormatVersion;
 import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
 import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights.WeightEncoding;
 import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
 import com.io7m.jcoords.core.conversion.CAxis;
 import com.io7m.jcoords.core.conversion.CAxisSystem;
@@ -32,6 +33,7 @@ import com.io7m.jorchard.core.JOTreeNode;
 import com.io7m.jorchard.core.JOTreeNodeType;
 import com.io7m.jtensors.QuaternionI4D;
 import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.VectorI4L;
 import com.io7m.jtensors.parameterized.PVectorI3D;
 import com.io7m.smfj.core.SMFAttribute;
 import com.io7m.smfj.core.SMFAttributeName;
@@ -43,6 +45,7 @@ import com.io7m.smfj.core.SMFTriangles;
 import com.io7m.smfj.parser.api.SMFParseError;
 import com.io7m.smfj.processing.api.SMFAttributeArrayFloating1;
 import com.io7m.smfj.processing.api.SMFAttributeArrayFloating2;
+import com.io7m.smfj.processing.api.SMFAttributeArrayIntegerUnsigned4;
 import com.io7m.smfj.processing.api.SMFFilterCommandContext;
 import com.io7m.smfj.processing.api.SMFMemoryMesh;
 import com.io7m.smfj.processing.api.SMFMemoryMeshFilterType;
@@ -68,6 +71,7 @@ import java.util.regex.Pattern;
 
 import static com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights.AddMetadata.META;
 import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_FLOATING;
+import static com.io7m.smfj.core.SMFComponentType.ELEMENT_TYPE_INTEGER_UNSIGNED;
 
 public final class CaFilterCommandCompileMeshWeightsTest extends
   CaMemoryMeshFilterContract
@@ -219,6 +223,30 @@ public final class CaFilterCommandCompileMeshWeightsTest extends
     Assert.assertTrue(r.isValid());
   }
 
+  @Test
+  public void testParseCorrectEncoding()
+  {
+    for (final String encoding : List.of("float32", "unorm16", "unorm8")) {
+      final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+        CaFilterCommandCompileMeshWeights.parse(
+          Optional.empty(),
+          1,
+          List.of("a", "b", "c", "meta", "d", encoding));
+      Assert.assertTrue(r.isValid());
+    }
+  }
+
+  @Test
+  public void testParseIncorrectEncoding()
+  {
+    final Validation<List<SMFParseError>, SMFMemoryMeshFilterType> r =
+      CaFilterCommandCompileMeshWeights.parse(
+        Optional.empty(),
+        1,
+        List.of("a", "b", "c", "meta", "d", "unorm4"));
+    Assert.assertTrue(r.isInvalid());
+  }
+
   @Test
   public void testAttributeCollisionIndices()
     throws Exception
@@ -535,6 +563,152 @@ public final class CaFilterCommandCompileMeshWeightsTest extends
     r.getError().forEach(x -> LOG.error("{}", x.message()));
   }
 
+  private static CaSkeleton skeletonWide(
+    final int count)
+  {
+    final JOTreeNodeType<CaJoint> joints =
+      JOTreeNode.create(CaJoint.of(
+        CaJointName.of("root"),
+        0,
+        new PVectorI3D<>(),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0)));
+
+    for (int index = 1; index < count; ++index) {
+      joints.childAdd(JOTreeNode.create(CaJoint.of(
+        CaJointName.of("j" + index),
+        index,
+        new PVectorI3D<>(),
+        new QuaternionI4D(),
+        new VectorI3D(1.0, 1.0, 1.0))));
+    }
+
+    return CaSkeleton.of(
+      CaSkeletonMetadata.of(CaSkeletonName.of("skeleton"), DEFAULT_HASH),
+      joints,
+      TreeMap.empty());
+  }
+
+  private SMFMemoryMesh filterEncoded(
+    final WeightEncoding encoding)
+    throws IOException
+  {
+    final Path path = this.writeSkeleton(skeletonWide(256));
+
+    final SMFAttributeName attr_root =
+      SMFAttributeName.of("GROUP:root");
+    final SMFAttributeName attr_last =
+      SMFAttributeName.of("GROUP:j255");
+
+    final SMFMemoryMeshFilterType filter =
+      CaFilterCommandCompileMeshWeights.create(
+        path,
+        SMFAttributeName.of("joint_indices"),
+        SMFAttributeName.of("joint_weights"),
+        META,
+        Pattern.compile(".*"),
+        encoding);
+
+    final List<SMFAttribute> attributes =
+      List.of(
+        SMFAttribute.of(attr_root, ELEMENT_TYPE_FLOATING, 1, 32),
+        SMFAttribute.of(attr_last, ELEMENT_TYPE_FLOATING, 1, 32));
+
+    final SMFMemoryMesh mesh =
+      SMFMemoryMesh.builder()
+        .setHeader(baseHeader(attributes))
+        .setArrays(HashMap.ofEntries(
+          Tuple.of(
+            attr_root,
+            SMFAttributeArrayFloating1.of(Vector.of(
+              Double.valueOf(1.0),
+              Double.valueOf(0.5),
+              Double.valueOf(0.1),
+              Double.valueOf(1.0 / 3.0)))),
+          Tuple.of(
+            attr_last,
+            SMFAttributeArrayFloating1.of(Vector.of(
+              Double.valueOf(0.0),
+              Double.valueOf(0.5),
+              Double.valueOf(0.2),
+              Double.valueOf(2.0 / 3.0))))))
+        .setTriangles(Vector.empty())
+        .setMetadata(Vector.empty())
+        .build();
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Validation<List<SMFProcessingError>, SMFMemoryMesh> r =
+      filter.filter(SMFFilterCommandContext.of(root, root), mesh);
+
+    if (r.isInvalid()) {
+      r.getError().forEach(x -> LOG.error("{}", x.message()));
+    }
+    Assert.assertTrue(r.isValid());
+    return r.get();
+  }
+
+  private static void checkEncoded(
+    final SMFMemoryMesh result,
+    final int bits,
+    final long maximum)
+  {
+    final SMFAttribute attr_indices =
+      result.header().attributesByName().get(
+        SMFAttributeName.of("joint_indices")).get();
+    Assert.assertEquals(ELEMENT_TYPE_INTEGER_UNSIGNED, attr_indices.componentType());
+    Assert.assertEquals(4L, (long) attr_indices.componentCount());
+    Assert.assertEquals(8L, (long) attr_indices.componentSizeBits());
+
+    final SMFAttribute attr_weights =
+      result.header().attributesByName().get(
+        SMFAttributeName.of("joint_weights")).get();
+    Assert.assertEquals(ELEMENT_TYPE_INTEGER_UNSIGNED, attr_weights.componentType());
+    Assert.assertEquals(4L, (long) attr_weights.componentCount());
+    Assert.assertEquals((long) bits, (long) attr_weights.componentSizeBits());
+
+    final SMFAttributeArrayIntegerUnsigned4 indices =
+      (SMFAttributeArrayIntegerUnsigned4) result.arrays().get(
+        SMFAttributeName.of("joint_indices")).get();
+    final SMFAttributeArrayIntegerUnsigned4 weights =
+      (SMFAttributeArrayIntegerUnsigned4) result.arrays().get(
+        SMFAttributeName.of("joint_weights")).get();
+
+    Assert.assertEquals(4L, (long) weights.values().size());
+    for (final VectorI4L w : weights.values()) {
+      Assert.assertEquals(
+        maximum, w.getXL() + w.getYL() + w.getZL() + w.getWL());
+    }
+
+    Assert.assertEquals(0L, weights.values().get(0).getYL());
+    Assert.assertEquals(255L, indices.values().get(3).getXL());
+    Assert.assertEquals(maximum / 2L + 1L, weights.values().get(1).getXL());
+  }
+
+  @Test
+  public void testFilterUnorm8()
+    throws Exception
+  {
+    checkEncoded(this.filterEncoded(WeightEncoding.UNORM8), 8, 255L);
+  }
+
+  @Test
+  public void testFilterUnorm16()
+    throws Exception
+  {
+    checkEncoded(this.filterEncoded(WeightEncoding.UNORM16), 16, 65535L);
+  }
+
+  @Test
+  public void testFilterFloat32IndexBits()
+    throws Exception
+  {
+    final SMFMemoryMesh result = this.filterEncoded(WeightEncoding.FLOAT32);
+    final SMFAttribute attr_indices =
+      result.header().attributesByName().get(
+        SMFAttributeName.of("joint_indices")).get();
+    Assert.assertEquals(16L, (long) attr_indices.componentSizeBits());
+  }
+
   private Path writeSkeleton(
     final CaSkeleton skeleton)
     throws IOException
@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.processing.smf;
+
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights.AddMetadata;
+import com.io7m.jcalcium.mesh.processing.smf.CaFilterCommandCompileMeshWeights.WeightEncoding;
+import com.io7m.jcalcium.serializer.api.CaCompiledSerializerType;
+import com.io7m.jorchard.core.JOTreeNode;
+import com.io7m.jorchard.core.JOTreeNodeType;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import com.io7m.smfj.processing.api.SMFFilterCommandContext;
+import com.io7m.smfj.processing.api.SMFMemoryMesh;
+import com.io7m.smfj.processing.api.SMFMemoryMeshProducer;
+import com.io7m.smfj.processing.api.SMFMemoryMeshProducerType;
+import com.io7m.smfj.processing.api.SMFMemoryMeshSerializer;
+import com.io7m.smfj.processing.api.SMFProcessingError;
+import com.io7m.smfj.serializer.api.SMFSerializerType;
+import javaslang.collection.List;
+import javaslang.collection.TreeMap;
+import javaslang.control.Validation;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+public final class CaMeshWeightsStreamingFilterTest extends
+  CaMemoryMeshFilterContract
+{
+  private static final Logger LOG;
+  private static final String MESH_FILE =
+    "/com/io7m/jcalcium/tests/processing/smf/weights.smft";
+  private static final CaSkeletonHash DEFAULT_HASH = CaSkeletonHash.of(
+    "SHA2-256",
+    "3cb4e2c9e926cce1aa345f1e1724db8683a2aa1056b236ecd7c3aba318a9416d");
+
+  static {
+    LOG = LoggerFactory.getLogger(CaMeshWeightsStreamingFilterTest.class);
+  }
+
+  private static CaJoint joint(
+    final String name,
+    final int id)
+  {
+    return CaJoint.of(
+      CaJointName.of(name),
+      id,
+      new PVectorI3D<>(),
+      new QuaternionI4D(),
+      new VectorI3D(1.0, 1.0, 1.0));
+  }
+
+  private static CaSkeleton skeleton()
+  {
+    final JOTreeNodeType<CaJoint> node_root =
+      JOTreeNode.create(joint("root", 0));
+    final JOTreeNodeType<CaJoint> node_a =
+      JOTreeNode.create(joint("a", 1));
+    final JOTreeNodeType<CaJoint> node_b =
+      JOTreeNode.create(joint("b", 2));
+    final JOTreeNodeType<CaJoint> node_c =
+      JOTreeNode.create(joint("c", 3));
+    final JOTreeNodeType<CaJoint> node_d =
+      JOTreeNode.create(joint("d", 4));
+    node_root.childAdd(node_a);
+    node_a.childAdd(node_b);
+    node_root.childAdd(node_c);
+    node_c.childAdd(node_d);
+
+    return CaSkeleton.of(
+      CaSkeletonMetadata.of(CaSkeletonName.of("skeleton"), DEFAULT_HASH),
+      node_root,
+      TreeMap.empty());
+  }
+
+  private static SMFMemoryMesh parse(
+    final SMFMemoryMeshProducerType producer,
+    final SMFParserEventsType events)
+    throws IOException
+  {
+    final SMFFormatText format = new SMFFormatText();
+    final Path path = Paths.get(MESH_FILE);
+    try (final InputStream stream =
+           CaMeshWeightsStreamingFilterTest.class.getResourceAsStream(MESH_FILE)) {
+      try (final SMFParserSequentialType parser =
+             format.parserCreateSequential(events, path, stream)) {
+        parser.parseHeader();
+        if (!parser.parserHasFailed()) {
+          parser.parseData();
+        }
+      }
+    }
+
+    producer.errors().forEach(e -> LOG.error("{}", e.fullMessage()));
+    Assert.assertTrue(producer.errors().isEmpty());
+    return producer.mesh();
+  }
+
+  private static byte[] serialize(
+    final SMFMemoryMesh mesh)
+    throws IOException
+  {
+    final SMFFormatText format = new SMFFormatText();
+    final Path path = Paths.get("out.smft");
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (final SMFSerializerType serializer =
+           format.serializerCreate(
+             format.serializerSupportedVersions().last(), path, out)) {
+      SMFMemoryMeshSerializer.serialize(mesh, serializer);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testIdenticalToMemoryFilter()
+    throws Exception
+  {
+    final Path skeleton_path = this.writeSkeleton(skeleton());
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final SMFFilterCommandContext context =
+      SMFFilterCommandContext.of(root, root);
+
+    for (final AddMetadata meta : AddMetadata.values()) {
+      for (final WeightEncoding encoding : WeightEncoding.values()) {
+        final CaFilterCommandCompileMeshWeights filter =
+          (CaFilterCommandCompileMeshWeights)
+            CaFilterCommandCompileMeshWeights.create(
+              skeleton_path,
+              SMFAttributeName.of("JOINT_INDICES"),
+              SMFAttributeName.of("JOINT_WEIGHTS"),
+              meta,
+              Pattern.compile(".*"),
+              encoding);
+
+        final SMFMemoryMeshProducerType producer_memory =
+          SMFMemoryMeshProducer.create();
+        final SMFMemoryMesh mesh_input =
+          parse(producer_memory, producer_memory);
+        final Validation<List<SMFProcessingError>, SMFMemoryMesh> result =
+          filter.filter(context, mesh_input);
+        Assert.assertTrue(result.isValid());
+
+        final SMFMemoryMeshProducerType producer_stream =
+          SMFMemoryMeshProducer.create();
+        final SMFMemoryMesh mesh_stream =
+          parse(producer_stream, filter.streaming(context, producer_stream));
+
+        final byte[] bytes_memory = serialize(result.get());
+        final byte[] bytes_stream = serialize(mesh_stream);
+        LOG.debug("{} {}:\n{}", meta, encoding,
+                  new String(bytes_stream, StandardCharsets.UTF_8));
+
+        Assert.assertEquals(
+          new String(bytes_memory, StandardCharsets.UTF_8),
+          new String(bytes_stream, StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(bytes_memory, bytes_stream);
+      }
+    }
+  }
+
+  @Test
+  public void testAttributeNoneMatched()
+    throws Exception
+  {
+    final Path skeleton_path = this.writeSkeleton(skeleton());
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final SMFFilterCommandContext context =
+      SMFFilterCommandContext.of(root, root);
+
+    final CaFilterCommandCompileMeshWeights filter =
+      (CaFilterCommandCompileMeshWeights)
+        CaFilterCommandCompileMeshWeights.create(
+          skeleton_path,
+          SMFAttributeName.of("JOINT_INDICES"),
+          SMFAttributeName.of("JOINT_WEIGHTS"),
+          AddMetadata.META,
+          Pattern.compile("nonexistent"),
+          WeightEncoding.FLOAT32);
+
+    final SMFMemoryMeshProducerType producer =
+      SMFMemoryMeshProducer.create();
+    final SMFParserEventsType events = filter.streaming(context, producer);
+
+    final SMFFormatText format = new SMFFormatText();
+    final Path path = Paths.get(MESH_FILE);
+    try (final InputStream stream =
+           CaMeshWeightsStreamingFilterTest.class.getResourceAsStream(MESH_FILE)) {
+      try (final SMFParserSequentialType parser =
+             format.parserCreateSequential(events, path, stream)) {
+        parser.parseHeader();
+        if (!parser.parserHasFailed()) {
+          parser.parseData();
+        }
+      }
+    }
+
+    Assert.assertFalse(producer.errors().isEmpty());
+    producer.errors().forEach(e -> LOG.error("{}", e.fullMessage()));
+  }
+
+  private Path writeSkeleton(
+    final CaSkeleton skeleton)
+    throws IOException
+  {
+    final CaFormatVersion version =
+      CaFormatVersion.of(1, 0);
+    final CaCompiledSerializerType serial =
+      new CaProtobuf3FormatProvider().serializerCreate(version);
+
+    final Path root = this.filesystem.getRootDirectories().iterator().next();
+    final Path path = root.resolve("skeleton.ccp");
+    Files.deleteIfExists(path);
+
+    try (final OutputStream os = Files.newOutputStream(path)) {
+      serial.serializeCompiledSkeletonToStream(skeleton, os);
+      os.flush();
+    }
+    return path;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2017 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jcalcium.tests.processing.smf;
+
+import com.io7m.jcalcium.compiler.main.CaCompiler;
+import com.io7m.jcalcium.core.CaJointName;
+import com.io7m.jcalcium.core.CaSkeletonName;
+import com.io7m.jcalcium.core.compiled.CaJoint;
+import com.io7m.jcalcium.core.compiled.CaSkeleton;
+import com.io7m.jcalcium.core.compiled.CaSkeletonHash;
+import com.io7m.jcalcium.core.compiled.CaSkeletonMetadata;
+import com.io7m.jcalcium.core.compiled.CaSkeletonRestPose;
+import com.io7m.jcalcium.core.definitions.CaDefinitionSkeleton;
+import com.io7m.jcalcium.core.definitions.CaFormatVersion;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonD;
+import com.io7m.jcalcium.evaluator.api.CaEvaluatedSkeletonMutableDType;
+import com.io7m.jcalcium.evaluator.api.CaEvaluationContext;
+import com.io7m.jcalcium.format.json.jackson.CaJSONFormatProvider;
+import com.io7m.jcalcium.format.protobuf3.CaProtobuf3FormatProvider;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletonParameters;
+import com.io7m.jcalcium.generators.CaSyntheticSkeletons;
+import com.io7m.jcalcium.tests.format.json.jackson.v1.CaV1JSONParserTest;
+import com.io7m.jorchard.core.JOTreeNode;
+import com.io7m.jorchard.core.JOTreeNodeType;
+import com.io7m.jtensors.MatrixM4x4D;
+import com.io7m.jtensors.QuaternionI4D;
+import com.io7m.jtensors.VectorI3D;
+import com.io7m.jtensors.parameterized.PVectorI3D;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.TreeMap;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class CaTestSkeletons
+{
+  private CaTestSkeletons()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  public static CaSkeletonMetadata metadata()
+  {
+    return CaSkeletonMetadata.of(
+      CaSkeletonName.of("skeleton"),
+      CaSkeletonHash.of(
+        "SHA2-256",
+        "3cb4e2c9e926cce1aa345f1e1724db8683a2aa1056b236ecd7c3aba318a9416d"));
+  }
+
+  public static CaJoint joint(
+    final String name,
+    final int id,
+    final double y)
+  {
+    return CaJoint.of(
+      CaJointName.of(name),
+      id,
+      new PVectorI3D<>(0.0, y, 0.0),
+      new QuaternionI4D(),
+      new VectorI3D(1.0, 1.0, 1.0));
+  }
+
+  public static CaSkeleton skeleton(
+    final JOTreeNodeType<CaJoint> root)
+  {
+    final CaSkeleton.Builder cb = CaSkeleton.builder();
+    cb.setJoints(root);
+    cb.setActionsByName(TreeMap.empty());
+    cb.setMeta(metadata());
+    return cb.build();
+  }
+
+  public static CaSkeleton singleJoint(
+    final String name)
+  {
+    return skeleton(JOTreeNode.create(joint(name, 0, 0.0)));
+  }
+
+  public static CaEvaluatedSkeletonMutableDType evaluated(
+    final CaSkeleton skeleton)
+  {
+    return CaEvaluatedSkeletonD.create(
+      CaEvaluationContext.create(),
+      CaSkeletonRestPose.createD(new MatrixM4x4D.ContextMM4D(), skeleton));
+  }
+
+  public static CaSkeleton compiledAll()
+    throws Exception
+  {
+    final String name =
+      "/com/io7m/jcalcium/tests/format/json/jackson/all-1.0.csj";
+    final URI uri = CaV1JSONParserTest.class.getResource(name).toURI();
+    try (final InputStream stream =
+           CaV1JSONParserTest.class.getResourceAsStream(name)) {
+      final CaDefinitionSkeleton skel_d =
+        new CaJSONFormatProvider().parserCreate()
+          .parseSkeletonFromStream(stream, uri).get();
+      return CaCompiler.create().compile(skel_d).get();
+    }
+  }
+
+  public static CaSkeleton compiledSynthetic()
+  {
+    final CaSyntheticSkeletonParameters parameters =
+      CaSyntheticSkeletonParameters.builder()
+        .setSeed(0x1234L)
+        .setJointCount(32)
+        .setActionCount(2)
+        .setFrameCount(30)
+        .setKeyframeInterval(5)
+        .build();
+
+    return CaCompiler.create()
+      .compile(CaSyntheticSkeletons.generate(parameters))
+      .get();
+  }
+
+  public static void writeProtobuf3(
+    final CaSkeleton skeleton,
+    final CaFormatVersion version,
+    final Path path)
+    throws Exception
+  {
+    try (final OutputStream out = Files.newOutputStream(path)) {
+      new CaProtobuf3FormatProvider()
+        .serializerCreate(version)
+        .serializeCompiledSkeletonToStream(skeleton, out);
+    }
+  }
+}